@@ -0,0 +1,380 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.shibboleth.idp.admin.impl;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+
+import org.opensaml.profile.action.ActionSupport;
+import org.opensaml.profile.action.EventIds;
+import org.opensaml.profile.context.ProfileRequestContext;
+import org.slf4j.Logger;
+import org.springframework.webflow.execution.RequestContext;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.jasminb.jsonapi.models.errors.Error;
+import com.github.jasminb.jsonapi.models.errors.Errors;
+
+import net.shibboleth.idp.profile.AbstractProfileAction;
+import net.shibboleth.idp.profile.context.SpringRequestContext;
+import net.shibboleth.idp.profile.jfr.AttributeProcessingEvent;
+import net.shibboleth.idp.profile.jfr.CredentialValidationEvent;
+import net.shibboleth.idp.profile.jfr.ProfileActionEvent;
+import net.shibboleth.idp.profile.jfr.StorageOperationEvent;
+import net.shibboleth.shared.annotation.constraint.NonnullAfterInit;
+import net.shibboleth.shared.annotation.constraint.NonnullBeforeExec;
+import net.shibboleth.shared.annotation.constraint.NotEmpty;
+import net.shibboleth.shared.collection.CollectionSupport;
+import net.shibboleth.shared.component.ComponentInitializationException;
+import net.shibboleth.shared.logic.Constraint;
+import net.shibboleth.shared.primitive.LoggerFactory;
+import net.shibboleth.shared.primitive.StringSupport;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Action that starts, stops, and dumps a JDK Flight Recorder recording that includes the IdP's own
+ * event types, returning the recorded data to the caller.
+ *
+ * <p>The operation is taken from a flow variable and may be "start", "dump" (return the data recorded so
+ * far), or "stop" (return the data recorded and discard the recording). At most one such recording is
+ * active at a time, and operations on it are serialized.</p>
+ *
+ * @event {@link EventIds#PROCEED_EVENT_ID}
+ * @event {@link EventIds#INVALID_PROFILE_CTX}
+ * @event {@link EventIds#IO_ERROR}
+ *
+ * @since 5.2.0
+ */
+public class ControlFlightRecording extends AbstractProfileAction {
+
+    /** Flow variable indicating the operation to perform. */
+    @Nonnull @NotEmpty public static final String OPERATION = "operation";
+
+    /** Name of the recording managed by this action. */
+    @Nonnull @NotEmpty public static final String RECORDING_NAME = "shibboleth-idp";
+
+    /** Lock serializing all operations on the recording. */
+    @Nonnull private static final Object LOCK = new Object();
+
+    /** Class logger. */
+    @Nonnull private final Logger log = LoggerFactory.getLogger(ControlFlightRecording.class);
+
+    /** JSON object mapper. */
+    @NonnullAfterInit private ObjectMapper objectMapper;
+
+    /** Name of the predefined recording configuration to apply. */
+    @Nonnull @NotEmpty private String configurationName;
+
+    /** Maximum age of data to retain in the recording. */
+    @Nullable private Duration maxAge;
+
+    /** Operation to perform. */
+    @NonnullBeforeExec private String operation;
+
+    /** Constructor. */
+    public ControlFlightRecording() {
+        configurationName = "default";
+    }
+
+    /**
+     * Set the JSON {@link ObjectMapper} to use for serialization.
+     *
+     * @param mapper object mapper
+     */
+    public void setObjectMapper(@Nonnull final ObjectMapper mapper) {
+        checkSetterPreconditions();
+        objectMapper = Constraint.isNotNull(mapper, "ObjectMapper cannot be null");
+    }
+
+    /**
+     * Set the name of the predefined JDK recording configuration to apply, "default" or "profile".
+     *
+     * @param name configuration name
+     */
+    public void setConfigurationName(@Nonnull @NotEmpty final String name) {
+        checkSetterPreconditions();
+        configurationName = Constraint.isNotNull(StringSupport.trimOrNull(name),
+                "Configuration name cannot be null or empty");
+    }
+
+    /**
+     * Set the maximum age of data to retain in the recording.
+     *
+     * @param age maximum age, or null for no limit
+     */
+    public void setMaxAge(@Nullable final Duration age) {
+        checkSetterPreconditions();
+        if (age != null) {
+            Constraint.isFalse(age.isNegative() || age.isZero(), "Maximum age must be positive");
+        }
+        maxAge = age;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void doInitialize() throws ComponentInitializationException {
+        super.doInitialize();
+
+        if (objectMapper == null) {
+            throw new ComponentInitializationException("ObjectMapper cannot be null");
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected boolean doPreExecute(@Nonnull final ProfileRequestContext profileRequestContext) {
+
+        if (!super.doPreExecute(profileRequestContext)) {
+            return false;
+        } else if (getHttpServletRequest() == null || getHttpServletResponse() == null) {
+            log.warn("{} No HttpServletRequest or HttpServletResponse available", getLogPrefix());
+            ActionSupport.buildEvent(profileRequestContext, EventIds.INVALID_PROFILE_CTX);
+            return false;
+        }
+
+        try {
+            final SpringRequestContext springRequestContext =
+                    profileRequestContext.getSubcontext(SpringRequestContext.class);
+            final RequestContext requestContext =
+                    springRequestContext != null ? springRequestContext.getRequestContext() : null;
+            if (requestContext == null) {
+                log.warn("{} Web Flow request context not available", getLogPrefix());
+                sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
+                        "Internal Server Error", "System misconfiguration.");
+                return false;
+            }
+
+            operation = StringSupport.trimOrNull((String) requestContext.getFlowScope().get(OPERATION));
+            if (operation == null) {
+                sendError(HttpServletResponse.SC_NOT_FOUND, "Missing Operation", "No operation specified.");
+                return false;
+            }
+        } catch (final IOException e) {
+            log.error("{} I/O error issuing API response", getLogPrefix(), e);
+            ActionSupport.buildEvent(profileRequestContext, EventIds.IO_ERROR);
+            return false;
+        }
+
+        return true;
+    }
+
+    /** {@inheritDoc} */
+    @Override protected void doExecute(@Nonnull final ProfileRequestContext profileRequestContext) {
+
+        try {
+            final HttpServletResponse response = ensureHttpServletResponse();
+            response.setHeader("Cache-Control", "must-revalidate,no-cache,no-store");
+
+            if ("start".equals(operation)) {
+                doStart();
+            } else if ("dump".equals(operation)) {
+                doDump(false);
+            } else if ("stop".equals(operation)) {
+                doDump(true);
+            } else {
+                log.warn("{} Invalid operation: {}", getLogPrefix(), operation);
+                sendError(HttpServletResponse.SC_NOT_FOUND,
+                        "Unknown Operation", "start, dump, stop are supported.");
+            }
+        } catch (final IOException e) {
+            log.error("{} I/O error responding to request", getLogPrefix(), e);
+            ActionSupport.buildEvent(profileRequestContext, EventIds.IO_ERROR);
+        }
+    }
+
+    /**
+     * Start a new recording.
+     *
+     * @throws IOException if an error is raised
+     */
+    private void doStart() throws IOException {
+        final HttpServletResponse response = ensureHttpServletResponse();
+
+        synchronized (LOCK) {
+            if (!FlightRecorder.isAvailable()) {
+                log.warn("{} Flight Recorder is not available in this JVM", getLogPrefix());
+                sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Recorder Unavailable",
+                        "Flight Recorder is not available.");
+                return;
+            } else if (findRecording() != null) {
+                sendError(HttpServletResponse.SC_CONFLICT, "Recording Active", "A recording is already running.");
+                return;
+            }
+
+            final Recording recording;
+            try {
+                recording = new Recording(Configuration.getConfiguration(configurationName));
+            } catch (final ParseException e) {
+                log.error("{} Unable to load recording configuration '{}'", getLogPrefix(), configurationName, e);
+                sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
+                        "Internal Server Error", "Invalid recording configuration.");
+                return;
+            } catch (final IllegalStateException | SecurityException e) {
+                log.error("{} Unable to create flight recording", getLogPrefix(), e);
+                sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Recorder Unavailable",
+                        "Flight Recorder is not available.");
+                return;
+            }
+
+            recording.setName(RECORDING_NAME);
+            recording.setToDisk(true);
+            if (maxAge != null) {
+                recording.setMaxAge(maxAge);
+            }
+            recording.enable(ProfileActionEvent.class);
+            recording.enable(StorageOperationEvent.class);
+            recording.enable(AttributeProcessingEvent.class);
+            recording.enable(CredentialValidationEvent.class);
+            recording.start();
+            log.info("{} Started flight recording '{}' using configuration '{}'", getLogPrefix(), RECORDING_NAME,
+                    configurationName);
+
+            response.setContentType("application/json");
+            response.setStatus(HttpServletResponse.SC_CREATED);
+            writeRecording(recording);
+        }
+    }
+
+    /**
+     * Return the data in the active recording, optionally stopping it.
+     *
+     * @param stop whether to stop and discard the recording
+     *
+     * @throws IOException if an error is raised
+     */
+    private void doDump(final boolean stop) throws IOException {
+        final HttpServletResponse response = ensureHttpServletResponse();
+
+        final Path file = Files.createTempFile(RECORDING_NAME, ".jfr");
+        try {
+            // The dump is taken under the lock so that a concurrent stop can't close the recording mid-dump.
+            synchronized (LOCK) {
+                final Recording recording = findRecording();
+                if (recording == null) {
+                    sendError(HttpServletResponse.SC_NOT_FOUND, "No Recording", "No recording is running.");
+                    return;
+                }
+                try {
+                    if (stop) {
+                        recording.stop();
+                        log.info("{} Stopped flight recording '{}'", getLogPrefix(), RECORDING_NAME);
+                    }
+                    recording.dump(file);
+                } finally {
+                    if (stop) {
+                        recording.close();
+                    }
+                }
+            }
+
+            response.setContentType("application/octet-stream");
+            response.setHeader("Content-Disposition", "attachment; filename=\"" + RECORDING_NAME + ".jfr\"");
+            response.setContentLengthLong(Files.size(file));
+            response.setStatus(HttpServletResponse.SC_OK);
+            Files.copy(file, response.getOutputStream());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Locate the recording managed by this action, if it is running.
+     *
+     * @return the recording or null
+     */
+    @Nullable private Recording findRecording() {
+        if (!FlightRecorder.isAvailable()) {
+            return null;
+        }
+
+        for (final Recording recording : FlightRecorder.getFlightRecorder().getRecordings()) {
+            if (RECORDING_NAME.equals(recording.getName()) && recording.getState() == RecordingState.RUNNING) {
+                return recording;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Output a description of a recording.
+     *
+     * @param recording the recording
+     *
+     * @throws IOException if unable to output the description
+     */
+    private void writeRecording(@Nonnull final Recording recording) throws IOException {
+        final JsonFactory jsonFactory = new JsonFactory();
+        try (final JsonGenerator g = jsonFactory.createGenerator(
+                ensureHttpServletResponse().getOutputStream()).useDefaultPrettyPrinter()) {
+            g.setCodec(objectMapper);
+            g.writeStartObject();
+            g.writeObjectFieldStart("data");
+            g.writeStringField("type", "recordings");
+            g.writeStringField("id", RECORDING_NAME);
+            g.writeObjectFieldStart("attributes");
+            g.writeStringField("state", recording.getState().name());
+            g.writeStringField("configuration", configurationName);
+            if (recording.getMaxAge() != null) {
+                g.writeStringField("maxAge", recording.getMaxAge().toString());
+            }
+            g.writeEndObject();
+            g.writeEndObject();
+            g.writeEndObject();
+        }
+    }
+
+    /**
+     * Output an error object.
+     *
+     * @param status HTTP status
+     * @param title fixed error description
+     * @param detail human-readable error description
+     *
+     * @throws IOException if unable to output the error
+     */
+    private void sendError(final int status, @Nonnull @NotEmpty final String title,
+            @Nonnull @NotEmpty final String detail) throws IOException {
+
+        final HttpServletResponse response = ensureHttpServletResponse();
+        response.setContentType("application/json");
+        response.setHeader("Cache-Control", "must-revalidate,no-cache,no-store");
+        response.setStatus(status);
+
+        final Error e = new Error();
+        final Errors errors = new Errors();
+        errors.setErrors(CollectionSupport.singletonList(e));
+        e.setStatus(Integer.toString(status));
+        e.setTitle(title);
+        e.setDetail(detail);
+
+        objectMapper.writer().withDefaultPrettyPrinter().writeValue(response.getOutputStream(), errors);
+    }
+
+}
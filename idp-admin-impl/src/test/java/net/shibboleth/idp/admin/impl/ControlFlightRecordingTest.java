@@ -0,0 +1,153 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.shibboleth.idp.admin.impl;
+
+import java.io.IOException;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.webflow.execution.Event;
+import org.springframework.webflow.execution.RequestContext;
+import org.testng.Assert;
+import org.testng.SkipException;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.servlet.http.HttpServletResponse;
+import net.shibboleth.idp.profile.testing.ActionTestingSupport;
+import net.shibboleth.idp.profile.testing.RequestContextBuilder;
+import net.shibboleth.shared.component.ComponentInitializationException;
+import net.shibboleth.shared.testing.ConstantSupplier;
+
+/**
+ * Unit test for {@link ControlFlightRecording} action.
+ */
+@SuppressWarnings("javadoc")
+public class ControlFlightRecordingTest {
+
+    private ObjectMapper mapper;
+
+    @BeforeMethod
+    public void setUp() {
+        if (!FlightRecorder.isAvailable()) {
+            throw new SkipException("Flight Recorder is not available in this JVM");
+        }
+        mapper = new ObjectMapper();
+        mapper.setSerializationInclusion(Include.NON_NULL);
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        if (FlightRecorder.isAvailable()) {
+            for (final Recording recording : FlightRecorder.getFlightRecorder().getRecordings()) {
+                if (ControlFlightRecording.RECORDING_NAME.equals(recording.getName())) {
+                    recording.close();
+                }
+            }
+        }
+    }
+
+    @Test public void testNoOperation() throws ComponentInitializationException {
+        final MockHttpServletResponse response = execute(null);
+        Assert.assertEquals(response.getStatus(), HttpServletResponse.SC_NOT_FOUND);
+    }
+
+    @Test public void testUnknownOperation() throws ComponentInitializationException {
+        final MockHttpServletResponse response = execute("pause");
+        Assert.assertEquals(response.getStatus(), HttpServletResponse.SC_NOT_FOUND);
+    }
+
+    @Test public void testNoRecording() throws ComponentInitializationException {
+        Assert.assertEquals(execute("dump").getStatus(), HttpServletResponse.SC_NOT_FOUND);
+        Assert.assertEquals(execute("stop").getStatus(), HttpServletResponse.SC_NOT_FOUND);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test public void testLifecycle() throws ComponentInitializationException, IOException {
+        MockHttpServletResponse response = execute("start");
+        Assert.assertEquals(response.getStatus(), HttpServletResponse.SC_CREATED);
+        Assert.assertEquals(response.getContentType(), "application/json");
+
+        // The JSON document must be complete.
+        final Map<String,Object> result = mapper.readerFor(Map.class).readValue(response.getContentAsByteArray());
+        final Map<String,Object> data = (Map<String,Object>) result.get("data");
+        Assert.assertEquals(data.get("type"), "recordings");
+        Assert.assertEquals(data.get("id"), ControlFlightRecording.RECORDING_NAME);
+        final Map<String,Object> attributes = (Map<String,Object>) data.get("attributes");
+        Assert.assertEquals(attributes.get("state"), "RUNNING");
+        Assert.assertEquals(attributes.get("configuration"), "default");
+
+        Assert.assertEquals(execute("start").getStatus(), HttpServletResponse.SC_CONFLICT);
+
+        response = execute("dump");
+        Assert.assertEquals(response.getStatus(), HttpServletResponse.SC_OK);
+        Assert.assertEquals(response.getContentType(), "application/octet-stream");
+        Assert.assertTrue(response.getContentAsByteArray().length > 0);
+
+        response = execute("stop");
+        Assert.assertEquals(response.getStatus(), HttpServletResponse.SC_OK);
+        Assert.assertTrue(response.getContentAsByteArray().length > 0);
+
+        // Stopping discards the recording.
+        Assert.assertEquals(execute("dump").getStatus(), HttpServletResponse.SC_NOT_FOUND);
+        for (final Recording recording : FlightRecorder.getFlightRecorder().getRecordings()) {
+            Assert.assertNotEquals(recording.getName(), ControlFlightRecording.RECORDING_NAME);
+        }
+    }
+
+    /**
+     * Run the action against a new request.
+     *
+     * @param operation operation to request
+     *
+     * @return the response
+     *
+     * @throws ComponentInitializationException if the action fails to initialize
+     */
+    @Nonnull private MockHttpServletResponse execute(@Nullable final String operation)
+            throws ComponentInitializationException {
+        final RequestContext rc = new RequestContextBuilder().buildRequestContext();
+        final MockHttpServletRequest request = (MockHttpServletRequest) rc.getExternalContext().getNativeRequest();
+        final MockHttpServletResponse response =
+                (MockHttpServletResponse) rc.getExternalContext().getNativeResponse();
+        assert request != null && response != null;
+        if (operation != null) {
+            rc.getFlowScope().put(ControlFlightRecording.OPERATION, operation);
+        }
+
+        final ControlFlightRecording action = new ControlFlightRecording();
+        action.setHttpServletRequestSupplier(new ConstantSupplier<>(request));
+        action.setHttpServletResponseSupplier(new ConstantSupplier<>(response));
+        assert mapper != null;
+        action.setObjectMapper(mapper);
+        action.initialize();
+
+        final Event event = action.execute(rc);
+        ActionTestingSupport.assertProceedEvent(event);
+        return response;
+    }
+
+}
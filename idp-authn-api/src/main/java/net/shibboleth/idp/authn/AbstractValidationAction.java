@@ -46,6 +46,7 @@ import net.shibboleth.idp.authn.context.SubjectCanonicalizationContext;
 import net.shibboleth.idp.authn.principal.PrincipalEvalPredicate;
 import net.shibboleth.idp.authn.principal.PrincipalEvalPredicateFactory;
 import net.shibboleth.idp.authn.principal.PrincipalSupportingComponent;
+import net.shibboleth.idp.profile.jfr.CredentialValidationEvent;
 import net.shibboleth.profile.context.navigate.RelyingPartyIdLookupFunction;
 import net.shibboleth.profile.context.navigate.IssuerLookupFunction;
 import net.shibboleth.shared.annotation.constraint.NotEmpty;
@@ -99,6 +100,9 @@ public abstract class AbstractValidationAction extends AbstractAuthenticationAct
 
     /** Function used to obtain the responder ID. */
     @Nullable private Function<ProfileRequestContext,String> responderLookupStrategy;
+
+    /** Flight Recorder event covering the current validation attempt. */
+    @Nullable private CredentialValidationEvent validationEvent;
     
     /** Constructor. */
     public AbstractValidationAction() {
@@ -318,14 +322,27 @@ public abstract class AbstractValidationAction extends AbstractAuthenticationAct
     protected boolean doPreExecute(@Nonnull final ProfileRequestContext profileRequestContext,
             @Nonnull final AuthenticationContext authenticationContext) {
         
+        validationEvent = null;
+
         if (!super.doPreExecute(profileRequestContext, authenticationContext)) {
             return false;
-        } else if (authenticationContext.getAttemptedFlow() == null) {
+        }
+        
+        final AuthenticationFlowDescriptor attemptedFlow = authenticationContext.getAttemptedFlow();
+        if (attemptedFlow == null) {
             log.info("{} No attempted flow within authentication context", getLogPrefix());
             ActionSupport.buildEvent(profileRequestContext, AuthnEventIds.INVALID_AUTHN_CTX);
             return false;
         }
 
+        final CredentialValidationEvent event = new CredentialValidationEvent();
+        if (event.isEnabled()) {
+            event.setAuthenticationFlow(attemptedFlow.getId());
+            event.setValidator(getClass().getSimpleName());
+            event.begin();
+            validationEvent = event;
+        }
+
         if (clearErrorContext) {
             authenticationContext.removeSubcontext(AuthenticationErrorContext.class);
         }        
@@ -451,6 +468,7 @@ public abstract class AbstractValidationAction extends AbstractAuthenticationAct
         if (registry != null) {
             registry.counter(getMetricName() + ".successes").inc();
         }
+        completeValidationEvent(profileRequestContext, CredentialValidationEvent.OUTCOME_SUCCESS);
         if (cleanupHook != null) {
             cleanupHook.accept(profileRequestContext);
         }
@@ -469,6 +487,22 @@ public abstract class AbstractValidationAction extends AbstractAuthenticationAct
         if (registry != null) {
             registry.counter(getMetricName() + ".failures").inc();
         }
+        completeValidationEvent(profileRequestContext, CredentialValidationEvent.OUTCOME_FAILURE);
+    }
+
+    /**
+     * Commit the Flight Recorder event for the current validation attempt, if one was started.
+     * 
+     * @param profileRequestContext profile request context
+     * @param outcome outcome of the attempt
+     */
+    private void completeValidationEvent(@Nonnull final ProfileRequestContext profileRequestContext,
+            @Nonnull @NotEmpty final String outcome) {
+        final CredentialValidationEvent event = validationEvent;
+        if (event != null) {
+            validationEvent = null;
+            event.complete(profileRequestContext, outcome);
+        }
     }
     
     /**
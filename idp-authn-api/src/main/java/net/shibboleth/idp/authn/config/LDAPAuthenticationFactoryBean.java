@@ -17,23 +17,34 @@ package net.shibboleth.idp.authn.config;
 import java.security.GeneralSecurityException;
 import java.time.Duration;
 import java.time.Period;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.google.common.base.MoreObjects;
 import net.shibboleth.idp.authn.TemplateSearchDnResolver;
 import net.shibboleth.shared.annotation.constraint.NotEmpty;
 import net.shibboleth.shared.logic.Constraint;
 import net.shibboleth.shared.primitive.LoggerFactory;
+import net.shibboleth.shared.primitive.StringSupport;
 
 import org.apache.velocity.app.VelocityEngine;
 import org.ldaptive.ActivePassiveConnectionStrategy;
 import org.ldaptive.BindConnectionInitializer;
+import org.ldaptive.Connection;
 import org.ldaptive.ConnectionConfig;
 import org.ldaptive.ConnectionInitializer;
 import org.ldaptive.Credential;
 import org.ldaptive.DefaultConnectionFactory;
 import org.ldaptive.FilterTemplate;
+import org.ldaptive.LdapException;
 import org.ldaptive.PooledConnectionFactory;
 import org.ldaptive.RandomConnectionStrategy;
 import org.ldaptive.RoundRobinConnectionStrategy;
@@ -54,9 +65,12 @@ import org.ldaptive.auth.ext.PasswordPolicyAuthenticationResponseHandler;
 import org.ldaptive.pool.BindConnectionPassivator;
 import org.ldaptive.pool.IdlePruneStrategy;
 import org.ldaptive.pool.ConnectionPassivator;
+import org.ldaptive.pool.PoolException;
+import org.ldaptive.pool.PoolExhaustedException;
 import org.ldaptive.ssl.AllowAnyHostnameVerifier;
 import org.ldaptive.ssl.CredentialConfig;
 import org.ldaptive.ssl.SslConfig;
+import org.opensaml.core.metrics.MetricsSupport;
 import org.slf4j.Logger;
 
 import org.springframework.beans.factory.config.AbstractFactoryBean;
@@ -64,9 +78,15 @@ import org.springframework.beans.factory.config.AbstractFactoryBean;
 /** LDAP Authentication configuration. See ldap-authn-config.xml */
 public class LDAPAuthenticationFactoryBean extends AbstractFactoryBean<Authenticator> {
 
+    /** Default prefix for pool metrics. */
+    @Nonnull @NotEmpty public static final String DEFAULT_METRIC_NAME = "net.shibboleth.idp.authn.ldap.pool";
+
     /** Class logger. */
     @Nonnull private final Logger log = LoggerFactory.getLogger(LDAPAuthenticationFactoryBean.class);
 
+    /** Pools created by this object. */
+    @Nonnull private final List<PooledConnectionFactory> pools = new ArrayList<>();
+
     /** Enum that defines authenticator configuration. Labels maps to values in ldap.properties. */
     public enum AuthenticatorType {
         
@@ -441,6 +461,9 @@ public class LDAPAuthenticationFactoryBean extends AbstractFactoryBean<Authentic
     /** Authentication handler account state login failures. */
     private int accountStateLoginFailures;
 
+    /** Prefix for pool metrics. */
+    @Nonnull @NotEmpty private String metricName = DEFAULT_METRIC_NAME;
+
     /** Set {@link #authenticatorType}.
      * @param type what to set
      */
@@ -764,6 +787,14 @@ public class LDAPAuthenticationFactoryBean extends AbstractFactoryBean<Authentic
         accountStateLoginFailures = loginFailures;
     }
 
+    /** Set {@link #metricName}, which must be unique across factories whose pools share a name.
+     * @param name what to set
+     * @since 5.2.0
+     */
+    public void setMetricName(@Nonnull @NotEmpty final String name) {
+        metricName = Constraint.isNotNull(StringSupport.trimOrNull(name), "Metric name cannot be null or empty");
+    }
+
     /**
      * Returns a new SslConfig object derived from the configured
      * {@link #trustType}. Default uses JVM trust.
@@ -892,7 +923,8 @@ public class LDAPAuthenticationFactoryBean extends AbstractFactoryBean<Authentic
      */
     protected PooledConnectionFactory createPooledConnectionFactory(final String name, final ConnectionConfig config,
             final SearchConnectionValidator validator, final ConnectionPassivator passivator) {
-        final PooledConnectionFactory factory = new PooledConnectionFactory();
+        final PooledConnectionFactory factory = new MeteredPooledConnectionFactory(MetricsSupport.getMetricRegistry(),
+                MetricRegistry.name(metricName, name));
         factory.setConnectionConfig(config);
         factory.setMinPoolSize(minPoolSize);
         factory.setMaxPoolSize(maxPoolSize);
@@ -907,9 +939,100 @@ public class LDAPAuthenticationFactoryBean extends AbstractFactoryBean<Authentic
         }
         factory.setFailFastInitialize(false);
         factory.initialize();
+        warmUp(factory);
+        registerMetrics(factory);
+        pools.add(factory);
         return factory;
     }
 
+    /**
+     * Opens and validates {@link #minPoolSize} connections in a pool.
+     * 
+     * <p>Each connection is checked out at the same time, so the pool must supply distinct connections and
+     * opens any that it failed to open as it initialized. Connection setup and TLS negotiation therefore
+     * happen when the authenticator is built rather than on the first logins. Each connection is then
+     * checked with the pool's validator before all are returned. Connections that can't be opened or fail
+     * validation are logged and counted as creation failures, but do not prevent startup.</p>
+     * 
+     * @param factory the initialized pool
+     * 
+     * @since 5.2.0
+     */
+    protected void warmUp(@Nonnull final PooledConnectionFactory factory) {
+        final List<Connection> connections = new ArrayList<>(minPoolSize);
+        int failures = 0;
+        try {
+            for (int i = 0; i < minPoolSize; i++) {
+                final Connection connection = factory.getConnection();
+                connections.add(connection);
+                if (factory.getValidator() != null && !Boolean.TRUE.equals(factory.getValidator().apply(connection))) {
+                    log.warn("LDAP pool '{}' opened a connection at startup that failed validation",
+                            factory.getName());
+                    failures++;
+                    if (factory instanceof MeteredPooledConnectionFactory metered) {
+                        metered.countCreationFailure();
+                    }
+                }
+            }
+        } catch (final LdapException e) {
+            // Open failures are counted by the metered pool.
+            log.warn("LDAP pool '{}' could not open a connection at startup: {}", factory.getName(), e.getMessage());
+            failures += minPoolSize - connections.size();
+        } finally {
+            connections.forEach(Connection::close);
+        }
+
+        if (failures > 0) {
+            log.warn("LDAP pool '{}' warmed {} of {} connections at startup", factory.getName(),
+                    minPoolSize - failures, minPoolSize);
+        } else {
+            log.debug("LDAP pool '{}' warmed {} connections at startup", factory.getName(), minPoolSize);
+        }
+    }
+
+    /**
+     * Registers gauges for a pool if a metric registry is installed.
+     * 
+     * <p>The "saturated" gauge is true when every connection up to {@link #maxPoolSize} is checked out,
+     * which is when callers start waiting up to {@link #blockWaitTime} for a connection. The time taken to
+     * check out connections, and failures to create or validate them, are recorded by the pool itself.</p>
+     * 
+     * @param factory the pool
+     * 
+     * @since 5.2.0
+     */
+    protected void registerMetrics(@Nonnull final PooledConnectionFactory factory) {
+        final MetricRegistry registry = MetricsSupport.getMetricRegistry();
+        if (registry == null) {
+            return;
+        }
+
+        registerGauge(registry, MetricRegistry.name(metricName, factory.getName(), "active"),
+                factory::activeCount);
+        registerGauge(registry, MetricRegistry.name(metricName, factory.getName(), "idle"),
+                factory::availableCount);
+        registerGauge(registry, MetricRegistry.name(metricName, factory.getName(), "saturated"),
+                () -> factory.activeCount() >= maxPoolSize && factory.availableCount() == 0);
+    }
+
+    /**
+     * Registers a gauge, replacing any existing metric of the same name.
+     * 
+     * @param <T> gauge type
+     * @param registry metric registry
+     * @param name metric name
+     * @param gauge the gauge
+     */
+    private <T> void registerGauge(@Nonnull final MetricRegistry registry, @Nonnull final String name,
+            @Nonnull final Gauge<T> gauge) {
+        registry.remove(name);
+        try {
+            registry.register(name, gauge);
+        } catch (final IllegalArgumentException e) {
+            log.debug("Metric {} already registered", name);
+        }
+    }
+
     /**
      * Create {@link SearchConnectionValidator}.
      * 
@@ -1060,6 +1183,15 @@ public class LDAPAuthenticationFactoryBean extends AbstractFactoryBean<Authentic
 
     @Override
     protected void destroyInstance(@Nullable final Authenticator instance) {
+        final MetricRegistry registry = MetricsSupport.getMetricRegistry();
+        if (registry != null) {
+            for (final PooledConnectionFactory pool : pools) {
+                registry.removeMatching((name, metric) ->
+                        name.startsWith(MetricRegistry.name(metricName, pool.getName()) + '.'));
+            }
+        }
+        pools.clear();
+
         if (instance != null) {
             instance.close();
         }
@@ -1094,4 +1226,72 @@ public class LDAPAuthenticationFactoryBean extends AbstractFactoryBean<Authentic
     public Class<?> getObjectType() {
         return Authenticator.class;
     }
+    /**
+     * Pool that records how long callers wait to check out a connection, and how often that fails.
+     * 
+     * <p>The metrics are registered beneath the supplied prefix as a "wait" timer, an "exhausted" counter
+     * for callers that gave up after {@link #blockWaitTime}, and a "creationFailures" counter for any other
+     * failure to supply a connection, including connections that could not be opened or validated.</p>
+     * 
+     * @since 5.2.0
+     */
+    protected static class MeteredPooledConnectionFactory extends PooledConnectionFactory {
+
+        /** Wait timer. */
+        @Nullable private final Timer waitTimer;
+
+        /** Exhaustion counter. */
+        @Nullable private final Counter exhaustedCounter;
+
+        /** Creation failure counter. */
+        @Nullable private final Counter creationFailureCounter;
+
+        /**
+         * Constructor.
+         *
+         * @param registry metric registry, or null to record nothing
+         * @param prefix prefix for the metric names
+         */
+        public MeteredPooledConnectionFactory(@Nullable final MetricRegistry registry,
+                @Nonnull @NotEmpty final String prefix) {
+            if (registry != null) {
+                waitTimer = registry.timer(MetricRegistry.name(prefix, "wait"));
+                exhaustedCounter = registry.counter(MetricRegistry.name(prefix, "exhausted"));
+                creationFailureCounter = registry.counter(MetricRegistry.name(prefix, "creationFailures"));
+            } else {
+                waitTimer = null;
+                exhaustedCounter = null;
+                creationFailureCounter = null;
+            }
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public Connection getConnection() throws PoolException {
+            final long start = System.nanoTime();
+            try {
+                return super.getConnection();
+            } catch (final PoolExhaustedException e) {
+                if (exhaustedCounter != null) {
+                    exhaustedCounter.inc();
+                }
+                throw e;
+            } catch (final PoolException e) {
+                countCreationFailure();
+                throw e;
+            } finally {
+                if (waitTimer != null) {
+                    waitTimer.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+            }
+        }
+
+        /** Increment the creation failure counter. */
+        protected void countCreationFailure() {
+            if (creationFailureCounter != null) {
+                creationFailureCounter.inc();
+            }
+        }
+    }
+
 }
@@ -23,6 +23,7 @@ import org.ldaptive.auth.AuthenticationRequest;
 import org.ldaptive.auth.AuthenticationResponse;
 import org.ldaptive.auth.Authenticator;
 import org.ldaptive.auth.User;
+import org.opensaml.core.config.ConfigurationService;
 import org.springframework.core.io.ClassPathResource;
 import org.testng.Assert;
 import org.testng.annotations.AfterClass;
@@ -31,6 +32,10 @@ import org.testng.annotations.BeforeClass;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
 import net.shibboleth.idp.authn.context.UsernamePasswordContext;
 import net.shibboleth.shared.testing.InMemoryDirectory;
 import net.shibboleth.shared.testing.VelocityEngine;
@@ -48,6 +53,8 @@ public class LDAPAuthenticationFactoryBeanTest {
 
     private Authenticator authenticator;
 
+    private MetricRegistry metricRegistry;
+
     /**
      * Creates an UnboundID in-memory directory server. Leverages LDIF found in test resources.
      */
@@ -58,6 +65,9 @@ public class LDAPAuthenticationFactoryBeanTest {
                 new ClassPathResource(DATA_PATH + "loginLDAPTest.ldif"),
                 10389);
         directoryServer.start();
+
+        metricRegistry = new MetricRegistry();
+        ConfigurationService.register(MetricRegistry.class, metricRegistry);
     }
 
     /**
@@ -69,12 +79,87 @@ public class LDAPAuthenticationFactoryBeanTest {
         }
         assertEquals(directoryServer.openConnectionCount(), 0);
         directoryServer.stop(true);
+        ConfigurationService.deregister(MetricRegistry.class);
     }
 
     @BeforeMethod
     public void setupAuthenticator() throws Exception {
-        factoryBean = new LDAPAuthenticationFactoryBean();
-        factoryBean.setLdapUrl("ldap://localhost:10389");
+        factoryBean = createFactoryBean("ldap://localhost:10389");
+        authenticator = factoryBean.createInstance();
+    }
+
+    @AfterMethod public void teardownAuthenticator() throws Exception {
+        factoryBean.destroyInstance(authenticator);
+        Assert.assertTrue(metricRegistry.getMetrics().isEmpty());
+    }
+
+    @Test public void testAuthnSuccess() throws Exception {
+        final AuthenticationResponse response = authenticator.authenticate(
+            createAuthenticationRequest("PETER_THE_PRINCIPAL", "changeit"));
+        Assert.assertNotNull(response);
+        Assert.assertTrue(response.isSuccess());
+    }
+
+    @Test public void testAuthnFailure() throws Exception {
+        final AuthenticationResponse response = authenticator.authenticate(
+            createAuthenticationRequest("PETER_THE_PRINCIPAL", "wrong"));
+        Assert.assertNotNull(response);
+        Assert.assertFalse(response.isSuccess());
+    }
+
+    @Test public void testWarmUp() throws Exception {
+        // Both the bind and search pools hold minPoolSize connections before any login.
+        Assert.assertTrue(directoryServer.openConnectionCount() >= 6);
+        Assert.assertEquals(getTimer("bind-pool").getCount(), 3);
+        Assert.assertEquals(getTimer("dn-search-pool").getCount(), 3);
+        Assert.assertEquals(getCounter("bind-pool", "creationFailures").getCount(), 0);
+        Assert.assertEquals(metricRegistry.getGauges().get(
+                MetricRegistry.name(LDAPAuthenticationFactoryBean.DEFAULT_METRIC_NAME, "bind-pool", "idle"))
+                    .getValue(), 3);
+    }
+
+    @Test public void testWaitMetrics() throws Exception {
+        final long bindCount = getTimer("bind-pool").getCount();
+        final long searchCount = getTimer("dn-search-pool").getCount();
+        final AuthenticationResponse response = authenticator.authenticate(
+            createAuthenticationRequest("PETER_THE_PRINCIPAL", "changeit"));
+        Assert.assertTrue(response.isSuccess());
+        Assert.assertEquals(getTimer("bind-pool").getCount(), bindCount + 1);
+        Assert.assertEquals(getTimer("dn-search-pool").getCount(), searchCount + 1);
+    }
+
+    @Test public void testWarmUpFailure() throws Exception {
+        final LDAPAuthenticationFactoryBean badBean = createFactoryBean("ldap://localhost:10399");
+        badBean.setMetricName("test.ldap.bad");
+        badBean.setConnectTimeout(Duration.ofMillis(500));
+        badBean.setBlockWaitTime(Duration.ofMillis(500));
+        final Authenticator badAuthenticator = badBean.createInstance();
+        try {
+            final Counter failures = metricRegistry.counter("test.ldap.bad.bind-pool.creationFailures");
+            final Counter exhausted = metricRegistry.counter("test.ldap.bad.bind-pool.exhausted");
+            Assert.assertTrue(failures.getCount() + exhausted.getCount() > 0);
+        } finally {
+            badBean.destroyInstance(badAuthenticator);
+        }
+    }
+
+    private Timer getTimer(final String pool) {
+        final Timer timer = metricRegistry.getTimers().get(
+                MetricRegistry.name(LDAPAuthenticationFactoryBean.DEFAULT_METRIC_NAME, pool, "wait"));
+        assert timer != null;
+        return timer;
+    }
+
+    private Counter getCounter(final String pool, final String name) {
+        final Counter counter = metricRegistry.getCounters().get(
+                MetricRegistry.name(LDAPAuthenticationFactoryBean.DEFAULT_METRIC_NAME, pool, name));
+        assert counter != null;
+        return counter;
+    }
+
+    private LDAPAuthenticationFactoryBean createFactoryBean(final String url) {
+        final LDAPAuthenticationFactoryBean factoryBean = new LDAPAuthenticationFactoryBean();
+        factoryBean.setLdapUrl(url);
         factoryBean.setBaseDn("ou=people,dc=shibboleth,dc=net");
         factoryBean.setUserFilter("(uid={user})");
         factoryBean.setSubtreeSearch(false);
@@ -100,25 +185,7 @@ public class LDAPAuthenticationFactoryBeanTest {
         factoryBean.setValidateDn("");
         factoryBean.setValidateFilter("(objectClass=*)");
         factoryBean.setBindPoolPassivatorType("anonymousBind");
-        authenticator = factoryBean.createInstance();
-    }
-
-    @AfterMethod public void teardownAuthenticator() throws Exception {
-        factoryBean.destroyInstance(authenticator);
-    }
-
-    @Test public void testAuthnSuccess() throws Exception {
-        final AuthenticationResponse response = authenticator.authenticate(
-            createAuthenticationRequest("PETER_THE_PRINCIPAL", "changeit"));
-        Assert.assertNotNull(response);
-        Assert.assertTrue(response.isSuccess());
-    }
-
-    @Test public void testAuthnFailure() throws Exception {
-        final AuthenticationResponse response = authenticator.authenticate(
-            createAuthenticationRequest("PETER_THE_PRINCIPAL", "wrong"));
-        Assert.assertNotNull(response);
-        Assert.assertFalse(response.isSuccess());
+        return factoryBean;
     }
 
     private AuthenticationRequest createAuthenticationRequest(final String username, final String password) {
@@ -27,6 +27,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import javax.annotation.Nonnull;
@@ -67,6 +68,11 @@ import net.shibboleth.shared.primitive.LoggerFactory;
 /**
  * Handles serialization of results, delegating handling of {@link Principal} objects to one or more
  * {@link PrincipalSerializer} plugins.
+ * 
+ * <p>The serializer chosen for each principal class, and for each leading JSON field name (the "tag" that
+ * every principal serializer uses to recognize its own output), is remembered after the first lookup so that
+ * results carrying many principals avoid repeated scans of the plugin list. Indexed serializers are still
+ * asked to confirm support for each value, and a miss falls back to the original scan.</p>
  */
 public class DefaultAuthenticationResultSerializer extends AbstractInitializableComponent
         implements StorageSerializer<AuthenticationResult> {
@@ -116,6 +122,12 @@ public class DefaultAuthenticationResultSerializer extends AbstractInitializable
     /** Generic principal serializer for any unsupported principals. */
     @Nonnull private final GenericPrincipalSerializer genericSerializer;
 
+    /** Serializers indexed by principal class, populated on first use. */
+    @Nonnull private final Map<Class<?>,PrincipalSerializer<String>> classIndex;
+
+    /** Serializers indexed by the leading field name of their JSON form, populated on first use. */
+    @Nonnull private final Map<String,PrincipalSerializer<String>> tagIndex;
+
     /**
      * Constructor.
      * 
@@ -133,6 +145,8 @@ public class DefaultAuthenticationResultSerializer extends AbstractInitializable
         principalServiceManager = new PrincipalServiceManager(null);
         genericSerializer = new GenericPrincipalSerializer();
         genericSerializer.initialize();
+        classIndex = new ConcurrentHashMap<>();
+        tagIndex = new ConcurrentHashMap<>();
     }
         
     /** 
@@ -152,6 +166,8 @@ public class DefaultAuthenticationResultSerializer extends AbstractInitializable
         authnResultPrincipalSerializer = new AuthenticationResultPrincipalSerializer(this);
         principalServiceManager = Constraint.isNotNull(manager, "PrincipalServiceManager cannot be null");
         genericSerializer = Constraint.isNotNull(defaultSerializer, "Default serializer cannot be null");
+        classIndex = new ConcurrentHashMap<>();
+        tagIndex = new ConcurrentHashMap<>();
     }
 
     /**
@@ -356,30 +372,48 @@ public class DefaultAuthenticationResultSerializer extends AbstractInitializable
     private void serializePrincipal(@Nonnull final JsonGenerator generator, @Nonnull final Principal principal)
             throws IOException {
 
-        final String serializedForm;
-        
-        // This is a special case because the serializer here is a dedicated one.
-        if (authnResultPrincipalSerializer.supports(principal)) {
-            serializedForm = authnResultPrincipalSerializer.serialize(principal);
-        } else {
-            // Otherwise we just obtain the instance by class, or try the generic one.
-            final PrincipalService<?> principalService = principalServiceManager.byClass(principal.getClass());
-            if (principalService != null) {
-                serializedForm = principalService.getSerializer().serialize(principal);
-            } else if (genericSerializer.supports(principal)) {
-                serializedForm = genericSerializer.serialize(principal);
-            } else {
-                serializedForm = null;
+        final Class<? extends Principal> principalType = principal.getClass();
+        PrincipalSerializer<String> serializer = classIndex.get(principalType);
+        if (serializer == null) {
+            serializer = resolveSerializer(principal);
+            if (serializer != null) {
+                classIndex.put(principalType, serializer);
             }
         }
 
-        if (serializedForm != null) {
+        if (serializer != null) {
+            final String serializedForm = serializer.serialize(principal);
             try (final JsonReader reader = readerFactory.createReader(new StringReader(serializedForm))) {
                 generator.write(reader.readObject());
             }
         }
     }
 
+    /**
+     * Locate the serializer to use for a principal that has not been seen before.
+     *
+     * @param principal object to serialize
+     * 
+     * @return the serializer to use, or null
+     */
+    @Nullable private PrincipalSerializer<String> resolveSerializer(@Nonnull final Principal principal) {
+        
+        // This is a special case because the serializer here is a dedicated one.
+        if (authnResultPrincipalSerializer.supports(principal)) {
+            return authnResultPrincipalSerializer;
+        }
+        
+        // Otherwise we just obtain the instance by class, or try the generic one.
+        final PrincipalService<?> principalService = principalServiceManager.byClass(principal.getClass());
+        if (principalService != null) {
+            return principalService.getSerializer();
+        } else if (genericSerializer.supports(principal)) {
+            return genericSerializer;
+        }
+        
+        return null;
+    }
+
     /**
      * Attempt to deserialize a principal with the registered and default serializers.
      * 
@@ -390,14 +424,30 @@ public class DefaultAuthenticationResultSerializer extends AbstractInitializable
      */
     @Nullable private Principal deserializePrincipal(@Nonnull final JsonValue jsonValue) throws IOException {
         if (jsonValue instanceof JsonObject) {
-            final String json = ((JsonObject) jsonValue).toString();
+            final JsonObject obj = (JsonObject) jsonValue;
+            final String json = obj.toString();
             assert json != null;
-            for (final PrincipalSerializer<? super String> serializer : principalSerializers) {
+            
+            final String tag = obj.isEmpty() ? null : obj.keySet().iterator().next();
+            if (tag != null) {
+                final PrincipalSerializer<String> indexed = tagIndex.get(tag);
+                if (indexed != null && indexed.supports(json)) {
+                    return indexed.deserialize(json);
+                }
+            }
+            
+            for (final PrincipalSerializer<String> serializer : principalSerializers) {
                 if (serializer.supports(json)) {
+                    if (tag != null) {
+                        tagIndex.putIfAbsent(tag, serializer);
+                    }
                     return serializer.deserialize(json);
                 }
             }
             if (genericSerializer.supports(json)) {
+                if (tag != null) {
+                    tagIndex.putIfAbsent(tag, genericSerializer);
+                }
                 return genericSerializer.deserialize(json);
             }
         }
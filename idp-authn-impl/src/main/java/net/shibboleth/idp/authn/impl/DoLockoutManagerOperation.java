@@ -16,6 +16,7 @@ package net.shibboleth.idp.authn.impl;
 
 import java.io.IOException;
 import java.util.Map;
+import java.util.function.Function;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -97,6 +98,17 @@ public class DoLockoutManagerOperation extends AbstractProfileAction {
     /** {@link AccountLockoutManager} to operate on. */
     @NonnullBeforeExec private AccountLockoutManager lockoutManager;
 
+    /** Optional cache of validated credentials to flush when an account is locked. */
+    @Nullable private ValidatedCredentialCache credentialCache;
+
+    /** Strategy to obtain the username to flush from the credential cache from an account key. */
+    @Nonnull private Function<String,String> credentialCacheUsernameStrategy;
+
+    /** Constructor. */
+    public DoLockoutManagerOperation() {
+        credentialCacheUsernameStrategy = new LockoutKeyUsernameStrategy();
+    }
+
     /**
      * Set the JSON {@link ObjectMapper} to use for serialization.
      * 
@@ -107,6 +119,34 @@ public class DoLockoutManagerOperation extends AbstractProfileAction {
         objectMapper = Constraint.isNotNull(mapper, "ObjectMapper cannot be null");
     }
 
+    /**
+     * Set a cache of validated credentials to flush when a lockout count is incremented.
+     * 
+     * @param cache credential cache
+     * 
+     * @since 5.2.0
+     */
+    public void setCredentialCache(@Nullable final ValidatedCredentialCache cache) {
+        checkSetterPreconditions();
+        credentialCache = cache;
+    }
+
+    /**
+     * Set the strategy used to obtain the username whose cached credentials to flush from an account key.
+     * 
+     * <p>The default handles the keys produced by
+     * {@link StorageBackedAccountLockoutManager.UsernameIPLockoutKeyStrategy}. If the strategy returns null,
+     * the whole cache is flushed.</p>
+     * 
+     * @param strategy lookup strategy
+     * 
+     * @since 5.2.0
+     */
+    public void setCredentialCacheUsernameStrategy(@Nonnull final Function<String,String> strategy) {
+        checkSetterPreconditions();
+        credentialCacheUsernameStrategy = Constraint.isNotNull(strategy, "Username strategy cannot be null");
+    }
+
     /** {@inheritDoc} */
     @Override
     protected void doInitialize() throws ComponentInitializationException {
@@ -248,6 +288,7 @@ public class DoLockoutManagerOperation extends AbstractProfileAction {
             } else if ("POST".equals(request.getMethod())) {
                 try {
                     if (getLockoutManager().increment(profileRequestContext)) {
+                        invalidateCredentialCache();
                         response.setStatus(HttpServletResponse.SC_NO_CONTENT);
                     } else {
                         throw new IOException();
@@ -310,6 +351,22 @@ public class DoLockoutManagerOperation extends AbstractProfileAction {
         return lockoutManager;
     }
 
+    /** Remove cached credentials for the account being locked. */
+    private void invalidateCredentialCache() {
+        final ValidatedCredentialCache cache = credentialCache;
+        if (cache == null) {
+            return;
+        }
+        
+        final String username = credentialCacheUsernameStrategy.apply(key);
+        if (username != null && !username.isEmpty()) {
+            cache.invalidate(username);
+        } else {
+            log.debug("{} No username derived from account key '{}', flushing credential cache", getLogPrefix(), key);
+            cache.invalidateAll();
+        }
+    }
+
     /**
      * Output an error object.
      * 
@@ -338,4 +395,22 @@ public class DoLockoutManagerOperation extends AbstractProfileAction {
         objectMapper.writer().withDefaultPrettyPrinter().writeValue(response.getOutputStream(), errors);
     }
     
-}
\ No newline at end of file
+    /**
+     * Default strategy for obtaining a username from an account key, which returns the key up to the last
+     * '!' character, or the whole key if there is none.
+     * 
+     * @since 5.2.0
+     */
+    public static class LockoutKeyUsernameStrategy implements Function<String,String> {
+
+        /** {@inheritDoc} */
+        @Nullable public String apply(@Nullable final String input) {
+            if (input == null) {
+                return null;
+            }
+            final int index = input.lastIndexOf('!');
+            return index >= 0 ? input.substring(0, index) : input;
+        }
+    }
+
+}
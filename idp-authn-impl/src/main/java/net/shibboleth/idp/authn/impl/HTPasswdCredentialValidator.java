@@ -17,7 +17,17 @@ package net.shibboleth.idp.authn.impl;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.GeneralSecurityException;
 import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Scanner;
@@ -27,6 +37,8 @@ import java.util.regex.Pattern;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
 import javax.security.auth.Subject;
 import javax.security.auth.login.LoginException;
 
@@ -36,6 +48,8 @@ import org.opensaml.profile.context.ProfileRequestContext;
 import org.slf4j.Logger;
 
 import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 
 import net.shibboleth.idp.authn.AbstractUsernamePasswordCredentialValidator;
 import net.shibboleth.idp.authn.AuthnEventIds;
@@ -55,6 +69,14 @@ import net.shibboleth.shared.resource.Resource;
 /**
  * A password validator that authenticates against Apache htpasswd files.
  * 
+ * <p>Successful verifications may optionally be cached for a short time so that repeated logins by the same
+ * account skip the (deliberately slow) hash computation. Cache keys are a keyed digest of the username,
+ * presented password, and stored hash, using a random key generated per instance, so plaintext passwords are
+ * not retained and a change to the stored hash invalidates any cached result.</p>
+ * 
+ * <p>A file-based resource is reloaded when its modification time changes, either by checking on each attempt
+ * or, optionally, in response to file system change notifications.</p>
+ * 
  * @since 4.0.0
  */
 @ThreadSafeAfterInit
@@ -74,11 +96,34 @@ public class HTPasswdCredentialValidator extends AbstractUsernamePasswordCredent
     
     /** In-memory copy of entries. */
     @Nonnull private final Map<String,String> credentialMap;
+
+    /** Lifetime of cached verifications. */
+    @Nonnull private Duration verifiedCacheLifetime;
+
+    /** Maximum number of cached verifications. */
+    private long verifiedCacheSize;
+
+    /** Whether to use file system notifications to detect changes. */
+    private boolean watchForChanges;
+
+    /** Cache of successful verifications. */
+    @Nullable private Cache<String,Boolean> verifiedCache;
+
+    /** Key for cache digests. */
+    @Nullable private SecretKeySpec cacheKey;
+
+    /** File system watcher. */
+    @Nullable private WatchService watchService;
+
+    /** Thread processing change notifications. */
+    @Nullable private Thread watchThread;
     
     /** Constructor. */
     public HTPasswdCredentialValidator() {
         lastModified = 0;
         credentialMap = new ConcurrentHashMap<>();
+        verifiedCacheLifetime = Duration.ZERO;
+        verifiedCacheSize = 1000;
     }
     
     /**
@@ -90,6 +135,50 @@ public class HTPasswdCredentialValidator extends AbstractUsernamePasswordCredent
         checkSetterPreconditions();
         htPasswdResource = Constraint.isNotNull(resource, "Resource cannot be null");
     }
+
+    /**
+     * Set the lifetime of cached successful verifications.
+     * 
+     * <p>Defaults to zero, which disables the cache.</p>
+     * 
+     * @param lifetime cache lifetime
+     * 
+     * @since 5.2.0
+     */
+    public void setVerifiedCacheLifetime(@Nonnull final Duration lifetime) {
+        checkSetterPreconditions();
+        Constraint.isNotNull(lifetime, "Lifetime cannot be null");
+        Constraint.isFalse(lifetime.isNegative(), "Lifetime cannot be negative");
+        
+        verifiedCacheLifetime = lifetime;
+    }
+
+    /**
+     * Set the maximum number of cached successful verifications.
+     * 
+     * <p>Defaults to 1000.</p>
+     * 
+     * @param size maximum number of entries
+     * 
+     * @since 5.2.0
+     */
+    public void setVerifiedCacheSize(final long size) {
+        checkSetterPreconditions();
+        verifiedCacheSize = Constraint.isGreaterThan(0, size, "Cache size must be greater than 0");
+    }
+
+    /**
+     * Set whether to detect changes to a file-based resource using file system notifications rather than
+     * checking the modification time on each attempt.
+     * 
+     * @param flag flag to set
+     * 
+     * @since 5.2.0
+     */
+    public void setWatchForChanges(final boolean flag) {
+        checkSetterPreconditions();
+        watchForChanges = flag;
+    }
     
     /** {@inheritDoc} */
     @Override
@@ -110,10 +199,23 @@ public class HTPasswdCredentialValidator extends AbstractUsernamePasswordCredent
 
             if (resource.isFile()) {
                 lastModified = resource.lastModified();
+                if (watchForChanges) {
+                    startWatching(resource.getFile().toPath());
+                }
             } else {
                 htPasswdResource = null;
             }
             
+            if (!verifiedCacheLifetime.isZero()) {
+                final byte[] keyBytes = new byte[32];
+                new SecureRandom().nextBytes(keyBytes);
+                cacheKey = new SecretKeySpec(keyBytes, "HmacSHA256");
+                verifiedCache = CacheBuilder.newBuilder()
+                        .maximumSize(verifiedCacheSize)
+                        .expireAfterWrite(verifiedCacheLifetime)
+                        .build();
+            }
+            
         } catch (final IOException e) {
             throw new ComponentInitializationException("Error reading htpasswd resource", e);
         } catch (final NoSuchAlgorithmException e) {
@@ -121,6 +223,25 @@ public class HTPasswdCredentialValidator extends AbstractUsernamePasswordCredent
         }
     }
 
+    /** {@inheritDoc} */
+    @Override
+    protected void doDestroy() {
+        final WatchService ws = watchService;
+        if (ws != null) {
+            try {
+                ws.close();
+            } catch (final IOException e) {
+                log.debug("{} Error closing file watcher", getLogPrefix(), e);
+            }
+        }
+        final Thread t = watchThread;
+        if (t != null) {
+            t.interrupt();
+        }
+        
+        super.doDestroy();
+    }
+
     /** {@inheritDoc} */
     @Override
     @Nullable protected Subject doValidate(@Nonnull final ProfileRequestContext profileRequestContext,
@@ -131,6 +252,10 @@ public class HTPasswdCredentialValidator extends AbstractUsernamePasswordCredent
         
         final String username = usernamePasswordContext.getTransformedUsername();
         
+        if (watchService == null) {
+            refreshCredentials();
+        }
+        
         final String passwd = credentialMap.get(username);
         if (passwd == null) {
             log.debug("{} Username '{}' not found in password resource", getLogPrefix(), username);
@@ -171,7 +296,35 @@ public class HTPasswdCredentialValidator extends AbstractUsernamePasswordCredent
     private boolean authenticate(@Nonnull final UsernamePasswordContext usernamePasswordContext,
             @Nonnull final String storedPassword) {
         
-        refreshCredentials();
+        final Cache<String,Boolean> cache = verifiedCache;
+        if (cache != null) {
+            final String key = getCacheKey(usernamePasswordContext, storedPassword);
+            if (key != null) {
+                if (cache.getIfPresent(key) != null) {
+                    log.trace("{} Using cached verification for '{}'", getLogPrefix(),
+                            usernamePasswordContext.getTransformedUsername());
+                    return true;
+                } else if (verify(usernamePasswordContext, storedPassword)) {
+                    cache.put(key, Boolean.TRUE);
+                    return true;
+                }
+                return false;
+            }
+        }
+        
+        return verify(usernamePasswordContext, storedPassword);
+    }
+    
+    /**
+     * Compare input password to stored value by computing the hash.
+     * 
+     * @param usernamePasswordContext input context
+     * @param storedPassword the stored string
+     * 
+     * @return true iff the password matches
+     */
+    private boolean verify(@Nonnull final UsernamePasswordContext usernamePasswordContext,
+            @Nonnull final String storedPassword) {
         
         // test Apache MD5 variant encrypted password
         if (storedPassword.startsWith("$apr1$")) {
@@ -190,6 +343,36 @@ public class HTPasswdCredentialValidator extends AbstractUsernamePasswordCredent
         return false;
     }
 
+    /**
+     * Compute the key for caching a verification.
+     * 
+     * @param usernamePasswordContext input context
+     * @param storedPassword the stored string
+     * 
+     * @return the key, or null if it cannot be computed
+     */
+    @Nullable private String getCacheKey(@Nonnull final UsernamePasswordContext usernamePasswordContext,
+            @Nonnull final String storedPassword) {
+        final String password = usernamePasswordContext.getPassword();
+        if (password == null) {
+            return null;
+        }
+        
+        try {
+            final Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(cacheKey);
+            mac.update(String.valueOf(usernamePasswordContext.getTransformedUsername())
+                    .getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            mac.update(password.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            return Base64.getEncoder().encodeToString(mac.doFinal(storedPassword.getBytes(StandardCharsets.UTF_8)));
+        } catch (final GeneralSecurityException e) {
+            log.warn("{} Unable to compute verification cache key", getLogPrefix(), e);
+            return null;
+        }
+    }
+
     /**
      * Check for file refresh.
      */
@@ -203,15 +386,103 @@ public class HTPasswdCredentialValidator extends AbstractUsernamePasswordCredent
         
         try {
             if (resource.isFile() && resource.exists() && resource.lastModified() > lastModified) {
-                try (final InputStream is = resource.getInputStream()) {
-                    credentialMap.clear();
-                    credentialMap.putAll(readCredentials(is));
-                }
+                reloadCredentials(resource);
             }
         } catch (final IOException e) {
             log.error("{} Error reloading credentials", getLogPrefix(), e);
         }
     }
+
+    /**
+     * Reload the credentials, applying only the differences so that unchanged entries remain available
+     * throughout.
+     * 
+     * @param resource resource to load
+     * 
+     * @throws IOException if the resource cannot be read
+     */
+    private synchronized void reloadCredentials(@Nonnull final Resource resource) throws IOException {
+        final long modified = resource.lastModified();
+        if (modified <= lastModified) {
+            return;
+        }
+        
+        final Map<String,String> fresh;
+        try (final InputStream is = resource.getInputStream()) {
+            fresh = readCredentials(is);
+        }
+        
+        credentialMap.keySet().retainAll(fresh.keySet());
+        for (final Map.Entry<String,String> entry : fresh.entrySet()) {
+            if (!entry.getValue().equals(credentialMap.get(entry.getKey()))) {
+                credentialMap.put(entry.getKey(), entry.getValue());
+            }
+        }
+        lastModified = modified;
+    }
+
+    /**
+     * Start a thread to reload the credentials when the file changes.
+     * 
+     * @param file file to watch
+     * 
+     * @throws IOException if the watcher cannot be registered
+     */
+    private void startWatching(@Nonnull final Path file) throws IOException {
+        final Path absolute = file.toAbsolutePath();
+        final Path dir = absolute.getParent();
+        final Path name = absolute.getFileName();
+        if (dir == null || name == null) {
+            log.warn("{} Unable to watch {}, will check for changes on each attempt", getLogPrefix(), file);
+            return;
+        }
+        
+        final WatchService ws = dir.getFileSystem().newWatchService();
+        dir.register(ws, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        watchService = ws;
+        
+        final Thread t = new Thread(() -> watch(ws, name), "htpasswd-watch-" + getId());
+        t.setDaemon(true);
+        watchThread = t;
+        t.start();
+    }
+
+    /**
+     * Process change notifications until the watcher is closed.
+     * 
+     * @param ws the watcher
+     * @param name file name to react to
+     */
+    private void watch(@Nonnull final WatchService ws, @Nonnull final Path name) {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                final WatchKey key = ws.take();
+                boolean changed = false;
+                for (final WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW || name.equals(event.context())) {
+                        changed = true;
+                    }
+                }
+                if (changed) {
+                    final Resource resource = htPasswdResource;
+                    if (resource != null && resource.exists()) {
+                        try {
+                            reloadCredentials(resource);
+                            log.debug("{} Reloaded credentials after change notification", getLogPrefix());
+                        } catch (final IOException e) {
+                            log.error("{} Error reloading credentials", getLogPrefix(), e);
+                        }
+                    }
+                }
+                if (!key.reset()) {
+                    log.warn("{} File watcher no longer valid, changes will not be detected", getLogPrefix());
+                    return;
+                }
+            }
+        } catch (final InterruptedException | ClosedWatchServiceException e) {
+            log.debug("{} File watcher stopped", getLogPrefix());
+        }
+    }
     
     /**
      * Reads the credentials from stream.
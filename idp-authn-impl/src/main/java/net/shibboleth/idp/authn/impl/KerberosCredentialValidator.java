@@ -14,10 +14,19 @@
 
 package net.shibboleth.idp.authn.impl;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
 import java.security.PrivilegedActionException;
 import java.security.PrivilegedExceptionAction;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -83,9 +92,28 @@ public class KerberosCredentialValidator extends AbstractUsernamePasswordCredent
     /** JAAS options for server login. */
     @NonnullAfterInit private Map<String,String> serverOptions;
     
+    /** Path to krb5 configuration file to monitor for changes. */
+    @Nullable private Path krb5ConfigPath;
+    
+    /** Last observed modification time of the krb5 configuration. */
+    @Nullable private FileTime krb5ConfigModified;
+    
+    /** Interval between background renewals of the service login. */
+    @Nonnull private Duration serviceLoginRenewalInterval;
+    
+    /** Cached service login state. */
+    @Nonnull private final AtomicReference<ServiceCredentials> serviceCredentials;
+    
+    /** Background renewal of service login. */
+    @Nullable private ScheduledExecutorService renewalExecutor;
+    
     /** Constructor. */
     public KerberosCredentialValidator() {
         loginModuleClassName = "com.sun.security.auth.module.Krb5LoginModule";
+        final Duration oneHour = Duration.ofHours(1);
+        assert oneHour != null;
+        serviceLoginRenewalInterval = oneHour;
+        serviceCredentials = new AtomicReference<>();
     }
     
     /**
@@ -109,6 +137,41 @@ public class KerberosCredentialValidator extends AbstractUsernamePasswordCredent
         refreshKrb5Config = flag;
     }
 
+    /**
+     * Set the path to the Kerberos configuration file to monitor when refreshing configuration.
+     * 
+     * <p>When refreshing is enabled and this is set (or the {@code java.security.krb5.conf} system
+     * property is), the configuration is refreshed only when the file's modification time changes
+     * rather than on every attempt.</p>
+     * 
+     * @param path path to krb5 configuration
+     * 
+     * @since 5.2.0
+     */
+    public void setKrb5ConfigPath(@Nullable final String path) {
+        checkSetterPreconditions();
+        final String trimmed = StringSupport.trimOrNull(path);
+        krb5ConfigPath = trimmed != null ? Path.of(trimmed) : null;
+    }
+
+    /**
+     * Set the interval at which the service principal's keytab login is renewed in the background.
+     * 
+     * <p>Defaults to 1 hour. A zero interval disables background renewal, in which case the login
+     * is only repeated after a verification failure.</p>
+     * 
+     * @param interval renewal interval
+     * 
+     * @since 5.2.0
+     */
+    public void setServiceLoginRenewalInterval(@Nonnull final Duration interval) {
+        checkSetterPreconditions();
+        Constraint.isNotNull(interval, "Interval cannot be null");
+        Constraint.isFalse(interval.isNegative(), "Interval cannot be negative");
+        
+        serviceLoginRenewalInterval = interval;
+    }
+
     /**
      * Set whether to save the TGT in the Subject.
      * 
@@ -150,8 +213,20 @@ public class KerberosCredentialValidator extends AbstractUsernamePasswordCredent
             throw new ComponentInitializationException("A keytab path is required if a service principal is set");
         }
         
+        if (refreshKrb5Config && krb5ConfigPath == null) {
+            final String prop = StringSupport.trimOrNull(System.getProperty("java.security.krb5.conf"));
+            if (prop != null) {
+                krb5ConfigPath = Path.of(prop);
+            }
+        }
+        if (refreshKrb5Config && krb5ConfigPath != null) {
+            krb5ConfigModified = getKrb5ConfigModified();
+            log.debug("{} Refreshing Kerberos configuration only when {} changes", getLogPrefix(), krb5ConfigPath);
+        }
+        
         clientOptions = new HashMap<>();
-        clientOptions.put("refreshKrb5Config", Boolean.valueOf(refreshKrb5Config).toString());
+        clientOptions.put("refreshKrb5Config",
+                Boolean.valueOf(refreshKrb5Config && krb5ConfigPath == null).toString());
 
         if (servicePrincipal != null) {
             // This set of options is from a lot of trial and error, but a couple of important points:
@@ -165,7 +240,34 @@ public class KerberosCredentialValidator extends AbstractUsernamePasswordCredent
             serverOptions.put("doNotPrompt", "true");
             serverOptions.put("isInitiator", "false");
             serverOptions.put("storeKey", "true");
+            
+            if (!serviceLoginRenewalInterval.isZero()) {
+                final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+                    final Thread t = new Thread(r, "kerberos-service-login");
+                    t.setDaemon(true);
+                    return t;
+                });
+                final long millis = serviceLoginRenewalInterval.toMillis();
+                executor.scheduleWithFixedDelay(this::renewServiceCredentials, millis, millis, TimeUnit.MILLISECONDS);
+                renewalExecutor = executor;
+            }
+        }
+    }
+    
+    /** {@inheritDoc} */
+    @Override
+    protected void doDestroy() {
+        final ScheduledExecutorService executor = renewalExecutor;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        
+        final ServiceCredentials creds = serviceCredentials.getAndSet(null);
+        if (creds != null) {
+            creds.retire();
         }
+        
+        super.doDestroy();
     }
     
     /** {@inheritDoc} */
@@ -183,7 +285,7 @@ public class KerberosCredentialValidator extends AbstractUsernamePasswordCredent
                 final LoginModule clientLoginModule = (LoginModule) Class.forName(loginModuleClassName).
                         getDeclaredConstructor().newInstance();
                 clientLoginModule.initialize(subject, new SimpleCallbackHandler(usernamePasswordContext),
-                        new HashMap<>(), clientOptions);
+                        new HashMap<>(), getClientOptions());
                 if (!clientLoginModule.login() || !clientLoginModule.commit()) {
                     clientLoginModule.abort();
                     throw new LoginException("Login module reported failure");
@@ -239,6 +341,55 @@ public class KerberosCredentialValidator extends AbstractUsernamePasswordCredent
         return super.populateSubject(subject, usernamePasswordContext);
     }
 
+    /**
+     * Get the JAAS options for a client login, forcing a configuration refresh if the monitored
+     * krb5 configuration has changed.
+     * 
+     * @return options to use
+     */
+    @Nonnull private Map<String,String> getClientOptions() {
+        if (krb5ConfigPath == null) {
+            return clientOptions;
+        }
+        
+        final FileTime modified = getKrb5ConfigModified();
+        synchronized (this) {
+            if (modified == null || modified.equals(krb5ConfigModified)) {
+                return clientOptions;
+            }
+            krb5ConfigModified = modified;
+        }
+        
+        log.info("{} Kerberos configuration {} changed, refreshing", getLogPrefix(), krb5ConfigPath);
+        
+        // The service login picks up the change as well, on its next use.
+        if (servicePrincipal != null) {
+            invalidateServiceCredentials(serviceCredentials.get());
+        }
+        
+        final Map<String,String> options = new HashMap<>(clientOptions);
+        options.put("refreshKrb5Config", "true");
+        return options;
+    }
+    
+    /**
+     * Get the modification time of the monitored krb5 configuration.
+     * 
+     * @return modification time or null
+     */
+    @Nullable private FileTime getKrb5ConfigModified() {
+        final Path path = krb5ConfigPath;
+        if (path == null) {
+            return null;
+        }
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (final IOException e) {
+            log.debug("{} Unable to check modification time of {}", getLogPrefix(), path, e);
+            return null;
+        }
+    }
+    
     /**
      * Use credentials to acquire and verify a service ticket.
      * 
@@ -248,25 +399,16 @@ public class KerberosCredentialValidator extends AbstractUsernamePasswordCredent
      */
     private void verifyKDC(@Nonnull final Subject subject) throws Exception {
         
-        final Oid mechOid = new Oid("1.2.840.113554.1.2.2");
+        final ServiceCredentials creds = acquireServiceCredentials();
         
-        LoginModule serverLoginModule = null;
         try {
-            serverLoginModule = (LoginModule) Class.forName(loginModuleClassName).
-                    getDeclaredConstructor().newInstance();
-            final Subject serverSubject = new Subject();
-            serverLoginModule.initialize(serverSubject, null, new HashMap<>(), serverOptions);
-            if (!serverLoginModule.login() || !serverLoginModule.commit()) {
-                serverLoginModule.abort();
-                throw new LoginException("Login module reported failure");
-            }
-            
             final GSSManager manager = GSSManager.getInstance();
             
             // Note the use of NT_USER_NAME; using NT_HOSTBASED_SERVICE does not work and results in a TGS request
             // to the KDC for an unknown service name that isn't even logged there.
             final GSSName serviceName = manager.createName(servicePrincipal, GSSName.NT_USER_NAME);
-            final GSSContext context = manager.createContext(serviceName, mechOid, null, GSSContext.DEFAULT_LIFETIME);
+            final GSSContext context = manager.createContext(serviceName, creds.mechOid(), null,
+                    GSSContext.DEFAULT_LIFETIME);
             
             // The GSS context initiation has to be performed as a privileged action with the client subject
             // so that the null credential above indicating the default credentials pulls from the JAAS subject.
@@ -281,14 +423,11 @@ public class KerberosCredentialValidator extends AbstractUsernamePasswordCredent
             });
             
             // At this point the KDC has logged the additional TGS exchange to get the service ticket.
-            // Because we used the storeKeys option on the server-side JAAS module call, the keytab
-            // entries have been loaded, and the KerberosKey objects in the private credential set are
-            // the credentials needed by GSS to accept the context token, namely to decrypt the service
-            // ticket. So we can use a null GSSCredential again by running the context creation call
-            // under the subject's privilege context.
-            final String verifiedName = Subject.doAs(serverSubject, new PrivilegedExceptionAction<String>() {
+            // The cached acceptor credential was built from the keytab entries loaded by the server-side
+            // login, so it can decrypt the service ticket without another login.
+            final String verifiedName = Subject.doAs(creds.subject(), new PrivilegedExceptionAction<String>() {
                 public String run() throws GSSException {
-                    final GSSContext serverCtx = manager.createContext((GSSCredential) null);
+                    final GSSContext serverCtx = manager.createContext(creds.acceptor());
                     serverCtx.acceptSecContext(token, 0, token.length);
                     final String s = serverCtx.getSrcName().toString();
                     serverCtx.dispose();
@@ -299,16 +438,251 @@ public class KerberosCredentialValidator extends AbstractUsernamePasswordCredent
             context.dispose();
             
             log.debug("{} GSS context established between {} and {}", getLogPrefix(), verifiedName, servicePrincipal);
+        } catch (final PrivilegedActionException e) {
+            if (e.getException() instanceof GSSException) {
+                // Keys may have been rotated, so force a fresh service login next time.
+                invalidateServiceCredentials(creds);
+            }
+            if (e.getException() != null) {
+                throw e.getException();
+            }
+            throw e;
+        } finally {
+            creds.release();
+        }
+    }
+    
+    /**
+     * Get the cached service login state for use, performing the login if necessary.
+     * 
+     * <p>The caller must call {@link ServiceCredentials#release()} when done with the result.</p>
+     * 
+     * @return service credentials
+     * 
+     * @throws Exception if the login fails
+     */
+    @Nonnull ServiceCredentials acquireServiceCredentials() throws Exception {
+        while (true) {
+            ServiceCredentials creds = serviceCredentials.get();
+            if (creds == null) {
+                synchronized (this) {
+                    creds = serviceCredentials.get();
+                    if (creds == null) {
+                        creds = loginService();
+                        serviceCredentials.set(creds);
+                    }
+                }
+            }
+            
+            // Fails only if the credentials were retired and released since being read, so just retry.
+            if (creds.acquire()) {
+                return creds;
+            }
+        }
+    }
+    
+    /** Repeat the service login and swap in the result, retiring the previous login. */
+    void renewServiceCredentials() {
+        try {
+            final ServiceCredentials fresh = loginService();
+            final ServiceCredentials old = serviceCredentials.getAndSet(fresh);
+            if (old != null) {
+                old.retire();
+            }
+            log.debug("{} Renewed service login for {}", getLogPrefix(), servicePrincipal);
+        } catch (final Exception e) {
+            log.warn("{} Unable to renew service login for {}, retaining existing credentials", getLogPrefix(),
+                    servicePrincipal, e);
+        }
+    }
+    
+    /**
+     * Drop a service login so the next verification performs a new one.
+     * 
+     * @param creds the credentials to drop if still current
+     */
+    void invalidateServiceCredentials(@Nullable final ServiceCredentials creds) {
+        if (creds != null && serviceCredentials.compareAndSet(creds, null)) {
+            creds.retire();
+        }
+    }
+    
+    /**
+     * Perform the service principal's keytab login and build an acceptor credential from it.
+     * 
+     * @return service credentials
+     * 
+     * @throws Exception if the login fails
+     */
+    @Nonnull ServiceCredentials loginService() throws Exception {
+        
+        final Oid mechOid = new Oid("1.2.840.113554.1.2.2");
+        
+        final LoginModule serverLoginModule = (LoginModule) Class.forName(loginModuleClassName).
+                getDeclaredConstructor().newInstance();
+        final Subject serverSubject = new Subject();
+        try {
+            serverLoginModule.initialize(serverSubject, null, new HashMap<>(), serverOptions);
+            if (!serverLoginModule.login() || !serverLoginModule.commit()) {
+                serverLoginModule.abort();
+                throw new LoginException("Login module reported failure");
+            }
         } catch (final LoginException e) {
             throw new LoginException("Unable to obtain service credentials for KDC verification");
+        }
+        
+        try {
+            // Because we used the storeKeys option on the server-side JAAS module call, the keytab
+            // entries have been loaded into the private credential set, which is what GSS needs
+            // to build an acceptor credential for the service.
+            final GSSManager manager = GSSManager.getInstance();
+            final GSSName serviceName = manager.createName(servicePrincipal, GSSName.NT_USER_NAME);
+            final GSSCredential acceptor = Subject.doAs(serverSubject,
+                    new PrivilegedExceptionAction<GSSCredential>() {
+                        public GSSCredential run() throws GSSException {
+                            return manager.createCredential(serviceName, GSSCredential.INDEFINITE_LIFETIME,
+                                    mechOid, GSSCredential.ACCEPT_ONLY);
+                        }
+                    });
+            assert acceptor != null;
+            return new ServiceCredentials(serverLoginModule, serverSubject, acceptor, mechOid);
         } catch (final PrivilegedActionException e) {
+            serverLoginModule.logout();
             if (e.getException() != null) {
                 throw e.getException();
             }
             throw e;
-        } finally {
-            if (serverLoginModule != null) {
-                serverLoginModule.logout();
+        }
+    }
+    
+    /**
+     * Service-side login state reused across verifications.
+     * 
+     * <p>Verifications hold a reference while they use the credentials. Once a login has been replaced or
+     * dropped, it is retired, and is released when the last verification using it finishes.</p>
+     */
+    static final class ServiceCredentials {
+        
+        /** Class logger. */
+        @Nonnull private final Logger log = LoggerFactory.getLogger(ServiceCredentials.class);
+
+        /** Login module holding the keytab login. */
+        @Nonnull private final LoginModule module;
+        
+        /** Service subject. */
+        @Nonnull private final Subject subject;
+        
+        /** Acceptor credential. */
+        @Nonnull private final GSSCredential acceptor;
+        
+        /** Kerberos mechanism OID. */
+        @Nonnull private final Oid mechOid;
+        
+        /** Number of verifications using the credentials. */
+        private int users;
+        
+        /** Whether the credentials have been retired. */
+        private boolean retired;
+        
+        /** Whether the credentials have been released. */
+        private boolean released;
+        
+        /**
+         * Constructor.
+         *
+         * @param loginModule login module holding the keytab login
+         * @param serviceSubject service subject
+         * @param acceptorCredential acceptor credential
+         * @param oid Kerberos mechanism OID
+         */
+        ServiceCredentials(@Nonnull final LoginModule loginModule, @Nonnull final Subject serviceSubject,
+                @Nonnull final GSSCredential acceptorCredential, @Nonnull final Oid oid) {
+            module = loginModule;
+            subject = serviceSubject;
+            acceptor = acceptorCredential;
+            mechOid = oid;
+        }
+        
+        /**
+         * Get the service subject.
+         * 
+         * @return service subject
+         */
+        @Nonnull Subject subject() {
+            return subject;
+        }
+        
+        /**
+         * Get the acceptor credential.
+         * 
+         * @return acceptor credential
+         */
+        @Nonnull GSSCredential acceptor() {
+            return acceptor;
+        }
+        
+        /**
+         * Get the Kerberos mechanism OID.
+         * 
+         * @return mechanism OID
+         */
+        @Nonnull Oid mechOid() {
+            return mechOid;
+        }
+        
+        /**
+         * Get whether the credentials have been released.
+         * 
+         * @return whether the credentials have been released
+         */
+        synchronized boolean isReleased() {
+            return released;
+        }
+        
+        /**
+         * Register a use of the credentials.
+         * 
+         * @return false iff the credentials have already been released
+         */
+        synchronized boolean acquire() {
+            if (released) {
+                return false;
+            }
+            users++;
+            return true;
+        }
+        
+        /** End a use of the credentials, releasing them if they are retired and no longer in use. */
+        synchronized void release() {
+            users--;
+            if (retired && users == 0) {
+                doRelease();
+            }
+        }
+        
+        /** Retire the credentials, releasing them now if not in use. */
+        synchronized void retire() {
+            retired = true;
+            if (users == 0) {
+                doRelease();
+            }
+        }
+        
+        /** Dispose of the acceptor credential and log out the service principal. */
+        private void doRelease() {
+            if (released) {
+                return;
+            }
+            released = true;
+            try {
+                acceptor.dispose();
+            } catch (final GSSException e) {
+                log.debug("Error disposing acceptor credential", e);
+            }
+            try {
+                module.logout();
+            } catch (final LoginException e) {
+                log.debug("Error logging out service principal", e);
             }
         }
     }
@@ -0,0 +1,458 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.shibboleth.idp.authn.impl;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.ldaptive.LdapException;
+import org.ldaptive.ResultCode;
+import org.opensaml.core.metrics.MetricsSupport;
+import org.slf4j.Logger;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+import net.shibboleth.shared.annotation.constraint.NonnullAfterInit;
+import net.shibboleth.shared.annotation.constraint.NotEmpty;
+import net.shibboleth.shared.annotation.constraint.ThreadSafeAfterInit;
+import net.shibboleth.shared.component.AbstractInitializableComponent;
+import net.shibboleth.shared.component.ComponentInitializationException;
+import net.shibboleth.shared.logic.Constraint;
+import net.shibboleth.shared.primitive.LoggerFactory;
+
+/**
+ * Runs LDAP operations on a bounded pool of worker threads with a per-attempt deadline, guarded by a
+ * circuit breaker per directory.
+ *
+ * <p>A directory is named by the caller, typically with the list of LDAP URLs its connection strategy
+ * chooses between. Failover between those URLs happens within a single operation, so the breaker counts
+ * an operation as failed only once the directory as a whole could not serve it.</p>
+ *
+ * <p>The calling thread waits at most for the configured deadline. Operations that time out or fail with an
+ * {@link LdapException} count against the breaker for their directory. Once the configured number of consecutive
+ * failures is reached the breaker opens and further attempts fail immediately until the open interval has
+ * elapsed, after which a single trial attempt is allowed through. Saturation of the pool also fails
+ * immediately rather than queueing unboundedly.</p>
+ *
+ * <p>Pool usage, latency, timeouts, rejections, and breaker state are exported as metrics under
+ * "net.shibboleth.idp.authn.ldap.bind" if a metric registry is installed.</p>
+ *
+ * @since 5.2.0
+ */
+@ThreadSafeAfterInit
+public class LDAPBindExecutor extends AbstractInitializableComponent {
+
+    /** Prefix for metrics. */
+    @Nonnull @NotEmpty private static final String METRIC_NAME = "net.shibboleth.idp.authn.ldap.bind";
+
+    /** Class logger. */
+    @Nonnull private final Logger log = LoggerFactory.getLogger(LDAPBindExecutor.class);
+
+    /** Number of worker threads. */
+    private int maxThreads;
+
+    /** Number of operations that may wait for a worker. */
+    private int queueSize;
+
+    /** Deadline for each operation. */
+    @Nonnull private Duration timeout;
+
+    /** Consecutive failures that open a breaker. */
+    private int failureThreshold;
+
+    /** Time a breaker stays open before allowing a trial attempt. */
+    @Nonnull private Duration openInterval;
+
+    /** Optional source of worker threads. */
+    @Nullable private ThreadFactory threadFactory;
+
+    /** Worker pool. */
+    @NonnullAfterInit private ThreadPoolExecutor executor;
+
+    /** Breakers by directory name. */
+    @Nonnull private final Map<String,CircuitBreaker> breakers;
+
+    /** Constructor. */
+    public LDAPBindExecutor() {
+        maxThreads = 20;
+        queueSize = 100;
+        failureThreshold = 5;
+        final Duration fiveSeconds = Duration.ofSeconds(5);
+        final Duration thirtySeconds = Duration.ofSeconds(30);
+        assert fiveSeconds != null && thirtySeconds != null;
+        timeout = fiveSeconds;
+        openInterval = thirtySeconds;
+        breakers = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Set the number of worker threads.
+     *
+     * <p>Defaults to 20.</p>
+     *
+     * @param threads number of threads
+     */
+    public void setMaxThreads(final int threads) {
+        checkSetterPreconditions();
+        maxThreads = (int) Constraint.isGreaterThan(0, threads, "Thread count must be greater than 0");
+    }
+
+    /**
+     * Set the number of operations that may wait for a worker before further attempts are rejected.
+     *
+     * <p>Defaults to 100.</p>
+     *
+     * @param size queue size
+     */
+    public void setQueueSize(final int size) {
+        checkSetterPreconditions();
+        queueSize = (int) Constraint.isGreaterThan(0, size, "Queue size must be greater than 0");
+    }
+
+    /**
+     * Set the deadline for each operation, including any time spent waiting for a worker.
+     *
+     * <p>Defaults to 5 seconds.</p>
+     *
+     * @param deadline deadline for each operation
+     */
+    public void setTimeout(@Nonnull final Duration deadline) {
+        checkSetterPreconditions();
+        Constraint.isNotNull(deadline, "Timeout cannot be null");
+        Constraint.isFalse(deadline.isNegative() || deadline.isZero(), "Timeout must be positive");
+
+        timeout = deadline;
+    }
+
+    /**
+     * Set the number of consecutive failures that opens the breaker for a directory.
+     *
+     * <p>Defaults to 5.</p>
+     *
+     * @param threshold failure threshold
+     */
+    public void setFailureThreshold(final int threshold) {
+        checkSetterPreconditions();
+        failureThreshold = (int) Constraint.isGreaterThan(0, threshold, "Failure threshold must be greater than 0");
+    }
+
+    /**
+     * Set the time a breaker stays open before a trial attempt is allowed.
+     *
+     * <p>Defaults to 30 seconds.</p>
+     *
+     * @param interval open interval
+     */
+    public void setOpenInterval(@Nonnull final Duration interval) {
+        checkSetterPreconditions();
+        Constraint.isNotNull(interval, "Open interval cannot be null");
+        Constraint.isFalse(interval.isNegative() || interval.isZero(), "Open interval must be positive");
+
+        openInterval = interval;
+    }
+
+    /**
+     * Set the source of worker threads.
+     *
+     * <p>Defaults to daemon platform threads. A virtual thread factory may be supplied on Java versions
+     * that provide one; the pool still bounds concurrency against the directory.</p>
+     *
+     * @param factory thread factory
+     */
+    public void setThreadFactory(@Nullable final ThreadFactory factory) {
+        checkSetterPreconditions();
+        threadFactory = factory;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void doInitialize() throws ComponentInitializationException {
+        super.doInitialize();
+
+        ThreadFactory factory = threadFactory;
+        if (factory == null) {
+            final AtomicInteger counter = new AtomicInteger();
+            factory = r -> {
+                final Thread t = new Thread(r, "ldap-bind-" + counter.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            };
+        }
+
+        executor = new ThreadPoolExecutor(maxThreads, maxThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize), factory, new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+
+        final ThreadPoolExecutor pool = executor;
+        registerGauge(MetricRegistry.name(METRIC_NAME, "active"), pool::getActiveCount);
+        registerGauge(MetricRegistry.name(METRIC_NAME, "queued"), () -> pool.getQueue().size());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void doDestroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+
+        super.doDestroy();
+    }
+
+    /**
+     * Get the current breaker state for a directory.
+     *
+     * @param directory directory name
+     *
+     * @return breaker state
+     */
+    @Nonnull public State getState(@Nonnull @NotEmpty final String directory) {
+        final CircuitBreaker breaker = breakers.get(directory);
+        return breaker != null ? breaker.getState() : State.CLOSED;
+    }
+
+    /**
+     * Run an LDAP operation subject to the deadline and the breaker for the supplied directory.
+     *
+     * @param <T> result type
+     * @param directory name of the directory the operation targets
+     * @param operation the operation to run
+     *
+     * @return the result of the operation
+     *
+     * @throws LdapException if the operation fails, times out, or is rejected
+     */
+    public <T> T execute(@Nonnull @NotEmpty final String directory, @Nonnull final Callable<T> operation)
+            throws LdapException {
+        checkComponentActive();
+
+        final CircuitBreaker breaker = breakers.computeIfAbsent(directory, this::newBreaker);
+        if (!breaker.tryAcquire()) {
+            count("open");
+            throw new LdapException(ResultCode.UNAVAILABLE, "Circuit open for " + directory);
+        }
+
+        final Future<T> future;
+        try {
+            future = executor.submit(operation);
+        } catch (final RejectedExecutionException e) {
+            breaker.release();
+            count("rejected");
+            log.warn("LDAP bind pool saturated, rejecting operation against {}", directory);
+            throw new LdapException(ResultCode.UNAVAILABLE, "LDAP bind pool saturated");
+        }
+
+        final long start = System.nanoTime();
+        try {
+            final T result = future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            breaker.onSuccess();
+            return result;
+        } catch (final TimeoutException e) {
+            future.cancel(true);
+            count("timeouts");
+            breaker.onFailure();
+            log.warn("LDAP operation against {} exceeded deadline of {}", directory, timeout);
+            throw new LdapException(ResultCode.UNAVAILABLE, "LDAP operation exceeded deadline");
+        } catch (final InterruptedException e) {
+            future.cancel(true);
+            breaker.release();
+            Thread.currentThread().interrupt();
+            throw new LdapException(ResultCode.UNAVAILABLE, "Interrupted waiting for LDAP operation");
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof LdapException le) {
+                breaker.onFailure();
+                throw le;
+            }
+            breaker.release();
+            if (cause instanceof RuntimeException re) {
+                throw re;
+            } else if (cause instanceof Error err) {
+                throw err;
+            }
+            throw new IllegalStateException(cause);
+        } finally {
+            final MetricRegistry registry = MetricsSupport.getMetricRegistry();
+            if (registry != null) {
+                registry.timer(MetricRegistry.name(METRIC_NAME, "latency")).update(
+                        System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    /**
+     * Create a breaker for a directory and export its state.
+     *
+     * @param directory directory name
+     *
+     * @return new breaker
+     */
+    @Nonnull private CircuitBreaker newBreaker(@Nonnull final String directory) {
+        final CircuitBreaker breaker = new CircuitBreaker(directory);
+        registerGauge(getBreakerMetricName(directory), () -> breaker.getState().name());
+        return breaker;
+    }
+
+    /**
+     * Get the name of the metric exporting the breaker state for a directory.
+     *
+     * <p>Characters other than letters, digits, hyphens and underscores, including the separators in a
+     * URL list, are replaced so that the name forms a single component.</p>
+     *
+     * @param directory directory name
+     *
+     * @return metric name
+     */
+    @Nonnull @NotEmpty static String getBreakerMetricName(@Nonnull @NotEmpty final String directory) {
+        final String name = MetricRegistry.name(METRIC_NAME, "breaker",
+                directory.replaceAll("[^A-Za-z0-9_-]+", "_"));
+        assert name != null;
+        return name;
+    }
+
+    /**
+     * Register a gauge if a metric registry is installed, replacing any prior instance.
+     *
+     * @param <T> gauge type
+     * @param name metric name
+     * @param gauge gauge to register
+     */
+    private <T> void registerGauge(@Nonnull @NotEmpty final String name, @Nonnull final Gauge<T> gauge) {
+        final MetricRegistry registry = MetricsSupport.getMetricRegistry();
+        if (registry != null) {
+            registry.remove(name);
+            try {
+                registry.register(name, gauge);
+            } catch (final IllegalArgumentException e) {
+                log.debug("Gauge {} already registered", name);
+            }
+        }
+    }
+
+    /**
+     * Increment a counter if a metric registry is installed.
+     *
+     * @param suffix metric name suffix
+     */
+    private void count(@Nonnull @NotEmpty final String suffix) {
+        final MetricRegistry registry = MetricsSupport.getMetricRegistry();
+        if (registry != null) {
+            registry.counter(MetricRegistry.name(METRIC_NAME, suffix)).inc();
+        }
+    }
+
+    /** Breaker states. */
+    public enum State {
+        /** Operations are allowed. */
+        CLOSED,
+        /** Operations fail immediately. */
+        OPEN,
+        /** A single trial operation is in progress. */
+        HALF_OPEN,
+    }
+
+    /** Consecutive-failure breaker for a single directory. */
+    private final class CircuitBreaker {
+
+        /** Directory name. */
+        @Nonnull private final String directory;
+
+        /** Current state. */
+        @Nonnull private State state;
+
+        /** Consecutive failures. */
+        private int failures;
+
+        /** Time at which an open breaker allows a trial, in nanoseconds. */
+        private long retryAt;
+
+        /**
+         * Constructor.
+         *
+         * @param name directory name
+         */
+        CircuitBreaker(@Nonnull final String name) {
+            directory = name;
+            state = State.CLOSED;
+        }
+
+        /**
+         * Get the current state.
+         *
+         * @return state
+         */
+        @Nonnull synchronized State getState() {
+            return state;
+        }
+
+        /**
+         * Determine whether an operation may proceed, moving an expired open breaker to half-open.
+         *
+         * @return true iff the operation may proceed
+         */
+        synchronized boolean tryAcquire() {
+            if (state == State.CLOSED) {
+                return true;
+            } else if (state == State.OPEN && System.nanoTime() - retryAt >= 0) {
+                log.info("Allowing trial LDAP operation against {}", directory);
+                state = State.HALF_OPEN;
+                return true;
+            }
+            return false;
+        }
+
+        /** Return a trial permit without recording an outcome. */
+        synchronized void release() {
+            if (state == State.HALF_OPEN) {
+                state = State.OPEN;
+            }
+        }
+
+        /** Record a successful operation. */
+        synchronized void onSuccess() {
+            if (state != State.CLOSED) {
+                log.info("Closing circuit for {}", directory);
+            }
+            state = State.CLOSED;
+            failures = 0;
+        }
+
+        /** Record a failed operation. */
+        synchronized void onFailure() {
+            failures++;
+            if (state == State.HALF_OPEN || (state == State.CLOSED && failures >= failureThreshold)) {
+                log.warn("Opening circuit for {} after {} consecutive failure(s)", directory, failures);
+                state = State.OPEN;
+                retryAt = System.nanoTime() + openInterval.toNanos();
+                count("opened");
+            }
+        }
+    }
+
+}
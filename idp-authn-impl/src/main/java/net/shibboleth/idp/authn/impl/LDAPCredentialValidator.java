@@ -44,6 +44,7 @@ import net.shibboleth.shared.annotation.constraint.ThreadSafeAfterInit;
 import net.shibboleth.shared.component.ComponentInitializationException;
 import net.shibboleth.shared.logic.Constraint;
 import net.shibboleth.shared.primitive.LoggerFactory;
+import net.shibboleth.shared.primitive.StringSupport;
 
 /**
  * A password validator that authenticates against LDAP natively.
@@ -64,6 +65,12 @@ public class LDAPCredentialValidator extends AbstractUsernamePasswordCredentialV
     
     /** Optional strategy for obtaining/transforming the password. */
     @Nullable private Function<ProfileRequestContext,char[]> passwordLookupStrategy;
+
+    /** Optional executor to run authentication off the calling thread. */
+    @Nullable private LDAPBindExecutor bindExecutor;
+
+    /** Name of the directory used by the authenticator, to identify the circuit breaker to use. */
+    @Nullable private String directory;
     
     /**
      * Returns the authenticator.
@@ -113,6 +120,34 @@ public class LDAPCredentialValidator extends AbstractUsernamePasswordCredentialV
         passwordLookupStrategy = strategy;
     }
 
+    /**
+     * Set an executor to run authentication on, subject to its deadline and circuit breaker.
+     * 
+     * @param executor bind executor
+     * 
+     * @since 5.2.0
+     */
+    public void setBindExecutor(@Nullable final LDAPBindExecutor executor) {
+        checkSetterPreconditions();
+        bindExecutor = executor;
+    }
+
+    /**
+     * Set the name of the directory the authenticator connects to, used to select the circuit breaker
+     * when a {@link LDAPBindExecutor} is supplied.
+     * 
+     * <p>Validators sharing a directory should share a name, such as the list of LDAP URLs given to the
+     * connection strategy. Defaults to the validator's ID.</p>
+     * 
+     * @param name directory name
+     * 
+     * @since 5.2.0
+     */
+    public void setDirectory(@Nullable final String name) {
+        checkSetterPreconditions();
+        directory = StringSupport.trimOrNull(name);
+    }
+
     /** {@inheritDoc} */
     @Override
     protected void doInitialize() throws ComponentInitializationException {
@@ -121,6 +156,10 @@ public class LDAPCredentialValidator extends AbstractUsernamePasswordCredentialV
         if (authenticator == null) {
             throw new ComponentInitializationException("Authenticator cannot be null");
         }
+
+        if (directory == null) {
+            directory = getId() != null ? getId() : "ldap";
+        }
     }
 
     /** {@inheritDoc} */
@@ -160,7 +199,13 @@ public class LDAPCredentialValidator extends AbstractUsernamePasswordCredentialV
         final AuthenticationResponse response;
         try {
             // authenticator should only throw for communication errors
-            response = authenticator.authenticate(request);
+            if (bindExecutor != null) {
+                final String name = directory;
+                assert name != null;
+                response = bindExecutor.execute(name, () -> authenticator.authenticate(request));
+            } else {
+                response = authenticator.authenticate(request);
+            }
         } catch (final LdapException e) {
             log.error("{} Error attempting LDAP authentication for '{}'", getLogPrefix(), username, e);
             if (errorHandler != null) {
@@ -15,7 +15,11 @@
 package net.shibboleth.idp.authn.impl;
 
 import java.security.Principal;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Map;
+import java.util.function.Predicate;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -33,6 +37,8 @@ import net.shibboleth.idp.authn.context.AuthenticationContext;
 import net.shibboleth.idp.authn.context.PreferredPrincipalContext;
 import net.shibboleth.idp.authn.context.RequestedPrincipalContext;
 import net.shibboleth.idp.authn.principal.PrincipalEvalPredicate;
+import net.shibboleth.idp.authn.principal.PrincipalSupportingComponent;
+import net.shibboleth.shared.annotation.constraint.NonnullBeforeExec;
 
 /**
  * An authentication action that selects an authentication flow to invoke, or re-uses an
@@ -85,6 +91,9 @@ public class SelectAuthenticationFlow extends AbstractAuthenticationAction {
     
     /** Tracks a proxy count of zero for the request. */
     private boolean noProxying;
+    
+    /** Memoized evaluations for the request. */
+    @NonnullBeforeExec private EvaluationMatrix matrix;
 
     /**
      * Get whether SSO should trump explicit relying party requirements preference.
@@ -115,6 +124,7 @@ public class SelectAuthenticationFlow extends AbstractAuthenticationAction {
         }
         
         noProxying = authenticationContext.getProxyCount() != null && authenticationContext.getProxyCount() == 0;
+        matrix = new EvaluationMatrix(profileRequestContext);
         
         final RequestedPrincipalContext rpc = requestedPrincipalCtx =
                 authenticationContext.getSubcontext(RequestedPrincipalContext.class);
@@ -194,7 +204,7 @@ public class SelectAuthenticationFlow extends AbstractAuthenticationAction {
         AuthenticationResult activeResult = null;
         if (!authenticationContext.isForceAuthn()) {
             activeResult = authenticationContext.getActiveResults().get(flow.ensureId());
-            if (!activeResult.test(profileRequestContext)) {
+            if (activeResult != null && !matrix.isActive(activeResult)) {
                 log.debug("{} Active result for flow {} not reusable, ignoring", getLogPrefix(),
                         activeResult.getAuthenticationFlowId());
                 activeResult = null;
@@ -206,9 +216,9 @@ public class SelectAuthenticationFlow extends AbstractAuthenticationAction {
             if (rpc != null) {
                 for (final Principal p : rpc.getRequestedPrincipals()) {
                     assert p!= null;
-                    final PrincipalEvalPredicate predicate = rpc.getPredicate(p);
+                    final PrincipalEvalPredicate predicate = matrix.getPredicate(rpc, p);
                     if (predicate != null) {
-                        if (predicate.test(activeResult)) {
+                        if (matrix.matches(p, predicate, activeResult)) {
                             selectActiveResult(profileRequestContext, authenticationContext, activeResult);
                             return;
                         }
@@ -234,9 +244,9 @@ public class SelectAuthenticationFlow extends AbstractAuthenticationAction {
         } else if (rpc != null) {
             for (final Principal p : rpc.getRequestedPrincipals()) {
                 assert p != null;
-                final PrincipalEvalPredicate predicate = rpc.getPredicate(p);
+                final PrincipalEvalPredicate predicate = matrix.getPredicate(rpc, p);
                 if (predicate != null) {
-                    if (predicate.test(flow) && flow.test(profileRequestContext)) {
+                    if (matrix.matches(p, predicate, flow) && matrix.isActive(flow)) {
                         selectInactiveFlow(profileRequestContext, authenticationContext, flow);
                         return;
                     }
@@ -246,7 +256,7 @@ public class SelectAuthenticationFlow extends AbstractAuthenticationAction {
                             p.getClass());
                 }
             }
-        } else if (flow.test(profileRequestContext)) {
+        } else if (matrix.isActive(flow)) {
             selectInactiveFlow(profileRequestContext, authenticationContext, flow);
             return;
         }
@@ -289,7 +299,7 @@ public class SelectAuthenticationFlow extends AbstractAuthenticationAction {
         AuthenticationResult resultToSelect = null;
         
         for (final AuthenticationResult activeResult : authenticationContext.getActiveResults().values()) {
-            if (activeResult.test(profileRequestContext)) {
+            if (matrix.isActive(activeResult)) {
                 resultToSelect = activeResult;
                 final PreferredPrincipalContext ppCtx = preferredPrincipalCtx;
                 if (ppCtx == null || ppCtx.isAcceptable(activeResult)) {
@@ -338,7 +348,7 @@ public class SelectAuthenticationFlow extends AbstractAuthenticationAction {
             if (!authenticationContext.getIntermediateFlows().containsKey(flow.ensureId())) {
                 if (!authenticationContext.isPassive() || flow.isPassiveAuthenticationSupported()) {
                     if (!noProxying || !flow.isProxyScopingEnforced()) {
-                        if (flow.test(profileRequestContext)) {
+                        if (matrix.isActive(flow)) {
                             selectedFlow = flow;
                             final PreferredPrincipalContext ppCtx = preferredPrincipalCtx;
                             if (ppCtx == null || ppCtx.isAcceptable(flow)) {
@@ -433,11 +443,11 @@ public class SelectAuthenticationFlow extends AbstractAuthenticationAction {
         for (final Principal p : rpCtx.getRequestedPrincipals()) {
             log.debug("{} Checking for inactive flow compatible with operator '{}' and principal '{}'",
                     getLogPrefix(), rpCtx.getOperator(), p.getName());
-            final PrincipalEvalPredicate predicate = rpCtx.getPredicate(p);
+            final PrincipalEvalPredicate predicate = matrix.getPredicate(rpCtx, p);
             if (predicate != null) {
                 for (final AuthenticationFlowDescriptor descriptor : potentialFlows.values()) {
                     if (!authenticationContext.getIntermediateFlows().containsKey(descriptor.ensureId())
-                            && predicate.test(descriptor) && descriptor.test(profileRequestContext)) {
+                            && matrix.matches(p, predicate, descriptor) && matrix.isActive(descriptor)) {
                         if (!authenticationContext.isPassive() || descriptor.isPassiveAuthenticationSupported()) {
                             if (!noProxying || !descriptor.isProxyScopingEnforced()) {
                                 selectInactiveFlow(profileRequestContext, authenticationContext, descriptor);
@@ -485,11 +495,10 @@ public class SelectAuthenticationFlow extends AbstractAuthenticationAction {
             for (final Principal p : rpCtx.getRequestedPrincipals()) {
                 log.debug("{} Checking for an active result compatible with operator '{}' and principal '{}'",
                         getLogPrefix(), rpCtx.getOperator(), p.getName());
-                final PrincipalEvalPredicate predicate = rpCtx.getPredicate(p);
+                final PrincipalEvalPredicate predicate = matrix.getPredicate(rpCtx, p);
                 if (predicate != null) {
                     for (final AuthenticationResult result : activeResults.values()) {
-                        if (result.test(profileRequestContext) &&
-                                predicate.test(result)) {
+                        if (matrix.isActive(result) && matrix.matches(p, predicate, result)) {
                             selectActiveResult(profileRequestContext, authenticationContext, result);
                             return;
                         }
@@ -518,17 +527,17 @@ public class SelectAuthenticationFlow extends AbstractAuthenticationAction {
             log.debug("{} Checking for an inactive flow or active result compatible with "
                     + "operator '{}' and principal '{}'", getLogPrefix(), rpCtx.getOperator(),
                     p.getName());
-            final PrincipalEvalPredicate predicate = rpCtx.getPredicate(p);
+            final PrincipalEvalPredicate predicate = matrix.getPredicate(rpCtx, p);
             if (predicate != null) {
                 for (final AuthenticationFlowDescriptor descriptor : potentialFlows.values()) {
                     if (!authenticationContext.getIntermediateFlows().containsKey(descriptor.ensureId())
-                            && predicate.test(descriptor) && descriptor.test(profileRequestContext)) {
+                            && matrix.matches(p, predicate, descriptor) && matrix.isActive(descriptor)) {
                         
                         // Now check for an active result we can use from this flow. Not all results from a flow
                         // will necessarily match the request just because the flow might.
                         final AuthenticationResult result = activeResults.get(descriptor.ensureId());
-                        if (result == null || !result.test(profileRequestContext)
-                                || !predicate.test(result)) {
+                        if (result == null || !matrix.isActive(result)
+                                || !matrix.matches(p, predicate, result)) {
                             if (result != null) {
                                 log.debug("{} Active result for flow {} not usable, ignoring", getLogPrefix(),
                                         result.getAuthenticationFlowId());
@@ -560,5 +569,124 @@ public class SelectAuthenticationFlow extends AbstractAuthenticationAction {
                     (noProxying ? AuthnEventIds.PROXY_COUNT_EXCEEDED : AuthnEventIds.REQUEST_UNSUPPORTED));
     }
 // Checkstyle: MethodLength|CyclomaticComplexity|ReturnCount ON
+
+    /**
+     * Per-request memoization of activation conditions and requested principal evaluations.
+     * 
+     * <p>Flows and results are assigned columns on first use, and each requested principal has a row, so
+     * each activation condition and each (principal, flow or result) match is computed at most once no
+     * matter how many selection passes consult it. Evaluation remains lazy, so nothing is computed that
+     * the selection logic would not otherwise have asked for.</p>
+     */
+    private static final class EvaluationMatrix {
+        
+        /** Current profile request context. */
+        @Nonnull private final ProfileRequestContext profileRequestContext;
+        
+        /** Column assigned to each flow or result. */
+        @Nonnull private final Map<Object,Integer> columns;
+        
+        /** Columns whose activation condition has been evaluated. */
+        @Nonnull private final BitSet activationEvaluated;
+        
+        /** Activation condition results for evaluated columns. */
+        @Nonnull private final BitSet activationResults;
+        
+        /** Predicates obtained for requested principals, including null for unsupported ones. */
+        @Nonnull private final Map<Principal,PrincipalEvalPredicate> predicates;
+        
+        /** Columns evaluated against each requested principal. */
+        @Nonnull private final Map<Principal,BitSet> matchEvaluated;
+        
+        /** Match results for evaluated columns by requested principal. */
+        @Nonnull private final Map<Principal,BitSet> matchResults;
+        
+        /**
+         * Constructor.
+         *
+         * @param prc current profile request context
+         */
+        EvaluationMatrix(@Nonnull final ProfileRequestContext prc) {
+            profileRequestContext = prc;
+            columns = new IdentityHashMap<>();
+            activationEvaluated = new BitSet();
+            activationResults = new BitSet();
+            predicates = new HashMap<>();
+            matchEvaluated = new HashMap<>();
+            matchResults = new HashMap<>();
+        }
         
+        /**
+         * Get the predicate for evaluating a requested principal, looking it up only once.
+         * 
+         * @param rpc requested principal context
+         * @param principal requested principal
+         * 
+         * @return the predicate, or null if the principal type is unsupported
+         */
+        @Nullable PrincipalEvalPredicate getPredicate(@Nonnull final RequestedPrincipalContext rpc,
+                @Nonnull final Principal principal) {
+            if (predicates.containsKey(principal)) {
+                return predicates.get(principal);
+            }
+            final PrincipalEvalPredicate predicate = rpc.getPredicate(principal);
+            predicates.put(principal, predicate);
+            return predicate;
+        }
+        
+        /**
+         * Evaluate the activation condition of a flow, or the reuse condition of a result.
+         * 
+         * @param component flow or result
+         * 
+         * @return the condition's result
+         */
+        boolean isActive(@Nonnull final Predicate<ProfileRequestContext> component) {
+            final int column = getColumn(component);
+            if (!activationEvaluated.get(column)) {
+                activationResults.set(column, component.test(profileRequestContext));
+                activationEvaluated.set(column);
+            }
+            return activationResults.get(column);
+        }
+        
+        /**
+         * Evaluate a requested principal's predicate against a flow or result.
+         * 
+         * @param principal requested principal
+         * @param predicate its predicate
+         * @param component flow or result
+         * 
+         * @return the predicate's result
+         */
+        boolean matches(@Nonnull final Principal principal, @Nonnull final PrincipalEvalPredicate predicate,
+                @Nonnull final PrincipalSupportingComponent component) {
+            final int column = getColumn(component);
+            final BitSet evaluated = matchEvaluated.computeIfAbsent(principal, k -> new BitSet());
+            final BitSet results = matchResults.computeIfAbsent(principal, k -> new BitSet());
+            if (!evaluated.get(column)) {
+                results.set(column, predicate.test(component));
+                evaluated.set(column);
+            }
+            return results.get(column);
+        }
+        
+        /**
+         * Get the column for a flow or result, assigning one if necessary.
+         * 
+         * @param component flow or result
+         * 
+         * @return column index
+         */
+        private int getColumn(@Nonnull final Object component) {
+            final Integer column = columns.get(component);
+            if (column != null) {
+                return column;
+            }
+            final int next = columns.size();
+            columns.put(component, next);
+            return next;
+        }
+    }
+    
 }
@@ -19,6 +19,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -32,6 +33,7 @@ import org.slf4j.Logger;
 import com.google.common.net.UrlEscapers;
 
 import net.shibboleth.idp.authn.AccountLockoutManager;
+import net.shibboleth.idp.authn.AuthenticationFlowDescriptor;
 import net.shibboleth.idp.authn.AuthenticationResult;
 import net.shibboleth.idp.authn.AuthnAuditFields;
 import net.shibboleth.idp.authn.AuthnEventIds;
@@ -44,6 +46,8 @@ import net.shibboleth.shared.annotation.constraint.NotEmpty;
 import net.shibboleth.shared.annotation.constraint.NotLive;
 import net.shibboleth.shared.annotation.constraint.Unmodifiable;
 import net.shibboleth.shared.collection.CollectionSupport;
+import net.shibboleth.shared.collection.Pair;
+import net.shibboleth.shared.logic.Constraint;
 import net.shibboleth.shared.net.CookieManager;
 import net.shibboleth.shared.primitive.LoggerFactory;
 import net.shibboleth.shared.primitive.StringSupport;
@@ -78,6 +82,9 @@ public class ValidateCredentials extends AbstractAuditingValidationAction implem
     
     /** Results from successful validators. */
     @Nonnull private Collection<Subject> results;
+
+    /** Successful validators, in the order they ran. */
+    @Nonnull private List<CredentialValidator> successfulValidators;
     
     /** Currently executing validator. */
     @Nullable private CredentialValidator currentValidator;
@@ -87,12 +94,20 @@ public class ValidateCredentials extends AbstractAuditingValidationAction implem
 
     /** Tracks whether an error event was signaled. */
     private boolean errorSignaled;
+
+    /** Optional cache of successful results. */
+    @Nullable private ValidatedCredentialCache credentialCache;
+
+    /** Condition for use of the result cache. */
+    @Nonnull private Predicate<ProfileRequestContext> credentialCacheCondition;
     
     /** Constructor. */
     public ValidateCredentials() {
         setMetricName(DEFAULT_METRIC_NAME);
         credentialValidators = CollectionSupport.emptyList();
         results = new ArrayList<>(1);
+        successfulValidators = new ArrayList<>(1);
+        credentialCacheCondition = prc -> !prc.isBrowserProfile();
     }
     
     /**
@@ -130,6 +145,32 @@ public class ValidateCredentials extends AbstractAuditingValidationAction implem
         requireAll = flag;
     }
 
+    /**
+     * Set a cache of successful results to consult before running the validators.
+     * 
+     * @param cache result cache
+     * 
+     * @since 5.2.0
+     */
+    public void setCredentialCache(@Nullable final ValidatedCredentialCache cache) {
+        checkSetterPreconditions();
+        credentialCache = cache;
+    }
+
+    /**
+     * Set the condition under which the result cache is used.
+     * 
+     * <p>Defaults to non-browser profile requests.</p>
+     * 
+     * @param condition condition to apply
+     * 
+     * @since 5.2.0
+     */
+    public void setCredentialCacheCondition(@Nonnull final Predicate<ProfileRequestContext> condition) {
+        checkSetterPreconditions();
+        credentialCacheCondition = Constraint.isNotNull(condition, "Condition cannot be null");
+    }
+
     /** {@inheritDoc} */
     @Override
     @Nonnull @NotEmpty public String getMetricName() {
@@ -172,13 +213,20 @@ public class ValidateCredentials extends AbstractAuditingValidationAction implem
     protected void doExecute(@Nonnull final ProfileRequestContext profileRequestContext,
             @Nonnull final AuthenticationContext authenticationContext) {
         
+        final Pair<String,String> cacheKey = getCacheKey(profileRequestContext, authenticationContext);
+        
         if (lockoutManager != null && lockoutManager.check(profileRequestContext)) {
             log.info("{} Account locked out, aborting authentication", getLogPrefix());
+            invalidateCache(cacheKey);
             handleError(profileRequestContext, authenticationContext, AuthnEventIds.ACCOUNT_LOCKED,
                     AuthnEventIds.ACCOUNT_LOCKED);
             return;
         }
         
+        if (useCachedResult(profileRequestContext, authenticationContext, cacheKey)) {
+            return;
+        }
+        
         for (final CredentialValidator validator : credentialValidators) {
             log.trace("{} Attempting credential validation via {}", getLogPrefix(), validator.getId());
             
@@ -194,8 +242,10 @@ public class ValidateCredentials extends AbstractAuditingValidationAction implem
                 
                 // Add the result to the list and record it.
                 results.add(subject);
+                successfulValidators.add(validator);
                 
                 if (!requireAll) {
+                    cacheResult(cacheKey);
                     recordSuccess(profileRequestContext);
                     buildAuthenticationResult(profileRequestContext, authenticationContext);
                     if (!warningSignaled) {
@@ -219,6 +269,7 @@ public class ValidateCredentials extends AbstractAuditingValidationAction implem
         
         // If all must pass, and all passed, and at least one did something, then that's also success.
         if (requireAll && !errorSignaled && !results.isEmpty()) {
+            cacheResult(cacheKey);
             recordSuccess(profileRequestContext);
             buildAuthenticationResult(profileRequestContext, authenticationContext);
             if (!warningSignaled) {
@@ -233,6 +284,7 @@ public class ValidateCredentials extends AbstractAuditingValidationAction implem
         if (errorSignaled) {
             if (lockoutManager != null) {
                 lockoutManager.increment(profileRequestContext);
+                invalidateCache(cacheKey);
             }
         } else {
             log.warn("{} No validators were available or usable", getLogPrefix());
@@ -241,6 +293,118 @@ public class ValidateCredentials extends AbstractAuditingValidationAction implem
         }
     }
 // Checkstyle: CyclomaticComplexity ON
+
+    /**
+     * Compute the result cache key for the request, if the cache applies.
+     * 
+     * @param profileRequestContext profile request context
+     * @param authenticationContext authentication context
+     * 
+     * @return pair of the cache key and username, or null
+     */
+    @Nullable private Pair<String,String> getCacheKey(@Nonnull final ProfileRequestContext profileRequestContext,
+            @Nonnull final AuthenticationContext authenticationContext) {
+        final ValidatedCredentialCache cache = credentialCache;
+        if (cache == null || !credentialCacheCondition.test(profileRequestContext)) {
+            return null;
+        }
+        
+        final UsernamePasswordContext upCtx = authenticationContext.getSubcontext(UsernamePasswordContext.class);
+        final String username = upCtx != null ? upCtx.getUsername() : null;
+        final String password = upCtx != null ? upCtx.getPassword() : null;
+        final AuthenticationFlowDescriptor flow = authenticationContext.getAttemptedFlow();
+        if (username == null || username.isEmpty() || password == null || flow == null) {
+            return null;
+        }
+        
+        final String key = cache.computeKey(flow.ensureId(), username, password);
+        return key != null ? new Pair<>(key, username) : null;
+    }
+
+    /**
+     * Complete the request from the result cache if possible.
+     * 
+     * @param profileRequestContext profile request context
+     * @param authenticationContext authentication context
+     * @param cacheKey cache key and username
+     * 
+     * @return true iff a cached result was used
+     */
+    private boolean useCachedResult(@Nonnull final ProfileRequestContext profileRequestContext,
+            @Nonnull final AuthenticationContext authenticationContext,
+            @Nullable final Pair<String,String> cacheKey) {
+        final ValidatedCredentialCache cache = credentialCache;
+        final String key = cacheKey != null ? cacheKey.getFirst() : null;
+        if (cache == null || key == null) {
+            return false;
+        }
+        
+        final ValidatedCredentialCache.Entry entry = cache.get(key);
+        if (entry == null) {
+            return false;
+        }
+        
+        // Every validator that produced the cached result must still be in use.
+        CredentialValidator lastValidator = null;
+        for (final String validatorId : entry.validatorIds()) {
+            lastValidator = null;
+            for (final CredentialValidator validator : credentialValidators) {
+                if (validatorId.equals(validator.getId())) {
+                    lastValidator = validator;
+                    break;
+                }
+            }
+            if (lastValidator == null) {
+                return false;
+            }
+        }
+        
+        log.debug("{} Using cached result for '{}' from {}", getLogPrefix(), entry.username(),
+                entry.validatorIds());
+        currentValidator = lastValidator;
+        results.add(entry.copySubject());
+        recordSuccess(profileRequestContext);
+        buildAuthenticationResult(profileRequestContext, authenticationContext);
+        ActionSupport.buildProceedEvent(profileRequestContext);
+        return true;
+    }
+
+    /**
+     * Store the current result in the result cache, if appropriate.
+     * 
+     * <p>The result records every validator that succeeded, so that with {@link #setRequireAll(boolean)}
+     * a cached result is only used while all of them remain configured.</p>
+     * 
+     * <p>Results that produced a warning are not cached, so that the warning is seen again.</p>
+     * 
+     * @param cacheKey cache key and username
+     */
+    private void cacheResult(@Nullable final Pair<String,String> cacheKey) {
+        final ValidatedCredentialCache cache = credentialCache;
+        if (cache == null || cacheKey == null || successfulValidators.isEmpty() || warningSignaled) {
+            return;
+        }
+        
+        final String key = cacheKey.getFirst();
+        final String username = cacheKey.getSecond();
+        if (key != null && username != null) {
+            cache.put(key, username, successfulValidators.stream().map(CredentialValidator::getId).toList(),
+                    populateSubject(new Subject()));
+        }
+    }
+
+    /**
+     * Remove any cached results for the username in the request.
+     * 
+     * @param cacheKey cache key and username
+     */
+    private void invalidateCache(@Nullable final Pair<String,String> cacheKey) {
+        final ValidatedCredentialCache cache = credentialCache;
+        final String username = cacheKey != null ? cacheKey.getSecond() : null;
+        if (cache != null && username != null) {
+            cache.invalidate(username);
+        }
+    }
     
     /** {@inheritDoc} */
     @Override
@@ -16,8 +16,6 @@ package net.shibboleth.idp.authn.impl;
 
 import java.net.InetAddress;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 import javax.annotation.Nonnull;
@@ -35,11 +33,13 @@ import net.shibboleth.idp.authn.context.AuthenticationContext;
 import net.shibboleth.idp.authn.context.UserAgentContext;
 import net.shibboleth.idp.authn.principal.UsernamePrincipal;
 import net.shibboleth.idp.profile.IdPAuditFields;
+import net.shibboleth.idp.session.logic.IPRangeIndex;
 import net.shibboleth.shared.annotation.constraint.NonnullBeforeExec;
 import net.shibboleth.shared.annotation.constraint.NotEmpty;
 import net.shibboleth.shared.annotation.constraint.NotLive;
 import net.shibboleth.shared.annotation.constraint.Unmodifiable;
 import net.shibboleth.shared.collection.CollectionSupport;
+import net.shibboleth.shared.logic.Constraint;
 import net.shibboleth.shared.net.IPRange;
 import net.shibboleth.shared.primitive.LoggerFactory;
 
@@ -63,8 +63,8 @@ public class ValidateUserAgentAddress extends AbstractAuditingValidationAction {
     /** Class logger. */
     @Nonnull private final Logger log = LoggerFactory.getLogger(ValidateUserAgentAddress.class);
 
-    /** Map of IP ranges to principal names. */
-    @Nonnull private Map<String,Collection<IPRange>> mappings;
+    /** Index of IP ranges to principal names. */
+    @Nonnull private IPRangeIndex<String> mappings;
 
     /** User Agent context containing address to evaluate. */
     @NonnullBeforeExec private UserAgentContext uaContext;
@@ -75,26 +75,35 @@ public class ValidateUserAgentAddress extends AbstractAuditingValidationAction {
     /** Constructor. */
     public ValidateUserAgentAddress() {
         setMetricName(DEFAULT_METRIC_NAME);
-        mappings = CollectionSupport.emptyMap();
+        mappings = new IPRangeIndex<>();
     }
     
     /**
      * Set the IP range(s) to authenticate as particular principals.
      * 
+     * <p>The ranges are compiled into a prefix index. If an address falls within ranges mapped to more than
+     * one principal, the most specific range wins.</p>
+     * 
      * @param newMappings the IP range(s) to authenticate as particular principals
      */
     public void setMappings(@Nullable final Map<String,Collection<IPRange>> newMappings) {
         checkSetterPreconditions();
-        if (newMappings != null) {
-            mappings = new HashMap<>(newMappings.size());
-            for (final Map.Entry<String,Collection<IPRange>> e : newMappings.entrySet()) {
-                if (!Strings.isNullOrEmpty(e.getKey())) {
-                    mappings.put(e.getKey(), List.copyOf(e.getValue()));
-                }
-            }
-        } else {
-            mappings = CollectionSupport.emptyMap();
-        }
+        mappings = IPRangeIndex.fromMappings(newMappings);
+    }
+
+    /**
+     * Set a precompiled index of IP ranges to principal names.
+     * 
+     * <p>This is an alternative to {@link #setMappings(Map)} that allows the index to be built once and
+     * shared across instances of this action.</p>
+     * 
+     * @param index index of IP ranges to principal names
+     * 
+     * @since 5.2.0
+     */
+    public void setMappingIndex(@Nonnull final IPRangeIndex<String> index) {
+        checkSetterPreconditions();
+        mappings = Constraint.isNotNull(index, "Index cannot be null");
     }
     
     /** {@inheritDoc} */
@@ -131,17 +140,15 @@ public class ValidateUserAgentAddress extends AbstractAuditingValidationAction {
 
         final InetAddress addr = uaContext.getAddress();
         assert addr != null;
-        for (final Map.Entry<String,Collection<IPRange>> e : mappings.entrySet()) {
-            final Collection<IPRange> ranges = e.getValue();
-            assert ranges != null;
-            if (isAuthenticated(addr, ranges)) {
-                principalName = e.getKey();
-                log.info("{} Authenticated user agent with address {} as {}",
-                        getLogPrefix(), addr.getHostAddress(), principalName);
-                recordSuccess(profileRequestContext);
-                buildAuthenticationResult(profileRequestContext, authenticationContext);
-                return;
-            }
+        final byte[] resolvedAddress = addr.getAddress();
+        assert resolvedAddress != null;
+        principalName = mappings.getMostSpecific(resolvedAddress);
+        if (!Strings.isNullOrEmpty(principalName)) {
+            log.info("{} Authenticated user agent with address {} as {}",
+                    getLogPrefix(), addr.getHostAddress(), principalName);
+            recordSuccess(profileRequestContext);
+            buildAuthenticationResult(profileRequestContext, authenticationContext);
+            return;
         }
 
         log.debug("{} User agent with address {} was not authenticated", getLogPrefix(),
@@ -151,26 +158,6 @@ public class ValidateUserAgentAddress extends AbstractAuditingValidationAction {
         recordFailure(profileRequestContext);
     }
 
-    /**
-     * Checks whether the given IP address meets a set of IP range requirements.
-     * 
-     * @param address the IP address to check
-     * @param ranges the ranges to check
-     * 
-     * @return true if the given IP address meets this stage's IP range requirements, false otherwise
-     */
-    private boolean isAuthenticated(@Nonnull final InetAddress address, @Nonnull final Collection<IPRange> ranges) {
-        final byte[] resolvedAddress = address.getAddress();
-        assert resolvedAddress != null;
-        for (final IPRange range : ranges) {
-            if (range.contains(resolvedAddress)) {
-                return true;
-            }
-        }
-        
-        return false;
-    }
-
     /** {@inheritDoc} */
     @Override
     @Nonnull protected Subject populateSubject(@Nonnull final Subject subject) {
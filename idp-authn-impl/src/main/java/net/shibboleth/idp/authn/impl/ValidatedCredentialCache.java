@@ -0,0 +1,249 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.shibboleth.idp.authn.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.security.auth.Subject;
+
+import org.opensaml.core.metrics.MetricsSupport;
+import org.slf4j.Logger;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import net.shibboleth.shared.annotation.constraint.NonnullAfterInit;
+import net.shibboleth.shared.annotation.constraint.NotEmpty;
+import net.shibboleth.shared.annotation.constraint.ThreadSafeAfterInit;
+import net.shibboleth.shared.component.AbstractInitializableComponent;
+import net.shibboleth.shared.component.ComponentInitializationException;
+import net.shibboleth.shared.logic.Constraint;
+import net.shibboleth.shared.primitive.LoggerFactory;
+
+/**
+ * Short-lived, bounded cache of successful password validation results, for use by {@link ValidateCredentials}
+ * with clients that present the same credentials on every request.
+ *
+ * <p>Entries are keyed by an HMAC of the flow ID, username, and password, using a random key generated per
+ * instance, so plaintext passwords are never retained. Cached subjects carry principals and public credentials
+ * only.</p>
+ *
+ * <p>Entries for a username are removed when lockout state for it changes, including through administrative
+ * lockout or revocation operations. Usernames are compared without regard to case when removing entries.</p>
+ *
+ * @since 5.2.0
+ */
+@ThreadSafeAfterInit
+public class ValidatedCredentialCache extends AbstractInitializableComponent {
+
+    /** Prefix for metrics. */
+    @Nonnull @NotEmpty private static final String METRIC_NAME = "net.shibboleth.idp.authn.credentialCache";
+
+    /** HMAC algorithm. */
+    @Nonnull @NotEmpty private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    /** Class logger. */
+    @Nonnull private final Logger log = LoggerFactory.getLogger(ValidatedCredentialCache.class);
+
+    /** Maximum number of entries. */
+    private long maxCacheSize;
+
+    /** Lifetime of entries. */
+    @Nonnull private Duration entryLifetime;
+
+    /** Key for HMAC computation. */
+    @NonnullAfterInit private SecretKeySpec hmacKey;
+
+    /** Underlying cache. */
+    @NonnullAfterInit private Cache<String,Entry> cache;
+
+    /** Constructor. */
+    public ValidatedCredentialCache() {
+        maxCacheSize = 1000;
+        final Duration oneMinute = Duration.ofMinutes(1);
+        assert oneMinute != null;
+        entryLifetime = oneMinute;
+    }
+
+    /**
+     * Set the maximum number of entries to cache.
+     *
+     * <p>Defaults to 1000.</p>
+     *
+     * @param size maximum number of entries
+     */
+    public void setMaxCacheSize(final long size) {
+        checkSetterPreconditions();
+        maxCacheSize = Constraint.isGreaterThan(0, size, "Maximum cache size must be greater than 0");
+    }
+
+    /**
+     * Set the lifetime of cached entries.
+     *
+     * <p>Defaults to 1 minute.</p>
+     *
+     * @param lifetime entry lifetime
+     */
+    public void setEntryLifetime(@Nonnull final Duration lifetime) {
+        checkSetterPreconditions();
+        Constraint.isNotNull(lifetime, "Lifetime cannot be null");
+        Constraint.isFalse(lifetime.isNegative() || lifetime.isZero(), "Lifetime must be positive");
+
+        entryLifetime = lifetime;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void doInitialize() throws ComponentInitializationException {
+        super.doInitialize();
+
+        final byte[] keyBytes = new byte[32];
+        new SecureRandom().nextBytes(keyBytes);
+        hmacKey = new SecretKeySpec(keyBytes, HMAC_ALGORITHM);
+
+        cache = CacheBuilder.newBuilder()
+                .maximumSize(maxCacheSize)
+                .expireAfterWrite(entryLifetime)
+                .build();
+    }
+
+    /**
+     * Compute the cache key for a set of credentials.
+     *
+     * @param flowId authentication flow ID
+     * @param username username
+     * @param password password
+     *
+     * @return the key, or null if it cannot be computed
+     */
+    @Nullable public String computeKey(@Nonnull @NotEmpty final String flowId, @Nonnull @NotEmpty final String username,
+            @Nonnull final String password) {
+        checkComponentActive();
+
+        try {
+            final Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(hmacKey);
+            mac.update(flowId.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            mac.update(username.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            return Base64.getEncoder().encodeToString(mac.doFinal(password.getBytes(StandardCharsets.UTF_8)));
+        } catch (final GeneralSecurityException e) {
+            log.warn("Unable to compute credential cache key", e);
+            return null;
+        }
+    }
+
+    /**
+     * Get a cached result.
+     *
+     * @param key cache key from {@link #computeKey(String, String, String)}
+     *
+     * @return the cached result, or null
+     */
+    @Nullable public Entry get(@Nonnull @NotEmpty final String key) {
+        checkComponentActive();
+
+        final Entry entry = cache.getIfPresent(key);
+        count(entry != null ? "hits" : "misses");
+        return entry;
+    }
+
+    /**
+     * Cache a successful result.
+     *
+     * @param key cache key from {@link #computeKey(String, String, String)}
+     * @param username username
+     * @param validatorIds IDs of the validators that produced the result, in the order they ran
+     * @param subject the validated subject
+     */
+    public void put(@Nonnull @NotEmpty final String key, @Nonnull @NotEmpty final String username,
+            @Nonnull @NotEmpty final List<String> validatorIds, @Nonnull final Subject subject) {
+        checkComponentActive();
+        Constraint.isFalse(validatorIds.isEmpty(), "Validator IDs cannot be empty");
+
+        final Subject copy = new Subject();
+        copy.getPrincipals().addAll(subject.getPrincipals());
+        copy.getPublicCredentials().addAll(subject.getPublicCredentials());
+        copy.setReadOnly();
+        cache.put(key, new Entry(username, List.copyOf(validatorIds), copy));
+    }
+
+    /**
+     * Remove all entries for a username, ignoring case.
+     *
+     * @param username username
+     */
+    public void invalidate(@Nonnull @NotEmpty final String username) {
+        checkComponentActive();
+
+        if (cache.asMap().values().removeIf(e -> e.username().equalsIgnoreCase(username))) {
+            log.debug("Removed cached credentials for '{}'", username);
+        }
+    }
+
+    /** Remove all entries. */
+    public void invalidateAll() {
+        checkComponentActive();
+
+        cache.invalidateAll();
+    }
+
+    /**
+     * Increment a counter if a metric registry is installed.
+     *
+     * @param suffix metric name suffix
+     */
+    private void count(@Nonnull @NotEmpty final String suffix) {
+        final MetricRegistry registry = MetricsSupport.getMetricRegistry();
+        if (registry != null) {
+            registry.counter(MetricRegistry.name(METRIC_NAME, suffix)).inc();
+        }
+    }
+
+    /**
+     * A cached result.
+     *
+     * @param username username
+     * @param validatorIds IDs of the validators that produced the result, in the order they ran
+     * @param subject read-only copy of the validated subject
+     */
+    public record Entry(@Nonnull @NotEmpty String username, @Nonnull @NotEmpty List<String> validatorIds,
+            @Nonnull Subject subject) {
+
+        /**
+         * Get a mutable copy of the cached subject.
+         *
+         * @return a new subject
+         */
+        @Nonnull public Subject copySubject() {
+            final Subject copy = new Subject();
+            copy.getPrincipals().addAll(subject.getPrincipals());
+            copy.getPublicCredentials().addAll(subject.getPublicCredentials());
+            return copy;
+        }
+    }
+
+}
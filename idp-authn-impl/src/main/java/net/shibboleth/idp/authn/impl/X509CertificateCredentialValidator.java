@@ -14,10 +14,17 @@
 
 package net.shibboleth.idp.authn.impl;
 
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.security.cert.Certificate;
+import java.security.cert.CertificateEncodingException;
 import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Collection;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 import javax.annotation.Nonnull;
@@ -25,6 +32,7 @@ import javax.annotation.Nullable;
 import javax.security.auth.Subject;
 import javax.security.auth.login.LoginException;
 
+import org.opensaml.core.metrics.MetricsSupport;
 import org.opensaml.messaging.context.navigate.ChildContextLookup;
 import org.opensaml.profile.context.ProfileRequestContext;
 import org.opensaml.security.SecurityException;
@@ -33,12 +41,18 @@ import org.opensaml.security.x509.BasicX509Credential;
 import org.opensaml.security.x509.X509Credential;
 import org.slf4j.Logger;
 
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
 import net.shibboleth.idp.authn.AbstractCredentialValidator;
 import net.shibboleth.idp.authn.AuthnEventIds;
 import net.shibboleth.idp.authn.context.AuthenticationContext;
 import net.shibboleth.idp.authn.context.CertificateContext;
 import net.shibboleth.idp.authn.context.UsernamePasswordContext;
+import net.shibboleth.shared.annotation.constraint.NotEmpty;
 import net.shibboleth.shared.annotation.constraint.ThreadSafeAfterInit;
+import net.shibboleth.shared.component.ComponentInitializationException;
 import net.shibboleth.shared.logic.Constraint;
 import net.shibboleth.shared.primitive.LoggerFactory;
 import net.shibboleth.shared.resolver.CriteriaSet;
@@ -51,6 +65,13 @@ import net.shibboleth.shared.resolver.CriteriaSet;
 @ThreadSafeAfterInit
 public class X509CertificateCredentialValidator extends AbstractCredentialValidator {
     
+    /**
+     * Prefix for trust evaluation metrics.
+     * 
+     * @since 5.2.0
+     */
+    @Nonnull @NotEmpty public static final String METRIC_NAME = "net.shibboleth.idp.authn.x509.trust";
+    
     /** Class logger. */
     @Nonnull private final Logger log = LoggerFactory.getLogger(X509CertificateCredentialValidator.class);
 
@@ -63,9 +84,20 @@ public class X509CertificateCredentialValidator extends AbstractCredentialValida
     /** Whether to save the certificate in the Java Subject's public credentials. */
     private boolean saveCertificateToCredentialSet;
     
+    /** Lifetime of cached positive trust evaluations. */
+    @Nonnull private Duration trustCacheLifetime;
+    
+    /** Maximum number of cached trust evaluations. */
+    private long trustCacheSize;
+    
+    /** Cache of positive trust evaluations, mapping chain fingerprint to expiration. */
+    @Nullable private Cache<String,Instant> trustCache;
+    
     /** Constructor. */
     public X509CertificateCredentialValidator() {
         certContextLookupStrategy = new ChildContextLookup<>(CertificateContext.class);
+        trustCacheLifetime = Duration.ZERO;
+        trustCacheSize = 1000;
     }
     
     /**
@@ -101,6 +133,52 @@ public class X509CertificateCredentialValidator extends AbstractCredentialValida
         checkSetterPreconditions();
         saveCertificateToCredentialSet = flag;
     }
+    
+    /**
+     * Set the lifetime of cached positive trust engine results.
+     * 
+     * <p>Defaults to zero, which disables caching. This should not exceed the freshness window of any
+     * revocation information the trust engine relies on, since a cached result is not re-checked against
+     * a newer CRL or OCSP response.</p>
+     * 
+     * @param lifetime cache lifetime
+     * 
+     * @since 5.2.0
+     */
+    public void setTrustCacheLifetime(@Nonnull final Duration lifetime) {
+        checkSetterPreconditions();
+        Constraint.isNotNull(lifetime, "Lifetime cannot be null");
+        Constraint.isFalse(lifetime.isNegative(), "Lifetime cannot be negative");
+        
+        trustCacheLifetime = lifetime;
+    }
+    
+    /**
+     * Set the maximum number of cached trust engine results.
+     * 
+     * <p>Defaults to 1000.</p>
+     * 
+     * @param size maximum cache size
+     * 
+     * @since 5.2.0
+     */
+    public void setTrustCacheSize(final long size) {
+        checkSetterPreconditions();
+        trustCacheSize = Constraint.isGreaterThan(0, size, "Cache size must be greater than 0");
+    }
+    
+    /** {@inheritDoc} */
+    @Override
+    protected void doInitialize() throws ComponentInitializationException {
+        super.doInitialize();
+        
+        if (trustEngine != null && !trustCacheLifetime.isZero()) {
+            trustCache = CacheBuilder.newBuilder()
+                    .maximumSize(trustCacheSize)
+                    .expireAfterWrite(trustCacheLifetime)
+                    .build();
+        }
+    }
 
 // Checkstyle: CyclomaticComplexity OFF
     /** {@inheritDoc} */
@@ -121,7 +199,10 @@ public class X509CertificateCredentialValidator extends AbstractCredentialValida
             return null;
         }
 
-        if (trustEngine != null) {
+        final String cacheKey = getTrustCacheKey((X509Certificate) cert, certContext.getIntermediates());
+        if (cacheKey != null && isCachedTrusted(cacheKey)) {
+            log.debug("{} X.509 certificate previously validated by trust engine", getLogPrefix());
+        } else if (trustEngine != null) {
             log.debug("{} Attempting to validate certificate using trust engine", getLogPrefix());
             try {
                 final BasicX509Credential cred = new BasicX509Credential((X509Certificate) cert);
@@ -135,8 +216,11 @@ public class X509CertificateCredentialValidator extends AbstractCredentialValida
                     cred.setEntityCertificateChain(chain);
                 }
                 assert trustEngine != null;
-                if (trustEngine.validate(cred, new CriteriaSet())) {
+                if (evaluateTrust(cred)) {
                     log.debug("{} Trust engine validated X.509 certificate", getLogPrefix());
+                    if (cacheKey != null) {
+                        cacheTrusted(cacheKey, (X509Certificate) cert);
+                    }
                 } else {
                     log.warn("{} Trust engine failed to validate X.509 certificate", getLogPrefix());
                     final LoginException e = new LoginException(AuthnEventIds.INVALID_CREDENTIALS);
@@ -165,6 +249,97 @@ public class X509CertificateCredentialValidator extends AbstractCredentialValida
     }
 // Checkstyle: CyclomaticComplexity ON
     
+    /**
+     * Run the trust engine, recording timing and outcome metrics.
+     * 
+     * @param cred credential to evaluate
+     * 
+     * @return the trust engine's result
+     * 
+     * @throws SecurityException if the trust engine raises an error
+     */
+    private boolean evaluateTrust(@Nonnull final X509Credential cred) throws SecurityException {
+        final TrustEngine<? super X509Credential> engine = trustEngine;
+        assert engine != null;
+        
+        final MetricRegistry registry = MetricsSupport.getMetricRegistry();
+        final long start = System.nanoTime();
+        boolean result = false;
+        try {
+            result = engine.validate(cred, new CriteriaSet());
+            return result;
+        } finally {
+            if (registry != null) {
+                registry.timer(MetricRegistry.name(METRIC_NAME, "evaluation")).update(System.nanoTime() - start,
+                        TimeUnit.NANOSECONDS);
+                registry.counter(MetricRegistry.name(METRIC_NAME, result ? "trusted" : "untrusted")).inc();
+            }
+        }
+    }
+    
+    /**
+     * Compute the cache key for a certificate chain.
+     * 
+     * @param cert entity certificate
+     * @param intermediates intermediate certificates presented with it
+     * 
+     * @return the key, or null if caching is disabled or the key cannot be computed
+     */
+    @Nullable private String getTrustCacheKey(@Nonnull final X509Certificate cert,
+            @Nonnull final Collection<Certificate> intermediates) {
+        if (trustCache == null) {
+            return null;
+        }
+        
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(cert.getEncoded());
+            for (final Certificate intermediate : intermediates) {
+                digest.update(intermediate.getEncoded());
+            }
+            return Base64.getEncoder().encodeToString(digest.digest());
+        } catch (final NoSuchAlgorithmException | CertificateEncodingException e) {
+            log.debug("{} Unable to compute certificate fingerprint, bypassing trust cache", getLogPrefix(), e);
+            return null;
+        }
+    }
+    
+    /**
+     * Check for a cached positive trust evaluation.
+     * 
+     * @param key cache key
+     * 
+     * @return true iff a usable cached result exists
+     */
+    private boolean isCachedTrusted(@Nonnull final String key) {
+        final Cache<String,Instant> cache = trustCache;
+        assert cache != null;
+        
+        final Instant expiration = cache.getIfPresent(key);
+        final boolean hit = expiration != null && Instant.now().isBefore(expiration);
+        final MetricRegistry registry = MetricsSupport.getMetricRegistry();
+        if (registry != null) {
+            registry.counter(MetricRegistry.name(METRIC_NAME, hit ? "cacheHits" : "cacheMisses")).inc();
+        }
+        return hit;
+    }
+    
+    /**
+     * Cache a positive trust evaluation, never beyond the certificate's own expiration.
+     * 
+     * @param key cache key
+     * @param cert entity certificate
+     */
+    private void cacheTrusted(@Nonnull final String key, @Nonnull final X509Certificate cert) {
+        final Cache<String,Instant> cache = trustCache;
+        assert cache != null;
+        
+        final Instant notAfter = cert.getNotAfter().toInstant();
+        if (Instant.now().isBefore(notAfter)) {
+            cache.put(key, notAfter);
+        }
+    }
+    
     /**
      * Builds a subject with "standard" content from the validation.
      *
@@ -16,8 +16,10 @@ package net.shibboleth.idp.authn.revocation.impl;
 
 import java.io.IOException;
 import java.time.Duration;
+import java.util.function.Function;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import org.opensaml.profile.action.ActionSupport;
 import org.opensaml.profile.action.EventIds;
@@ -33,6 +35,7 @@ import com.github.jasminb.jsonapi.models.errors.Error;
 import com.github.jasminb.jsonapi.models.errors.Errors;
 import com.google.common.base.Strings;
 
+import net.shibboleth.idp.authn.impl.ValidatedCredentialCache;
 import net.shibboleth.idp.profile.AbstractProfileAction;
 import net.shibboleth.idp.profile.context.SpringRequestContext;
 import net.shibboleth.shared.annotation.constraint.NonnullAfterInit;
@@ -95,6 +98,17 @@ public class DoRevocationCacheOperation extends AbstractProfileAction {
     /** {@link RevocationCache} to operate on. */
     @NonnullBeforeExec private RevocationCache revocationCache;
 
+    /** Optional cache of validated credentials to flush on revocation. */
+    @Nullable private ValidatedCredentialCache credentialCache;
+
+    /** Strategy to obtain the username to flush from the credential cache from a revocation key. */
+    @Nonnull private Function<String,String> credentialCacheUsernameStrategy;
+
+    /** Constructor. */
+    public DoRevocationCacheOperation() {
+        credentialCacheUsernameStrategy = k -> k;
+    }
+
     /**
      * Set the JSON {@link ObjectMapper} to use for serialization.
      * 
@@ -106,6 +120,32 @@ public class DoRevocationCacheOperation extends AbstractProfileAction {
         objectMapper = Constraint.isNotNull(mapper, "ObjectMapper cannot be null");
     }
 
+    /**
+     * Set a cache of validated credentials to flush when a revocation record is inserted.
+     * 
+     * @param cache credential cache
+     * 
+     * @since 5.2.0
+     */
+    public void setCredentialCache(@Nullable final ValidatedCredentialCache cache) {
+        checkSetterPreconditions();
+        credentialCache = cache;
+    }
+
+    /**
+     * Set the strategy used to obtain the username whose cached credentials to flush from a revocation key.
+     * 
+     * <p>Defaults to the key itself. If the strategy returns null, the whole cache is flushed.</p>
+     * 
+     * @param strategy lookup strategy
+     * 
+     * @since 5.2.0
+     */
+    public void setCredentialCacheUsernameStrategy(@Nonnull final Function<String,String> strategy) {
+        checkSetterPreconditions();
+        credentialCacheUsernameStrategy = Constraint.isNotNull(strategy, "Username strategy cannot be null");
+    }
+
     /** Null safe getter.
      * @return Returns the revocationCache.
      */
@@ -320,6 +360,15 @@ public class DoRevocationCacheOperation extends AbstractProfileAction {
         }
         
         if (result) {
+            final ValidatedCredentialCache cache = credentialCache;
+            if (cache != null) {
+                final String username = credentialCacheUsernameStrategy.apply(getKey());
+                if (username != null && !username.isEmpty()) {
+                    cache.invalidate(username);
+                } else {
+                    cache.invalidateAll();
+                }
+            }
             response.setStatus(HttpServletResponse.SC_ACCEPTED);
         } else {
             sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Internal Server Error",
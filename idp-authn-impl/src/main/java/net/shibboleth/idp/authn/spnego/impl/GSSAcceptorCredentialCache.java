@@ -0,0 +1,560 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.shibboleth.idp.authn.spnego.impl;
+
+import java.security.PrivilegedActionException;
+import java.security.PrivilegedExceptionAction;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.security.auth.Subject;
+import javax.security.auth.kerberos.KerberosTicket;
+import javax.security.auth.login.LoginException;
+
+import org.ietf.jgss.GSSCredential;
+import org.ietf.jgss.GSSException;
+import org.ietf.jgss.GSSManager;
+import org.ietf.jgss.Oid;
+import org.opensaml.core.metrics.MetricsSupport;
+import org.slf4j.Logger;
+
+import com.codahale.metrics.MetricRegistry;
+
+import net.shibboleth.shared.annotation.constraint.NonnullAfterInit;
+import net.shibboleth.shared.annotation.constraint.NotEmpty;
+import net.shibboleth.shared.annotation.constraint.ThreadSafeAfterInit;
+import net.shibboleth.shared.component.AbstractInitializableComponent;
+import net.shibboleth.shared.component.ComponentInitializationException;
+import net.shibboleth.shared.logic.Constraint;
+import net.shibboleth.shared.primitive.LoggerFactory;
+
+/**
+ * Per-realm cache of logged-in acceptor {@link Subject}s and {@link GSSCredential}s for use by
+ * {@link GSSContextAcceptor}, so that keytab logins and credential acquisition happen off the request path.
+ *
+ * <p>A cached entry is renewed in the background once it reaches its maximum age, or comes within the renewal
+ * window of the earliest ticket expiration in its subject (when a password-based login obtained a TGT). Requests
+ * continue to use the existing entry while renewal runs; an entry is only replaced synchronously if it has
+ * actually expired.</p>
+ *
+ * <p>Callers hold a reference to an entry while negotiating with its credential and must release it when done.
+ * A replaced or invalidated entry is disposed of once its last user releases it, or once it has been retired
+ * for the maximum age, in case a negotiation was abandoned without being released.</p>
+ *
+ * @since 5.2.0
+ */
+@ThreadSafeAfterInit
+public class GSSAcceptorCredentialCache extends AbstractInitializableComponent {
+
+    /** Prefix for metrics. */
+    @Nonnull @NotEmpty public static final String METRIC_NAME = "net.shibboleth.idp.authn.spnego.acceptor";
+
+    /** Class logger. */
+    @Nonnull private final Logger log = LoggerFactory.getLogger(GSSAcceptorCredentialCache.class);
+
+    /** Maximum age of an entry before it is renewed. */
+    @Nonnull private Duration maxCredentialAge;
+
+    /** Amount of time before ticket expiration at which to renew. */
+    @Nonnull private Duration renewalWindow;
+
+    /** Cached entries by realm. */
+    @Nonnull private final Map<KerberosRealmSettings,Entry> entries;
+
+    /** Replaced entries that may still be in use by in-flight negotiations. */
+    @Nonnull private final Set<Entry> retiredEntries;
+
+    /** Runs background renewals. */
+    @NonnullAfterInit private ExecutorService renewalExecutor;
+
+    /** Constructor. */
+    public GSSAcceptorCredentialCache() {
+        final Duration oneHour = Duration.ofHours(1);
+        final Duration fiveMinutes = Duration.ofMinutes(5);
+        assert oneHour != null && fiveMinutes != null;
+        maxCredentialAge = oneHour;
+        renewalWindow = fiveMinutes;
+        entries = new ConcurrentHashMap<>();
+        retiredEntries = ConcurrentHashMap.newKeySet();
+    }
+
+    /**
+     * Set the maximum age of a cached login before it is renewed.
+     *
+     * <p>Defaults to 1 hour. This bounds how long a keytab change can go unnoticed.</p>
+     *
+     * @param age maximum age
+     */
+    public void setMaxCredentialAge(@Nonnull final Duration age) {
+        checkSetterPreconditions();
+        Constraint.isNotNull(age, "Age cannot be null");
+        Constraint.isFalse(age.isNegative() || age.isZero(), "Age must be positive");
+
+        maxCredentialAge = age;
+    }
+
+    /**
+     * Set the amount of time before ticket expiration at which a cached login is renewed.
+     *
+     * <p>Defaults to 5 minutes.</p>
+     *
+     * @param window renewal window
+     */
+    public void setRenewalWindow(@Nonnull final Duration window) {
+        checkSetterPreconditions();
+        Constraint.isNotNull(window, "Window cannot be null");
+        Constraint.isFalse(window.isNegative(), "Window cannot be negative");
+
+        renewalWindow = window;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void doInitialize() throws ComponentInitializationException {
+        super.doInitialize();
+
+        renewalExecutor = Executors.newSingleThreadExecutor(r -> {
+            final Thread t = new Thread(r, "spnego-acceptor-renewal");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void doDestroy() {
+        if (renewalExecutor != null) {
+            renewalExecutor.shutdownNow();
+        }
+        // Negotiations still in progress can't complete once the cache is gone.
+        retiredEntries.forEach(Entry::dispose);
+        retiredEntries.clear();
+        entries.values().forEach(Entry::dispose);
+        entries.clear();
+
+        super.doDestroy();
+    }
+
+    /**
+     * Get an acceptor credential for a realm, logging in if no usable one is cached.
+     *
+     * <p>The caller must call {@link Entry#release()} when done with the result.</p>
+     *
+     * @param realm realm settings
+     * @param settings overall Kerberos settings
+     * @param mechOid mechanism to acquire the credential for
+     *
+     * @return the entry holding the credential
+     *
+     * @throws LoginException if a login fails
+     * @throws PrivilegedActionException if the credential cannot be created
+     */
+    @Nonnull public Entry acquire(@Nonnull final KerberosRealmSettings realm,
+            @Nonnull final KerberosSettings settings, @Nonnull final Oid mechOid)
+                    throws LoginException, PrivilegedActionException {
+        checkComponentActive();
+
+        while (true) {
+            final Entry entry = findEntry(realm, settings, mechOid);
+            // Fails only if the entry was retired and released since being read, so just retry.
+            if (entry.acquire()) {
+                return entry;
+            }
+        }
+    }
+
+    /**
+     * Drop a realm's cached credential if it is still the one supplied, so the next use performs a new login.
+     *
+     * @param realm realm settings
+     * @param entry the entry whose credential was found to be unusable
+     */
+    public void invalidate(@Nonnull final KerberosRealmSettings realm, @Nonnull final Entry entry) {
+        checkComponentActive();
+
+        if (entries.remove(realm, entry)) {
+            log.info("Discarding cached acceptor credential for {}", realm.getServicePrincipal());
+            retire(entry);
+        }
+    }
+
+    /**
+     * Find a usable entry for a realm, logging in if none is cached.
+     *
+     * @param realm realm settings
+     * @param settings overall Kerberos settings
+     * @param mechOid mechanism to acquire the credential for
+     *
+     * @return the entry
+     *
+     * @throws LoginException if a login fails
+     * @throws PrivilegedActionException if the credential cannot be created
+     */
+    @Nonnull private Entry findEntry(@Nonnull final KerberosRealmSettings realm,
+            @Nonnull final KerberosSettings settings, @Nonnull final Oid mechOid)
+                    throws LoginException, PrivilegedActionException {
+        final Instant now = Instant.now();
+        final Entry entry = entries.get(realm);
+        if (entry != null && now.isBefore(entry.expiration())) {
+            if (!now.isBefore(entry.renewAt()) && entry.renewalScheduled().compareAndSet(false, true)) {
+                scheduleRenewal(realm, settings, mechOid, entry);
+            }
+            count("hits");
+            return entry;
+        }
+
+        synchronized (this) {
+            final Entry existing = entries.get(realm);
+            if (existing != null && existing != entry && Instant.now().isBefore(existing.expiration())) {
+                count("hits");
+                return existing;
+            }
+            final Entry fresh = login(realm, settings, mechOid);
+            replace(realm, fresh);
+            return fresh;
+        }
+    }
+
+    /**
+     * Queue a background renewal for a realm.
+     *
+     * @param realm realm settings
+     * @param settings overall Kerberos settings
+     * @param mechOid mechanism OID
+     * @param current the entry being renewed
+     */
+    private void scheduleRenewal(@Nonnull final KerberosRealmSettings realm, @Nonnull final KerberosSettings settings,
+            @Nonnull final Oid mechOid, @Nonnull final Entry current) {
+        try {
+            renewalExecutor.execute(() -> {
+                try {
+                    final Entry fresh = login(realm, settings, mechOid);
+                    synchronized (this) {
+                        replace(realm, fresh);
+                    }
+                    count("renewals");
+                    log.debug("Renewed acceptor credential for {}", realm.getServicePrincipal());
+                } catch (final Exception e) {
+                    count("renewalFailures");
+                    log.warn("Unable to renew acceptor credential for {}, will retry", realm.getServicePrincipal(),
+                            e);
+                    current.renewalScheduled().set(false);
+                }
+            });
+        } catch (final RejectedExecutionException e) {
+            current.renewalScheduled().set(false);
+        }
+    }
+
+    /**
+     * Install a new entry for a realm, retiring the one it replaces.
+     *
+     * @param realm realm settings
+     * @param fresh new entry
+     */
+    private void replace(@Nonnull final KerberosRealmSettings realm, @Nonnull final Entry fresh) {
+        final Entry old = entries.put(realm, fresh);
+        if (old != null) {
+            retire(old);
+        }
+    }
+
+    /**
+     * Retire a replaced entry, so that it is released once no longer in use.
+     *
+     * <p>Entries retired for longer than the maximum age are assumed to belong to abandoned negotiations,
+     * and are disposed of regardless.</p>
+     *
+     * @param entry entry to retire
+     */
+    private void retire(@Nonnull final Entry entry) {
+        final Instant now = Instant.now();
+        final Instant abandoned = now.minus(maxCredentialAge);
+        retiredEntries.removeIf(e -> {
+            if (e.isReleased()) {
+                return true;
+            } else if (e.isRetiredBefore(abandoned)) {
+                log.debug("Disposing of acceptor credential still held by an abandoned negotiation");
+                e.dispose();
+                return true;
+            }
+            return false;
+        });
+
+        if (!entry.retire(now)) {
+            retiredEntries.add(entry);
+        }
+    }
+
+    /**
+     * Perform the acceptor login for a realm and build a credential from it.
+     *
+     * @param realm realm settings
+     * @param settings overall Kerberos settings
+     * @param mechOid mechanism OID
+     *
+     * @return a new entry
+     *
+     * @throws LoginException if the login fails
+     * @throws PrivilegedActionException if the credential cannot be created
+     */
+    @Nonnull Entry login(@Nonnull final KerberosRealmSettings realm, @Nonnull final KerberosSettings settings,
+            @Nonnull final Oid mechOid) throws LoginException, PrivilegedActionException {
+
+        final GSSAcceptorLoginModule module = new GSSAcceptorLoginModule(realm, settings.getRefreshKrb5Config(),
+                settings.getLoginModuleClassName());
+        final Subject subject;
+        try {
+            subject = module.login();
+        } catch (final LoginException e) {
+            count("loginFailures");
+            log.error("Server login error using principal: {}", realm.getServicePrincipal());
+            throw e;
+        }
+        count("logins");
+
+        final GSSCredential credential;
+        try {
+            credential = Subject.doAs(subject, new PrivilegedExceptionAction<GSSCredential>() {
+                public GSSCredential run() throws GSSException {
+                    return GSSManager.getInstance().createCredential(null, GSSCredential.INDEFINITE_LIFETIME,
+                            mechOid, GSSCredential.ACCEPT_ONLY);
+                }
+            });
+            assert credential != null;
+        } catch (final PrivilegedActionException e) {
+            module.logout();
+            throw e;
+        }
+
+        final Entry entry = newEntry(module, subject, credential);
+        log.debug("Cached acceptor credential for {}, renewal due at {}", realm.getServicePrincipal(),
+                entry.renewAt());
+        return entry;
+    }
+
+    /**
+     * Build an entry for a login, computing when it should be renewed and when it expires.
+     *
+     * @param module login module holding the login state
+     * @param subject logged-in subject
+     * @param credential acceptor credential
+     *
+     * @return a new entry
+     */
+    @Nonnull Entry newEntry(@Nonnull final GSSAcceptorLoginModule module, @Nonnull final Subject subject,
+            @Nonnull final GSSCredential credential) {
+        final Instant now = Instant.now();
+        Instant expiration = Instant.MAX;
+        for (final KerberosTicket ticket : subject.getPrivateCredentials(KerberosTicket.class)) {
+            final Date end = ticket.getEndTime();
+            if (end != null && end.toInstant().isBefore(expiration)) {
+                expiration = end.toInstant();
+            }
+        }
+        Instant renewAt = now.plus(maxCredentialAge);
+        if (expiration.minus(renewalWindow).isBefore(renewAt)) {
+            renewAt = expiration.minus(renewalWindow);
+        }
+
+        return new Entry(module, credential, renewAt, expiration);
+    }
+
+    /**
+     * Increment a counter if a metric registry is installed.
+     *
+     * @param suffix metric name suffix
+     */
+    private void count(@Nonnull @NotEmpty final String suffix) {
+        final MetricRegistry registry = MetricsSupport.getMetricRegistry();
+        if (registry != null) {
+            registry.counter(MetricRegistry.name(METRIC_NAME, suffix)).inc();
+        }
+    }
+
+    /**
+     * A cached acceptor login.
+     *
+     * <p>Negotiations hold a reference while they use the credential. Once an entry has been replaced or
+     * invalidated it is retired, and is released when the last negotiation using it finishes.</p>
+     */
+    public static final class Entry {
+
+        /** Class logger. */
+        @Nonnull private final Logger log = LoggerFactory.getLogger(Entry.class);
+
+        /** Login module holding the login state. */
+        @Nonnull private final GSSAcceptorLoginModule module;
+
+        /** Acceptor credential. */
+        @Nonnull private final GSSCredential credential;
+
+        /** Time at which to start a background renewal. */
+        @Nonnull private final Instant renewAt;
+
+        /** Time after which the entry is unusable. */
+        @Nonnull private final Instant expiration;
+
+        /** Whether a renewal has been queued. */
+        @Nonnull private final AtomicBoolean renewalScheduled;
+
+        /** Number of negotiations using the credential. */
+        private int users;
+
+        /** Time at which the entry was retired, if it has been. */
+        @Nullable private Instant retiredAt;
+
+        /** Whether the credential has been released. */
+        private boolean released;
+
+        /**
+         * Constructor.
+         *
+         * @param loginModule login module holding the login state
+         * @param acceptorCredential acceptor credential
+         * @param renewalTime time at which to start a background renewal
+         * @param expirationTime time after which the entry is unusable
+         */
+        Entry(@Nonnull final GSSAcceptorLoginModule loginModule, @Nonnull final GSSCredential acceptorCredential,
+                @Nonnull final Instant renewalTime, @Nonnull final Instant expirationTime) {
+            module = loginModule;
+            credential = acceptorCredential;
+            renewAt = renewalTime;
+            expiration = expirationTime;
+            renewalScheduled = new AtomicBoolean();
+        }
+
+        /**
+         * Get the acceptor credential.
+         *
+         * @return acceptor credential
+         */
+        @Nonnull public GSSCredential credential() {
+            return credential;
+        }
+
+        /**
+         * Get the time at which to start a background renewal.
+         *
+         * @return renewal time
+         */
+        @Nonnull Instant renewAt() {
+            return renewAt;
+        }
+
+        /**
+         * Get the time after which the entry is unusable.
+         *
+         * @return expiration time
+         */
+        @Nonnull Instant expiration() {
+            return expiration;
+        }
+
+        /**
+         * Get whether a renewal has been queued.
+         *
+         * @return renewal flag
+         */
+        @Nonnull AtomicBoolean renewalScheduled() {
+            return renewalScheduled;
+        }
+
+        /**
+         * Get whether the credential has been released.
+         *
+         * @return whether the credential has been released
+         */
+        synchronized boolean isReleased() {
+            return released;
+        }
+
+        /**
+         * Get whether the entry was retired before a given time.
+         *
+         * @param time time to compare against
+         *
+         * @return whether the entry was retired before the time
+         */
+        synchronized boolean isRetiredBefore(@Nonnull final Instant time) {
+            return retiredAt != null && retiredAt.isBefore(time);
+        }
+
+        /**
+         * Register a use of the credential.
+         *
+         * @return false iff the credential has already been released
+         */
+        synchronized boolean acquire() {
+            if (released) {
+                return false;
+            }
+            users++;
+            return true;
+        }
+
+        /** End a use of the credential, releasing it if the entry is retired and no longer in use. */
+        public synchronized void release() {
+            users--;
+            if (retiredAt != null && users == 0) {
+                dispose();
+            }
+        }
+
+        /**
+         * Retire the entry, releasing the credential now if not in use.
+         *
+         * @param time time of retirement
+         *
+         * @return whether the credential was released
+         */
+        synchronized boolean retire(@Nonnull final Instant time) {
+            retiredAt = time;
+            if (users == 0) {
+                dispose();
+            }
+            return released;
+        }
+
+        /** Dispose of the credential and log out, whether or not it is in use. */
+        synchronized void dispose() {
+            if (released) {
+                return;
+            }
+            released = true;
+            try {
+                credential.dispose();
+            } catch (final GSSException e) {
+                log.debug("GSS-API credentials disposal failed", e);
+            }
+            try {
+                module.logout();
+            } catch (final LoginException e) {
+                log.debug("Server credentials logout failed", e);
+            }
+        }
+    }
+
+}
@@ -56,6 +56,9 @@ public class GSSContextAcceptor {
     /** Server credentials used during context establishment. */
     @Nullable private GSSCredential serverCreds;
 
+    /** Shared cache entry holding the server credentials, if they came from a cache. */
+    @Nullable private GSSAcceptorCredentialCache.Entry sharedEntry;
+
     /** The GSSContext being established, or that was established. */
     @Nullable private GSSContext context;
 
@@ -133,11 +136,17 @@ public class GSSContextAcceptor {
             }
         }
         if (serverCreds != null) {
-            try {
-                serverCreds.dispose();
+            if (sharedEntry != null) {
+                sharedEntry.release();
+                sharedEntry = null;
                 serverCreds = null;
-            } catch (final GSSException e) {
-                log.error("GSS-API credentials disposal failed", e);
+            } else {
+                try {
+                    serverCreds.dispose();
+                    serverCreds = null;
+                } catch (final GSSException e) {
+                    log.error("GSS-API credentials disposal failed", e);
+                }
             }
         }
         if (krbLoginModule != null) {
@@ -183,6 +192,7 @@ public class GSSContextAcceptor {
                 return tokenOut;
             } catch (final Exception e) {
                 log.debug("Error establishing security context", e);
+                invalidateSharedCredential(realm, e);
                 logout();
                 preserved = e;
             }
@@ -203,6 +213,16 @@ public class GSSContextAcceptor {
     private void createGSSContext(@Nonnull final KerberosRealmSettings realm)
             throws GSSException, LoginException, PrivilegedActionException {
         
+        final GSSAcceptorCredentialCache cache = kerberosSettings.getCredentialCache();
+        if (cache != null) {
+            final GSSAcceptorCredentialCache.Entry entry = cache.acquire(realm, kerberosSettings, spnegoOid);
+            sharedEntry = entry;
+            serverCreds = entry.credential();
+            context = GSSManager.getInstance().createContext(serverCreds);
+            log.trace("GSS acceptor context created from cached credentials");
+            return;
+        }
+        
         // Establish server login credentials.
         final Subject krbSubject;
         krbLoginModule = new GSSAcceptorLoginModule(realm, kerberosSettings.getRefreshKrb5Config(),
@@ -232,6 +252,27 @@ public class GSSContextAcceptor {
         log.trace("GSS acceptor context created");
     }
 
+    /**
+     * Discard a cached credential if the failure suggests the credential itself is no longer usable.
+     * 
+     * @param realm realm settings
+     * @param e the failure
+     */
+    private void invalidateSharedCredential(@Nonnull final KerberosRealmSettings realm, @Nonnull final Exception e) {
+        final GSSAcceptorCredentialCache cache = kerberosSettings.getCredentialCache();
+        final GSSAcceptorCredentialCache.Entry entry = sharedEntry;
+        if (cache == null || entry == null || !(e instanceof GSSException)) {
+            return;
+        }
+        
+        // Failures attributable to the client's token don't warrant a new login.
+        final int major = ((GSSException) e).getMajor();
+        if (major == GSSException.NO_CRED || major == GSSException.DEFECTIVE_CREDENTIAL
+                || major == GSSException.CREDENTIALS_EXPIRED) {
+            cache.invalidate(realm, entry);
+        }
+    }
+
     /**
      * Create the credential for the GSS-API.
      * 
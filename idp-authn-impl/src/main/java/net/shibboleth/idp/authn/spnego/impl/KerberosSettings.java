@@ -40,6 +40,9 @@ public class KerberosSettings {
     /** List of realms (KerberosRealmSettings objects). */
     @Nonnull private Collection<KerberosRealmSettings> realmSettings;
 
+    /** Optional cache of acceptor credentials. */
+    @Nullable private GSSAcceptorCredentialCache credentialCache;
+
     /** Constructor. */
     public KerberosSettings() {
         loginModuleClassName = "com.sun.security.auth.module.Krb5LoginModule";
@@ -104,5 +107,29 @@ public class KerberosSettings {
     @Nonnull @NotLive @Unmodifiable public Collection<KerberosRealmSettings> getRealms() {
         return realmSettings;
     }
+
+    /**
+     * Set a cache of acceptor credentials to reuse across negotiations.
+     * 
+     * <p>If not set, each negotiation performs its own acceptor login.</p>
+     * 
+     * @param cache credential cache
+     * 
+     * @since 5.2.0
+     */
+    public void setCredentialCache(@Nullable final GSSAcceptorCredentialCache cache) {
+        credentialCache = cache;
+    }
+
+    /**
+     * Get the cache of acceptor credentials, if any.
+     * 
+     * @return credential cache
+     * 
+     * @since 5.2.0
+     */
+    @Nullable public GSSAcceptorCredentialCache getCredentialCache() {
+        return credentialCache;
+    }
     
-}
\ No newline at end of file
+}
@@ -16,16 +16,19 @@ package net.shibboleth.idp.authn.spnego.impl;
 
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.security.auth.Subject;
 import javax.security.auth.kerberos.KerberosPrincipal;
+import javax.security.auth.login.LoginException;
 
 import org.apache.commons.codec.binary.Base64;
 import org.ietf.jgss.GSSContext;
 import org.ietf.jgss.GSSException;
 import org.ietf.jgss.GSSName;
+import org.opensaml.core.metrics.MetricsSupport;
 import org.opensaml.profile.context.ProfileRequestContext;
 import org.slf4j.Logger;
 import org.springframework.http.HttpHeaders;
@@ -36,6 +39,8 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.servlet.ModelAndView;
 
+import com.codahale.metrics.MetricRegistry;
+
 import net.shibboleth.idp.authn.AuthnEventIds;
 import net.shibboleth.idp.authn.ExternalAuthentication;
 import net.shibboleth.idp.authn.ExternalAuthenticationException;
@@ -69,6 +74,13 @@ public class SPNEGOAuthnController {
     /** Event ID indicating that NTLM was attempted by the client. */
     @Nonnull @NotEmpty public static final String NTLM_UNSUPPORTED = "NTLMUnsupported";
 
+    /**
+     * Prefix for negotiation metrics.
+     * 
+     * @since 5.2.0
+     */
+    @Nonnull @NotEmpty public static final String METRIC_NAME = "net.shibboleth.idp.authn.spnego.negotiation";
+
     /** Class logger. */
     @Nonnull private final Logger log = LoggerFactory.getLogger(SPNEGOAuthnController.class);
     
@@ -175,6 +187,7 @@ public class SPNEGOAuthnController {
                 spnegoCtx.setContextAcceptor(acceptor);
             } catch (final GSSException e) {
                 log.error("Unable to create GSSContextAcceptor", e);
+                recordFailure("acceptorUnavailable");
                 finishWithException(conversationKey, httpRequest, httpResponse,
                         new ExternalAuthenticationException(SPNEGO_NOT_AVAILABLE, e));
                 return null;
@@ -189,17 +202,28 @@ public class SPNEGOAuthnController {
         // NTLM Authentication is not supported.
         if (isNTLMMechanism(gssapiData)) {
             log.warn("NTLM is unsupported, failing context negotiation");
+            recordFailure("ntlm");
             acceptor.logout();
             finishWithError(conversationKey, httpRequest, httpResponse, NTLM_UNSUPPORTED);
             return null;
         }
 
         final byte[] tokenBytes;
+        final long start = System.nanoTime();
         try {
             tokenBytes = acceptor.acceptSecContext(gssapiData, 0, gssapiData.length);
+            recordLatency(System.nanoTime() - start);
             log.trace("GSS token accepted");
         } catch (final Exception e) {
+            recordLatency(System.nanoTime() - start);
             log.debug("Exception processing GSS token", e);
+            if (e instanceof GSSException) {
+                recordFailure("gss." + ((GSSException) e).getMajor());
+            } else if (e instanceof LoginException) {
+                recordFailure("login");
+            } else {
+                recordFailure("other");
+            }
             acceptor.logout();
             finishWithException(conversationKey, httpRequest, httpResponse,
                     new ExternalAuthenticationException(SPNEGO_NOT_AVAILABLE, e));
@@ -217,6 +241,7 @@ public class SPNEGOAuthnController {
                     // This case should never happen, but we observed it. Handle it as authentication failure.
                     log.error("Error extracting principal name from security context, " +
                             "check for hostname mismatch or other causes of a missing service ticket");
+                    recordFailure("noPrincipal");
                     acceptor.logout();
                     finishWithException(conversationKey, httpRequest, httpResponse,
                             new ExternalAuthenticationException(SPNEGO_NOT_AVAILABLE));
@@ -230,6 +255,7 @@ public class SPNEGOAuthnController {
                 finishWithSuccess(conversationKey, httpRequest, httpResponse, kerberosPrincipal);
             } catch (final GSSException e) {
                 log.error("Error extracting principal name from security context", e);
+                recordFailure("noPrincipal");
                 acceptor.logout();
                 finishWithException(conversationKey, httpRequest, httpResponse,
                         new ExternalAuthenticationException(SPNEGO_NOT_AVAILABLE, e));
@@ -339,6 +365,32 @@ public class SPNEGOAuthnController {
         ExternalAuthentication.finishExternalAuthentication(key, httpRequest, httpResponse);
     }
 
+    /**
+     * Record the time spent processing a GSS token.
+     * 
+     * @param nanos elapsed time in nanoseconds
+     */
+    private void recordLatency(final long nanos) {
+        final MetricRegistry registry = MetricsSupport.getMetricRegistry();
+        if (registry != null) {
+            registry.timer(MetricRegistry.name(METRIC_NAME, "latency")).update(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Count a negotiation failure by reason.
+     * 
+     * <p>GSS failures are reported as "gss." followed by the GSS major status code.</p>
+     * 
+     * @param reason reason for failure
+     */
+    private void recordFailure(@Nonnull @NotEmpty final String reason) {
+        final MetricRegistry registry = MetricsSupport.getMetricRegistry();
+        if (registry != null) {
+            registry.counter(MetricRegistry.name(METRIC_NAME, "failure", reason)).inc();
+        }
+    }
+
     /**
      * Navigate to the {@link SPNEGOContext} in the context tree.
      * 
@@ -453,6 +453,36 @@ public class DefaultAuthenticationResultSerializerTest {
         assertTrue(result2.getReuseCondition().test(prc));
     }
 
+    @Test public void testManyPrincipals() throws Exception {
+        serializer.initialize();
+        flowDescriptor.initialize();
+        
+        final AuthenticationResult result = createResult(flowDescriptor, new Subject());
+        result.getSubject().getPrincipals().add(new UsernamePrincipal("bob"));
+        final ProxyAuthenticationPrincipal prin = new ProxyAuthenticationPrincipal(CollectionSupport.listOf("foo"));
+        prin.setProxyCount(1);
+        result.getSubject().getPrincipals().add(prin);
+        for (int i = 0; i < 10; ++i) {
+            result.getSubject().getPrincipals().add(new TestPrincipal("test" + i));
+        }
+        
+        // The second pass exercises the class and tag indexes populated by the first.
+        for (int pass = 0; pass < 2; ++pass) {
+            final String s = flowDescriptor.serialize(result);
+            final AuthenticationResult result2 = flowDescriptor.deserialize(1, CONTEXT, KEY, s,
+                    Instant.ofEpochMilli(ACTIVITY)
+                        .plus(flowDescriptor.getInactivityTimeout())
+                        .plus(AuthenticationFlowDescriptor.STORAGE_EXPIRATION_OFFSET)
+                        .toEpochMilli());
+            
+            assertEquals(result2.getSubject().getPrincipals().size(), 12);
+            assertEquals(result.getSubject(), result2.getSubject());
+            assertEquals(result2.getSubject().getPrincipals(TestPrincipal.class).size(), 10);
+            assertEquals(result2.getSubject().getPrincipals(ProxyAuthenticationPrincipal.class).iterator().next()
+                    .getAuthorities(), prin.getAuthorities());
+        }
+    }
+
     @Test public void testNestedAuthenticationResult() throws Exception {
         serializer.initialize();
         flowDescriptor.initialize();
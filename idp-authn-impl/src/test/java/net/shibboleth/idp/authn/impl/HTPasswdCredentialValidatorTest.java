@@ -14,6 +14,10 @@
 
 package net.shibboleth.idp.authn.impl;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
@@ -347,6 +351,43 @@ public class HTPasswdCredentialValidatorTest extends BaseAuthenticationContextTe
                 .next().getName(), "test1");
     }
     
+    @Test public void testVerifiedCacheAndReload() throws Exception {
+        final Path file = Files.createTempFile("htpasswd", ".txt");
+        try {
+            Files.writeString(file, "PETER_THE_PRINCIPAL:$apr1$vBz5k7hO$RuB./7oGOpH05ga4aeb2f/\n");
+            validator.setResource(ResourceHelper.of(new FileSystemResource(file.toFile())));
+            validator.setVerifiedCacheLifetime(Duration.ofMinutes(1));
+            validator.initialize();
+
+            final AuthenticationContext ac = prc.getSubcontext(AuthenticationContext.class);
+            assert ac != null;
+            ac.setAttemptedFlow(authenticationFlows.get(0));
+            final UsernamePasswordContext upc = ac.ensureSubcontext(UsernamePasswordContext.class);
+            upc.setUsername("PETER_THE_PRINCIPAL");
+            upc.setPassword("changeit");
+
+            Assert.assertNotNull(validator.validate(prc, ac, null, null));
+            Assert.assertNotNull(validator.validate(prc, ac, null, null));
+
+            // Change the stored hash, which must defeat the cached verification.
+            Files.writeString(file, "PETER_THE_PRINCIPAL:{SHA}0JQeaNqPOBUf+Gph/Fn3xc+fyqI=\n");
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 10000));
+
+            try {
+                validator.validate(prc, ac, null, null);
+                Assert.fail("Cached verification survived a changed hash");
+            } catch (final LoginException e) {
+                Assert.assertEquals(e.getMessage(), AuthnEventIds.INVALID_CREDENTIALS);
+            }
+
+            upc.setPassword("other");
+            Assert.assertNotNull(validator.validate(prc, ac, null, null));
+        } finally {
+            validator.destroy();
+            Files.deleteIfExists(file);
+        }
+    }
+
     private void doExtract() throws ComponentInitializationException {
         final ExtractUsernamePasswordFromFormRequest extract = new ExtractUsernamePasswordFromFormRequest();
         extract.setHttpServletRequestSupplier(action.getHttpServletRequestSupplier());
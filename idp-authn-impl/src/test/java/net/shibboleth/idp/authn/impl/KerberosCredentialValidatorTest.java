@@ -0,0 +1,164 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.shibboleth.idp.authn.impl;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.security.auth.Subject;
+import javax.security.auth.login.LoginException;
+import javax.security.auth.spi.LoginModule;
+
+import org.ietf.jgss.GSSCredential;
+import org.ietf.jgss.Oid;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import net.shibboleth.idp.authn.impl.KerberosCredentialValidator.ServiceCredentials;
+import net.shibboleth.shared.component.ComponentInitializationException;
+
+/** Unit test for service login reuse and renewal in {@link KerberosCredentialValidator}. */
+@SuppressWarnings("javadoc")
+public class KerberosCredentialValidatorTest {
+
+    private MockLoginValidator validator;
+
+    @BeforeMethod public void setUp() throws ComponentInitializationException {
+        validator = new MockLoginValidator();
+        validator.setId("krb5");
+        validator.setServicePrincipal("idp/idp.example.org@EXAMPLE.ORG");
+        validator.setKeytabPath("/tmp/idp.keytab");
+        validator.setServiceLoginRenewalInterval(Duration.ZERO);
+        validator.initialize();
+    }
+
+    @AfterMethod public void tearDown() {
+        validator.destroy();
+    }
+
+    @Test public void testReuse() throws Exception {
+        final ServiceCredentials first = validator.acquireServiceCredentials();
+        first.release();
+        final ServiceCredentials second = validator.acquireServiceCredentials();
+        second.release();
+
+        Assert.assertSame(second, first);
+        Assert.assertEquals(validator.logins.size(), 1);
+        Assert.assertFalse(first.isReleased());
+    }
+
+    @Test public void testRenewalWhileInUse() throws Exception {
+        final ServiceCredentials inUse = validator.acquireServiceCredentials();
+
+        validator.renewServiceCredentials();
+        Assert.assertEquals(validator.logins.size(), 2);
+
+        // The retired login must survive until the verification using it finishes.
+        Assert.assertFalse(inUse.isReleased());
+        verify(inUse.acceptor(), never()).dispose();
+
+        final ServiceCredentials renewed = validator.acquireServiceCredentials();
+        Assert.assertNotSame(renewed, inUse);
+        renewed.release();
+
+        inUse.release();
+        Assert.assertTrue(inUse.isReleased());
+        verify(inUse.acceptor()).dispose();
+        verify(validator.modules.get(0)).logout();
+        Assert.assertFalse(renewed.isReleased());
+    }
+
+    @Test public void testRenewalIdle() throws Exception {
+        final ServiceCredentials idle = validator.acquireServiceCredentials();
+        idle.release();
+
+        validator.renewServiceCredentials();
+        Assert.assertTrue(idle.isReleased());
+    }
+
+    @Test public void testRenewalFailure() throws Exception {
+        final ServiceCredentials current = validator.acquireServiceCredentials();
+        current.release();
+
+        validator.failLogin = true;
+        validator.renewServiceCredentials();
+
+        final ServiceCredentials retained = validator.acquireServiceCredentials();
+        retained.release();
+        Assert.assertSame(retained, current);
+        Assert.assertFalse(current.isReleased());
+    }
+
+    @Test public void testInvalidate() throws Exception {
+        final ServiceCredentials inUse = validator.acquireServiceCredentials();
+        validator.invalidateServiceCredentials(inUse);
+        Assert.assertFalse(inUse.isReleased());
+
+        final ServiceCredentials fresh = validator.acquireServiceCredentials();
+        Assert.assertNotSame(fresh, inUse);
+        Assert.assertEquals(validator.logins.size(), 2);
+
+        inUse.release();
+        fresh.release();
+        Assert.assertTrue(inUse.isReleased());
+        Assert.assertFalse(fresh.isReleased());
+
+        // Invalidating a login that's already been replaced has no effect.
+        validator.invalidateServiceCredentials(inUse);
+        Assert.assertSame(validator.acquireServiceCredentials(), fresh);
+        fresh.release();
+    }
+
+    @Test public void testDestroy() throws Exception {
+        final ServiceCredentials inUse = validator.acquireServiceCredentials();
+        validator.destroy();
+        Assert.assertFalse(inUse.isReleased());
+        inUse.release();
+        Assert.assertTrue(inUse.isReleased());
+    }
+
+    /** Validator that fakes the service login. */
+    private static class MockLoginValidator extends KerberosCredentialValidator {
+
+        @Nonnull private final List<ServiceCredentials> logins = new ArrayList<>();
+
+        @Nonnull private final List<LoginModule> modules = new ArrayList<>();
+
+        private boolean failLogin;
+
+        /** {@inheritDoc} */
+        @Override
+        @Nonnull ServiceCredentials loginService() throws Exception {
+            if (failLogin) {
+                throw new LoginException("Login failed");
+            }
+            final LoginModule module = mock(LoginModule.class);
+            final ServiceCredentials creds = new ServiceCredentials(module, new Subject(),
+                    mock(GSSCredential.class), new Oid("1.2.840.113554.1.2.2"));
+            modules.add(module);
+            logins.add(creds);
+            return creds;
+        }
+    }
+
+}
@@ -0,0 +1,95 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.shibboleth.idp.authn.impl;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.ldaptive.LdapException;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import net.shibboleth.shared.component.ComponentInitializationException;
+
+/** Unit test for {@link LDAPBindExecutor}. */
+@SuppressWarnings("javadoc")
+public class LDAPBindExecutorTest {
+
+    private static final String URL = "ldap://localhost:10389 ldap://localhost:10390";
+
+    private LDAPBindExecutor executor;
+
+    @BeforeMethod public void setUp() throws ComponentInitializationException {
+        executor = new LDAPBindExecutor();
+        executor.setTimeout(Duration.ofMillis(200));
+        executor.setFailureThreshold(2);
+        executor.setOpenInterval(Duration.ofMillis(300));
+        executor.initialize();
+    }
+
+    @AfterMethod public void tearDown() {
+        executor.destroy();
+    }
+
+    @Test public void testSuccess() throws LdapException {
+        Assert.assertEquals(executor.execute(URL, () -> "ok"), "ok");
+        Assert.assertEquals(executor.getState(URL), LDAPBindExecutor.State.CLOSED);
+    }
+
+    @Test public void testTimeout() {
+        try {
+            executor.execute(URL, () -> {
+                Thread.sleep(5000);
+                return "late";
+            });
+            Assert.fail("Expected timeout");
+        } catch (final LdapException e) {
+            // expected
+        }
+        Assert.assertEquals(executor.getState(URL), LDAPBindExecutor.State.CLOSED);
+    }
+
+    @Test public void testBreaker() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        for (int i = 0; i < 3; i++) {
+            try {
+                executor.execute(URL, () -> {
+                    calls.incrementAndGet();
+                    throw new LdapException("down");
+                });
+                Assert.fail("Expected failure");
+            } catch (final LdapException e) {
+                // expected
+            }
+        }
+        Assert.assertEquals(calls.get(), 2);
+        Assert.assertEquals(executor.getState(URL), LDAPBindExecutor.State.OPEN);
+        Assert.assertEquals(executor.getState("ldap://other.example.org"), LDAPBindExecutor.State.CLOSED);
+
+        Thread.sleep(400);
+        Assert.assertEquals(executor.execute(URL, () -> "ok"), "ok");
+        Assert.assertEquals(executor.getState(URL), LDAPBindExecutor.State.CLOSED);
+    }
+
+    @Test public void testBreakerMetricName() {
+        Assert.assertEquals(LDAPBindExecutor.getBreakerMetricName("ldap://a.example.org:389 ldap://b.example.org"),
+                "net.shibboleth.idp.authn.ldap.bind.breaker.ldap_a_example_org_389_ldap_b_example_org");
+        Assert.assertEquals(LDAPBindExecutor.getBreakerMetricName("ldap"),
+                "net.shibboleth.idp.authn.ldap.bind.breaker.ldap");
+    }
+
+}
@@ -16,6 +16,7 @@ package net.shibboleth.idp.authn.impl;
 
 import java.security.Principal;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.security.auth.Subject;
 
@@ -325,5 +326,74 @@ public class SelectAuthenticationFlowTest extends BaseAuthenticationContextTest
         ActionTestingSupport.assertProceedEvent(event);
         Assert.assertEquals(active, authCtx.getAuthenticationResult());
     }
-    
-}
\ No newline at end of file
+
+    @Test public void testSignaledNoActiveResult() {
+        final AuthenticationContext authCtx = prc.getSubcontext(AuthenticationContext.class);
+        assert authCtx != null;
+        final AuthenticationResult active = new AuthenticationResult("test2", new Subject());
+        authCtx.setActiveResults(CollectionSupport.singletonList(active));
+        authCtx.setSignaledFlowId("test3");
+
+        final Event event = action.execute(src);
+        ActionTestingSupport.assertEvent(event, "test3");
+
+        Assert.assertNull(authCtx.getAuthenticationResult());
+        Assert.assertEquals(authCtx.getAttemptedFlow(), authCtx.getPotentialFlows().get("test3"));
+    }
+
+    @Test public void testEvaluationsMemoized() {
+        final AuthenticationContext authCtx = prc.getSubcontext(AuthenticationContext.class);
+        final List<Principal> principals = CollectionSupport.listOf(new TestPrincipal("foo"),
+                new TestPrincipal("bar"));
+        final RequestedPrincipalContext rpc = new RequestedPrincipalContext();
+        rpc.getPrincipalEvalPredicateFactoryRegistry().register(
+                TestPrincipal.class, "exact", new ExactPrincipalEvalPredicateFactory());
+        rpc.setOperator("exact");
+        rpc.setRequestedPrincipals(principals);
+        assert authCtx != null;
+        authCtx.addSubcontext(rpc, true);
+
+        final AtomicInteger[] counts = new AtomicInteger[] {new AtomicInteger(), new AtomicInteger(),
+                new AtomicInteger()};
+        for (int i = 0; i < 3; i++) {
+            final AtomicInteger count = counts[i];
+            authenticationFlows.get(i).setActivationCondition(p -> {
+                count.incrementAndGet();
+                return false;
+            });
+        }
+        authCtx.getPotentialFlows().get("test3").setSupportedPrincipals(principals);
+
+        final Event event = action.execute(src);
+        ActionTestingSupport.assertEvent(event, AuthnEventIds.REQUEST_UNSUPPORTED);
+
+        // Flows that match no requested principal are never tested for activation, and the flow that
+        // matches both is tested once.
+        Assert.assertEquals(counts[0].get(), 0);
+        Assert.assertEquals(counts[1].get(), 0);
+        Assert.assertEquals(counts[2].get(), 1);
+    }
+
+    @Test public void testEvaluationStopsAtSelection() {
+        final AuthenticationContext authCtx = prc.getSubcontext(AuthenticationContext.class);
+        assert authCtx != null;
+        final AtomicInteger[] counts = new AtomicInteger[] {new AtomicInteger(), new AtomicInteger(),
+                new AtomicInteger()};
+        for (int i = 0; i < 3; i++) {
+            final AtomicInteger count = counts[i];
+            final boolean active = i > 0;
+            authenticationFlows.get(i).setActivationCondition(p -> {
+                count.incrementAndGet();
+                return active;
+            });
+        }
+
+        final Event event = action.execute(src);
+        ActionTestingSupport.assertEvent(event, "test2");
+
+        Assert.assertEquals(counts[0].get(), 1);
+        Assert.assertEquals(counts[1].get(), 1);
+        Assert.assertEquals(counts[2].get(), 0);
+    }
+
+}
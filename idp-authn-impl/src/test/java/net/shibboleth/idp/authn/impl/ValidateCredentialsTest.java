@@ -18,9 +18,12 @@ import static org.testng.Assert.assertEquals;
 
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import javax.annotation.Nonnull;
+
 import org.ldaptive.DefaultConnectionFactory;
 import org.ldaptive.auth.AuthenticationResponse;
 import org.ldaptive.auth.AuthenticationResultCode;
@@ -46,6 +49,7 @@ import net.shibboleth.idp.authn.context.UsernamePasswordContext;
 import net.shibboleth.idp.authn.impl.testing.BaseAuthenticationContextTest;
 import net.shibboleth.idp.authn.principal.UsernamePrincipal;
 import net.shibboleth.idp.profile.testing.ActionTestingSupport;
+import net.shibboleth.shared.logic.PredicateSupport;
 import net.shibboleth.shared.collection.CollectionSupport;
 import net.shibboleth.shared.component.ComponentInitializationException;
 import net.shibboleth.shared.spring.resource.ResourceHelper;
@@ -362,6 +366,89 @@ public class ValidateCredentialsTest extends BaseAuthenticationContextTest {
         Assert.assertNotNull(lp.getLdapEntry());
     }
 
+    @Test public void testCacheHit() throws ComponentInitializationException {
+        final ValidatedCredentialCache cache = new ValidatedCredentialCache();
+        cache.initialize();
+
+        Event event = executeWithCache(cache, false);
+        ActionTestingSupport.assertProceedEvent(event);
+        final ValidatedCredentialCache.Entry entry = cache.get(getCacheKey(cache));
+        assert entry != null;
+        Assert.assertEquals(entry.validatorIds(), List.of("ldap"));
+
+        // The directory is unreachable, so success must come from the cache.
+        setUp();
+        action.setValidators(CollectionSupport.listOf(unreachableValidator()));
+        event = executeWithCache(cache, false);
+        ActionTestingSupport.assertProceedEvent(event);
+        final AuthenticationContext ac = prc.getSubcontext(AuthenticationContext.class);
+        assert ac != null;
+        final AuthenticationResult result = ac.getAuthenticationResult();
+        assert result != null;
+        Assert.assertEquals(result.getSubject().getPrincipals(UsernamePrincipal.class).iterator().next().getName(),
+                "PETER_THE_PRINCIPAL");
+        Assert.assertNull(ac.getSubcontext(LDAPResponseContext.class));
+    }
+
+    @Test public void testCacheRequireAll() throws ComponentInitializationException {
+        final ValidatedCredentialCache cache = new ValidatedCredentialCache();
+        cache.initialize();
+
+        Event event = executeWithCache(cache, true);
+        ActionTestingSupport.assertProceedEvent(event);
+        final ValidatedCredentialCache.Entry entry = cache.get(getCacheKey(cache));
+        assert entry != null;
+        Assert.assertEquals(entry.validatorIds(), List.of("ldap", "htpasswd"));
+
+        // Without the htpasswd validator, the cached result doesn't apply.
+        setUp();
+        action.setValidators(CollectionSupport.listOf(unreachableValidator()));
+        event = executeWithCache(cache, true);
+        final AuthenticationContext ac = prc.getSubcontext(AuthenticationContext.class);
+        assert ac != null;
+        Assert.assertNull(ac.getAuthenticationResult());
+    }
+
+    @Nonnull private Event executeWithCache(@Nonnull final ValidatedCredentialCache cache, final boolean requireAll)
+            throws ComponentInitializationException {
+        getMockHttpServletRequest(action).addParameter("username", "PETER_THE_PRINCIPAL");
+        getMockHttpServletRequest(action).addParameter("password", "changeit");
+
+        final AuthenticationContext ac = prc.getSubcontext(AuthenticationContext.class);
+        assert ac != null;
+        ac.setAttemptedFlow(authenticationFlows.get(0));
+        
+        action.setRequireAll(requireAll);
+        action.setCredentialCache(cache);
+        action.setCredentialCacheCondition(PredicateSupport.alwaysTrue());
+        action.initialize();
+
+        doExtract();
+
+        final Event event = action.execute(src);
+        assert event != null;
+        return event;
+    }
+
+    @Nonnull private String getCacheKey(@Nonnull final ValidatedCredentialCache cache) {
+        final String key = cache.computeKey(authenticationFlows.get(0).ensureId(), "PETER_THE_PRINCIPAL", "changeit");
+        assert key != null;
+        return key;
+    }
+
+    @Nonnull private LDAPCredentialValidator unreachableValidator() throws ComponentInitializationException {
+        final TemplateSearchDnResolver resolver = new TemplateSearchDnResolver(
+                new DefaultConnectionFactory("ldap://localhost:10399"), VelocityEngine.newVelocityEngine(),
+                "(uid=$usernamePasswordContext.username)");
+        resolver.setBaseDn("ou=people,dc=shibboleth,dc=net");
+        final LDAPCredentialValidator ldap = new LDAPCredentialValidator();
+        ldap.setId("ldap");
+        ldap.setAuthenticator(new Authenticator(resolver,
+                new SimpleBindAuthenticationHandler(new DefaultConnectionFactory("ldap://localhost:10399"))));
+        ldap.initialize();
+        return ldap;
+    }
+
     private void doExtract() throws ComponentInitializationException {
         final ExtractUsernamePasswordFromFormRequest extract = new ExtractUsernamePasswordFromFormRequest();
         extract.setHttpServletRequestSupplier(action.getHttpServletRequestSupplier());
@@ -0,0 +1,89 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.shibboleth.idp.authn.impl;
+
+import java.util.List;
+
+import javax.security.auth.Subject;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import net.shibboleth.idp.authn.principal.UsernamePrincipal;
+import net.shibboleth.shared.component.ComponentInitializationException;
+
+/** Unit test for {@link ValidatedCredentialCache}. */
+@SuppressWarnings("javadoc")
+public class ValidatedCredentialCacheTest {
+
+    private ValidatedCredentialCache cache;
+
+    @BeforeMethod public void setUp() throws ComponentInitializationException {
+        cache = new ValidatedCredentialCache();
+        cache.initialize();
+    }
+
+    @Test public void testKeys() {
+        final String key = cache.computeKey("authn/Password", "jdoe", "changeit");
+        Assert.assertNotNull(key);
+        Assert.assertEquals(cache.computeKey("authn/Password", "jdoe", "changeit"), key);
+        Assert.assertNotEquals(cache.computeKey("authn/Password", "jdoe", "other"), key);
+        Assert.assertNotEquals(cache.computeKey("authn/Other", "jdoe", "changeit"), key);
+        Assert.assertFalse(key.contains("changeit"));
+    }
+
+    @Test public void testPutGet() {
+        final String key = cache.computeKey("authn/Password", "jdoe", "changeit");
+        assert key != null;
+        Assert.assertNull(cache.get(key));
+
+        final Subject subject = new Subject();
+        subject.getPrincipals().add(new UsernamePrincipal("jdoe"));
+        subject.getPrivateCredentials().add("secret");
+        cache.put(key, "jdoe", List.of("ldap"), subject);
+
+        final ValidatedCredentialCache.Entry entry = cache.get(key);
+        assert entry != null;
+        Assert.assertEquals(entry.validatorIds(), List.of("ldap"));
+        final Subject copy = entry.copySubject();
+        Assert.assertEquals(copy.getPrincipals(UsernamePrincipal.class).iterator().next().getName(), "jdoe");
+        Assert.assertTrue(copy.getPrivateCredentials().isEmpty());
+    }
+
+    @Test public void testInvalidate() {
+        final String key1 = cache.computeKey("authn/Password", "jdoe", "changeit");
+        final String key2 = cache.computeKey("authn/Password", "jsmith", "changeit");
+        assert key1 != null && key2 != null;
+        cache.put(key1, "jdoe", List.of("ldap"), new Subject());
+        cache.put(key2, "jsmith", List.of("ldap"), new Subject());
+
+        cache.invalidate("JDOE");
+        Assert.assertNull(cache.get(key1));
+        Assert.assertNotNull(cache.get(key2));
+
+        cache.invalidateAll();
+        Assert.assertNull(cache.get(key2));
+    }
+
+    @Test public void testLockoutKeyUsername() {
+        final DoLockoutManagerOperation.LockoutKeyUsernameStrategy strategy =
+                new DoLockoutManagerOperation.LockoutKeyUsernameStrategy();
+        Assert.assertEquals(strategy.apply("jdoe!192.168.1.1"), "jdoe");
+        Assert.assertEquals(strategy.apply("jdoe!x!::1"), "jdoe!x");
+        Assert.assertEquals(strategy.apply("jdoe"), "jdoe");
+    }
+
+}
@@ -15,8 +15,15 @@
 package net.shibboleth.idp.authn.impl;
 
 
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.annotation.Nonnull;
 import javax.security.auth.x500.X500Principal;
@@ -39,6 +46,7 @@ import com.unboundid.util.NotNull;
 import net.shibboleth.idp.authn.AuthenticationResult;
 import net.shibboleth.idp.authn.AuthnEventIds;
 import net.shibboleth.idp.authn.context.AuthenticationContext;
+import net.shibboleth.idp.authn.context.CertificateContext;
 import net.shibboleth.idp.authn.impl.testing.BaseAuthenticationContextTest;
 import net.shibboleth.idp.profile.testing.ActionTestingSupport;
 import net.shibboleth.shared.collection.CollectionSupport;
@@ -202,6 +210,35 @@ public class X509CertificateCredentialValidatorTest extends BaseAuthenticationCo
         Assert.assertNull(ac.getAuthenticationResult());
     }
     
+    @Test public void testTrustCache() throws Exception {
+        final X509Certificate cert = mock(X509Certificate.class);
+        when(cert.getEncoded()).thenReturn(new byte[] {1, 2, 3});
+        when(cert.getNotAfter()).thenReturn(Date.from(Instant.now().plus(Duration.ofDays(1))));
+        when(cert.getSubjectX500Principal()).thenReturn(new X500Principal("CN=cached.example.org"));
+        
+        final AtomicInteger calls = new AtomicInteger();
+        final TrustEngine<X509Credential> engine = (token, criteria) -> {
+            calls.incrementAndGet();
+            return true;
+        };
+        
+        validator.setTrustEngine(engine);
+        validator.setTrustCacheLifetime(Duration.ofMinutes(5));
+        validator.initialize();
+        
+        final AuthenticationContext ac = prc.getSubcontext(AuthenticationContext.class);
+        assert ac != null;
+        ac.ensureSubcontext(CertificateContext.class).setCertificate(cert);
+        
+        Assert.assertNotNull(validator.validate(prc, ac, null, null));
+        Assert.assertNotNull(validator.validate(prc, ac, null, null));
+        Assert.assertEquals(calls.get(), 1);
+        
+        when(cert.getEncoded()).thenReturn(new byte[] {4, 5, 6});
+        Assert.assertNotNull(validator.validate(prc, ac, null, null));
+        Assert.assertEquals(calls.get(), 2);
+    }
+    
     private void doExtract() throws ComponentInitializationException, CertificateException {
         final ExtractX509CertificateFromRequest extract = new ExtractX509CertificateFromRequest();
         extract.setHttpServletRequestSupplier(action.getHttpServletRequestSupplier());
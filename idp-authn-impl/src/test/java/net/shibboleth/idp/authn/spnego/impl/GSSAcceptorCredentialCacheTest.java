@@ -0,0 +1,233 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.shibboleth.idp.authn.spnego.impl;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.security.auth.Subject;
+import javax.security.auth.kerberos.KerberosPrincipal;
+import javax.security.auth.kerberos.KerberosTicket;
+
+import org.ietf.jgss.GSSCredential;
+import org.ietf.jgss.Oid;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/** {@link GSSAcceptorCredentialCache} unit test. */
+@SuppressWarnings("javadoc")
+public class GSSAcceptorCredentialCacheTest {
+
+    @Nonnull private static final String SERVICE_PRINCIPAL = "HTTP/idp.example.org@EXAMPLE.ORG";
+
+    private Oid mechOid;
+
+    private KerberosRealmSettings realm;
+
+    private KerberosSettings settings;
+
+    private MockLoginCache cache;
+
+    @BeforeMethod public void setUp() throws Exception {
+        mechOid = new Oid("1.2.840.113554.1.2.2");
+
+        realm = new KerberosRealmSettings();
+        realm.setServicePrincipal(SERVICE_PRINCIPAL);
+        realm.setKeytab("/opt/kerberos/http.keytab");
+        realm.initialize();
+
+        settings = new KerberosSettings();
+        settings.setRealms(List.of(realm));
+
+        cache = new MockLoginCache();
+    }
+
+    @AfterMethod public void tearDown() {
+        cache.destroy();
+    }
+
+    @Test public void testReuse() throws Exception {
+        cache.initialize();
+
+        final GSSCredential first = getCredential();
+        final GSSCredential second = getCredential();
+        Assert.assertSame(second, first);
+        Assert.assertEquals(cache.credentials.size(), 1);
+    }
+
+    @Test public void testExpiry() throws Exception {
+        cache.setRenewalWindow(Duration.ZERO);
+        cache.ticketEnd = Instant.now().plusSeconds(1);
+        cache.initialize();
+
+        final GSSCredential first = getCredential();
+        Thread.sleep(1500);
+
+        // An expired entry is replaced synchronously.
+        cache.ticketEnd = null;
+        final GSSCredential second = getCredential();
+        Assert.assertNotSame(second, first);
+        Assert.assertEquals(cache.credentials.size(), 2);
+    }
+
+    @Test public void testRefresh() throws Exception {
+        cache.setMaxCredentialAge(Duration.ofMillis(100));
+        cache.initialize();
+
+        final GSSCredential first = getCredential();
+        Thread.sleep(200);
+
+        // Renewal is due, but the existing credential is still returned while it runs.
+        Assert.assertSame(getCredential(), first);
+        Assert.assertNotSame(awaitReplacement(first), first);
+    }
+
+    @Test public void testRenewalBeforeTicketExpiry() throws Exception {
+        cache.setRenewalWindow(Duration.ofMinutes(5));
+        cache.ticketEnd = Instant.now().plus(Duration.ofMinutes(5)).plusMillis(100);
+        cache.initialize();
+
+        final GSSCredential first = getCredential();
+        Thread.sleep(200);
+
+        cache.ticketEnd = null;
+        Assert.assertSame(getCredential(), first);
+        final GSSCredential second = awaitReplacement(first);
+        Assert.assertNotSame(second, first);
+        Assert.assertEquals(cache.credentials.size(), 2);
+    }
+
+    @Test public void testInUseNotDisposed() throws Exception {
+        cache.initialize();
+
+        final GSSAcceptorCredentialCache.Entry first = cache.acquire(realm, settings, mechOid);
+
+        // Replace the entry twice while the first negotiation is still using it.
+        cache.invalidate(realm, first);
+        final GSSAcceptorCredentialCache.Entry second = cache.acquire(realm, settings, mechOid);
+        second.release();
+        cache.invalidate(realm, second);
+        final GSSAcceptorCredentialCache.Entry third = cache.acquire(realm, settings, mechOid);
+        third.release();
+
+        verify(second.credential()).dispose();
+        verify(first.credential(), never()).dispose();
+        Assert.assertFalse(first.isReleased());
+
+        // Released by the last user once retired.
+        first.release();
+        verify(first.credential()).dispose();
+        Assert.assertTrue(first.isReleased());
+    }
+
+    @Test public void testAbandoned() throws Exception {
+        cache.setMaxCredentialAge(Duration.ofMillis(100));
+        cache.initialize();
+
+        // Never released, as by a negotiation that was abandoned.
+        final GSSAcceptorCredentialCache.Entry first = cache.acquire(realm, settings, mechOid);
+        cache.invalidate(realm, first);
+        Thread.sleep(200);
+
+        final GSSAcceptorCredentialCache.Entry second = cache.acquire(realm, settings, mechOid);
+        cache.invalidate(realm, second);
+        verify(first.credential()).dispose();
+        verify(second.credential(), never()).dispose();
+        second.release();
+    }
+
+    @Test public void testInvalidate() throws Exception {
+        cache.initialize();
+
+        final GSSAcceptorCredentialCache.Entry first = cache.acquire(realm, settings, mechOid);
+        first.release();
+        cache.invalidate(realm, first);
+        verify(first.credential()).dispose();
+
+        final GSSCredential second = getCredential();
+        Assert.assertNotSame(second, first.credential());
+        Assert.assertEquals(cache.credentials.size(), 2);
+
+        // A stale entry doesn't evict its replacement.
+        cache.invalidate(realm, first);
+        Assert.assertSame(getCredential(), second);
+    }
+
+    @Test public void testDestroy() throws Exception {
+        cache.initialize();
+
+        final GSSCredential credential = getCredential();
+        cache.destroy();
+        verify(credential).dispose();
+    }
+
+    /**
+     * Acquire a credential and release it straight away, leaving it cached.
+     *
+     * @return the credential
+     *
+     * @throws Exception if the credential cannot be acquired
+     */
+    @Nonnull private GSSCredential getCredential() throws Exception {
+        final GSSAcceptorCredentialCache.Entry entry = cache.acquire(realm, settings, mechOid);
+        entry.release();
+        return entry.credential();
+    }
+
+    @Nonnull private GSSCredential awaitReplacement(@Nonnull final GSSCredential current) throws Exception {
+        GSSCredential credential = current;
+        for (int i = 0; i < 500 && credential == current; i++) {
+            Thread.sleep(10);
+            credential = getCredential();
+        }
+        return credential;
+    }
+
+    /** Cache that fakes the acceptor login. */
+    private static class MockLoginCache extends GSSAcceptorCredentialCache {
+
+        @Nonnull private final List<GSSCredential> credentials = new CopyOnWriteArrayList<>();
+
+        @Nullable private volatile Instant ticketEnd;
+
+        /** {@inheritDoc} */
+        @Override
+        @Nonnull Entry login(@Nonnull final KerberosRealmSettings realm, @Nonnull final KerberosSettings settings,
+                @Nonnull final Oid mechOid) {
+            final Subject subject = new Subject();
+            final Instant end = ticketEnd;
+            if (end != null) {
+                final KerberosPrincipal principal = new KerberosPrincipal(SERVICE_PRINCIPAL);
+                subject.getPrivateCredentials().add(new KerberosTicket(new byte[1], principal, principal,
+                        new byte[16], 17, null, new Date(), new Date(), Date.from(end), null, null));
+            }
+            final GSSCredential credential = mock(GSSCredential.class);
+            credentials.add(credential);
+            return newEntry(mock(GSSAcceptorLoginModule.class), subject, credential);
+        }
+    }
+
+}
@@ -15,6 +15,8 @@
 package net.shibboleth.idp.authn.spnego.impl;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -55,5 +57,16 @@ public class KerberosSettingsTest {
 
         assertEquals(settings.getRealms(), realms);
     }
+
+    @Test
+    public void testCredentialCache() throws ComponentInitializationException {
+        assertNull(settings.getCredentialCache());
+
+        final GSSAcceptorCredentialCache cache = new GSSAcceptorCredentialCache();
+        cache.initialize();
+        settings.setCredentialCache(cache);
+        assertSame(settings.getCredentialCache(), cache);
+        cache.destroy();
+    }
     
 }
\ No newline at end of file
@@ -30,6 +30,7 @@ import org.testng.annotations.Test;
 
 import jakarta.servlet.ServletContextEvent;
 import net.shibboleth.idp.spring.IdPPropertiesApplicationContextInitializer;
+import net.shibboleth.idp.spring.StartupTimingRecorder;
 import net.shibboleth.shared.logic.ConstraintViolationException;
 
 /** {@link IdPPropertiesApplicationContextInitializer} unit test. */
@@ -118,4 +119,24 @@ public class IdPPropertiesApplicationContextInitializerTest {
         Assert.assertEquals(wac.getEnvironment().getProperty("idp.authn.LDAP.ldapURL"), "ldap://localhost:10389");
     }
 
+    @Test public void testStartupTiming() {
+        sc.addInitParameter("idp.home", "classpath:/net/shibboleth/idp/module");
+        sc.addInitParameter(IdPPropertiesApplicationContextInitializer.STARTUP_TIMING_PROPERTY, "true");
+        listener.contextInitialized(new ServletContextEvent(sc));
+        final WebApplicationContext wac = WebApplicationContextUtils.getRequiredWebApplicationContext(sc);
+
+        final StartupTimingRecorder recorder =
+                wac.getBean(StartupTimingRecorder.BEAN_NAME, StartupTimingRecorder.class);
+        Assert.assertTrue(recorder.isComplete());
+        Assert.assertTrue(recorder.getContextTimes().containsKey(wac.getDisplayName()));
+    }
+
+    @Test public void testNoStartupTiming() {
+        sc.addInitParameter("idp.home", "classpath:/net/shibboleth/idp/module");
+        listener.contextInitialized(new ServletContextEvent(sc));
+        final WebApplicationContext wac = WebApplicationContextUtils.getRequiredWebApplicationContext(sc);
+
+        Assert.assertFalse(wac.containsBean(StartupTimingRecorder.BEAN_NAME));
+    }
+
 }
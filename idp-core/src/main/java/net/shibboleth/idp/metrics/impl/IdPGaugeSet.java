@@ -20,6 +20,7 @@ import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.MetricSet;
 
 import net.shibboleth.idp.Version;
+import net.shibboleth.idp.spring.StartupTimingRecorder;
 import net.shibboleth.shared.annotation.constraint.NotEmpty;
 
 import java.time.Duration;
@@ -109,6 +110,32 @@ public class IdPGaugeSet extends ApplicationObjectSupport implements MetricSet,
         }
     }
     
+    /**
+     * Set the recorder whose startup timings to expose as metrics.
+     * 
+     * @param recorder startup timing recorder
+     * 
+     * @since 5.2.0
+     */
+    public void setStartupTimingRecorder(@Nullable final StartupTimingRecorder recorder) {
+        if (recorder != null) {
+            gauges.put(
+                    MetricRegistry.name(DEFAULT_METRIC_NAME, "startup", "contexts"),
+                    new Gauge<Map<String,Long>>() {
+                        public Map<String,Long> getValue() {
+                            return recorder.getContextTimes();
+                        }
+                    });
+            gauges.put(
+                    MetricRegistry.name(DEFAULT_METRIC_NAME, "startup", "slowBeans"),
+                    new Gauge<Map<String,Long>>() {
+                        public Map<String,Long> getValue() {
+                            return recorder.getSlowBeans();
+                        }
+                    });
+        }
+    }
+    
     /** {@inheritDoc} */
     public Map<String,Metric> getMetrics() {
         return Map.copyOf(gauges);
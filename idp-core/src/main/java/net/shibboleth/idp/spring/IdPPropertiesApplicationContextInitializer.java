@@ -14,13 +14,27 @@
 
 package net.shibboleth.idp.spring;
 
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+
 import javax.annotation.Nonnull;
 
+import org.slf4j.Logger;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.event.ContextRefreshedEvent;
+
 import net.shibboleth.shared.annotation.constraint.NotEmpty;
+import net.shibboleth.shared.primitive.LoggerFactory;
 import net.shibboleth.shared.spring.context.AbstractPropertiesApplicationContextInitializer;
 
 /**
  * Specialization of context initializer for IdP use.
+ * 
+ * <p>If {@link #STARTUP_TIMING_PROPERTY} is true, this also installs a {@link StartupTimingRecorder}, under
+ * {@link StartupTimingRecorder#BEAN_NAME}, and a {@link StartupTimingBeanPostProcessor} ahead of any others,
+ * and reports the timings once the context has been refreshed.</p>
  */
 public class IdPPropertiesApplicationContextInitializer
         extends AbstractPropertiesApplicationContextInitializer {
@@ -45,7 +59,52 @@ public class IdPPropertiesApplicationContextInitializer
 
     /** Property for tracking duplicates. */
     @Nonnull public static final String IDP_DUPLICATE_PROPERTY = "idp.duplicateProperties";
-    
+
+    /** Property controlling whether to record startup timings. */
+    @Nonnull public static final String STARTUP_TIMING_PROPERTY = "idp.startupTiming.enabled";
+
+    /** Property setting the minimum bean creation time to report. */
+    @Nonnull public static final String STARTUP_TIMING_THRESHOLD_PROPERTY = "idp.startupTiming.threshold";
+
+    /** Class logger. */
+    @Nonnull private final Logger log = LoggerFactory.getLogger(IdPPropertiesApplicationContextInitializer.class);
+
+    /** {@inheritDoc} */
+    @Override
+    public void initialize(@Nonnull final ConfigurableApplicationContext applicationContext) {
+        super.initialize(applicationContext);
+
+        if (!Boolean.parseBoolean(applicationContext.getEnvironment().getProperty(STARTUP_TIMING_PROPERTY))) {
+            return;
+        }
+
+        final StartupTimingRecorder recorder = new StartupTimingRecorder();
+        final String threshold = applicationContext.getEnvironment().getProperty(STARTUP_TIMING_THRESHOLD_PROPERTY);
+        if (threshold != null) {
+            try {
+                recorder.setSlowBeanThreshold(Duration.parse(threshold.trim()));
+            } catch (final DateTimeParseException | IllegalArgumentException e) {
+                log.warn("Ignoring invalid {} value '{}'", STARTUP_TIMING_THRESHOLD_PROPERTY, threshold);
+            }
+        }
+
+        applicationContext.addBeanFactoryPostProcessor(beanFactory -> {
+            beanFactory.registerSingleton(StartupTimingRecorder.BEAN_NAME, recorder);
+            beanFactory.addBeanPostProcessor(new StartupTimingBeanPostProcessor(recorder, true));
+        });
+        applicationContext.addApplicationListener(new ApplicationListener<ContextRefreshedEvent>() {
+            public void onApplicationEvent(final ContextRefreshedEvent event) {
+                final ApplicationContext context = event.getApplicationContext();
+                final Duration time = Duration.ofMillis(System.currentTimeMillis() - context.getStartupDate());
+                if (context == applicationContext) {
+                    recorder.complete(context.getDisplayName(), time);
+                } else {
+                    recorder.recordContext(context.getDisplayName(), time);
+                }
+            }
+        });
+    }
+
     /** {@inheritDoc} */
     @Override
     @Nonnull @NotEmpty protected String getHomePropertyName() {
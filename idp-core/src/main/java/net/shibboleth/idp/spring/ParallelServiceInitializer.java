@@ -0,0 +1,280 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.shibboleth.idp.spring;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanInitializationException;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+
+import net.shibboleth.shared.collection.CollectionSupport;
+import net.shibboleth.shared.component.ComponentInitializationException;
+import net.shibboleth.shared.component.InitializableComponent;
+import net.shibboleth.shared.logic.Constraint;
+import net.shibboleth.shared.primitive.LoggerFactory;
+import net.shibboleth.shared.primitive.StringSupport;
+
+/**
+ * Initializes a set of singleton components, typically reloadable services, concurrently once every
+ * singleton in the context has been created, rather than one after another as each is created.
+ *
+ * <p>When enabled, the <code>initialize</code> init method of each named bean is suppressed in its bean
+ * definition, and the beans are instead initialized on a bounded pool of threads at the end of the context
+ * refresh. A bean is not initialized until any of the other named beans it depends on, whether through
+ * <code>depends-on</code> or by reference, have been, and a circular dependency between them fails the
+ * refresh. A failure to initialize any bean also fails the refresh, as it would have done otherwise.</p>
+ *
+ * <p>This is only safe when no other bean uses the named beans during its own initialization, which is
+ * why it is disabled by default. Beans whose definitions are not eager singletons with the expected init
+ * method are left alone.</p>
+ *
+ * @since 5.2.0
+ */
+public class ParallelServiceInitializer implements BeanFactoryPostProcessor, SmartInitializingSingleton {
+
+    /** Init method that is deferred. */
+    @Nonnull private static final String INIT_METHOD = "initialize";
+
+    /** Class logger. */
+    @Nonnull private final Logger log = LoggerFactory.getLogger(ParallelServiceInitializer.class);
+
+    /** Whether to initialize the beans concurrently. */
+    private boolean enabled;
+
+    /** Names of the beans to initialize. */
+    @Nonnull private Collection<String> serviceNames;
+
+    /** Maximum number of threads to use. */
+    private int maxThreads;
+
+    /** Bean factory containing the beans. */
+    @Nullable private ConfigurableListableBeanFactory beanFactory;
+
+    /** Beans whose initialization has been deferred, in the order given, with their declared dependencies. */
+    @Nonnull private final Map<String,Set<String>> deferred;
+
+    /** Constructor. */
+    public ParallelServiceInitializer() {
+        serviceNames = CollectionSupport.emptyList();
+        maxThreads = 4;
+        deferred = new LinkedHashMap<>();
+    }
+
+    /**
+     * Set whether to initialize the beans concurrently.
+     *
+     * @param flag flag to set
+     */
+    public void setEnabled(final boolean flag) {
+        enabled = flag;
+    }
+
+    /**
+     * Set the names of the beans to initialize concurrently.
+     *
+     * @param names bean names
+     */
+    public void setServiceNames(@Nullable final Collection<String> names) {
+        if (names != null) {
+            serviceNames = List.copyOf(StringSupport.normalizeStringCollection(names));
+        } else {
+            serviceNames = CollectionSupport.emptyList();
+        }
+    }
+
+    /**
+     * Set the maximum number of threads to use.
+     *
+     * <p>Defaults to 4.</p>
+     *
+     * @param threads maximum number of threads
+     */
+    public void setMaxThreads(final int threads) {
+        Constraint.isTrue(threads > 0, "Maximum threads must be greater than 0");
+        maxThreads = threads;
+    }
+
+    /** {@inheritDoc} */
+    public void postProcessBeanFactory(@Nonnull final ConfigurableListableBeanFactory factory)
+            throws BeansException {
+        beanFactory = factory;
+        if (!enabled) {
+            return;
+        }
+
+        for (final String name : serviceNames) {
+            if (!factory.containsBeanDefinition(name)) {
+                log.debug("No bean named '{}' to initialize", name);
+                continue;
+            }
+            final BeanDefinition merged = factory.getMergedBeanDefinition(name);
+            final Class<?> type = factory.getType(name, false);
+            if (!merged.isSingleton() || merged.isLazyInit() || !INIT_METHOD.equals(merged.getInitMethodName())
+                    || type == null || !InitializableComponent.class.isAssignableFrom(type)) {
+                log.info("Bean '{}' is not eligible for concurrent initialization", name);
+                continue;
+            }
+
+            // An empty name overrides any inherited init method and is skipped by the factory.
+            factory.getBeanDefinition(name).setInitMethodName("");
+            final Set<String> dependsOn = new LinkedHashSet<>();
+            if (merged.getDependsOn() != null) {
+                dependsOn.addAll(List.of(merged.getDependsOn()));
+            }
+            deferred.put(name, dependsOn);
+        }
+
+        factory.clearMetadataCache();
+    }
+
+    /** {@inheritDoc} */
+    public void afterSingletonsInstantiated() {
+        final ConfigurableListableBeanFactory factory = beanFactory;
+        if (deferred.isEmpty() || factory == null) {
+            return;
+        }
+
+        for (final Map.Entry<String,Set<String>> entry : deferred.entrySet()) {
+            entry.getValue().addAll(List.of(factory.getDependenciesForBean(entry.getKey())));
+            entry.getValue().retainAll(deferred.keySet());
+        }
+
+        final StartupTimingRecorder recorder = factory.containsBean(StartupTimingRecorder.BEAN_NAME) ?
+                factory.getBean(StartupTimingRecorder.BEAN_NAME, StartupTimingRecorder.class) : null;
+        final AtomicLong totalNanos = new AtomicLong();
+        final long start = System.nanoTime();
+
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(maxThreads, deferred.size()), r -> {
+            final Thread t = new Thread(r, "idp-service-init");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            final Map<String,CompletableFuture<Void>> futures = new HashMap<>();
+            final Set<String> visiting = new LinkedHashSet<>();
+            for (final String name : deferred.keySet()) {
+                assert name != null;
+                schedule(name, futures, visiting, executor, recorder, totalNanos);
+            }
+            CompletableFuture.allOf(futures.values().toArray(CompletableFuture[]::new)).join();
+        } catch (final CompletionException e) {
+            if (e.getCause() instanceof BeansException) {
+                throw (BeansException) e.getCause();
+            }
+            throw new BeanInitializationException("Concurrent service initialization failed", e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+
+        log.info("Initialized {} service(s) concurrently in {}ms, {}ms in total", deferred.size(),
+                Duration.ofNanos(System.nanoTime() - start).toMillis(),
+                Duration.ofNanos(totalNanos.get()).toMillis());
+        deferred.clear();
+    }
+
+    /**
+     * Schedule the initialization of a bean after that of its dependencies.
+     *
+     * @param name bean name
+     * @param futures scheduled initializations, by bean name
+     * @param visiting beans whose dependencies are being scheduled, in the order visited
+     * @param executor executor to run on
+     * @param recorder startup timing recorder, if any
+     * @param totalNanos accumulator for the time spent initializing
+     *
+     * @return the scheduled initialization
+     *
+     * @throws BeanInitializationException if the bean depends on itself, directly or indirectly
+     */
+    @Nonnull private CompletableFuture<Void> schedule(@Nonnull final String name,
+            @Nonnull final Map<String,CompletableFuture<Void>> futures, @Nonnull final Set<String> visiting,
+            @Nonnull final ExecutorService executor, @Nullable final StartupTimingRecorder recorder,
+            @Nonnull final AtomicLong totalNanos) throws BeanInitializationException {
+        final CompletableFuture<Void> existing = futures.get(name);
+        if (existing != null) {
+            return existing;
+        }
+
+        if (!visiting.add(name)) {
+            final List<String> cycle = new ArrayList<>(visiting);
+            cycle.subList(0, cycle.indexOf(name)).clear();
+            cycle.add(name);
+            throw new BeanInitializationException("Circular dependency between services to initialize concurrently: "
+                    + String.join(" -> ", cycle));
+        }
+        final CompletableFuture<?>[] dependencies = deferred.get(name)
+                .stream()
+                .map(d -> schedule(d, futures, visiting, executor, recorder, totalNanos))
+                .toArray(CompletableFuture[]::new);
+        visiting.remove(name);
+        final CompletableFuture<Void> future = CompletableFuture.allOf(dependencies)
+                .thenRunAsync(() -> initializeBean(name, recorder, totalNanos), executor);
+        futures.put(name, future);
+        return future;
+    }
+
+    /**
+     * Initialize a bean.
+     *
+     * @param name bean name
+     * @param recorder startup timing recorder, if any
+     * @param totalNanos accumulator for the time spent initializing
+     */
+    private void initializeBean(@Nonnull final String name, @Nullable final StartupTimingRecorder recorder,
+            @Nonnull final AtomicLong totalNanos) {
+        final ConfigurableListableBeanFactory factory = beanFactory;
+        assert factory != null;
+        final InitializableComponent component = factory.getBean(name, InitializableComponent.class);
+
+        final String previousScope = recorder != null ? recorder.enterScope(name) : null;
+        final long start = System.nanoTime();
+        try {
+            log.debug("Initializing '{}'", name);
+            component.initialize();
+        } catch (final ComponentInitializationException e) {
+            throw new BeanInitializationException("Error initializing '" + name + "'", e);
+        } finally {
+            final long elapsed = System.nanoTime() - start;
+            totalNanos.addAndGet(elapsed);
+            if (recorder != null) {
+                recorder.exitScope(previousScope);
+                recorder.recordBean(null, name, 0, elapsed);
+            }
+            log.debug("Initialization of '{}' took {}ms", name, Duration.ofNanos(elapsed).toMillis());
+        }
+    }
+
+}
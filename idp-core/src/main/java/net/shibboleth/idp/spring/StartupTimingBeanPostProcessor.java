@@ -0,0 +1,155 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.shibboleth.idp.spring;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessor;
+
+import net.shibboleth.shared.service.ReloadableService;
+
+/**
+ * Bean post-processor that measures the time taken to instantiate and to initialize each bean and passes it
+ * to a {@link StartupTimingRecorder}.
+ *
+ * <p>Instantiation time runs from just before the bean is constructed until its properties are about to be
+ * set, so includes creating any beans passed to its constructor. Initialization time covers the other
+ * post-processors and the bean's init method, normally <code>initialize()</code>.</p>
+ *
+ * <p>An instance registered in the root context names the {@link ReloadableService} being initialized as
+ * the scope for beans created by instances registered in that service's contexts. The post-processor does
+ * nothing if no recorder is supplied or once startup is complete.</p>
+ *
+ * @since 5.2.0
+ */
+public class StartupTimingBeanPostProcessor implements InstantiationAwareBeanPostProcessor {
+
+    /** Recorder to supply. */
+    @Nullable private final StartupTimingRecorder recorder;
+
+    /** Whether this instance belongs to the root context. */
+    private final boolean root;
+
+    /** Instantiation start times, by bean name. */
+    @Nonnull private final Map<String,Long> instantiationStarts;
+
+    /** Instantiation times, by bean name. */
+    @Nonnull private final Map<String,Long> instantiationTimes;
+
+    /** Initialization start times, by bean name. */
+    @Nonnull private final Map<String,Long> initializationStarts;
+
+    /** Scopes to restore after initializing a service, by bean name. */
+    @Nonnull private final Map<String,String> previousScopes;
+
+    /**
+     * Constructor for use in a service context.
+     *
+     * @param timingRecorder recorder to supply, or null
+     */
+    public StartupTimingBeanPostProcessor(@Nullable final StartupTimingRecorder timingRecorder) {
+        this(timingRecorder, false);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param timingRecorder recorder to supply, or null
+     * @param rootContext whether this instance belongs to the root context
+     */
+    public StartupTimingBeanPostProcessor(@Nullable final StartupTimingRecorder timingRecorder,
+            final boolean rootContext) {
+        recorder = timingRecorder;
+        root = rootContext;
+        instantiationStarts = new ConcurrentHashMap<>();
+        instantiationTimes = new ConcurrentHashMap<>();
+        initializationStarts = new ConcurrentHashMap<>();
+        previousScopes = new ConcurrentHashMap<>();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    @Nullable public Object postProcessBeforeInstantiation(@Nonnull final Class<?> beanClass,
+            @Nonnull final String beanName) throws BeansException {
+        if (isActive()) {
+            instantiationStarts.put(beanName, System.nanoTime());
+        }
+        return null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean postProcessAfterInstantiation(@Nonnull final Object bean, @Nonnull final String beanName)
+            throws BeansException {
+        final Long start = instantiationStarts.remove(beanName);
+        if (start != null) {
+            instantiationTimes.put(beanName, System.nanoTime() - start);
+        }
+        return true;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    @Nullable public Object postProcessBeforeInitialization(@Nonnull final Object bean,
+            @Nonnull final String beanName) throws BeansException {
+        final StartupTimingRecorder theRecorder = recorder;
+        if (theRecorder != null && isActive()) {
+            if (root && bean instanceof ReloadableService) {
+                final String previous = theRecorder.enterScope(beanName);
+                if (previous != null) {
+                    previousScopes.put(beanName, previous);
+                }
+            }
+            initializationStarts.put(beanName, System.nanoTime());
+        }
+        return bean;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    @Nullable public Object postProcessAfterInitialization(@Nonnull final Object bean,
+            @Nonnull final String beanName) throws BeansException {
+        final Long start = initializationStarts.remove(beanName);
+        final Long instantiation = instantiationTimes.remove(beanName);
+        final StartupTimingRecorder theRecorder = recorder;
+        if (theRecorder == null || start == null) {
+            return bean;
+        }
+
+        final long initialization = System.nanoTime() - start;
+        if (root && bean instanceof ReloadableService) {
+            theRecorder.exitScope(previousScopes.remove(beanName));
+        }
+        theRecorder.recordBean(root ? null : theRecorder.getCurrentScope(), beanName,
+                instantiation != null ? instantiation : 0, initialization);
+        return bean;
+    }
+
+    /**
+     * Get whether timings should be collected.
+     *
+     * @return whether a recorder is present and startup is still in progress
+     */
+    private boolean isActive() {
+        final StartupTimingRecorder theRecorder = recorder;
+        return theRecorder != null && !theRecorder.isComplete();
+    }
+
+}
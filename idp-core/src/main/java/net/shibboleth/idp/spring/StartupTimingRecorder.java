@@ -0,0 +1,286 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.shibboleth.idp.spring;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+
+import net.shibboleth.shared.annotation.constraint.NotEmpty;
+import net.shibboleth.shared.annotation.constraint.Unmodifiable;
+import net.shibboleth.shared.logic.Constraint;
+import net.shibboleth.shared.primitive.LoggerFactory;
+
+/**
+ * Collects the time taken to refresh each Spring context and to create each bean while the IdP starts up,
+ * and logs a report once the root context has been refreshed.
+ *
+ * <p>Bean times are supplied by {@link StartupTimingBeanPostProcessor} instances and only beans whose total
+ * time reaches the configured threshold are retained. Beans created inside a reloadable service's context are
+ * reported under the name of the service being initialized. Nothing is recorded once startup is complete, so
+ * later reloads and prototype bean creation are unaffected.</p>
+ *
+ * @since 5.2.0
+ */
+public class StartupTimingRecorder {
+
+    /** Name under which the recorder is registered in the root context. */
+    @Nonnull @NotEmpty public static final String BEAN_NAME = "shibboleth.StartupTimingRecorder";
+
+    /** Class logger. */
+    @Nonnull private final Logger log = LoggerFactory.getLogger(StartupTimingRecorder.class);
+
+    /** Refresh times of contexts, by display name. */
+    @Nonnull private final Map<String,Duration> contextTimes;
+
+    /** Times of slow beans, by scoped bean name. */
+    @Nonnull private final Map<String,BeanTiming> beanTimings;
+
+    /** Name of the service being initialized on the current thread. */
+    @Nonnull private final ThreadLocal<String> currentScope;
+
+    /** Minimum total time for a bean to be recorded. */
+    @Nonnull private Duration slowBeanThreshold;
+
+    /** Whether startup has completed. */
+    private volatile boolean complete;
+
+    /** Constructor. */
+    public StartupTimingRecorder() {
+        contextTimes = new ConcurrentHashMap<>();
+        beanTimings = new ConcurrentHashMap<>();
+        currentScope = new ThreadLocal<>();
+        slowBeanThreshold = Duration.ofMillis(100);
+    }
+
+    /**
+     * Get the minimum total time for a bean to be recorded.
+     *
+     * @return the threshold
+     */
+    @Nonnull public Duration getSlowBeanThreshold() {
+        return slowBeanThreshold;
+    }
+
+    /**
+     * Set the minimum total time for a bean to be recorded.
+     *
+     * <p>Defaults to 100 milliseconds.</p>
+     *
+     * @param threshold the threshold
+     */
+    public void setSlowBeanThreshold(@Nonnull final Duration threshold) {
+        Constraint.isNotNull(threshold, "Threshold cannot be null");
+        Constraint.isFalse(threshold.isNegative(), "Threshold cannot be negative");
+        slowBeanThreshold = threshold;
+    }
+
+    /**
+     * Get whether startup has completed, after which nothing further is recorded.
+     *
+     * @return whether startup has completed
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Get the name of the service being initialized on the current thread.
+     *
+     * @return service name, or null
+     */
+    @Nullable public String getCurrentScope() {
+        return currentScope.get();
+    }
+
+    /**
+     * Set the name of the service being initialized on the current thread.
+     *
+     * @param scope service name, or null
+     *
+     * @return the previous name, to be passed to {@link #exitScope(String)}
+     */
+    @Nullable public String enterScope(@Nullable final String scope) {
+        final String previous = currentScope.get();
+        exitScope(scope);
+        return previous;
+    }
+
+    /**
+     * Restore the name of the service being initialized on the current thread.
+     *
+     * @param previous name returned by {@link #enterScope(String)}
+     */
+    public void exitScope(@Nullable final String previous) {
+        if (previous != null) {
+            currentScope.set(previous);
+        } else {
+            currentScope.remove();
+        }
+    }
+
+    /**
+     * Record the time taken to create a bean.
+     *
+     * <p>Repeated creation of a bean with the same name, as with prototypes, accumulates.</p>
+     *
+     * @param scope name of the service whose context contains the bean, or null for the root context
+     * @param beanName name of the bean
+     * @param instantiationNanos time taken to instantiate the bean
+     * @param initializationNanos time taken to initialize the bean
+     */
+    public void recordBean(@Nullable final String scope, @Nonnull final String beanName,
+            final long instantiationNanos, final long initializationNanos) {
+        if (complete || instantiationNanos + initializationNanos < slowBeanThreshold.toNanos()) {
+            return;
+        }
+        beanTimings.merge(scope != null ? scope + '/' + beanName : beanName,
+                new BeanTiming(instantiationNanos, initializationNanos), BeanTiming::add);
+    }
+
+    /**
+     * Record the time taken to refresh a context.
+     *
+     * @param name display name of the context
+     * @param time time taken
+     */
+    public void recordContext(@Nonnull final String name, @Nonnull final Duration time) {
+        if (!complete) {
+            contextTimes.merge(name, time, Duration::plus);
+        }
+    }
+
+    /**
+     * Mark startup as complete and log the report.
+     *
+     * @param rootName display name of the root context
+     * @param time time taken to refresh the root context
+     */
+    public void complete(@Nonnull final String rootName, @Nonnull final Duration time) {
+        recordContext(rootName, time);
+        complete = true;
+        currentScope.remove();
+
+        if (!log.isInfoEnabled()) {
+            return;
+        }
+        log.info("Startup completed in {}ms, context refresh times:", time.toMillis());
+        getContextTimes().forEach((name, millis) -> log.info("  {}: {}ms", name, millis));
+        log.info("Beans taking at least {}ms to create:", slowBeanThreshold.toMillis());
+        beanTimings.entrySet()
+            .stream()
+            .sorted(Map.Entry.comparingByValue(Comparator.comparingLong(BeanTiming::getTotal).reversed()))
+            .forEachOrdered(e -> log.info("  {}: {}ms (instantiation {}ms, initialization {}ms)", e.getKey(),
+                    Duration.ofNanos(e.getValue().getTotal()).toMillis(),
+                    Duration.ofNanos(e.getValue().getInstantiation()).toMillis(),
+                    Duration.ofNanos(e.getValue().getInitialization()).toMillis()));
+    }
+
+    /**
+     * Get the refresh times of contexts in milliseconds, slowest first.
+     *
+     * @return context refresh times
+     */
+    @Nonnull @Unmodifiable public Map<String,Long> getContextTimes() {
+        final Map<String,Long> result = new LinkedHashMap<>();
+        contextTimes.entrySet()
+            .stream()
+            .sorted(Map.Entry.<String,Duration>comparingByValue().reversed())
+            .forEachOrdered(e -> result.put(e.getKey(), e.getValue().toMillis()));
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Get the total creation times of slow beans in milliseconds, slowest first.
+     *
+     * @return bean creation times
+     */
+    @Nonnull @Unmodifiable public Map<String,Long> getSlowBeans() {
+        final Map<String,Long> result = new LinkedHashMap<>();
+        beanTimings.entrySet()
+            .stream()
+            .sorted(Map.Entry.comparingByValue(Comparator.comparingLong(BeanTiming::getTotal).reversed()))
+            .forEachOrdered(e -> result.put(e.getKey(), Duration.ofNanos(e.getValue().getTotal()).toMillis()));
+        return Collections.unmodifiableMap(result);
+    }
+
+    /** Times taken to create a bean. */
+    private static final class BeanTiming {
+
+        /** Instantiation time in nanoseconds. */
+        private final long instantiation;
+
+        /** Initialization time in nanoseconds. */
+        private final long initialization;
+
+        /**
+         * Constructor.
+         *
+         * @param inst instantiation time in nanoseconds
+         * @param init initialization time in nanoseconds
+         */
+        BeanTiming(final long inst, final long init) {
+            instantiation = inst;
+            initialization = init;
+        }
+
+        /**
+         * Get the instantiation time.
+         *
+         * @return instantiation time in nanoseconds
+         */
+        long getInstantiation() {
+            return instantiation;
+        }
+
+        /**
+         * Get the initialization time.
+         *
+         * @return initialization time in nanoseconds
+         */
+        long getInitialization() {
+            return initialization;
+        }
+
+        /**
+         * Get the total time.
+         *
+         * @return total time in nanoseconds
+         */
+        long getTotal() {
+            return instantiation + initialization;
+        }
+
+        /**
+         * Combine two timings.
+         *
+         * @param other timing to add
+         *
+         * @return the combined timing
+         */
+        @Nonnull BeanTiming add(@Nonnull final BeanTiming other) {
+            return new BeanTiming(instantiation + other.instantiation, initialization + other.initialization);
+        }
+    }
+
+}
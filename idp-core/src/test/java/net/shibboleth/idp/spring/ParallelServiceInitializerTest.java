@@ -0,0 +1,239 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.shibboleth.idp.spring;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.springframework.beans.factory.BeanInitializationException;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.context.support.GenericApplicationContext;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import net.shibboleth.shared.component.ComponentInitializationException;
+import net.shibboleth.shared.component.InitializableComponent;
+
+/** {@link ParallelServiceInitializer} unit test. */
+@SuppressWarnings("javadoc")
+public class ParallelServiceInitializerTest {
+
+    private ParallelServiceInitializer initializer;
+
+    @BeforeMethod public void setUp() {
+        initializer = new ParallelServiceInitializer();
+        initializer.setEnabled(true);
+        initializer.setServiceNames(List.of("service1", "service2", "service3"));
+        initializer.setMaxThreads(2);
+    }
+
+    @Test public void testInitializedOnce() {
+        try (final GenericApplicationContext context = newContext()) {
+            registerService(context, "service1");
+            registerService(context, "service2");
+            registerService(context, "service3");
+            context.refresh();
+
+            for (final String name : List.of("service1", "service2", "service3")) {
+                final MockService service = context.getBean(name, MockService.class);
+                Assert.assertEquals(service.initCount.get(), 1, name);
+                Assert.assertEquals(service.initThread, "idp-service-init", name);
+                Assert.assertEquals(context.getBeanDefinition(name).getInitMethodName(), "", name);
+            }
+        }
+    }
+
+    @Test public void testDisabled() {
+        initializer.setEnabled(false);
+
+        try (final GenericApplicationContext context = newContext()) {
+            registerService(context, "service1");
+            context.refresh();
+
+            final MockService service = context.getBean("service1", MockService.class);
+            Assert.assertEquals(service.initCount.get(), 1);
+            Assert.assertEquals(service.initThread, Thread.currentThread().getName());
+        }
+    }
+
+    @Test public void testIneligible() {
+        try (final GenericApplicationContext context = newContext()) {
+            registerService(context, "service1");
+            context.registerBean("service2", MockService.class, bd -> {
+                bd.setInitMethodName("initialize");
+                bd.setLazyInit(true);
+            });
+            context.registerBean("service3", MockService.class);
+            context.refresh();
+
+            Assert.assertEquals(context.getBean("service1", MockService.class).initCount.get(), 1);
+            Assert.assertEquals(context.getBean("service2", MockService.class).initCount.get(), 1);
+            Assert.assertEquals(context.getBean("service2", MockService.class).initThread,
+                    Thread.currentThread().getName());
+            Assert.assertEquals(context.getBean("service3", MockService.class).initCount.get(), 0);
+        }
+    }
+
+    @Test public void testDependencies() {
+        try (final GenericApplicationContext context = newContext()) {
+            // Slow enough that the dependent service would overtake it if not made to wait.
+            final MockService first = new MockService() {
+                @Override
+                public void initialize() throws ComponentInitializationException {
+                    try {
+                        Thread.sleep(100);
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    super.initialize();
+                }
+            };
+            context.registerBean("service1", MockService.class, () -> first,
+                    bd -> bd.setInitMethodName("initialize"));
+            context.registerBean("service2", MockService.class, () -> new MockService(first), bd -> {
+                bd.setInitMethodName("initialize");
+                bd.setDependsOn("service1");
+            });
+            context.refresh();
+
+            final MockService second = context.getBean("service2", MockService.class);
+            Assert.assertEquals(second.initCount.get(), 1);
+            Assert.assertTrue(second.dependencyInitialized);
+        }
+    }
+
+    @Test public void testFailure() {
+        try (final GenericApplicationContext context = newContext()) {
+            registerService(context, "service1");
+            context.registerBean("service2", MockService.class, FailingService::new,
+                    bd -> bd.setInitMethodName("initialize"));
+            context.refresh();
+            Assert.fail("Refresh should have failed");
+        } catch (final BeanInitializationException e) {
+            Assert.assertTrue(e.getCause() instanceof ComponentInitializationException);
+        }
+    }
+
+    @Test public void testCircularDependency() {
+        try (final GenericApplicationContext context = newContext()) {
+            context.registerBean("service1", LinkedService.class, bd -> {
+                bd.setInitMethodName("initialize");
+                bd.getPropertyValues().add("peer", new RuntimeBeanReference("service2"));
+            });
+            context.registerBean("service2", LinkedService.class, bd -> {
+                bd.setInitMethodName("initialize");
+                bd.getPropertyValues().add("peer", new RuntimeBeanReference("service1"));
+            });
+            context.refresh();
+            Assert.fail("Refresh should have failed");
+        } catch (final BeanInitializationException e) {
+            final String message = e.getMessage();
+            assert message != null;
+            Assert.assertTrue(message.contains("service1 -> service2 -> service1"), message);
+        }
+    }
+
+    /**
+     * Create a context containing the initializer.
+     *
+     * @return the context, not yet refreshed
+     */
+    @Nonnull private GenericApplicationContext newContext() {
+        final GenericApplicationContext context = new GenericApplicationContext();
+        context.registerBean("initializer", ParallelServiceInitializer.class, () -> initializer);
+        return context;
+    }
+
+    /**
+     * Register an eligible service.
+     *
+     * @param context context to register in
+     * @param name bean name
+     */
+    private void registerService(@Nonnull final GenericApplicationContext context, @Nonnull final String name) {
+        context.registerBean(name, MockService.class, bd -> bd.setInitMethodName("initialize"));
+    }
+
+    /** Component that counts its initializations. */
+    public static class MockService implements InitializableComponent {
+
+        /** Number of times initialized. */
+        @Nonnull private final AtomicInteger initCount;
+
+        /** Service that must be initialized first. */
+        @Nullable private final MockService dependency;
+
+        /** Name of the thread that last initialized the service. */
+        @Nullable private volatile String initThread;
+
+        /** Whether the dependency was initialized when this service was. */
+        private volatile boolean dependencyInitialized;
+
+        /** Constructor. */
+        public MockService() {
+            this(null);
+        }
+
+        /**
+         * Constructor.
+         *
+         * @param service service that must be initialized first
+         */
+        public MockService(@Nullable final MockService service) {
+            initCount = new AtomicInteger();
+            dependency = service;
+        }
+
+        /** {@inheritDoc} */
+        public boolean isInitialized() {
+            return initCount.get() > 0;
+        }
+
+        /** {@inheritDoc} */
+        public void initialize() throws ComponentInitializationException {
+            initThread = Thread.currentThread().getName();
+            final MockService theDependency = dependency;
+            dependencyInitialized = theDependency != null && theDependency.isInitialized();
+            initCount.incrementAndGet();
+        }
+    }
+
+    /** Component that refers to another. */
+    public static class LinkedService extends MockService {
+
+        /**
+         * Set the component this one refers to.
+         *
+         * @param service the other component
+         */
+        public void setPeer(@Nullable final MockService service) {
+        }
+    }
+
+    /** Component that fails to initialize. */
+    public static class FailingService extends MockService {
+
+        /** {@inheritDoc} */
+        @Override
+        public void initialize() throws ComponentInitializationException {
+            throw new ComponentInitializationException("Failed");
+        }
+    }
+
+}
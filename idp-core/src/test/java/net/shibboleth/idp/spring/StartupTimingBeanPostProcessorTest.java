@@ -0,0 +1,201 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.shibboleth.idp.spring;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.springframework.context.support.GenericApplicationContext;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import net.shibboleth.shared.service.ReloadableService;
+import net.shibboleth.shared.service.ServiceableComponent;
+
+/** {@link StartupTimingBeanPostProcessor} unit test. */
+@SuppressWarnings("javadoc")
+public class StartupTimingBeanPostProcessorTest {
+
+    /** Time each slow bean takes to instantiate or initialize. */
+    private static final long DELAY = 50;
+
+    private StartupTimingRecorder recorder;
+
+    @BeforeMethod public void setUp() {
+        recorder = new StartupTimingRecorder();
+        recorder.setSlowBeanThreshold(Duration.ofMillis(DELAY / 2));
+    }
+
+    @Test public void testSlowBeans() {
+        try (final GenericApplicationContext context = newContext(recorder, true)) {
+            context.registerBean("fast", Object.class);
+            context.registerBean("slowInstantiation", SlowConstructor.class);
+            context.registerBean("slowInitialization", SlowInitializer.class,
+                    bd -> bd.setInitMethodName("initialize"));
+            context.refresh();
+        }
+
+        final Map<String,Long> beans = recorder.getSlowBeans();
+        Assert.assertEquals(beans.keySet(), Set.of("slowInstantiation", "slowInitialization"));
+        Assert.assertTrue(beans.get("slowInstantiation") >= DELAY);
+        Assert.assertTrue(beans.get("slowInitialization") >= DELAY);
+    }
+
+    @Test public void testServiceScope() {
+        try (final GenericApplicationContext context = newContext(recorder, true)) {
+            context.registerBean("shibboleth.TestService", MockService.class, () -> new MockService(recorder),
+                    bd -> bd.setInitMethodName("initialize"));
+            context.registerBean("slowInitialization", SlowInitializer.class,
+                    bd -> bd.setInitMethodName("initialize"));
+            context.refresh();
+        }
+
+        // Beans in the service's own context are reported under the service, which itself includes their time.
+        final Map<String,Long> beans = recorder.getSlowBeans();
+        Assert.assertTrue(beans.get("shibboleth.TestService/slowInitialization") >= DELAY);
+        Assert.assertTrue(beans.get("shibboleth.TestService") >= DELAY);
+        Assert.assertTrue(beans.get("slowInitialization") >= DELAY);
+        Assert.assertEquals(beans.size(), 3);
+        Assert.assertNull(recorder.getCurrentScope());
+    }
+
+    @Test public void testAfterComplete() {
+        recorder.complete("root", Duration.ZERO);
+
+        try (final GenericApplicationContext context = newContext(recorder, true)) {
+            context.registerBean("slowInitialization", SlowInitializer.class,
+                    bd -> bd.setInitMethodName("initialize"));
+            context.refresh();
+        }
+
+        Assert.assertTrue(recorder.getSlowBeans().isEmpty());
+    }
+
+    @Test public void testNoRecorder() {
+        try (final GenericApplicationContext context = newContext(null, true)) {
+            context.registerBean("slowInitialization", SlowInitializer.class,
+                    bd -> bd.setInitMethodName("initialize"));
+            context.refresh();
+            Assert.assertTrue(context.getBean("slowInitialization") instanceof SlowInitializer);
+        }
+    }
+
+    /**
+     * Create a context that times its beans.
+     *
+     * @param timingRecorder recorder to supply
+     * @param root whether this is the root context
+     *
+     * @return the context, not yet refreshed
+     */
+    @Nonnull private static GenericApplicationContext newContext(@Nullable final StartupTimingRecorder timingRecorder,
+            final boolean root) {
+        final GenericApplicationContext context = new GenericApplicationContext();
+        context.getBeanFactory().addBeanPostProcessor(new StartupTimingBeanPostProcessor(timingRecorder, root));
+        return context;
+    }
+
+    /** Pause the current thread. */
+    private static void pause() {
+        try {
+            Thread.sleep(DELAY);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Bean that is slow to construct. */
+    public static class SlowConstructor {
+
+        /** Constructor. */
+        public SlowConstructor() {
+            pause();
+        }
+    }
+
+    /** Bean that is slow to initialize. */
+    public static class SlowInitializer {
+
+        /** Initialize the bean. */
+        public void initialize() {
+            pause();
+        }
+    }
+
+    /** Service that builds its own context when initialized. */
+    public static class MockService implements ReloadableService<Object> {
+
+        /** Recorder for the service's context. */
+        @Nonnull private final StartupTimingRecorder timingRecorder;
+
+        /** Whether the service is initialized. */
+        private boolean initialized;
+
+        /**
+         * Constructor.
+         *
+         * @param recorder recorder for the service's context
+         */
+        public MockService(@Nonnull final StartupTimingRecorder recorder) {
+            timingRecorder = recorder;
+        }
+
+        /** {@inheritDoc} */
+        public boolean isInitialized() {
+            return initialized;
+        }
+
+        /** {@inheritDoc} */
+        public void initialize() {
+            try (final GenericApplicationContext context = newContext(timingRecorder, false)) {
+                context.registerBean("slowInitialization", SlowInitializer.class,
+                        bd -> bd.setInitMethodName("initialize"));
+                context.refresh();
+            }
+            initialized = true;
+        }
+
+        /** {@inheritDoc} */
+        public Instant getLastSuccessfulReloadInstant() {
+            return null;
+        }
+
+        /** {@inheritDoc} */
+        public Instant getLastReloadAttemptInstant() {
+            return null;
+        }
+
+        /** {@inheritDoc} */
+        public Throwable getReloadFailureCause() {
+            return null;
+        }
+
+        /** {@inheritDoc} */
+        public void reload() {
+        }
+
+        /** {@inheritDoc} */
+        @Nonnull public ServiceableComponent<Object> getServiceableComponent() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.shibboleth.idp.spring;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import net.shibboleth.shared.logic.ConstraintViolationException;
+
+/** {@link StartupTimingRecorder} unit test. */
+@SuppressWarnings("javadoc")
+public class StartupTimingRecorderTest {
+
+    private StartupTimingRecorder recorder;
+
+    @BeforeMethod public void setUp() {
+        recorder = new StartupTimingRecorder();
+        recorder.setSlowBeanThreshold(Duration.ofMillis(10));
+    }
+
+    @Test(expectedExceptions = ConstraintViolationException.class) public void testNegativeThreshold() {
+        recorder.setSlowBeanThreshold(Duration.ofMillis(-1));
+    }
+
+    @Test public void testSlowBeans() {
+        recorder.recordBean(null, "fast", millis(2), millis(3));
+        recorder.recordBean(null, "slowInstantiation", millis(20), 0);
+        recorder.recordBean(null, "slowInitialization", millis(1), millis(40));
+        recorder.recordBean("shibboleth.AttributeResolverService", "connector", millis(5), millis(25));
+
+        final Map<String,Long> beans = recorder.getSlowBeans();
+        Assert.assertEquals(List.copyOf(beans.keySet()),
+                List.of("slowInitialization", "shibboleth.AttributeResolverService/connector", "slowInstantiation"));
+        Assert.assertEquals(beans.get("slowInitialization"), Long.valueOf(41));
+        Assert.assertEquals(beans.get("shibboleth.AttributeResolverService/connector"), Long.valueOf(30));
+        Assert.assertEquals(beans.get("slowInstantiation"), Long.valueOf(20));
+    }
+
+    @Test public void testRepeatedBean() {
+        recorder.recordBean(null, "prototype", millis(10), millis(5));
+        recorder.recordBean(null, "prototype", millis(10), millis(5));
+
+        Assert.assertEquals(recorder.getSlowBeans(), Map.of("prototype", Long.valueOf(30)));
+    }
+
+    @Test public void testContexts() {
+        recorder.recordContext("service", Duration.ofMillis(100));
+        recorder.recordContext("service", Duration.ofMillis(50));
+        recorder.recordContext("other", Duration.ofMillis(200));
+        Assert.assertFalse(recorder.isComplete());
+
+        recorder.complete("root", Duration.ofMillis(500));
+        Assert.assertTrue(recorder.isComplete());
+
+        final Map<String,Long> contexts = recorder.getContextTimes();
+        Assert.assertEquals(List.copyOf(contexts.keySet()), List.of("root", "other", "service"));
+        Assert.assertEquals(contexts.get("root"), Long.valueOf(500));
+        Assert.assertEquals(contexts.get("other"), Long.valueOf(200));
+        Assert.assertEquals(contexts.get("service"), Long.valueOf(150));
+    }
+
+    @Test public void testNothingAfterComplete() {
+        recorder.complete("root", Duration.ofMillis(500));
+
+        recorder.recordContext("reload", Duration.ofMillis(100));
+        recorder.recordBean(null, "slow", millis(50), millis(50));
+
+        Assert.assertEquals(recorder.getContextTimes(), Map.of("root", Long.valueOf(500)));
+        Assert.assertTrue(recorder.getSlowBeans().isEmpty());
+    }
+
+    @Test public void testScopes() {
+        Assert.assertNull(recorder.getCurrentScope());
+
+        final String outer = recorder.enterScope("outer");
+        Assert.assertNull(outer);
+        final String inner = recorder.enterScope("inner");
+        Assert.assertEquals(inner, "outer");
+        Assert.assertEquals(recorder.getCurrentScope(), "inner");
+
+        recorder.exitScope(inner);
+        Assert.assertEquals(recorder.getCurrentScope(), "outer");
+        recorder.exitScope(outer);
+        Assert.assertNull(recorder.getCurrentScope());
+    }
+
+    private static long millis(final long millis) {
+        return Duration.ofMillis(millis).toNanos();
+    }
+
+}
@@ -0,0 +1,136 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.shibboleth.idp.installer.impl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+import javax.annotation.Nonnull;
+
+import org.slf4j.Logger;
+
+import net.shibboleth.shared.annotation.constraint.NotEmpty;
+import net.shibboleth.shared.logic.Constraint;
+import net.shibboleth.shared.primitive.LoggerFactory;
+
+/**
+ * Adds a flow index to each jar in a directory that contains web flow definitions, so that the IdP can
+ * locate them at startup without scanning the jar.
+ *
+ * <p>The index is written to {@value #FLOWS_DIR}/{@value #INDEX_FILENAME} and maps each flow ID to the
+ * path of its definition relative to that directory, deriving the IDs in the same way as the runtime
+ * scan. Jars that already contain an index, or contain no flows, are left alone. Failure to index a jar
+ * is not fatal, as the IdP falls back to scanning it.</p>
+ *
+ * @since 5.2.0
+ */
+public final class BuildFlowIndex {
+
+    /** Directory within a jar that contains flow definitions. */
+    @Nonnull @NotEmpty public static final String FLOWS_DIR = "/META-INF/net/shibboleth/idp/flows";
+
+    /** Name of the index file, which must match the one read by the IdP. */
+    @Nonnull @NotEmpty public static final String INDEX_FILENAME = "flow-index.properties";
+
+    /** Suffix of flow definition files. */
+    @Nonnull @NotEmpty private static final String FLOW_SUFFIX = "-flow.xml";
+
+    /** Log. */
+    @Nonnull private final Logger log = LoggerFactory.getLogger(BuildFlowIndex.class);
+
+    /** Directory of jars to index. */
+    @Nonnull private final Path libDir;
+
+    /** Constructor.
+     * @param dir directory containing the jars to index
+     */
+    public BuildFlowIndex(@Nonnull final Path dir) {
+        libDir = Constraint.isNotNull(dir, "Library directory should not be null");
+    }
+
+    /** Index every jar in the directory. */
+    public void execute() {
+        if (!Files.isDirectory(libDir)) {
+            log.debug("{} does not exist, no flows to index", libDir);
+            return;
+        }
+
+        try (final DirectoryStream<Path> jars = Files.newDirectoryStream(libDir, "*.jar")) {
+            for (final Path jar : jars) {
+                assert jar != null;
+                indexJar(jar);
+            }
+        } catch (final IOException e) {
+            log.warn("Unable to list {}, flows will be located by scanning", libDir, e);
+        }
+    }
+
+    /** Add an index to a single jar, if needed.
+     * @param jar the jar to index
+     */
+    private void indexJar(@Nonnull final Path jar) {
+        try (final FileSystem fs = FileSystems.newFileSystem(jar)) {
+            final Path flowsDir = fs.getPath(FLOWS_DIR);
+            if (!Files.isDirectory(flowsDir) || Files.exists(flowsDir.resolve(INDEX_FILENAME))) {
+                return;
+            }
+
+            final Properties index = new Properties();
+            try (final Stream<Path> files = Files.walk(flowsDir)) {
+                files.filter(p -> p.getFileName() != null && p.getFileName().toString().endsWith(FLOW_SUFFIX))
+                    .forEach(p -> {
+                        final Path relative = flowsDir.relativize(p);
+                        index.setProperty(getFlowId(relative), relative.toString().replace('\\', '/'));
+                    });
+            }
+
+            if (index.isEmpty()) {
+                return;
+            }
+
+            try (final OutputStream os = Files.newOutputStream(flowsDir.resolve(INDEX_FILENAME))) {
+                index.store(os, "Generated flow index");
+            }
+            log.debug("Indexed {} flow(s) in {}", index.size(), jar.getFileName());
+        } catch (final IOException | RuntimeException e) {
+            log.warn("Unable to index flows in {}, they will be located by scanning", jar, e);
+        }
+    }
+
+    /** Derive a flow ID from the location of its definition.
+     *
+     * <p>The ID is the directory path containing the definition or, for a definition at the top level,
+     * its filename without the extension.</p>
+     *
+     * @param relative path of the definition relative to {@link #FLOWS_DIR}
+     * @return the flow ID
+     */
+    @Nonnull @NotEmpty private String getFlowId(@Nonnull final Path relative) {
+        final Path parent = relative.getParent();
+        if (parent != null) {
+            return parent.toString().replace('\\', '/');
+        }
+        final String name = relative.getFileName().toString();
+        return name.substring(0, name.lastIndexOf('.'));
+    }
+
+}
@@ -38,6 +38,7 @@ import net.shibboleth.shared.primitive.LoggerFactory;
  * <li>Deletes any old detritus</li>
  * <li>Creates a directory called webapp.tmp and populates it from the dist folder</li>
  * <li>Overwrites this from edit-webapp</li>
+ * <li>Adds a flow index to any jars containing flows</li>
  * <li>Deletes the old idp.war</li>
  * <li>Builds a jar file called idp.war</li>
  * <li>Deletes webapp.tmp</li>
@@ -104,6 +105,11 @@ public final class BuildWar {
         overlayWebapp(pluginWebapp, webAppTmp);
         overlayWebapp(editWebapp, webAppTmp);
 
+        final Path webAppLib = webAppTmp.resolve("WEB-INF").resolve("lib");
+        assert webAppLib != null;
+        log.info("Indexing flows in {}", webAppLib);
+        new BuildFlowIndex(webAppLib).execute();
+
         final File warFileFile = warFile.toFile();
         if (warFileFile.exists() && !warFile.toFile().delete()) {
             log.warn("Could not delete old war file: {}", warFile);
@@ -29,6 +29,8 @@ import org.opensaml.profile.context.EventContext;
 import org.opensaml.profile.context.ProfileRequestContext;
 import org.slf4j.Logger;
 import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactoryUtils;
+import org.springframework.beans.factory.BeanNameAware;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.MessageSource;
 import org.springframework.context.MessageSourceAware;
@@ -36,12 +38,15 @@ import org.springframework.context.MessageSourceResolvable;
 import org.springframework.context.NoSuchMessageException;
 import org.springframework.webflow.core.collection.AttributeMap;
 import org.springframework.webflow.core.collection.MutableAttributeMap;
+import org.springframework.webflow.definition.StateDefinition;
 import org.springframework.webflow.execution.Action;
 import org.springframework.webflow.execution.Event;
 import org.springframework.webflow.execution.RequestContext;
 
 import net.shibboleth.idp.profile.context.SpringRequestContext;
 import net.shibboleth.idp.profile.context.navigate.WebflowRequestContextProfileRequestContextLookup;
+import net.shibboleth.idp.profile.jfr.AbstractProfileRequestEvent;
+import net.shibboleth.idp.profile.jfr.ProfileActionEvent;
 import net.shibboleth.shared.annotation.constraint.NotEmpty;
 import net.shibboleth.shared.logic.Constraint;
 import net.shibboleth.shared.primitive.LoggerFactory;
@@ -55,6 +60,8 @@ import net.shibboleth.shared.primitive.LoggerFactory;
  * <li>populating the SWF {@link RequestContext} into the profile context tree</li>
  * <li>starting or stopping any timers as instructed by a
  *     {@link org.opensaml.profile.context.MetricContext} in the tree</li>
+ * <li>recording execution latency when enabled via {@link FlowLatencyMetrics}</li>
+ * <li>emitting a {@link ProfileActionEvent} to the JDK Flight Recorder when enabled</li>
  * </ul>
  * 
  * <p>Action implementations may override {@link #doExecute(RequestContext, ProfileRequestContext)}
@@ -63,7 +70,7 @@ import net.shibboleth.shared.primitive.LoggerFactory;
  */
 @ThreadSafe
 public abstract class AbstractProfileAction extends AbstractConditionalProfileAction
-        implements Action, MessageSource, MessageSourceAware {
+        implements Action, MessageSource, MessageSourceAware, BeanNameAware {
 
     /** Class logger. */
     @Nonnull private final Logger log = LoggerFactory.getLogger(AbstractProfileAction.class);
@@ -74,6 +81,9 @@ public abstract class AbstractProfileAction extends AbstractConditionalProfileAc
     /** MessageSource injected by Spring, typically the parent ApplicationContext itself. */
     @Nullable private MessageSource messageSource;
     
+    /** Name of the bean defining this action, if any. */
+    @Nullable private String beanName;
+    
     /**
      * Constructor.
      * 
@@ -106,6 +116,20 @@ public abstract class AbstractProfileAction extends AbstractConditionalProfileAc
                 Constraint.isNotNull(strategy, "ProfileRequestContext lookup strategy cannot be null");
     }
 
+    /**
+     * {@inheritDoc}
+     * 
+     * <p>The bean name identifies this action in latency metrics.</p>
+     * 
+     * @since 5.2.0
+     */
+    @Override
+    public void setBeanName(@Nonnull @NotEmpty final String name) {
+        checkSetterPreconditions();
+        
+        beanName = name;
+    }
+
     /** {@inheritDoc} */
     @Override
     @Nullable public Event execute(@Nullable final RequestContext springRequestContext) {
@@ -124,7 +148,83 @@ public abstract class AbstractProfileAction extends AbstractConditionalProfileAc
             return ActionSupport.buildEvent(this, EventIds.INVALID_PROFILE_CTX);
         }
 
-        return doExecute(springRequestContext, profileRequestContext);
+        final boolean timed = FlowLatencyMetrics.isEnabled();
+        final ProfileActionEvent event = new ProfileActionEvent();
+        final boolean recorded = event.isEnabled();
+        if (!timed && !recorded) {
+            return doExecute(springRequestContext, profileRequestContext);
+        }
+
+        final ProfileRequestContext previous =
+                recorded ? AbstractProfileRequestEvent.bindProfileRequestContext(profileRequestContext) : null;
+        final long start = System.nanoTime();
+        event.begin();
+        Event result = null;
+        try {
+            result = doExecute(springRequestContext, profileRequestContext);
+            return result;
+        } finally {
+            event.end();
+            if (timed) {
+                FlowLatencyMetrics.recordAction(springRequestContext, profileRequestContext,
+                        getLatencyMetricId(springRequestContext), System.nanoTime() - start);
+            }
+            if (recorded) {
+                AbstractProfileRequestEvent.restoreProfileRequestContext(previous);
+                if (event.shouldCommit()) {
+                    commitEvent(event, springRequestContext, profileRequestContext, result);
+                }
+            }
+        }
+    }
+
+    /**
+     * Populate and commit a Flight Recorder event for an execution of this action.
+     *
+     * @param event event to commit
+     * @param springRequestContext current Web Flow request context
+     * @param profileRequestContext current profile request context
+     * @param result result of execution, or null if none
+     */
+    private void commitEvent(@Nonnull final ProfileActionEvent event,
+            @Nonnull final RequestContext springRequestContext,
+            @Nonnull final ProfileRequestContext profileRequestContext, @Nullable final Event result) {
+        event.setAction(getLatencyMetricId(springRequestContext));
+        if (springRequestContext.getFlowExecutionContext().isActive()) {
+            event.setFlow(springRequestContext.getActiveFlow().getId());
+        }
+        event.setProfileRequestContext(profileRequestContext);
+        event.setOutcome(result != null ? result.getId() : AbstractProfileRequestEvent.OUTCOME_FAILURE);
+        event.commit();
+    }
+
+    /**
+     * Get the identifier under which this action's execution latency is recorded.
+     * 
+     * <p>Defaults to the name of the bean defining this action. Actions defined as inner beans, or outside
+     * Spring, are identified by the ID of the current state, or failing that the class name.</p>
+     * 
+     * @param springRequestContext current Web Flow request context
+     * 
+     * @return identifier for latency metrics
+     * 
+     * @since 5.2.0
+     */
+    @Nonnull @NotEmpty protected String getLatencyMetricId(@Nonnull final RequestContext springRequestContext) {
+        if (beanName != null && !beanName.contains(BeanFactoryUtils.GENERATED_BEAN_NAME_SEPARATOR)) {
+            return beanName;
+        }
+        
+        if (springRequestContext.getFlowExecutionContext().isActive()) {
+            final StateDefinition state = springRequestContext.getCurrentState();
+            if (state != null && state.getId() != null) {
+                return state.getId();
+            }
+        }
+        
+        final String name = getClass().getName();
+        assert name != null;
+        return name;
     }
 
     /**
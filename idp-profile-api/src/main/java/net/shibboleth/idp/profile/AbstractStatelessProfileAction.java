@@ -0,0 +1,73 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.shibboleth.idp.profile;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.opensaml.profile.context.ProfileRequestContext;
+
+/**
+ * Base class for profile actions whose configuration is immutable after initialization and which keep
+ * no per-request state in fields, allowing a single instance to be shared by concurrent requests.
+ *
+ * <p>Lookups that a stateful action would perform in {@link #doPreExecute(ProfileRequestContext)} and save
+ * in fields are instead performed by {@link #newState(ProfileRequestContext)}, and the resulting object of
+ * type {@code <T>} is passed to {@link #doExecute(ProfileRequestContext, Object)}. Checks that depend only
+ * on configuration may still be made by overriding {@link #doPreExecute(ProfileRequestContext)}.</p>
+ *
+ * <p>Beans of this type need not be scoped as prototypes. Flows promote prototype beans of a fixed set of
+ * the IdP's own action classes to singletons, but not beans of subclasses, which may add per-request
+ * state.</p>
+ *
+ * @param <T> type of per-request state
+ *
+ * @since 5.2.0
+ */
+@ThreadSafe
+public abstract class AbstractStatelessProfileAction<T> extends AbstractProfileAction {
+
+    /** {@inheritDoc} */
+    @Override
+    protected void doExecute(@Nonnull final ProfileRequestContext profileRequestContext) {
+        final T state = newState(profileRequestContext);
+        if (state != null) {
+            doExecute(profileRequestContext, state);
+        }
+    }
+
+    /**
+     * Create the object used to hold state for a single execution of this action.
+     *
+     * <p>A null return ends execution, and an implementation doing so should signal an appropriate
+     * event.</p>
+     *
+     * @param profileRequestContext the current profile request context
+     *
+     * @return a new state object, or null
+     */
+    @Nullable protected abstract T newState(@Nonnull final ProfileRequestContext profileRequestContext);
+
+    /**
+     * Performs this action.
+     *
+     * @param profileRequestContext the current profile request context
+     * @param state state for this execution
+     */
+    protected abstract void doExecute(@Nonnull final ProfileRequestContext profileRequestContext,
+            @Nonnull final T state);
+
+}
@@ -0,0 +1,146 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.shibboleth.idp.profile;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.opensaml.core.metrics.MetricsSupport;
+import org.opensaml.profile.context.ProfileRequestContext;
+import org.slf4j.Logger;
+import org.springframework.webflow.execution.RequestContext;
+
+import com.codahale.metrics.MetricRegistry;
+
+import net.shibboleth.shared.annotation.constraint.NotEmpty;
+import net.shibboleth.shared.primitive.LoggerFactory;
+
+/**
+ * Support for automatic latency timers covering profile action executions and Web Flow states.
+ *
+ * <p>Timers are named {@link #ACTION_METRIC_NAME} or {@link #STATE_METRIC_NAME} followed by the profile ID,
+ * flow ID, and action or state ID, and are recorded into the registry returned by
+ * {@link MetricsSupport#getMetricRegistry()}.</p>
+ *
+ * <p>Collection is off by default. It is enabled by {@link #setEnabled(boolean)}, normally driven by the
+ * {@link #ENABLED_PROPERTY} property, or at runtime by setting the logging category {@link #LOGGING_CATEGORY}
+ * to DEBUG. When off, the cost is a flag and level check per action or state.</p>
+ *
+ * @since 5.2.0
+ */
+public final class FlowLatencyMetrics {
+
+    /** Common prefix of metric names. */
+    @Nonnull @NotEmpty public static final String METRIC_NAME = "net.shibboleth.idp.profiles.latency";
+
+    /** Prefix of per-action metric names. */
+    @Nonnull @NotEmpty public static final String ACTION_METRIC_NAME = METRIC_NAME + ".action";
+
+    /** Prefix of per-state metric names. */
+    @Nonnull @NotEmpty public static final String STATE_METRIC_NAME = METRIC_NAME + ".state";
+
+    /** Property that enables collection. */
+    @Nonnull @NotEmpty public static final String ENABLED_PROPERTY = "idp.metrics.latency.enabled";
+
+    /** Logging category that enables collection. */
+    @Nonnull @NotEmpty public static final String LOGGING_CATEGORY = "metrics." + METRIC_NAME;
+
+    /** Placeholder for missing name components. */
+    @Nonnull @NotEmpty private static final String UNKNOWN = "unknown";
+
+    /** Logger used as a switch. */
+    @Nonnull private static final Logger SWITCH = LoggerFactory.getLogger(LOGGING_CATEGORY);
+
+    /** Whether collection has been enabled explicitly. */
+    private static volatile boolean enabled;
+
+    /** Constructor. */
+    private FlowLatencyMetrics() {
+    }
+
+    /**
+     * Get whether collection is enabled.
+     *
+     * @return true iff collection is enabled
+     */
+    public static boolean isEnabled() {
+        return enabled || SWITCH.isDebugEnabled();
+    }
+
+    /**
+     * Set whether collection is enabled, regardless of the logging configuration.
+     *
+     * @param flag flag to set
+     */
+    public static void setEnabled(final boolean flag) {
+        enabled = flag;
+    }
+
+    /**
+     * Record the latency of an action execution.
+     *
+     * @param springRequestContext current Web Flow request context
+     * @param profileRequestContext current profile request context, if any
+     * @param actionId identifier of the action
+     * @param nanos elapsed time in nanoseconds
+     */
+    public static void recordAction(@Nonnull final RequestContext springRequestContext,
+            @Nullable final ProfileRequestContext profileRequestContext, @Nonnull @NotEmpty final String actionId,
+            final long nanos) {
+        String flowId = UNKNOWN;
+        if (springRequestContext.getFlowExecutionContext().isActive()) {
+            flowId = springRequestContext.getActiveFlow().getId();
+        }
+        record(ACTION_METRIC_NAME, profileRequestContext, flowId, actionId, nanos);
+    }
+
+    /**
+     * Record the time spent in a flow state.
+     *
+     * @param profileRequestContext current profile request context, if any
+     * @param flowId ID of flow owning the state
+     * @param stateId ID of the state
+     * @param nanos elapsed time in nanoseconds
+     */
+    public static void recordState(@Nullable final ProfileRequestContext profileRequestContext,
+            @Nullable final String flowId, @Nonnull @NotEmpty final String stateId, final long nanos) {
+        record(STATE_METRIC_NAME, profileRequestContext, flowId, stateId, nanos);
+    }
+
+    /**
+     * Record a timing into the metric registry, if one is installed.
+     *
+     * @param prefix metric name prefix
+     * @param profileRequestContext current profile request context, if any
+     * @param flowId flow ID
+     * @param id action or state ID
+     * @param nanos elapsed time in nanoseconds
+     */
+    private static void record(@Nonnull @NotEmpty final String prefix,
+            @Nullable final ProfileRequestContext profileRequestContext, @Nullable final String flowId,
+            @Nonnull @NotEmpty final String id, final long nanos) {
+        final MetricRegistry registry = MetricsSupport.getMetricRegistry();
+        if (registry == null) {
+            return;
+        }
+
+        final String profileId = profileRequestContext != null ? profileRequestContext.getProfileId() : null;
+        registry.timer(MetricRegistry.name(prefix, profileId != null ? profileId : UNKNOWN,
+                flowId != null ? flowId : UNKNOWN, id)).update(nanos, TimeUnit.NANOSECONDS);
+    }
+
+}
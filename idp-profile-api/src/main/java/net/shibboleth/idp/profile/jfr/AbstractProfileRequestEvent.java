@@ -0,0 +1,160 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.shibboleth.idp.profile.jfr;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+import org.opensaml.profile.action.EventIds;
+import org.opensaml.profile.context.EventContext;
+import org.opensaml.profile.context.ProfileRequestContext;
+
+import net.shibboleth.profile.context.RelyingPartyContext;
+import net.shibboleth.shared.annotation.constraint.NotEmpty;
+
+/**
+ * Base class for Flight Recorder events that carry the profile ID, relying party and outcome of the
+ * request being processed.
+ *
+ * <p>Events raised by components that have no direct access to the {@link ProfileRequestContext}, such as
+ * the session manager, obtain it from the context bound to the executing thread by the enclosing profile
+ * action via {@link #bindProfileRequestContext(ProfileRequestContext)}. Binding takes place only while
+ * {@link ProfileActionEvent} is enabled.</p>
+ *
+ * @since 5.2.0
+ */
+@Category({"Shibboleth", "Identity Provider"})
+@StackTrace(false)
+public abstract class AbstractProfileRequestEvent extends Event {
+
+    /** Outcome of a successful operation. */
+    @Nonnull @NotEmpty public static final String OUTCOME_SUCCESS = "success";
+
+    /** Outcome of a failed operation. */
+    @Nonnull @NotEmpty public static final String OUTCOME_FAILURE = "failure";
+
+    /** Profile request being processed on the current thread. */
+    @Nonnull private static final ThreadLocal<ProfileRequestContext> CURRENT_REQUEST = new ThreadLocal<>();
+
+    /** Profile ID. */
+    @Label("Profile ID")
+    @Nullable private String profileId;
+
+    /** Relying party ID. */
+    @Label("Relying Party")
+    @Nullable private String relyingParty;
+
+    /** Outcome. */
+    @Label("Outcome")
+    @Nullable private String outcome;
+
+    /**
+     * Get the profile ID.
+     *
+     * @return profile ID
+     */
+    @Nullable public String getProfileId() {
+        return profileId;
+    }
+
+    /**
+     * Get the relying party ID.
+     *
+     * @return relying party ID
+     */
+    @Nullable public String getRelyingParty() {
+        return relyingParty;
+    }
+
+    /**
+     * Get the outcome.
+     *
+     * @return outcome
+     */
+    @Nullable public String getOutcome() {
+        return outcome;
+    }
+
+    /**
+     * Set the outcome.
+     *
+     * @param value outcome
+     */
+    public void setOutcome(@Nullable final String value) {
+        outcome = value;
+    }
+
+    /**
+     * Populate the profile ID and relying party from a profile request context, or from the context bound
+     * to the current thread if none is supplied.
+     *
+     * @param profileRequestContext profile request context, or null
+     */
+    public void setProfileRequestContext(@Nullable final ProfileRequestContext profileRequestContext) {
+        final ProfileRequestContext prc =
+                profileRequestContext != null ? profileRequestContext : CURRENT_REQUEST.get();
+        if (prc != null) {
+            profileId = prc.getProfileId();
+            final RelyingPartyContext rpCtx = prc.getSubcontext(RelyingPartyContext.class);
+            relyingParty = rpCtx != null ? rpCtx.getRelyingPartyId() : null;
+        }
+    }
+
+    /**
+     * Set the outcome to the event signaled in the profile request context, or
+     * {@link EventIds#PROCEED_EVENT_ID} if none.
+     *
+     * @param profileRequestContext profile request context
+     */
+    public void setOutcomeFromEventContext(@Nonnull final ProfileRequestContext profileRequestContext) {
+        final EventContext eventCtx = profileRequestContext.getSubcontext(EventContext.class);
+        final Object event = eventCtx != null ? eventCtx.getEvent() : null;
+        outcome = event != null ? event.toString() : EventIds.PROCEED_EVENT_ID;
+    }
+
+    /**
+     * Bind a profile request context to the current thread.
+     *
+     * @param profileRequestContext context to bind, or null to clear
+     *
+     * @return the previously bound context, to be passed to
+     *  {@link #restoreProfileRequestContext(ProfileRequestContext)}
+     */
+    @Nullable public static ProfileRequestContext bindProfileRequestContext(
+            @Nullable final ProfileRequestContext profileRequestContext) {
+        final ProfileRequestContext previous = CURRENT_REQUEST.get();
+        restoreProfileRequestContext(profileRequestContext);
+        return previous;
+    }
+
+    /**
+     * Restore the profile request context bound to the current thread.
+     *
+     * @param previous context returned by {@link #bindProfileRequestContext(ProfileRequestContext)}
+     */
+    public static void restoreProfileRequestContext(@Nullable final ProfileRequestContext previous) {
+        if (previous != null) {
+            CURRENT_REQUEST.set(previous);
+        } else {
+            CURRENT_REQUEST.remove();
+        }
+    }
+
+}
@@ -0,0 +1,120 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.shibboleth.idp.profile.jfr;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import org.opensaml.profile.context.ProfileRequestContext;
+
+import net.shibboleth.shared.annotation.constraint.NotEmpty;
+
+/**
+ * Flight Recorder event covering attribute resolution or filtering.
+ *
+ * <p>The outcome is the event signaled by the action, if any.</p>
+ *
+ * @since 5.2.0
+ */
+@Name("net.shibboleth.idp.AttributeProcessing")
+@Label("Attribute Processing")
+@Description("Attribute resolution or filtering for a profile request")
+public class AttributeProcessingEvent extends AbstractProfileRequestEvent {
+
+    /** Phase name for resolution. */
+    @Nonnull @NotEmpty public static final String PHASE_RESOLVE = "resolve";
+
+    /** Phase name for filtering. */
+    @Nonnull @NotEmpty public static final String PHASE_FILTER = "filter";
+
+    /** Processing phase. */
+    @Label("Phase")
+    @Nullable private String phase;
+
+    /** Number of attributes supplied. */
+    @Label("Input Attributes")
+    private int inputAttributes;
+
+    /** Number of attributes produced. */
+    @Label("Output Attributes")
+    private int outputAttributes;
+
+    /**
+     * Get the processing phase.
+     *
+     * @return processing phase
+     */
+    @Nullable public String getPhase() {
+        return phase;
+    }
+
+    /**
+     * Get the number of attributes supplied.
+     *
+     * @return number of input attributes
+     */
+    public int getInputAttributes() {
+        return inputAttributes;
+    }
+
+    /**
+     * Set the number of attributes supplied.
+     *
+     * @param count number of input attributes
+     */
+    public void setInputAttributes(final int count) {
+        inputAttributes = count;
+    }
+
+    /**
+     * Get the number of attributes produced.
+     *
+     * @return number of output attributes
+     */
+    public int getOutputAttributes() {
+        return outputAttributes;
+    }
+
+    /**
+     * Set the number of attributes produced.
+     *
+     * @param count number of output attributes
+     */
+    public void setOutputAttributes(final int count) {
+        outputAttributes = count;
+    }
+
+    /**
+     * Complete and commit the event if it is to be recorded.
+     *
+     * @param profileRequestContext profile request context
+     * @param processingPhase processing phase
+     */
+    public void complete(@Nonnull final ProfileRequestContext profileRequestContext,
+            @Nonnull @NotEmpty final String processingPhase) {
+        end();
+        if (shouldCommit()) {
+            phase = processingPhase;
+            setProfileRequestContext(profileRequestContext);
+            setOutcomeFromEventContext(profileRequestContext);
+            commit();
+        }
+    }
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.shibboleth.idp.profile.jfr;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import org.opensaml.profile.context.ProfileRequestContext;
+
+import net.shibboleth.shared.annotation.constraint.NotEmpty;
+
+/**
+ * Flight Recorder event covering the validation of a credential by an authentication flow.
+ *
+ * <p>The outcome is {@link #OUTCOME_SUCCESS} or {@link #OUTCOME_FAILURE}.</p>
+ *
+ * @since 5.2.0
+ */
+@Name("net.shibboleth.idp.CredentialValidation")
+@Label("Credential Validation")
+@Description("Validation of a credential during authentication")
+public class CredentialValidationEvent extends AbstractProfileRequestEvent {
+
+    /** Authentication flow ID. */
+    @Label("Authentication Flow")
+    @Nullable private String authenticationFlow;
+
+    /** Validating component. */
+    @Label("Validator")
+    @Nullable private String validator;
+
+    /**
+     * Get the authentication flow ID.
+     *
+     * @return authentication flow ID
+     */
+    @Nullable public String getAuthenticationFlow() {
+        return authenticationFlow;
+    }
+
+    /**
+     * Set the authentication flow ID.
+     *
+     * @param id authentication flow ID
+     */
+    public void setAuthenticationFlow(@Nullable final String id) {
+        authenticationFlow = id;
+    }
+
+    /**
+     * Get the validating component.
+     *
+     * @return validating component
+     */
+    @Nullable public String getValidator() {
+        return validator;
+    }
+
+    /**
+     * Set the validating component.
+     *
+     * @param name validating component
+     */
+    public void setValidator(@Nullable final String name) {
+        validator = name;
+    }
+
+    /**
+     * Complete and commit the event if it is to be recorded.
+     *
+     * @param profileRequestContext profile request context
+     * @param result outcome of the validation
+     */
+    public void complete(@Nonnull final ProfileRequestContext profileRequestContext,
+            @Nonnull @NotEmpty final String result) {
+        end();
+        if (shouldCommit()) {
+            setOutcome(result);
+            setProfileRequestContext(profileRequestContext);
+            commit();
+        }
+    }
+
+}
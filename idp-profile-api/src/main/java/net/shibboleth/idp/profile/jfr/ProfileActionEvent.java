@@ -0,0 +1,79 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.shibboleth.idp.profile.jfr;
+
+import javax.annotation.Nullable;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event covering the execution of a profile action.
+ *
+ * <p>The outcome is the ID of the Web Flow event returned by the action.</p>
+ *
+ * @since 5.2.0
+ */
+@Name("net.shibboleth.idp.ProfileAction")
+@Label("Profile Action")
+@Description("Execution of a profile action within a flow")
+public class ProfileActionEvent extends AbstractProfileRequestEvent {
+
+    /** Action identifier. */
+    @Label("Action")
+    @Nullable private String action;
+
+    /** Flow ID. */
+    @Label("Flow")
+    @Nullable private String flow;
+
+    /**
+     * Get the action identifier.
+     *
+     * @return action identifier
+     */
+    @Nullable public String getAction() {
+        return action;
+    }
+
+    /**
+     * Set the action identifier.
+     *
+     * @param id action identifier
+     */
+    public void setAction(@Nullable final String id) {
+        action = id;
+    }
+
+    /**
+     * Get the flow ID.
+     *
+     * @return flow ID
+     */
+    @Nullable public String getFlow() {
+        return flow;
+    }
+
+    /**
+     * Set the flow ID.
+     *
+     * @param id flow ID
+     */
+    public void setFlow(@Nullable final String id) {
+        flow = id;
+    }
+
+}
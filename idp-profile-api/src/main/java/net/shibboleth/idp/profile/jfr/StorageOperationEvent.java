@@ -0,0 +1,89 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.shibboleth.idp.profile.jfr;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import net.shibboleth.shared.annotation.constraint.NotEmpty;
+
+/**
+ * Flight Recorder event covering a storage operation performed on behalf of a profile request.
+ *
+ * <p>The profile ID and relying party are taken from the request bound to the executing thread, if any.</p>
+ *
+ * @since 5.2.0
+ */
+@Name("net.shibboleth.idp.StorageOperation")
+@Label("Storage Operation")
+@Description("Storage operation performed on behalf of a profile request")
+public class StorageOperationEvent extends AbstractProfileRequestEvent {
+
+    /** Outcome of a lookup that found nothing. */
+    @Nonnull @NotEmpty public static final String OUTCOME_NOT_FOUND = "notFound";
+
+    /** Outcome of an operation that must be retried due to a concurrent update. */
+    @Nonnull @NotEmpty public static final String OUTCOME_RETRY = "retry";
+
+    /** Operation name. */
+    @Label("Operation")
+    @Nullable private String operation;
+
+    /** ID of the storage service. */
+    @Label("Storage Service")
+    @Nullable private String storageService;
+
+    /**
+     * Get the operation name.
+     *
+     * @return operation name
+     */
+    @Nullable public String getOperation() {
+        return operation;
+    }
+
+    /**
+     * Get the ID of the storage service.
+     *
+     * @return storage service ID
+     */
+    @Nullable public String getStorageService() {
+        return storageService;
+    }
+
+    /**
+     * Complete and commit the event if it is to be recorded.
+     *
+     * @param op operation name
+     * @param storageServiceId ID of the storage service
+     * @param result outcome of the operation
+     */
+    public void complete(@Nonnull @NotEmpty final String op, @Nullable final String storageServiceId,
+            @Nonnull @NotEmpty final String result) {
+        end();
+        if (shouldCommit()) {
+            operation = op;
+            storageService = storageServiceId;
+            setOutcome(result);
+            setProfileRequestContext(null);
+            commit();
+        }
+    }
+
+}
@@ -0,0 +1,73 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.shibboleth.idp.profile.jfr;
+
+import org.opensaml.profile.action.EventIds;
+import org.opensaml.profile.context.EventContext;
+import org.opensaml.profile.context.ProfileRequestContext;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import net.shibboleth.profile.context.RelyingPartyContext;
+
+/** {@link AbstractProfileRequestEvent} unit test. */
+@SuppressWarnings("javadoc")
+public class AbstractProfileRequestEventTest {
+
+    private ProfileRequestContext prc;
+
+    @BeforeMethod public void setUp() {
+        prc = new ProfileRequestContext();
+        prc.setProfileId("http://example.org/profile");
+        prc.ensureSubcontext(RelyingPartyContext.class).setRelyingPartyId("https://sp.example.org");
+    }
+
+    @Test public void testExplicitContext() {
+        final ProfileActionEvent event = new ProfileActionEvent();
+        event.setProfileRequestContext(prc);
+        event.setOutcomeFromEventContext(prc);
+
+        Assert.assertEquals(event.getProfileId(), "http://example.org/profile");
+        Assert.assertEquals(event.getRelyingParty(), "https://sp.example.org");
+        Assert.assertEquals(event.getOutcome(), EventIds.PROCEED_EVENT_ID);
+
+        prc.ensureSubcontext(EventContext.class).setEvent(EventIds.IO_ERROR);
+        event.setOutcomeFromEventContext(prc);
+        Assert.assertEquals(event.getOutcome(), EventIds.IO_ERROR);
+    }
+
+    @Test public void testBoundContext() {
+        final StorageOperationEvent unbound = new StorageOperationEvent();
+        unbound.setProfileRequestContext(null);
+        Assert.assertNull(unbound.getProfileId());
+
+        final ProfileRequestContext previous = AbstractProfileRequestEvent.bindProfileRequestContext(prc);
+        try {
+            Assert.assertNull(previous);
+            final StorageOperationEvent bound = new StorageOperationEvent();
+            bound.setProfileRequestContext(null);
+            Assert.assertEquals(bound.getProfileId(), "http://example.org/profile");
+            Assert.assertEquals(bound.getRelyingParty(), "https://sp.example.org");
+        } finally {
+            AbstractProfileRequestEvent.restoreProfileRequestContext(previous);
+        }
+
+        final StorageOperationEvent restored = new StorageOperationEvent();
+        restored.setProfileRequestContext(null);
+        Assert.assertNull(restored.getProfileId());
+    }
+
+}
@@ -34,9 +34,8 @@ import org.opensaml.profile.action.EventIds;
 import org.opensaml.profile.context.ProfileRequestContext;
 import org.slf4j.Logger;
 
-import net.shibboleth.idp.profile.AbstractProfileAction;
+import net.shibboleth.idp.profile.AbstractStatelessProfileAction;
 import net.shibboleth.profile.context.AuditContext;
-import net.shibboleth.shared.annotation.constraint.NonnullBeforeExec;
 import net.shibboleth.shared.annotation.constraint.NotEmpty;
 import net.shibboleth.shared.annotation.constraint.NotLive;
 import net.shibboleth.shared.annotation.constraint.Unmodifiable;
@@ -56,11 +55,13 @@ import net.shibboleth.shared.primitive.StringSupport;
  *  
  *  <p>The eventual map of formatting strings is also provided in order to recognize which
  *  extractors actually need to be run.</p>
+ *  
+ *  <p>This action keeps no per-request state in fields and may be shared across requests.</p>
  * 
  * @event {@link EventIds#PROCEED_EVENT_ID}
  * @event {@link EventIds#INVALID_PROFILE_CTX}
  */
-public class PopulateAuditContext extends AbstractProfileAction {
+public class PopulateAuditContext extends AbstractStatelessProfileAction<AuditContext> {
 
     /** Class logger. */
     @Nonnull private final Logger log = LoggerFactory.getLogger(PopulateAuditContext.class);
@@ -86,9 +87,6 @@ public class PopulateAuditContext extends AbstractProfileAction {
     /** Flag signalling to clear context on entry. */
     private boolean clearAuditContext;
     
-    /** {@link AuditContext} to populate. */
-    @NonnullBeforeExec  private AuditContext auditCtx;
-    
     /** Constructor. */
     @SuppressWarnings("null")
     public PopulateAuditContext() {
@@ -213,25 +211,21 @@ public class PopulateAuditContext extends AbstractProfileAction {
 
     /** {@inheritDoc} */
     @Override
-    protected boolean doPreExecute(@Nonnull final ProfileRequestContext profileRequestContext) {
-        
-        if (!super.doPreExecute(profileRequestContext)) {
-            return false;
-        }
+    @Nullable protected AuditContext newState(@Nonnull final ProfileRequestContext profileRequestContext) {
         
-        auditCtx = auditContextCreationStrategy.apply(profileRequestContext);
+        final AuditContext auditCtx = auditContextCreationStrategy.apply(profileRequestContext);
         if (auditCtx == null) {
             log.error("{} Unable to create AuditContext", getLogPrefix());
             ActionSupport.buildEvent(profileRequestContext, EventIds.INVALID_PROFILE_CTX);
-            return false;
         }
         
-        return true;
+        return auditCtx;
     }
     
     /** {@inheritDoc} */
     @Override
-    protected void doExecute(@Nonnull final ProfileRequestContext profileRequestContext) {
+    protected void doExecute(@Nonnull final ProfileRequestContext profileRequestContext,
+            @Nonnull final AuditContext auditCtx) {
         
         if (clearAuditContext) {
             auditCtx.getFields().clear();
@@ -253,12 +247,12 @@ public class PopulateAuditContext extends AbstractProfileAction {
                         log.trace("{} Adding {} value(s) for field '{}'", getLogPrefix(),
                                 ((Collection<?>) values).size(), entry.getKey());
                         for (final Object value : (Collection<?>) values) {
-                            addField(key, value);
+                            addField(auditCtx, key, value);
                         }
                     }
                 } else {
                     log.trace("{} Adding 1 value for field '{}'", getLogPrefix(), entry.getKey());
-                    addField(key, values);
+                    addField(auditCtx, key, values);
                 }
             }
         }
@@ -267,12 +261,13 @@ public class PopulateAuditContext extends AbstractProfileAction {
     /**
      * Add a non-null field to the audit record.
      * 
+     * @param auditCtx audit context to populate
      * @param key field label
      * @param value value to add
      */
-    private void addField(@Nonnull @NotEmpty final String key, @Nullable final Object value) {
+    private void addField(@Nonnull final AuditContext auditCtx, @Nonnull @NotEmpty final String key,
+            @Nullable final Object value) {
         
-        assert isPreExecuteCalled();
         if (value != null) {
             if (value instanceof TemporalAccessor) {
                 auditCtx.getFieldValues(key).add(dateTimeFormatter.format((TemporalAccessor) value));
@@ -36,7 +36,7 @@ import org.slf4j.Logger;
 import org.springframework.webflow.execution.Event;
 import org.springframework.webflow.execution.RequestContext;
 
-import net.shibboleth.idp.profile.AbstractProfileAction;
+import net.shibboleth.idp.profile.AbstractStatelessProfileAction;
 import net.shibboleth.idp.profile.IdPAuditFields;
 import net.shibboleth.profile.context.AuditContext;
 import net.shibboleth.shared.annotation.constraint.NotEmpty;
@@ -54,9 +54,11 @@ import jakarta.servlet.http.HttpServletRequest;
 /**
  * Action that produces audit log entries based on an {@link AuditContext} and one or more formatting strings. 
  * 
+ * <p>This action keeps no per-request state in fields and may be shared across requests.</p>
+ * 
  * @event {@link EventIds#PROCEED_EVENT_ID}
  */
-public class WriteAuditLog extends AbstractProfileAction {
+public class WriteAuditLog extends AbstractStatelessProfileAction<WriteAuditLog.AuditState> {
 
     /** Class logger. */
     @Nonnull private final Logger log = LoggerFactory.getLogger(WriteAuditLog.class);
@@ -79,12 +81,6 @@ public class WriteAuditLog extends AbstractProfileAction {
     /** Include profile's logging ID in category. */
     private boolean includeProfileLoggingId;
     
-    /** The Spring RequestContext to operate on. */
-    @Nullable private RequestContext requestContext;
-
-    /** The AuditContext to operate on. */
-    @Nullable private AuditContext auditCtx;
-
     /** Constructor. */
     @SuppressWarnings("null")
     public WriteAuditLog() {
@@ -246,10 +242,9 @@ public class WriteAuditLog extends AbstractProfileAction {
 
     /** {@inheritDoc} */
     @Override
-    @Nullable protected Event doExecute(@Nonnull final RequestContext springRequestContext,
-            @Nonnull final ProfileRequestContext profileRequestContext) {
-        requestContext = springRequestContext;
-        return super.doExecute(springRequestContext, profileRequestContext);
+    @Nonnull protected AuditState newState(@Nonnull final ProfileRequestContext profileRequestContext) {
+        return new AuditState(getRequestContext(profileRequestContext),
+                auditContextLookupStrategy.apply(profileRequestContext));
     }
 
     /** {@inheritDoc} */
@@ -262,15 +257,18 @@ public class WriteAuditLog extends AbstractProfileAction {
             return false;
         }
         
-        auditCtx = auditContextLookupStrategy.apply(profileRequestContext);
         return true;
     }
     
 // Checkstyle: CyclomaticComplexity OFF
     /** {@inheritDoc} */
     @Override
-    protected void doExecute(@Nonnull final ProfileRequestContext profileRequestContext) {
+    protected void doExecute(@Nonnull final ProfileRequestContext profileRequestContext,
+            @Nonnull final AuditState state) {
 
+        final RequestContext requestContext = state.requestContext();
+        final AuditContext auditCtx = state.auditContext();
+        
         for (final Map.Entry<String,List<String>> entry : formattingMap.entrySet()) {
             
             if (!categoriesToLog.isEmpty() && !categoriesToLog.contains(entry.getKey())) {
@@ -290,8 +288,7 @@ public class WriteAuditLog extends AbstractProfileAction {
                         if (IdPAuditFields.EVENT_TIME.equals(field)) {
                             record.append(dateTimeFormatter.format(Instant.now()));
                         } else if (IdPAuditFields.EVENT_TYPE.equals(field)) {
-                            assert requestContext != null;
-                            final Event event = requestContext.getCurrentEvent();
+                            final Event event = requestContext != null ? requestContext.getCurrentEvent() : null;
                             if (event != null && !event.getId().equals(EventIds.PROCEED_EVENT_ID)) {
                                 record.append(event.getId());
                             }
@@ -344,4 +341,16 @@ public class WriteAuditLog extends AbstractProfileAction {
         
     }
     
+    /**
+     * State of a single execution.
+     * 
+     * @param requestContext the Spring request context, if any
+     * @param auditContext the audit context, if any
+     * 
+     * @since 5.2.0
+     */
+    protected record AuditState(@Nullable RequestContext requestContext, @Nullable AuditContext auditContext) {
+        
+    }
+    
 }
\ No newline at end of file
@@ -39,6 +39,7 @@ import net.shibboleth.idp.authn.context.SubjectContext;
 import net.shibboleth.idp.authn.context.navigate.SubjectContextPrincipalLookupFunction;
 import net.shibboleth.idp.profile.AbstractProfileAction;
 import net.shibboleth.idp.profile.IdPEventIds;
+import net.shibboleth.idp.profile.jfr.AttributeProcessingEvent;
 import net.shibboleth.profile.context.RelyingPartyContext;
 import net.shibboleth.profile.context.navigate.IssuerLookupFunction;
 import net.shibboleth.profile.context.navigate.RelyingPartyIdLookupFunction;
@@ -367,6 +368,23 @@ public class FilterAttributes extends AbstractProfileAction {
     /** {@inheritDoc} */
     @Override
     protected void doExecute(@Nonnull final ProfileRequestContext profileRequestContext) {
+        final AttributeProcessingEvent event = new AttributeProcessingEvent();
+        event.begin();
+        try {
+            event.setInputAttributes(attributeContext.getIdPAttributes().size());
+            doFilter(profileRequestContext);
+            event.setOutputAttributes(attributeContext.getIdPAttributes().size());
+        } finally {
+            event.complete(profileRequestContext, AttributeProcessingEvent.PHASE_FILTER);
+        }
+    }
+
+    /**
+     * Filter the attributes in the {@link AttributeContext}.
+     * 
+     * @param profileRequestContext current profile request context
+     */
+    private void doFilter(@Nonnull final ProfileRequestContext profileRequestContext) {
 
         // Get the filter context from the profile request
         // this may already exist but if not, auto-create it.
@@ -14,6 +14,8 @@
 
 package net.shibboleth.idp.profile.impl;
 
+import java.util.Set;
+
 import javax.annotation.Nonnull;
 
 import org.slf4j.Logger;
@@ -21,7 +23,9 @@ import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
 
+import net.shibboleth.idp.profile.AbstractStatelessProfileAction;
 import net.shibboleth.shared.annotation.Prototype;
+import net.shibboleth.shared.collection.CollectionSupport;
 import net.shibboleth.shared.primitive.LoggerFactory;
 
 /**
@@ -30,6 +34,8 @@ import net.shibboleth.shared.primitive.LoggerFactory;
  * This post-processor will override the scope of any bean whose class or superclass is annotated with {@link Prototype}
  * and whose scope is not {@link BeanDefinition#SCOPE_PROTOTYPE} by setting the bean's scope to
  * {@link BeanDefinition#SCOPE_PROTOTYPE}.
+ * 
+ * <p>Subclasses of {@link AbstractStatelessProfileAction} are exempt, as they are safe to share.</p>
  */
 // TODO Implement Ordered ?
 public class ProfileActionBeanFactoryPostProcessor implements BeanFactoryPostProcessor {
@@ -40,10 +46,12 @@ public class ProfileActionBeanFactoryPostProcessor implements BeanFactoryPostPro
     /** {@inheritDoc} */
     @Override
     public void postProcessBeanFactory(final @Nonnull ConfigurableListableBeanFactory beanFactory) {
+        final Set<String> statelessBeanNames = CollectionSupport.setOf(
+                beanFactory.getBeanNamesForType(AbstractStatelessProfileAction.class, true, false));
         for (final String beanName : beanFactory.getBeanNamesForAnnotation(Prototype.class)) {
             assert beanName != null;
             final BeanDefinition beanDefinition = beanFactory.getBeanDefinition(beanName);
-            if (!beanDefinition.isPrototype()) {
+            if (!beanDefinition.isPrototype() && !statelessBeanNames.contains(beanName)) {
                 log.warn("Profile action '{}' is not '{}' scope but must be, please check your configuration.",
                         beanName, BeanDefinition.SCOPE_PROTOTYPE);
                 beanDefinition.setScope(BeanDefinition.SCOPE_PROTOTYPE);
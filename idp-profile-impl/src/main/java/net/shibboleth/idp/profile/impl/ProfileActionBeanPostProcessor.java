@@ -39,6 +39,7 @@ public class ProfileActionBeanPostProcessor implements BeanPostProcessor {
     public Object postProcessAfterInitialization(final @Nonnull Object bean, final @Nonnull String beanName) {
         if (bean instanceof ProfileAction && !(bean instanceof Action)) {
             final WebFlowProfileActionAdaptor wrapper = new WebFlowProfileActionAdaptor((ProfileAction) bean);
+            wrapper.setBeanName(beanName);
             try {
                 wrapper.initialize();
             } catch (final ComponentInitializationException e) {
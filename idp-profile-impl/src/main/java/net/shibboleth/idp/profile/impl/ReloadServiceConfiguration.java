@@ -15,6 +15,14 @@
 package net.shibboleth.idp.profile.impl;
 
 import java.io.IOException;
+import java.io.PrintWriter;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.function.Function;
 
 import javax.annotation.Nonnull;
@@ -29,12 +37,15 @@ import org.springframework.webflow.execution.RequestContext;
 
 import net.shibboleth.idp.profile.AbstractProfileAction;
 import net.shibboleth.idp.profile.context.SpringRequestContext;
+import net.shibboleth.idp.profile.impl.ServiceReloadManager.ReloadJob;
 import net.shibboleth.shared.annotation.constraint.NonnullBeforeExec;
 import net.shibboleth.shared.annotation.constraint.NotEmpty;
+import net.shibboleth.shared.collection.CollectionSupport;
 import net.shibboleth.shared.component.AbstractIdentifiableInitializableComponent;
 import net.shibboleth.shared.component.IdentifiedComponent;
 import net.shibboleth.shared.logic.Constraint;
 import net.shibboleth.shared.primitive.LoggerFactory;
+import net.shibboleth.shared.primitive.StringSupport;
 import net.shibboleth.shared.service.ReloadableService;
 import net.shibboleth.shared.service.ServiceException;
 
@@ -44,11 +55,16 @@ import jakarta.servlet.http.HttpServletResponse;
  * Action that refreshes a {@link ReloadableService} manually.
  * 
  * <p>With the default strategy, the service to reload is indicated by supplying {@link #SERVICE_ID}
- * as a flow variable.</p>
+ * as a flow variable. This may contain a comma-separated list of services, which are reloaded concurrently
+ * by the {@link ServiceReloadManager}, if set, and the total time taken is reported.</p>
  * 
  * <p>On success, a 200 HTTP status with a simple response body is returned. On failure, a non-successful
  * HTTP status is returned.</p>
  * 
+ * <p>If the {@link #ASYNC} flow variable is true, the reload is instead started in the background by the
+ * manager and a 202 HTTP status is returned with the ID of the job, whose progress is then reported by
+ * supplying that ID as the {@link #JOB_ID} flow variable.</p>
+ * 
  * @event {@link EventIds#PROCEED_EVENT_ID}
  * @event {@link EventIds#INVALID_MESSAGE}
  * @event {@link EventIds#INVALID_PROFILE_CTX}
@@ -59,14 +75,29 @@ public class ReloadServiceConfiguration extends AbstractProfileAction {
     /** Flow variable indicating ID of service bean to reload. */
     @Nonnull @NotEmpty public static final String SERVICE_ID = "serviceId";
     
+    /** Flow variable indicating the reload should run in the background. */
+    @Nonnull @NotEmpty public static final String ASYNC = "async";
+    
+    /** Flow variable indicating ID of a background reload job to report on. */
+    @Nonnull @NotEmpty public static final String JOB_ID = "jobId";
+    
     /** Class logger. */
     @Nonnull private Logger log = LoggerFactory.getLogger(ReloadServiceConfiguration.class);
     
-    /** Lookup function to locate service bean to operate on. */
-    @Nonnull private Function<ProfileRequestContext,ReloadableService<?>> serviceLookupStrategy;
+    /** Lookup function to locate service beans to operate on. */
+    @Nonnull private Function<ProfileRequestContext,Collection<ReloadableService<?>>> serviceLookupStrategy;
+    
+    /** Manager to reload through. */
+    @Nullable private ServiceReloadManager reloadManager;
     
-    /** The service to reload. */
-    @NonnullBeforeExec private ReloadableService<?> service;
+    /** The services to reload. */
+    @NonnullBeforeExec private Collection<ReloadableService<?>> services;
+    
+    /** Whether to reload in the background. */
+    private boolean async;
+    
+    /** ID of the job to report on. */
+    @Nullable private String jobId;
     
     /** Constructor. */
     public ReloadServiceConfiguration() {
@@ -80,9 +111,40 @@ public class ReloadServiceConfiguration extends AbstractProfileAction {
      */
     public void setServiceLookupStrategy(@Nonnull final Function<ProfileRequestContext,ReloadableService<?>> strategy) {
         checkSetterPreconditions();
+        Constraint.isNotNull(strategy, "ReloadableService lookup strategy cannot be null");
+        serviceLookupStrategy = prc -> {
+            final ReloadableService<?> service = strategy.apply(prc);
+            return service != null ? CollectionSupport.singletonList(service) : null;
+        };
+    }
+    
+    /**
+     * Set the lookup strategy for multiple service objects to reload.
+     * 
+     * @param strategy  lookup strategy
+     * 
+     * @since 5.2.0
+     */
+    public void setServicesLookupStrategy(
+            @Nonnull final Function<ProfileRequestContext,Collection<ReloadableService<?>>> strategy) {
+        checkSetterPreconditions();
         serviceLookupStrategy = Constraint.isNotNull(strategy, "ReloadableService lookup strategy cannot be null");
     }
     
+    /**
+     * Set the manager used to reload services concurrently, in the background, and with metrics.
+     * 
+     * <p>Without one, services are reloaded one at a time and background reloads are unavailable.</p>
+     * 
+     * @param manager reload manager
+     * 
+     * @since 5.2.0
+     */
+    public void setReloadManager(@Nullable final ServiceReloadManager manager) {
+        checkSetterPreconditions();
+        reloadManager = manager;
+    }
+    
     /** {@inheritDoc} */
     @Override protected boolean doPreExecute(final @Nonnull ProfileRequestContext profileRequestContext) {
         
@@ -94,16 +156,24 @@ public class ReloadServiceConfiguration extends AbstractProfileAction {
             return false;
         }
         
-        service = serviceLookupStrategy.apply(profileRequestContext);
-        if (service == null) {
+        final RequestContext requestContext = getRequestContext(profileRequestContext);
+        if (requestContext != null) {
+            jobId = (String) requestContext.getFlowScope().get(JOB_ID);
+            async = Boolean.TRUE.equals(requestContext.getFlowScope().get(ASYNC));
+        }
+        if ((jobId != null || async) && reloadManager == null) {
+            log.warn("{} Background reload requested but no reload manager is configured", getLogPrefix());
+            sendError(profileRequestContext, HttpServletResponse.SC_NOT_IMPLEMENTED,
+                    "Background reload not supported.");
+            return false;
+        } else if (jobId != null) {
+            return true;
+        }
+        
+        services = serviceLookupStrategy.apply(profileRequestContext);
+        if (services == null || services.isEmpty()) {
             log.warn("{} Unable to locate service to reload", getLogPrefix());
-            try {
-                final HttpServletResponse response = getHttpServletResponse();
-                assert response != null;
-                response.sendError(HttpServletResponse.SC_NOT_FOUND, "Service not found.");
-            } catch (final IOException e) {
-                ActionSupport.buildEvent(profileRequestContext, EventIds.IO_ERROR);
-            }
+            sendError(profileRequestContext, HttpServletResponse.SC_NOT_FOUND, "Service not found.");
             return false;
         }
         
@@ -113,31 +183,107 @@ public class ReloadServiceConfiguration extends AbstractProfileAction {
     /** {@inheritDoc} */
     @Override protected void doExecute(final @Nonnull ProfileRequestContext profileRequestContext) {
         
-        final String id;
-        if (service instanceof AbstractIdentifiableInitializableComponent) {
-            id = ((AbstractIdentifiableInitializableComponent) service).ensureId();
-        } else if (service instanceof IdentifiedComponent) {
-            id = ((IdentifiedComponent) service).getId();
-        } else {
-            id = "(unnamed)";
+        if (jobId != null) {
+            reportJob(profileRequestContext, jobId);
+            return;
+        } else if (async) {
+            startJob(profileRequestContext);
+            return;
         }
         
-        log.debug("{} Reloading configuration for '{}'", getLogPrefix(), id);
         final HttpServletResponse response = getHttpServletResponse();
         assert response != null;
+        
+        final long start = System.nanoTime();
+        final Map<String,ServiceException> results = reloadServices();
+        final long elapsed = Duration.ofNanos(System.nanoTime() - start).toMillis();
+        
+        final List<String> errors = new ArrayList<>();
+        for (final Map.Entry<String,ServiceException> result : results.entrySet()) {
+            if (result.getValue() != null) {
+                errors.add(results.size() == 1 ? result.getValue().getMessage()
+                        : "'" + result.getKey() + "': " + result.getValue().getMessage());
+            }
+        }
 
         try {
-            service.reload();
-            log.debug("{} Reloaded configuration for '{}'", getLogPrefix(), id);
+            if (!errors.isEmpty()) {
+                response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, String.join("; ", errors));
+                return;
+            }
             response.setStatus(HttpServletResponse.SC_OK);
-            response.getWriter().println("Configuration reloaded for '" + id + "'");
-        } catch (final ServiceException e) {
-            log.error("{} Error reloading service configuration for '{}'", getLogPrefix(), id);
-            try {
-                response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, e.getMessage());
-            } catch (final IOException e2) {
-                log.error("{} I/O error responding to request", getLogPrefix(), e2);
-                ActionSupport.buildEvent(profileRequestContext, EventIds.IO_ERROR);
+            final PrintWriter writer = response.getWriter();
+            for (final String id : results.keySet()) {
+                writer.println("Configuration reloaded for '" + id + "'");
+            }
+            if (results.size() > 1) {
+                log.info("{} Reloaded {} services in {}ms", getLogPrefix(), results.size(), elapsed);
+                writer.println("Reloaded " + results.size() + " services in " + elapsed + "ms");
+            }
+        } catch (final IOException e) {
+            log.error("{} I/O error responding to request", getLogPrefix(), e);
+            ActionSupport.buildEvent(profileRequestContext, EventIds.IO_ERROR);
+        }
+    }
+    
+    /**
+     * Start reloading the services in the background and respond with the job ID.
+     * 
+     * @param profileRequestContext profile request context
+     */
+    private void startJob(@Nonnull final ProfileRequestContext profileRequestContext) {
+        final ServiceReloadManager manager = reloadManager;
+        final HttpServletResponse response = getHttpServletResponse();
+        assert manager != null && response != null;
+        
+        final ReloadJob job = manager.submit(getServicesById());
+        try {
+            response.setStatus(HttpServletResponse.SC_ACCEPTED);
+            response.getWriter().println("Reload job '" + job.getId() + "' started for " + job.getServiceIds());
+        } catch (final IOException e) {
+            log.error("{} I/O error responding to request", getLogPrefix(), e);
+            ActionSupport.buildEvent(profileRequestContext, EventIds.IO_ERROR);
+        }
+    }
+    
+    /**
+     * Respond with the progress of a background reload job.
+     * 
+     * @param profileRequestContext profile request context
+     * @param id job ID
+     */
+    private void reportJob(@Nonnull final ProfileRequestContext profileRequestContext, @Nonnull final String id) {
+        final ServiceReloadManager manager = reloadManager;
+        final HttpServletResponse response = getHttpServletResponse();
+        assert manager != null && response != null;
+        
+        final ReloadJob job = manager.getJob(id);
+        if (job == null) {
+            log.warn("{} No reload job found with ID {}", getLogPrefix(), id);
+            sendError(profileRequestContext, HttpServletResponse.SC_NOT_FOUND, "Job not found.");
+            return;
+        }
+        
+        try {
+            response.setStatus(HttpServletResponse.SC_OK);
+            final PrintWriter writer = response.getWriter();
+            final Instant finished = job.getFinished();
+            if (finished != null) {
+                writer.println("Reload job '" + id + "' finished in "
+                        + Duration.between(job.getStarted(), finished).toMillis() + "ms");
+            } else {
+                writer.println("Reload job '" + id + "' running since " + job.getStarted());
+            }
+            for (final String serviceId : job.getServiceIds()) {
+                assert serviceId != null;
+                final Throwable error = job.getError(serviceId);
+                if (error != null) {
+                    writer.println("Error reloading '" + serviceId + "': " + error.getMessage());
+                } else if (job.isDone(serviceId)) {
+                    writer.println("Configuration reloaded for '" + serviceId + "'");
+                } else {
+                    writer.println("Reloading '" + serviceId + "'");
+                }
             }
         } catch (final IOException e) {
             log.error("{} I/O error responding to request", getLogPrefix(), e);
@@ -146,14 +292,92 @@ public class ReloadServiceConfiguration extends AbstractProfileAction {
     }
     
     /**
-     * Default strategy locates a bean identified with a flow-scope parameter in the web flow application context.
+     * Reload the services, concurrently if there is more than one and a manager is set.
+     * 
+     * @return the outcome for each service ID, null on success
+     */
+    @Nonnull private Map<String,ServiceException> reloadServices() {
+        final ServiceReloadManager manager = reloadManager;
+        if (manager != null) {
+            return manager.reload(getServicesById());
+        }
+        
+        final Map<String,ServiceException> results = new LinkedHashMap<>();
+        getServicesById().forEach((id, service) -> {
+            log.debug("{} Reloading configuration for '{}'", getLogPrefix(), id);
+            try {
+                service.reload();
+                log.debug("{} Reloaded configuration for '{}'", getLogPrefix(), id);
+                results.put(id, null);
+            } catch (final ServiceException e) {
+                log.error("{} Error reloading service configuration for '{}'", getLogPrefix(), id);
+                results.put(id, e);
+            }
+        });
+        return results;
+    }
+    
+    /**
+     * Get the services to reload, keyed by their IDs.
+     * 
+     * @return the services
+     */
+    @Nonnull private Map<String,ReloadableService<?>> getServicesById() {
+        final Map<String,ReloadableService<?>> result = new LinkedHashMap<>();
+        for (final ReloadableService<?> service : services) {
+            assert service != null;
+            result.put(getServiceId(service), service);
+        }
+        return result;
+    }
+    
+    /**
+     * Send an error response.
+     * 
+     * @param profileRequestContext profile request context
+     * @param status HTTP status
+     * @param message error message
+     */
+    private void sendError(@Nonnull final ProfileRequestContext profileRequestContext, final int status,
+            @Nonnull final String message) {
+        try {
+            final HttpServletResponse response = getHttpServletResponse();
+            assert response != null;
+            response.sendError(status, message);
+        } catch (final IOException e) {
+            ActionSupport.buildEvent(profileRequestContext, EventIds.IO_ERROR);
+        }
+    }
+    
+    /**
+     * Get the ID of a service for reporting.
+     * 
+     * @param service service
+     * 
+     * @return the ID
+     */
+    @Nonnull private String getServiceId(@Nonnull final ReloadableService<?> service) {
+        final String id;
+        if (service instanceof AbstractIdentifiableInitializableComponent) {
+            id = ((AbstractIdentifiableInitializableComponent) service).ensureId();
+        } else if (service instanceof IdentifiedComponent) {
+            id = ((IdentifiedComponent) service).getId();
+        } else {
+            id = null;
+        }
+        return id != null ? id : "(unnamed)";
+    }
+    
+    /**
+     * Default strategy locates beans identified by a comma-separated flow-scope parameter in the web flow
+     * application context.
      */
     private class WebFlowApplicationContextLookupStrategy
-            implements Function<ProfileRequestContext,ReloadableService<?>> {
+            implements Function<ProfileRequestContext,Collection<ReloadableService<?>>> {
 
         /** {@inheritDoc} */
         @Override
-        @Nullable public ReloadableService<?> apply(@Nullable final ProfileRequestContext input) {
+        @Nullable public Collection<ReloadableService<?>> apply(@Nullable final ProfileRequestContext input) {
             assert input != null;
             final SpringRequestContext springRequestContext = input.getSubcontext(SpringRequestContext.class);
             if (springRequestContext == null) {
@@ -167,25 +391,31 @@ public class ReloadServiceConfiguration extends AbstractProfileAction {
                 return null;
             }
 
-            final String id = (String) requestContext.getFlowScope().get(SERVICE_ID);
-            if (id == null) {
+            final String ids = (String) requestContext.getFlowScope().get(SERVICE_ID);
+            if (ids == null) {
                 log.warn("{} No {} flow variable found in request", getLogPrefix(), SERVICE_ID);
                 return null;
             }
             
-            try {
-                final Object bean = requestContext.getActiveFlow().getApplicationContext().getBean(id);
-                if (bean != null && bean instanceof ReloadableService) {
-                    return (ReloadableService<?>) bean;
+            final List<ReloadableService<?>> result = new ArrayList<>();
+            for (final String id : StringSupport.normalizeStringCollection(List.of(ids.split(",")))) {
+                try {
+                    final Object bean = requestContext.getActiveFlow().getApplicationContext().getBean(id);
+                    if (bean != null && bean instanceof ReloadableService) {
+                        result.add((ReloadableService<?>) bean);
+                        continue;
+                    }
+                } catch (final BeansException e) {
+                    
                 }
-            } catch (final BeansException e) {
                 
+                log.warn("{} No bean of the correct type found named {}", getLogPrefix(), id);
+                return null;
             }
             
-            log.warn("{} No bean of the correct type found named {}", getLogPrefix(), id);
-            return null;
+            return result;
         }
         
     }
 
-}
\ No newline at end of file
+}
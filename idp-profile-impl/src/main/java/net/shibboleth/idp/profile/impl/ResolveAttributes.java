@@ -36,6 +36,7 @@ import net.shibboleth.idp.authn.context.navigate.SubjectContextPrincipalLookupFu
 import net.shibboleth.idp.profile.AbstractProfileAction;
 import net.shibboleth.idp.profile.IdPEventIds;
 import net.shibboleth.idp.profile.context.SpringRequestContext;
+import net.shibboleth.idp.profile.jfr.AttributeProcessingEvent;
 import net.shibboleth.profile.context.RelyingPartyContext;
 import net.shibboleth.profile.context.navigate.RelyingPartyIdLookupFunction;
 import net.shibboleth.profile.context.navigate.IssuerLookupFunction;
@@ -252,6 +253,23 @@ public final class ResolveAttributes extends AbstractProfileAction {
     /** {@inheritDoc} */
     @Override
     protected void doExecute(@Nonnull final ProfileRequestContext profileRequestContext) {
+        final AttributeProcessingEvent event = new AttributeProcessingEvent();
+        event.begin();
+        try {
+            doResolve(profileRequestContext, event);
+        } finally {
+            event.complete(profileRequestContext, AttributeProcessingEvent.PHASE_RESOLVE);
+        }
+    }
+
+    /**
+     * Resolve attributes and populate the resulting {@link AttributeContext}.
+     * 
+     * @param profileRequestContext current profile request context
+     * @param event Flight Recorder event to populate
+     */
+    private void doResolve(@Nonnull final ProfileRequestContext profileRequestContext,
+            @Nonnull final AttributeProcessingEvent event) {
 
         final AttributeResolutionContext resolutionContext;
         if (createResolutionContext) {
@@ -268,6 +286,9 @@ public final class ResolveAttributes extends AbstractProfileAction {
             }
         }
 
+        final Collection<String> requested = resolutionContext.getRequestedIdPAttributeNames();
+        event.setInputAttributes(requested != null ? requested.size() : 0);
+
         try (final ServiceableComponent<AttributeResolver> component =
                 attributeResolverService.getServiceableComponent()) {
             final AttributeResolver attributeResolver = component.getComponent();
@@ -280,6 +301,7 @@ public final class ResolveAttributes extends AbstractProfileAction {
             }
             attributeCtx.setIdPAttributes(resolutionContext.getResolvedIdPAttributes().values());
             attributeCtx.setUnfilteredIdPAttributes(resolutionContext.getResolvedIdPAttributes().values());
+            event.setOutputAttributes(resolutionContext.getResolvedIdPAttributes().size());
         } catch (final ResolutionException e) {
             log.error("{} Error resolving attributes", getLogPrefix(), e);
             if (!maskFailures) {
@@ -17,6 +17,7 @@ package net.shibboleth.idp.profile.impl;
 import java.util.function.Function;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import org.opensaml.messaging.context.BaseContext;
 import org.opensaml.messaging.context.navigate.ChildContextLookup;
@@ -25,14 +26,13 @@ import org.opensaml.profile.context.ProfileRequestContext;
 import org.opensaml.profile.criterion.ProfileRequestContextCriterion;
 import org.slf4j.Logger;
 
-import net.shibboleth.idp.profile.AbstractProfileAction;
+import net.shibboleth.idp.profile.AbstractStatelessProfileAction;
 import net.shibboleth.idp.profile.IdPEventIds;
 import net.shibboleth.profile.context.RelyingPartyContext;
 import net.shibboleth.profile.relyingparty.RelyingPartyConfiguration;
 import net.shibboleth.profile.relyingparty.RelyingPartyConfigurationResolver;
 import net.shibboleth.profile.relyingparty.VerifiedProfileCriterion;
 import net.shibboleth.shared.annotation.constraint.NonnullAfterInit;
-import net.shibboleth.shared.annotation.constraint.NonnullBeforeExec;
 import net.shibboleth.shared.component.ComponentInitializationException;
 import net.shibboleth.shared.logic.Constraint;
 import net.shibboleth.shared.primitive.LoggerFactory;
@@ -48,6 +48,8 @@ import net.shibboleth.shared.service.ServiceableComponent;
  * 
  * <p>Both the original and the later-added criteria-driven resolvers are supported.</p>
  * 
+ * <p>This action keeps no per-request state in fields and may be shared across requests.</p>
+ * 
  * @event {@link org.opensaml.profile.action.EventIds#PROCEED_EVENT_ID}
  * @event {@link IdPEventIds#INVALID_RELYING_PARTY_CTX}
  * @event {@link IdPEventIds#INVALID_RELYING_PARTY_CONFIG}
@@ -55,7 +57,7 @@ import net.shibboleth.shared.service.ServiceableComponent;
  * @post If a {@link RelyingPartyContext} is located, it will be populated with a non-null result of applying
  * the supplied {@link RelyingPartyConfigurationResolver} to the {@link ProfileRequestContext}.
  */
-public final class SelectRelyingPartyConfiguration extends AbstractProfileAction {
+public final class SelectRelyingPartyConfiguration extends AbstractStatelessProfileAction<RelyingPartyContext> {
 
     /** Class logger. */
     @Nonnull private final Logger log = LoggerFactory.getLogger(SelectRelyingPartyConfiguration.class);
@@ -68,9 +70,6 @@ public final class SelectRelyingPartyConfiguration extends AbstractProfileAction
      */
     @Nonnull private Function<ProfileRequestContext,RelyingPartyContext> relyingPartyContextLookupStrategy;
 
-    /** The {@link RelyingPartyContext} to manipulate. */
-    @NonnullBeforeExec private RelyingPartyContext relyingPartyCtx;
-    
     /** Constructor. */
     public SelectRelyingPartyConfiguration() {
         relyingPartyContextLookupStrategy = new ChildContextLookup<>(RelyingPartyContext.class);
@@ -103,15 +102,6 @@ public final class SelectRelyingPartyConfiguration extends AbstractProfileAction
                 Constraint.isNotNull(strategy, "RelyingPartyContext lookup strategy cannot be null");
     }
     
-    /** Null safe getter.
-     * @return Returns the relyingPartyCtx.
-     */
-    @SuppressWarnings("null")
-    @Nonnull private RelyingPartyContext getRelyingPartyCtx() {
-        assert isPreExecuteCalled();
-        return relyingPartyCtx;
-    }
-
     /** {@inheritDoc} */
     @Override
     protected void doInitialize() throws ComponentInitializationException {
@@ -124,34 +114,30 @@ public final class SelectRelyingPartyConfiguration extends AbstractProfileAction
 
     /** {@inheritDoc} */
     @Override
-    public boolean doPreExecute(@Nonnull final ProfileRequestContext profileRequestContext) {
-        if (!super.doPreExecute(profileRequestContext)) {
-            return false;
-        }
-        
-        relyingPartyCtx = relyingPartyContextLookupStrategy.apply(profileRequestContext);
+    @Nullable protected RelyingPartyContext newState(@Nonnull final ProfileRequestContext profileRequestContext) {
+        final RelyingPartyContext relyingPartyCtx = relyingPartyContextLookupStrategy.apply(profileRequestContext);
         if (relyingPartyCtx == null) {
             log.debug("{} No relying party context available", getLogPrefix());
             ActionSupport.buildEvent(profileRequestContext, IdPEventIds.INVALID_RELYING_PARTY_CTX);
-            return false;
         }
         
-        return true;
+        return relyingPartyCtx;
     }
     
     /** {@inheritDoc} */
     @Override
-    public void doExecute(@Nonnull final ProfileRequestContext profileRequestContext) {
+    protected void doExecute(@Nonnull final ProfileRequestContext profileRequestContext,
+            @Nonnull final RelyingPartyContext relyingPartyCtx) {
 
         try (final ServiceableComponent<RelyingPartyConfigurationResolver> resolver =
                 rpConfigResolver.getServiceableComponent()) {
             
             final RelyingPartyConfiguration config;
             final CriteriaSet criteria = new CriteriaSet();
-            if (getRelyingPartyCtx().isVerified()) {
+            if (relyingPartyCtx.isVerified()) {
                 criteria.add(new VerifiedProfileCriterion(true));
             }
-            if (getRelyingPartyCtx().getParent() == profileRequestContext) {
+            if (relyingPartyCtx.getParent() == profileRequestContext) {
                 // Works as is.
                 criteria.add(new ProfileRequestContextCriterion(profileRequestContext));
                 config = resolver.getComponent().resolveSingle(criteria);
@@ -160,12 +146,12 @@ public final class SelectRelyingPartyConfiguration extends AbstractProfileAction
                 // TODO: I think this *may* be moot now with the addition of the
                 // explicit VerifiedProfileCriterion.
                 final ProfileRequestContext newPRC = new ProfileRequestContext();
-                final BaseContext originalParent = getRelyingPartyCtx().getParent();
-                newPRC.addSubcontext(getRelyingPartyCtx());
+                final BaseContext originalParent = relyingPartyCtx.getParent();
+                newPRC.addSubcontext(relyingPartyCtx);
                 criteria.add(new ProfileRequestContextCriterion(newPRC));
                 config = resolver.getComponent().resolveSingle(criteria);
                 if (originalParent != null) {
-                    originalParent.addSubcontext(getRelyingPartyCtx());
+                    originalParent.addSubcontext(relyingPartyCtx);
                 }
             }
             
@@ -176,7 +162,7 @@ public final class SelectRelyingPartyConfiguration extends AbstractProfileAction
             }
 
             log.debug("{} Found relying party configuration {} for request", getLogPrefix(), config.getId());
-            getRelyingPartyCtx().setConfiguration(config);
+            relyingPartyCtx.setConfiguration(config);
         } catch (final ResolverException e) {
             log.error("{} Error trying to resolve relying party configuration", getLogPrefix(), e);
             ActionSupport.buildEvent(profileRequestContext, IdPEventIds.INVALID_RELYING_PARTY_CONFIG);
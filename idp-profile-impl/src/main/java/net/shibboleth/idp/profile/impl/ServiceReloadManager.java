@@ -0,0 +1,338 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.shibboleth.idp.profile.impl;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.opensaml.core.metrics.MetricsSupport;
+import org.slf4j.Logger;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+import net.shibboleth.shared.annotation.constraint.NonnullAfterInit;
+import net.shibboleth.shared.annotation.constraint.NotEmpty;
+import net.shibboleth.shared.annotation.constraint.Unmodifiable;
+import net.shibboleth.shared.component.AbstractInitializableComponent;
+import net.shibboleth.shared.component.ComponentInitializationException;
+import net.shibboleth.shared.logic.Constraint;
+import net.shibboleth.shared.primitive.LoggerFactory;
+import net.shibboleth.shared.service.ReloadableService;
+import net.shibboleth.shared.service.ServiceException;
+
+/**
+ * Reloads {@link ReloadableService} instances on a bounded pool of threads, either waiting for the outcome
+ * or in the background as a job that can be polled for.
+ *
+ * <p>A reload builds the service's new configuration off to the side and only replaces the running one if
+ * it succeeds, so a failed or in-progress job never disturbs the service in use.</p>
+ *
+ * <p>The duration of each reload is recorded in a timer, and each failure in a counter, named by service
+ * under {@value #DEFAULT_METRIC_NAME}. Only reloads requested through this class are measured, which in
+ * practice means those made by the administrative reload flow, not the reloads a service performs on its
+ * own when its resources change. Finished jobs are discarded after a retention period.</p>
+ *
+ * @since 5.2.0
+ */
+public class ServiceReloadManager extends AbstractInitializableComponent {
+
+    /** Prefix for metrics. */
+    @Nonnull @NotEmpty public static final String DEFAULT_METRIC_NAME = "net.shibboleth.idp.service.reload";
+
+    /** Class logger. */
+    @Nonnull private final Logger log = LoggerFactory.getLogger(ServiceReloadManager.class);
+
+    /** Jobs, by ID. */
+    @Nonnull private final Map<String,ReloadJob> jobs;
+
+    /** Maximum number of threads to reload on. */
+    private int maxThreads;
+
+    /** How long to keep finished jobs. */
+    @Nonnull private Duration jobRetention;
+
+    /** Executor for reloads. */
+    @NonnullAfterInit private ExecutorService executor;
+
+    /** Constructor. */
+    public ServiceReloadManager() {
+        jobs = new ConcurrentHashMap<>();
+        maxThreads = 4;
+        jobRetention = Duration.ofHours(1);
+    }
+
+    /**
+     * Set the maximum number of threads on which to reload services concurrently.
+     *
+     * <p>Defaults to 4.</p>
+     *
+     * @param threads maximum number of threads
+     */
+    public void setMaxThreads(final int threads) {
+        checkSetterPreconditions();
+        Constraint.isTrue(threads > 0, "Maximum threads must be greater than 0");
+        maxThreads = threads;
+    }
+
+    /**
+     * Set how long to keep finished jobs available for polling.
+     *
+     * <p>Defaults to 1 hour.</p>
+     *
+     * @param retention retention period
+     */
+    public void setJobRetention(@Nonnull final Duration retention) {
+        checkSetterPreconditions();
+        Constraint.isNotNull(retention, "Retention cannot be null");
+        Constraint.isFalse(retention.isNegative(), "Retention cannot be negative");
+        jobRetention = retention;
+    }
+
+    /** {@inheritDoc} */
+    @Override protected void doInitialize() throws ComponentInitializationException {
+        super.doInitialize();
+        executor = Executors.newFixedThreadPool(maxThreads, r -> {
+            final Thread t = new Thread(r, "idp-service-reload");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** {@inheritDoc} */
+    @Override protected void doDestroy() {
+        final ExecutorService theExecutor = executor;
+        if (theExecutor != null) {
+            theExecutor.shutdownNow();
+            try {
+                theExecutor.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        jobs.clear();
+        super.doDestroy();
+    }
+
+    /**
+     * Reload services concurrently and wait for them to finish.
+     *
+     * @param services services to reload, by ID
+     *
+     * @return the outcome for each service ID, null on success
+     */
+    @Nonnull public Map<String,ServiceException> reload(@Nonnull final Map<String,ReloadableService<?>> services) {
+        checkComponentActive();
+        final Map<String,CompletableFuture<ServiceException>> futures = start(services);
+        final Map<String,ServiceException> results = new LinkedHashMap<>();
+        futures.forEach((id, future) -> results.put(id, future.join()));
+        return results;
+    }
+
+    /**
+     * Start reloading services in the background.
+     *
+     * @param services services to reload, by ID
+     *
+     * @return the job tracking the reload
+     */
+    @Nonnull public ReloadJob submit(@Nonnull final Map<String,ReloadableService<?>> services) {
+        checkComponentActive();
+        pruneJobs();
+        final ReloadJob job = new ReloadJob(UUID.randomUUID().toString(), start(services));
+        jobs.put(job.getId(), job);
+        log.info("Started reload job {} for {}", job.getId(), services.keySet());
+        return job;
+    }
+
+    /**
+     * Get a job.
+     *
+     * @param id job ID
+     *
+     * @return the job, or null if unknown or expired
+     */
+    @Nullable public ReloadJob getJob(@Nonnull final String id) {
+        return jobs.get(id);
+    }
+
+    /**
+     * Reload a single service, recording metrics.
+     *
+     * @param id service ID
+     * @param service service to reload
+     *
+     * @return null on success, or the exception raised
+     */
+    @Nullable public ServiceException reload(@Nonnull final String id, @Nonnull final ReloadableService<?> service) {
+        final MetricRegistry registry = MetricsSupport.getMetricRegistry();
+        final Timer.Context timer = registry != null ?
+                registry.timer(MetricRegistry.name(DEFAULT_METRIC_NAME, id, "time")).time() : null;
+        log.debug("Reloading configuration for '{}'", id);
+        try {
+            service.reload();
+            log.debug("Reloaded configuration for '{}'", id);
+            return null;
+        } catch (final ServiceException e) {
+            log.error("Error reloading service configuration for '{}'", id, e);
+            if (registry != null) {
+                registry.counter(MetricRegistry.name(DEFAULT_METRIC_NAME, id, "failures")).inc();
+            }
+            return e;
+        } finally {
+            if (timer != null) {
+                timer.stop();
+            }
+        }
+    }
+
+    /**
+     * Start reloading each service on the executor.
+     *
+     * @param services services to reload, by ID
+     *
+     * @return the pending outcome for each service ID
+     */
+    @Nonnull private Map<String,CompletableFuture<ServiceException>> start(
+            @Nonnull final Map<String,ReloadableService<?>> services) {
+        final Map<String,CompletableFuture<ServiceException>> futures = new LinkedHashMap<>();
+        services.forEach((id, service) -> {
+            assert id != null && service != null;
+            futures.put(id, CompletableFuture.supplyAsync(() -> reload(id, service), executor));
+        });
+        return futures;
+    }
+
+    /** Discard finished jobs older than the retention period. */
+    private void pruneJobs() {
+        final Instant cutoff = Instant.now().minus(jobRetention);
+        jobs.values().removeIf(job -> {
+            final Instant finished = job.getFinished();
+            return finished != null && finished.isBefore(cutoff);
+        });
+    }
+
+    /** A background reload of one or more services. */
+    public static final class ReloadJob {
+
+        /** Job ID. */
+        @Nonnull @NotEmpty private final String id;
+
+        /** Start time. */
+        @Nonnull private final Instant started;
+
+        /** Pending outcome for each service ID. */
+        @Nonnull private final Map<String,CompletableFuture<ServiceException>> outcomes;
+
+        /** Finish time. */
+        @Nullable private volatile Instant finished;
+
+        /**
+         * Constructor.
+         *
+         * @param jobId job ID
+         * @param futures pending outcome for each service ID
+         */
+        ReloadJob(@Nonnull @NotEmpty final String jobId,
+                @Nonnull final Map<String,CompletableFuture<ServiceException>> futures) {
+            id = jobId;
+            started = Instant.now();
+            outcomes = futures;
+            CompletableFuture.allOf(futures.values().toArray(CompletableFuture[]::new))
+                .whenComplete((v, e) -> finished = Instant.now());
+        }
+
+        /**
+         * Get the job ID.
+         *
+         * @return job ID
+         */
+        @Nonnull @NotEmpty public String getId() {
+            return id;
+        }
+
+        /**
+         * Get the start time.
+         *
+         * @return start time
+         */
+        @Nonnull public Instant getStarted() {
+            return started;
+        }
+
+        /**
+         * Get the finish time.
+         *
+         * @return finish time, or null if still running
+         */
+        @Nullable public Instant getFinished() {
+            return finished;
+        }
+
+        /**
+         * Get the IDs of the services being reloaded.
+         *
+         * @return service IDs
+         */
+        @Nonnull @Unmodifiable public Set<String> getServiceIds() {
+            return Collections.unmodifiableSet(outcomes.keySet());
+        }
+
+        /**
+         * Get whether a service has finished reloading.
+         *
+         * @param serviceId service ID
+         *
+         * @return whether the service has finished reloading
+         */
+        public boolean isDone(@Nonnull final String serviceId) {
+            final CompletableFuture<ServiceException> outcome = outcomes.get(serviceId);
+            return outcome != null && outcome.isDone();
+        }
+
+        /**
+         * Get the error raised by a finished service reload.
+         *
+         * @param serviceId service ID
+         *
+         * @return the error, or null if the reload succeeded or is still running
+         */
+        @Nullable public Throwable getError(@Nonnull final String serviceId) {
+            final CompletableFuture<ServiceException> outcome = outcomes.get(serviceId);
+            if (outcome == null || !outcome.isDone()) {
+                return null;
+            }
+            try {
+                return outcome.join();
+            } catch (final RuntimeException e) {
+                return e.getCause() != null ? e.getCause() : e;
+            }
+        }
+    }
+
+}
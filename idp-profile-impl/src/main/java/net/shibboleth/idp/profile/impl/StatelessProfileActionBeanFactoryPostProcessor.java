@@ -0,0 +1,94 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.shibboleth.idp.profile.impl;
+
+import java.util.Collection;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+
+import org.slf4j.Logger;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+
+import net.shibboleth.idp.profile.AbstractStatelessProfileAction;
+import net.shibboleth.idp.profile.audit.impl.PopulateAuditContext;
+import net.shibboleth.idp.profile.audit.impl.WriteAuditLog;
+import net.shibboleth.shared.collection.CollectionSupport;
+import net.shibboleth.shared.primitive.LoggerFactory;
+
+/**
+ * Post-processes bean configuration metadata to promote prototype-scoped {@link AbstractStatelessProfileAction}
+ * beans to lazily-initialized singletons, avoiding the cost of creating and initializing them on every request.
+ *
+ * <p>Only beans whose class is exactly one of the configured action classes are promoted. Subclasses are left
+ * untouched, since a subclass may add per-request state that makes sharing unsafe. By default the actions
+ * shipped with the IdP that run on every request are promoted.</p>
+ *
+ * @since 5.2.0
+ */
+public class StatelessProfileActionBeanFactoryPostProcessor implements BeanFactoryPostProcessor {
+
+    /** Class logger. */
+    @Nonnull private final Logger log = LoggerFactory.getLogger(StatelessProfileActionBeanFactoryPostProcessor.class);
+
+    /** Names of the classes whose beans may be promoted. */
+    @Nonnull private Set<String> actionClassNames;
+
+    /** Constructor. */
+    public StatelessProfileActionBeanFactoryPostProcessor() {
+        actionClassNames = CollectionSupport.setOf(PopulateAuditContext.class.getName(),
+                SelectRelyingPartyConfiguration.class.getName(), WriteAuditLog.class.getName());
+    }
+
+    /**
+     * Set the classes whose beans may be promoted, replacing the defaults.
+     *
+     * <p>Each class must be safe for concurrent use by a single instance.</p>
+     *
+     * @param classes classes to promote
+     */
+    public void setActionClasses(@Nonnull final Collection<Class<?>> classes) {
+        actionClassNames = CollectionSupport.copyToSet(classes.stream().map(Class::getName).toList());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void postProcessBeanFactory(final @Nonnull ConfigurableListableBeanFactory beanFactory) {
+        int promoted = 0;
+        for (final String beanName : beanFactory.getBeanNamesForType(AbstractStatelessProfileAction.class, true,
+                false)) {
+            assert beanName != null;
+            // The scope and class may be inherited from a parent definition, so check the merged result.
+            final BeanDefinition merged = beanFactory.getMergedBeanDefinition(beanName);
+            if (merged.isPrototype() && !merged.isAbstract()
+                    && actionClassNames.contains(merged.getBeanClassName())) {
+                log.trace("Promoting stateless profile action '{}' to '{}' scope", beanName,
+                        BeanDefinition.SCOPE_SINGLETON);
+                final BeanDefinition beanDefinition = beanFactory.getBeanDefinition(beanName);
+                beanDefinition.setScope(BeanDefinition.SCOPE_SINGLETON);
+                beanDefinition.setLazyInit(true);
+                promoted++;
+            }
+        }
+
+        if (promoted > 0) {
+            log.debug("Promoted {} stateless profile action(s) to '{}' scope", promoted,
+                    BeanDefinition.SCOPE_SINGLETON);
+        }
+    }
+
+}
@@ -0,0 +1,156 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.shibboleth.idp.profile.support;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.opensaml.profile.context.ProfileRequestContext;
+import org.springframework.webflow.definition.StateDefinition;
+import org.springframework.webflow.execution.FlowExecutionListener;
+import org.springframework.webflow.execution.RequestContext;
+
+import net.shibboleth.idp.profile.FlowLatencyMetrics;
+import net.shibboleth.shared.annotation.constraint.NotEmpty;
+
+/**
+ * Records the time spent in each flow state via {@link FlowLatencyMetrics}, when enabled.
+ *
+ * <p>A state is timed from its entry, or from the resumption of a paused execution, until the next state is
+ * entered, the execution pauses, or the request completes. Time spent paused in a view state is not
+ * included.</p>
+ *
+ * <p>The {@link #setEnabled(boolean)} property of this listener also switches on the timing of actions, since
+ * both are controlled by {@link FlowLatencyMetrics}.</p>
+ *
+ * @since 5.2.0
+ */
+public class FlowLatencyFlowExecutionListener implements FlowExecutionListener {
+
+    /** Request scope attribute holding the state being timed. */
+    @Nonnull @NotEmpty private static final String TIMER_ATTRIBUTE = FlowLatencyFlowExecutionListener.class.getName();
+
+    /**
+     * Set whether to collect latency metrics for actions and states.
+     *
+     * <p>Collection may also be enabled via the {@link FlowLatencyMetrics#LOGGING_CATEGORY} logging
+     * category.</p>
+     *
+     * @param flag flag to set
+     */
+    public void setEnabled(final boolean flag) {
+        FlowLatencyMetrics.setEnabled(flag);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void stateEntering(final RequestContext context, final StateDefinition state) {
+        if (context != null) {
+            stop(context);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void stateEntered(final RequestContext context, final StateDefinition previousState,
+            final StateDefinition state) {
+        if (context != null && state != null && FlowLatencyMetrics.isEnabled()) {
+            start(context, state);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void resuming(final RequestContext context) {
+        if (context != null && FlowLatencyMetrics.isEnabled()) {
+            final StateDefinition state = context.getCurrentState();
+            if (state != null) {
+                start(context, state);
+            }
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void paused(final RequestContext context) {
+        if (context != null) {
+            stop(context);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void requestProcessed(final RequestContext context) {
+        if (context != null) {
+            stop(context);
+        }
+    }
+
+    /**
+     * Begin timing a state.
+     *
+     * @param context Spring request context
+     * @param state state being timed
+     */
+    private void start(@Nonnull final RequestContext context, @Nonnull final StateDefinition state) {
+        context.getRequestScope().put(TIMER_ATTRIBUTE, new StateTimer(state, System.nanoTime()));
+    }
+
+    /**
+     * Stop timing the current state, if any, and record the result.
+     *
+     * @param context Spring request context
+     */
+    private void stop(@Nonnull final RequestContext context) {
+        if (!FlowLatencyMetrics.isEnabled()) {
+            return;
+        }
+        
+        final Object timer = context.getRequestScope().remove(TIMER_ATTRIBUTE);
+        if (timer instanceof StateTimer t) {
+            final String stateId = t.state().getId();
+            if (stateId != null) {
+                FlowLatencyMetrics.recordState(getProfileRequestContext(context), t.state().getOwner().getId(),
+                        stateId, System.nanoTime() - t.start());
+            }
+        }
+    }
+
+    /**
+     * Get the profile request context bound to conversation scope.
+     *
+     * @param context Spring request context
+     *
+     * @return the bound profile request context, or null
+     */
+    @Nullable private ProfileRequestContext getProfileRequestContext(@Nonnull final RequestContext context) {
+        final Object prc = context.getConversationScope().get(ProfileRequestContext.BINDING_KEY);
+        if (prc instanceof ProfileRequestContext) {
+            return (ProfileRequestContext) prc;
+        }
+        return null;
+    }
+
+    /**
+     * A state being timed.
+     *
+     * @param state the state
+     * @param start start time in nanoseconds
+     */
+    private record StateTimer(@Nonnull StateDefinition state, long start) {
+
+    }
+
+}
@@ -0,0 +1,422 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.shibboleth.idp.profile.support;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.opensaml.messaging.context.ScratchContext;
+import org.opensaml.profile.context.ProfileRequestContext;
+import org.opensaml.storage.StorageCapabilities;
+import org.opensaml.storage.StorageRecord;
+import org.opensaml.storage.StorageSerializer;
+import org.opensaml.storage.StorageService;
+import org.opensaml.storage.VersionMismatchException;
+import org.slf4j.Logger;
+
+import net.shibboleth.shared.annotation.constraint.NonnullAfterInit;
+import net.shibboleth.shared.annotation.constraint.NotEmpty;
+import net.shibboleth.shared.annotation.constraint.Positive;
+import net.shibboleth.shared.collection.Pair;
+import net.shibboleth.shared.component.AbstractInitializableComponent;
+import net.shibboleth.shared.component.ComponentInitializationException;
+import net.shibboleth.shared.logic.Constraint;
+import net.shibboleth.shared.primitive.LoggerFactory;
+import net.shibboleth.shared.primitive.NonnullSupplier;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * A {@link StorageService} that wraps another and remembers the records it reads for the rest of the
+ * HTTP request, so that the independent components that consult the same records during a profile request
+ * (the session manager, lockout and revocation checks, consent, interceptors, cookie backstops, etc.)
+ * don't each make a round trip to the underlying storage.
+ *
+ * <p>Records, including their absence, are held in a {@link ScratchContext} beneath the
+ * {@link ProfileRequestContext}, which is obtained by way of the request attribute bound by
+ * {@link ProfileRequestContextFlowExecutionListener}. Since that context lives across every request in a
+ * flow, the records are only reused within the HTTP request that read them. Outside an HTTP or profile
+ * request, every operation passes straight through.</p>
+ *
+ * <p>Any operation that may change a record discards what is held for it before passing through, so
+ * writes, and the version checks they make, always reach the underlying storage, and a caller that
+ * retries after a version conflict reads the current record.</p>
+ *
+ * @since 5.2.0
+ */
+public class RequestCachingStorageService extends AbstractInitializableComponent implements StorageService {
+
+    /** Request attribute identifying the current HTTP request to the caches. */
+    @Nonnull @NotEmpty private static final String REQUEST_TOKEN_ATTRIBUTE =
+            RequestCachingStorageService.class.getName();
+
+    /** Class logger. */
+    @Nonnull private final Logger log = LoggerFactory.getLogger(RequestCachingStorageService.class);
+
+    /** Storage service to wrap. */
+    @NonnullAfterInit private StorageService storageService;
+
+    /** Servlet request Supplier. */
+    @NonnullAfterInit private NonnullSupplier<HttpServletRequest> httpServletRequestSupplier;
+
+    /**
+     * Set the {@link StorageService} to wrap.
+     *
+     * @param ss storage service
+     */
+    public void setStorageService(@Nonnull final StorageService ss) {
+        checkSetterPreconditions();
+        storageService = Constraint.isNotNull(ss, "StorageService cannot be null");
+    }
+
+    /**
+     * Set the {@link HttpServletRequest} supplier used to locate the profile request.
+     *
+     * @param supplier servlet request supplier
+     */
+    public void setHttpServletRequestSupplier(@Nonnull final NonnullSupplier<HttpServletRequest> supplier) {
+        checkSetterPreconditions();
+        httpServletRequestSupplier = Constraint.isNotNull(supplier, "HttpServletRequest supplier cannot be null");
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void doInitialize() throws ComponentInitializationException {
+        super.doInitialize();
+
+        if (storageService == null) {
+            throw new ComponentInitializationException("StorageService cannot be null");
+        } else if (httpServletRequestSupplier == null) {
+            throw new ComponentInitializationException("HttpServletRequest supplier cannot be null");
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Nullable public String getId() {
+        return storageService.getId();
+    }
+
+    /** {@inheritDoc} */
+    @Nonnull public StorageCapabilities getCapabilities() {
+        return storageService.getCapabilities();
+    }
+
+    /** {@inheritDoc} */
+    public boolean create(@Nonnull @NotEmpty final String context, @Nonnull @NotEmpty final String key,
+            @Nonnull @NotEmpty final String value, @Nullable @Positive final Long expiration) throws IOException {
+        evict(context, key);
+        return storageService.create(context, key, value, expiration);
+    }
+
+    /** {@inheritDoc} */
+    public <T> boolean create(@Nonnull @NotEmpty final String context, @Nonnull @NotEmpty final String key,
+            @Nonnull final T value, @Nonnull final StorageSerializer<T> serializer,
+            @Nullable @Positive final Long expiration) throws IOException {
+        evict(context, key);
+        return storageService.create(context, key, value, serializer, expiration);
+    }
+
+    /** {@inheritDoc} */
+    public boolean create(@Nonnull final Object value) throws IOException {
+        evictAll();
+        return storageService.create(value);
+    }
+
+    /** {@inheritDoc} */
+    @SuppressWarnings("unchecked")
+    @Nullable public <T> StorageRecord<T> read(@Nonnull @NotEmpty final String context,
+            @Nonnull @NotEmpty final String key) throws IOException {
+        final Map<String,StorageRecord<?>> records = getRecords(context);
+        if (records == null) {
+            return storageService.read(context, key);
+        } else if (records.containsKey(key)) {
+            final StorageRecord<?> cached = records.get(key);
+            if (cached == null || !isExpired(cached)) {
+                log.trace("Returning cached record for context {} and key {}", context, key);
+                return (StorageRecord<T>) cached;
+            }
+        }
+
+        final StorageRecord<T> record = storageService.read(context, key);
+        records.put(key, record);
+        return record;
+    }
+
+    /** {@inheritDoc} */
+    @Nullable public Object read(@Nonnull final Object value) throws IOException {
+        return storageService.read(value);
+    }
+
+    /** {@inheritDoc} */
+    @SuppressWarnings("unchecked")
+    @Nonnull public <T> Pair<Long,StorageRecord<T>> read(@Nonnull @NotEmpty final String context,
+            @Nonnull @NotEmpty final String key, @Positive final long version) throws IOException {
+        final Map<String,StorageRecord<?>> records = getRecords(context);
+        if (records == null) {
+            return storageService.read(context, key, version);
+        } else if (records.containsKey(key)) {
+            final StorageRecord<?> cached = records.get(key);
+            if (cached == null) {
+                return new Pair<>(null, null);
+            } else if (!isExpired(cached)) {
+                log.trace("Returning cached record for context {} and key {}", context, key);
+                return cached.getVersion() == version ? new Pair<>(version, null)
+                        : new Pair<>(cached.getVersion(), (StorageRecord<T>) cached);
+            }
+        }
+
+        final Pair<Long,StorageRecord<T>> result = storageService.read(context, key, version);
+        if (result.getFirst() == null) {
+            records.put(key, null);
+        } else if (result.getSecond() != null) {
+            records.put(key, result.getSecond());
+        }
+        return result;
+    }
+
+    /** {@inheritDoc} */
+    public boolean update(@Nonnull @NotEmpty final String context, @Nonnull @NotEmpty final String key,
+            @Nonnull @NotEmpty final String value, @Nullable @Positive final Long expiration) throws IOException {
+        evict(context, key);
+        return storageService.update(context, key, value, expiration);
+    }
+
+    /** {@inheritDoc} */
+    @Nullable public Long updateWithVersion(@Positive final long version, @Nonnull @NotEmpty final String context,
+            @Nonnull @NotEmpty final String key, @Nonnull @NotEmpty final String value,
+            @Nullable @Positive final Long expiration) throws IOException, VersionMismatchException {
+        evict(context, key);
+        return storageService.updateWithVersion(version, context, key, value, expiration);
+    }
+
+    /** {@inheritDoc} */
+    public <T> boolean update(@Nonnull @NotEmpty final String context, @Nonnull @NotEmpty final String key,
+            @Nonnull final T value, @Nonnull final StorageSerializer<T> serializer,
+            @Nullable @Positive final Long expiration) throws IOException {
+        evict(context, key);
+        return storageService.update(context, key, value, serializer, expiration);
+    }
+
+    /** {@inheritDoc} */
+    @Nullable public <T> Long updateWithVersion(@Positive final long version, @Nonnull @NotEmpty final String context,
+            @Nonnull @NotEmpty final String key, @Nonnull final T value,
+            @Nonnull final StorageSerializer<T> serializer, @Nullable @Positive final Long expiration)
+                    throws IOException, VersionMismatchException {
+        evict(context, key);
+        return storageService.updateWithVersion(version, context, key, value, serializer, expiration);
+    }
+
+    /** {@inheritDoc} */
+    public boolean update(@Nonnull final Object value) throws IOException {
+        evictAll();
+        return storageService.update(value);
+    }
+
+    /** {@inheritDoc} */
+    @Nullable public Long updateWithVersion(@Positive final long version, @Nonnull final Object value)
+            throws IOException, VersionMismatchException {
+        evictAll();
+        return storageService.updateWithVersion(version, value);
+    }
+
+    /** {@inheritDoc} */
+    public boolean updateExpiration(@Nonnull @NotEmpty final String context, @Nonnull @NotEmpty final String key,
+            @Nullable @Positive final Long expiration) throws IOException {
+        evict(context, key);
+        return storageService.updateExpiration(context, key, expiration);
+    }
+
+    /** {@inheritDoc} */
+    public boolean updateExpiration(@Nonnull final Object value) throws IOException {
+        evictAll();
+        return storageService.updateExpiration(value);
+    }
+
+    /** {@inheritDoc} */
+    public boolean delete(@Nonnull @NotEmpty final String context, @Nonnull @NotEmpty final String key)
+            throws IOException {
+        evict(context, key);
+        return storageService.delete(context, key);
+    }
+
+    /** {@inheritDoc} */
+    public boolean deleteWithVersion(@Positive final long version, @Nonnull @NotEmpty final String context,
+            @Nonnull @NotEmpty final String key) throws IOException, VersionMismatchException {
+        evict(context, key);
+        return storageService.deleteWithVersion(version, context, key);
+    }
+
+    /** {@inheritDoc} */
+    public boolean delete(@Nonnull final Object value) throws IOException {
+        evictAll();
+        return storageService.delete(value);
+    }
+
+    /** {@inheritDoc} */
+    public boolean deleteWithVersion(@Positive final long version, @Nonnull final Object value)
+            throws IOException, VersionMismatchException {
+        evictAll();
+        return storageService.deleteWithVersion(version, value);
+    }
+
+    /** {@inheritDoc} */
+    public void reap(@Nonnull @NotEmpty final String context) throws IOException {
+        evict(context);
+        storageService.reap(context);
+    }
+
+    /** {@inheritDoc} */
+    public void updateContextExpiration(@Nonnull @NotEmpty final String context,
+            @Nullable @Positive final Long expiration) throws IOException {
+        evict(context);
+        storageService.updateContextExpiration(context, expiration);
+    }
+
+    /** {@inheritDoc} */
+    public void deleteContext(@Nonnull @NotEmpty final String context) throws IOException {
+        evict(context);
+        storageService.deleteContext(context);
+    }
+
+    /**
+     * Get whether a cached record has expired since it was read.
+     *
+     * @param record record to check
+     *
+     * @return true iff the record has expired
+     */
+    private boolean isExpired(@Nonnull final StorageRecord<?> record) {
+        final Long expiration = record.getExpiration();
+        return expiration != null && expiration <= System.currentTimeMillis();
+    }
+
+    /**
+     * Discard any record held for a key.
+     *
+     * @param context storage context
+     * @param key storage key
+     */
+    private void evict(@Nonnull @NotEmpty final String context, @Nonnull @NotEmpty final String key) {
+        final Map<String,StorageRecord<?>> records = getRecords(context);
+        if (records != null) {
+            records.remove(key);
+        }
+    }
+
+    /**
+     * Discard any records held for a context.
+     *
+     * @param context storage context
+     */
+    private void evict(@Nonnull @NotEmpty final String context) {
+        final Map<String,Map<String,StorageRecord<?>>> cache = getCache();
+        if (cache != null) {
+            cache.remove(context);
+        }
+    }
+
+    /** Discard all records held for the current request. */
+    private void evictAll() {
+        final Map<String,Map<String,StorageRecord<?>>> cache = getCache();
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Get the records held for a context in the current request.
+     *
+     * @param context storage context
+     *
+     * @return the records by key, or null if there is no profile request
+     */
+    @Nullable private Map<String,StorageRecord<?>> getRecords(@Nonnull @NotEmpty final String context) {
+        final Map<String,Map<String,StorageRecord<?>>> cache = getCache();
+        return cache != null ? cache.computeIfAbsent(context, c -> new HashMap<>()) : null;
+    }
+
+    /**
+     * Get the records held for the current request, discarding any held from an earlier request.
+     *
+     * @return the records by context and key, or null if there is no request or profile request
+     */
+    @Nullable private Map<String,Map<String,StorageRecord<?>>> getCache() {
+        // Nothing may be bound when the service is used outside of a request, e.g., from a background task.
+        final HttpServletRequest request = httpServletRequestSupplier.get();
+        if (request == null
+                || !(request.getAttribute(ProfileRequestContext.BINDING_KEY) instanceof ProfileRequestContext prc)) {
+            return null;
+        }
+
+        Object token = request.getAttribute(REQUEST_TOKEN_ATTRIBUTE);
+        if (token == null) {
+            token = new Object();
+            request.setAttribute(REQUEST_TOKEN_ATTRIBUTE, token);
+        }
+
+        final ScratchContext scratch = prc.ensureSubcontext(ScratchContext.class);
+        final Object existing = scratch.getMap().get(this);
+        if (existing instanceof RequestCache cache && cache.getToken() == token) {
+            return cache.getRecords();
+        }
+
+        final RequestCache cache = new RequestCache(token);
+        scratch.getMap().put(this, cache);
+        return cache.getRecords();
+    }
+
+    /** Records read during a single HTTP request. */
+    private static final class RequestCache {
+
+        /** Token identifying the request. */
+        @Nonnull private final Object token;
+
+        /** Records by context and key, with null for a record known not to exist. */
+        @Nonnull private final Map<String,Map<String,StorageRecord<?>>> records;
+
+        /**
+         * Constructor.
+         *
+         * @param requestToken token identifying the request
+         */
+        RequestCache(@Nonnull final Object requestToken) {
+            token = requestToken;
+            records = new HashMap<>();
+        }
+
+        /**
+         * Get the token identifying the request.
+         *
+         * @return request token
+         */
+        @Nonnull Object getToken() {
+            return token;
+        }
+
+        /**
+         * Get the records.
+         *
+         * @return records by context and key
+         */
+        @Nonnull Map<String,Map<String,StorageRecord<?>>> getRecords() {
+            return records;
+        }
+    }
+
+}
@@ -0,0 +1,162 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.shibboleth.idp.profile.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.opensaml.profile.action.ActionSupport;
+import org.opensaml.profile.action.EventIds;
+import org.opensaml.profile.context.ProfileRequestContext;
+import org.springframework.webflow.execution.Event;
+import org.springframework.webflow.execution.RequestContext;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import net.shibboleth.idp.profile.AbstractStatelessProfileAction;
+import net.shibboleth.idp.profile.context.navigate.WebflowRequestContextProfileRequestContextLookup;
+import net.shibboleth.idp.profile.testing.ActionTestingSupport;
+import net.shibboleth.idp.profile.testing.RequestContextBuilder;
+import net.shibboleth.profile.context.RelyingPartyContext;
+
+/** Unit test for {@link AbstractStatelessProfileAction}. */
+@SuppressWarnings("javadoc")
+public class AbstractStatelessProfileActionTest {
+
+    @Test public void testExecution() throws Exception {
+        final RequestContext src = new RequestContextBuilder().setInboundMessageIssuer("issuer").buildRequestContext();
+        final ProfileRequestContext prc = new WebflowRequestContextProfileRequestContextLookup().apply(src);
+        assert prc != null;
+
+        final MockStatelessAction action = new MockStatelessAction();
+        action.initialize();
+
+        ActionTestingSupport.assertProceedEvent(action.execute(src));
+        Assert.assertEquals(action.executions.get(prc), "issuer");
+    }
+
+    @Test public void testNoState() throws Exception {
+        final RequestContext src = new RequestContextBuilder().buildRequestContext();
+        final ProfileRequestContext prc = new WebflowRequestContextProfileRequestContextLookup().apply(src);
+        assert prc != null;
+        prc.removeSubcontext(RelyingPartyContext.class);
+
+        final MockStatelessAction action = new MockStatelessAction();
+        action.initialize();
+
+        ActionTestingSupport.assertEvent(action.execute(src), EventIds.INVALID_PROFILE_CTX);
+        Assert.assertTrue(action.executions.isEmpty());
+    }
+
+    @Test public void testSubclassOverrides() throws Exception {
+        final RequestContext src = new RequestContextBuilder().setInboundMessageIssuer("issuer").buildRequestContext();
+        final ProfileRequestContext prc = new WebflowRequestContextProfileRequestContextLookup().apply(src);
+        assert prc != null;
+
+        final MockStatelessAction skipped = new MockStatelessAction() {
+            @Override
+            protected boolean doPreExecute(@Nonnull final ProfileRequestContext profileRequestContext) {
+                return false;
+            }
+        };
+        skipped.initialize();
+        ActionTestingSupport.assertProceedEvent(skipped.execute(src));
+        Assert.assertTrue(skipped.executions.isEmpty());
+
+        final MockStatelessAction wrapped = new MockStatelessAction() {
+            @Override
+            protected void doExecute(@Nonnull final ProfileRequestContext profileRequestContext) {
+                super.doExecute(profileRequestContext);
+                ActionSupport.buildEvent(profileRequestContext, "Wrapped");
+            }
+        };
+        wrapped.initialize();
+        ActionTestingSupport.assertEvent(wrapped.execute(src), "Wrapped");
+        Assert.assertEquals(wrapped.executions.get(prc), "issuer");
+    }
+
+    @Test public void testConcurrentExecution() throws Exception {
+        final MockStatelessAction action = new MockStatelessAction();
+        action.initialize();
+
+        final int requests = 16;
+        final List<RequestContext> contexts = new ArrayList<>();
+        for (int i = 0; i < requests; i++) {
+            contexts.add(new RequestContextBuilder().setInboundMessageIssuer("issuer" + i).buildRequestContext());
+        }
+
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(requests);
+        try {
+            final List<Future<Event>> results = new ArrayList<>();
+            for (final RequestContext src : contexts) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return action.execute(src);
+                }));
+            }
+            start.countDown();
+            for (final Future<Event> result : results) {
+                ActionTestingSupport.assertProceedEvent(result.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Each request must have seen its own state, not another's.
+        for (int i = 0; i < requests; i++) {
+            final ProfileRequestContext prc =
+                    new WebflowRequestContextProfileRequestContextLookup().apply(contexts.get(i));
+            Assert.assertEquals(action.executions.get(prc), "issuer" + i);
+        }
+    }
+
+    /** Action that records the relying party it ran against for each request. */
+    private static class MockStatelessAction extends AbstractStatelessProfileAction<RelyingPartyContext> {
+
+        @Nonnull private final Map<ProfileRequestContext,String> executions = new ConcurrentHashMap<>();
+
+        /** {@inheritDoc} */
+        @Override
+        @Nullable protected RelyingPartyContext newState(@Nonnull final ProfileRequestContext profileRequestContext) {
+            final RelyingPartyContext rpCtx = profileRequestContext.getSubcontext(RelyingPartyContext.class);
+            if (rpCtx == null) {
+                ActionSupport.buildEvent(profileRequestContext, EventIds.INVALID_PROFILE_CTX);
+            }
+            return rpCtx;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        protected void doExecute(@Nonnull final ProfileRequestContext profileRequestContext,
+                @Nonnull final RelyingPartyContext state) {
+            Thread.yield();
+            final String relyingPartyId = state.getRelyingPartyId();
+            assert relyingPartyId != null;
+            executions.put(profileRequestContext, relyingPartyId);
+        }
+    }
+
+}
@@ -0,0 +1,143 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.shibboleth.idp.profile.impl;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.opensaml.core.config.ConfigurationService;
+import org.opensaml.profile.action.AbstractProfileAction;
+import org.opensaml.profile.context.ProfileRequestContext;
+import org.springframework.webflow.engine.ActionState;
+import org.springframework.webflow.engine.Flow;
+import org.springframework.webflow.test.MockRequestContext;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+import net.shibboleth.idp.profile.FlowLatencyMetrics;
+import net.shibboleth.idp.profile.testing.ActionTestingSupport;
+
+/** Unit test for action latency collection via {@link FlowLatencyMetrics}. */
+@SuppressWarnings("javadoc")
+public class FlowLatencyMetricsTest {
+
+    @Nonnull private static final String PREFIX = FlowLatencyMetrics.ACTION_METRIC_NAME + ".test.test-flow.";
+
+    private MetricRegistry registry;
+
+    private MockRequestContext src;
+
+    @BeforeMethod public void setUp() {
+        registry = new MetricRegistry();
+        ConfigurationService.register(MetricRegistry.class, registry);
+        FlowLatencyMetrics.setEnabled(true);
+
+        final ProfileRequestContext prc = new ProfileRequestContext();
+        prc.setProfileId("test");
+        final Flow flow = new Flow("test-flow");
+        src = new MockRequestContext(flow);
+        src.getConversationScope().put(ProfileRequestContext.BINDING_KEY, prc);
+        src.setCurrentState(new ActionState(flow, "TestState"));
+    }
+
+    @AfterMethod public void tearDown() {
+        FlowLatencyMetrics.setEnabled(false);
+        ConfigurationService.deregister(MetricRegistry.class);
+    }
+
+    @Test public void testDisabled() throws Exception {
+        FlowLatencyMetrics.setEnabled(false);
+        Assert.assertFalse(FlowLatencyMetrics.isEnabled());
+
+        final MockAction action = newAction("First");
+        ActionTestingSupport.assertProceedEvent(action.execute(src));
+        Assert.assertTrue(registry.getTimers().isEmpty());
+    }
+
+    @Test public void testBeanName() throws Exception {
+        final MockAction first = newAction("First");
+        final MockAction second = newAction("Second");
+
+        first.execute(src);
+        first.execute(src);
+        second.execute(src);
+
+        // Beans of the same class are timed separately.
+        Assert.assertEquals(registry.getTimers().size(), 2);
+        Assert.assertEquals(getTimer("First").getCount(), 2);
+        Assert.assertEquals(getTimer("Second").getCount(), 1);
+    }
+
+    @Test public void testInnerBean() throws Exception {
+        final MockAction action = newAction(MockAction.class.getName() + "#1f2e3d");
+        action.execute(src);
+
+        Assert.assertEquals(getTimer("TestState").getCount(), 1);
+    }
+
+    @Test public void testNoBeanName() throws Exception {
+        final MockAction action = newAction(null);
+        action.execute(src);
+
+        Assert.assertEquals(getTimer("TestState").getCount(), 1);
+    }
+
+    @Test public void testAdaptedAction() throws Exception {
+        final MockOpenSAMLAction adapted = new MockOpenSAMLAction();
+        adapted.initialize();
+        final Object bean = new ProfileActionBeanPostProcessor().postProcessAfterInitialization(adapted, "Adapted");
+        Assert.assertTrue(bean instanceof WebFlowProfileActionAdaptor);
+        ((WebFlowProfileActionAdaptor) bean).execute(src);
+
+        Assert.assertEquals(getTimer("Adapted").getCount(), 1);
+    }
+
+    @Test public void testNoRegistry() throws Exception {
+        ConfigurationService.deregister(MetricRegistry.class);
+
+        final MockAction action = newAction("First");
+        ActionTestingSupport.assertProceedEvent(action.execute(src));
+        Assert.assertTrue(registry.getTimers().isEmpty());
+    }
+
+    @Nonnull private MockAction newAction(@Nullable final String beanName) throws Exception {
+        final MockAction action = new MockAction();
+        if (beanName != null) {
+            action.setBeanName(beanName);
+        }
+        action.initialize();
+        return action;
+    }
+
+    @Nonnull private Timer getTimer(@Nonnull final String id) {
+        final Timer timer = registry.getTimers().get(PREFIX + id);
+        assert timer != null;
+        return timer;
+    }
+
+    private static class MockAction extends net.shibboleth.idp.profile.AbstractProfileAction {
+
+    }
+
+    private static class MockOpenSAMLAction extends AbstractProfileAction {
+
+    }
+
+}
@@ -14,12 +14,16 @@
 
 package net.shibboleth.idp.profile.impl;
 
+import javax.annotation.Nonnull;
+
+import org.opensaml.profile.context.ProfileRequestContext;
 import org.springframework.context.ApplicationContext;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.testng.AbstractTestNGSpringContextTests;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import net.shibboleth.idp.profile.AbstractStatelessProfileAction;
 import net.shibboleth.shared.annotation.Prototype;
 
 /** {@link ProfileActionBeanFactoryPostProcessor} unit test. */
@@ -34,6 +38,7 @@ public class ProfileActionBeanFactoryPostProcessorTest extends AbstractTestNGSpr
         Assert.assertTrue(ac.isPrototype("MockPrototypeAnnotatedIdPActionWithoutScopeProperty"));
         Assert.assertTrue(ac.isPrototype("MockOpenSAMLActionWithoutScopeProperty"));
         Assert.assertTrue(ac.isPrototype("MockPrototypeAnnotatedOpenSAMLActionWithoutScopeProperty"));
+        Assert.assertTrue(ac.isSingleton("MockStatelessActionWithoutScopeProperty"));
     }
 
     public static class MockIdPAction extends net.shibboleth.idp.profile.AbstractProfileAction {
@@ -49,4 +54,17 @@ public class ProfileActionBeanFactoryPostProcessorTest extends AbstractTestNGSpr
     @Prototype
     public static class MockPrototypeAnnotatedOpenSAMLAction extends org.opensaml.profile.action.AbstractProfileAction {
     }
+
+    public static class MockStatelessAction extends AbstractStatelessProfileAction<StringBuilder> {
+
+        @Override
+        @Nonnull protected StringBuilder newState(@Nonnull final ProfileRequestContext profileRequestContext) {
+            return new StringBuilder();
+        }
+
+        @Override
+        protected void doExecute(@Nonnull final ProfileRequestContext profileRequestContext,
+                @Nonnull final StringBuilder state) {
+        }
+    }
 }
@@ -0,0 +1,292 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.shibboleth.idp.profile.impl;
+
+import java.io.UnsupportedEncodingException;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.webflow.execution.RequestContext;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import jakarta.servlet.http.HttpServletResponse;
+import net.shibboleth.idp.profile.impl.ServiceReloadManager.ReloadJob;
+import net.shibboleth.idp.profile.testing.ActionTestingSupport;
+import net.shibboleth.idp.profile.testing.RequestContextBuilder;
+import net.shibboleth.shared.component.ComponentInitializationException;
+import net.shibboleth.shared.component.IdentifiedComponent;
+import net.shibboleth.shared.service.ReloadableService;
+import net.shibboleth.shared.service.ServiceException;
+import net.shibboleth.shared.service.ServiceableComponent;
+import net.shibboleth.shared.testing.ConstantSupplier;
+
+/** {@link ReloadServiceConfiguration} unit test. */
+@SuppressWarnings("javadoc")
+public class ReloadServiceConfigurationTest {
+
+    @Nonnull private static final Pattern JOB_ID = Pattern.compile("Reload job '([^']+)' started");
+
+    private ServiceReloadManager manager;
+
+    private boolean useManager;
+
+    @BeforeMethod public void setUp() throws ComponentInitializationException {
+        manager = new ServiceReloadManager();
+        manager.initialize();
+        useManager = true;
+    }
+
+    @AfterMethod public void tearDown() {
+        manager.destroy();
+    }
+
+    @Test public void testNoManager() throws Exception {
+        useManager = false;
+        final MockService service1 = new MockService("service1", null, null);
+        final MockService service2 = new MockService("service2", null, null);
+
+        // Without a manager, services are reloaded one at a time on the request thread.
+        MockHttpServletResponse response = execute(List.of(service1, service2), false, null);
+        Assert.assertEquals(response.getStatus(), HttpServletResponse.SC_OK);
+        Assert.assertEquals(service1.reloads.get(), 1);
+        Assert.assertEquals(service2.reloads.get(), 1);
+
+        response = execute(List.of(service1), true, null);
+        Assert.assertEquals(response.getStatus(), HttpServletResponse.SC_NOT_IMPLEMENTED);
+        Assert.assertEquals(service1.reloads.get(), 1);
+
+        response = execute(null, false, "unknown");
+        Assert.assertEquals(response.getStatus(), HttpServletResponse.SC_NOT_IMPLEMENTED);
+    }
+
+    @Test public void testServiceNotFound() throws Exception {
+        final MockHttpServletResponse response = execute(null, false, null);
+        Assert.assertEquals(response.getStatus(), HttpServletResponse.SC_NOT_FOUND);
+    }
+
+    @Test public void testReload() throws Exception {
+        final MockService service1 = new MockService("service1", null, null);
+        final MockService service2 = new MockService("service2", null, null);
+
+        final MockHttpServletResponse response = execute(List.of(service1, service2), false, null);
+        Assert.assertEquals(response.getStatus(), HttpServletResponse.SC_OK);
+        final String body = response.getContentAsString();
+        Assert.assertTrue(body.contains("Configuration reloaded for 'service1'"));
+        Assert.assertTrue(body.contains("Configuration reloaded for 'service2'"));
+        Assert.assertTrue(body.contains("Reloaded 2 services"));
+        Assert.assertEquals(service1.reloads.get(), 1);
+        Assert.assertEquals(service2.reloads.get(), 1);
+    }
+
+    @Test public void testReloadFailure() throws Exception {
+        final MockService service = new MockService("service1", null, new ServiceException("Broken"));
+
+        final MockHttpServletResponse response = execute(List.of(service), false, null);
+        Assert.assertEquals(response.getStatus(), HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+        Assert.assertEquals(response.getErrorMessage(), "Broken");
+    }
+
+    @Test public void testAsync() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final MockService service = new MockService("service1", latch, null);
+
+        MockHttpServletResponse response = execute(List.of(service), true, null);
+        Assert.assertEquals(response.getStatus(), HttpServletResponse.SC_ACCEPTED);
+        final Matcher matcher = JOB_ID.matcher(response.getContentAsString());
+        Assert.assertTrue(matcher.find());
+        final String jobId = matcher.group(1);
+        assert jobId != null;
+        final ReloadJob job = manager.getJob(jobId);
+        assert job != null;
+
+        // The request returns while the reload is still running.
+        response = execute(null, false, jobId);
+        Assert.assertEquals(response.getStatus(), HttpServletResponse.SC_OK);
+        String body = response.getContentAsString();
+        Assert.assertTrue(body.contains("running since"));
+        Assert.assertTrue(body.contains("Reloading 'service1'"));
+
+        latch.countDown();
+        final Instant deadline = Instant.now().plusSeconds(10);
+        while (job.getFinished() == null && Instant.now().isBefore(deadline)) {
+            Thread.sleep(10);
+        }
+
+        response = execute(null, false, jobId);
+        Assert.assertEquals(response.getStatus(), HttpServletResponse.SC_OK);
+        body = response.getContentAsString();
+        Assert.assertTrue(body.contains("finished in"));
+        Assert.assertTrue(body.contains("Configuration reloaded for 'service1'"));
+        Assert.assertEquals(service.reloads.get(), 1);
+    }
+
+    @Test public void testAsyncFailure() throws Exception {
+        final MockService service = new MockService("service1", null, new ServiceException("Broken"));
+
+        MockHttpServletResponse response = execute(List.of(service), true, null);
+        Assert.assertEquals(response.getStatus(), HttpServletResponse.SC_ACCEPTED);
+        final Matcher matcher = JOB_ID.matcher(response.getContentAsString());
+        Assert.assertTrue(matcher.find());
+        final String jobId = matcher.group(1);
+        assert jobId != null;
+        final ReloadJob job = manager.getJob(jobId);
+        assert job != null;
+
+        final Instant deadline = Instant.now().plusSeconds(10);
+        while (job.getFinished() == null && Instant.now().isBefore(deadline)) {
+            Thread.sleep(10);
+        }
+
+        response = execute(null, false, jobId);
+        Assert.assertEquals(response.getStatus(), HttpServletResponse.SC_OK);
+        Assert.assertTrue(response.getContentAsString().contains("Error reloading 'service1': Broken"));
+    }
+
+    @Test public void testUnknownJob() throws Exception {
+        final MockHttpServletResponse response = execute(null, false, "unknown");
+        Assert.assertEquals(response.getStatus(), HttpServletResponse.SC_NOT_FOUND);
+        Assert.assertEquals(response.getErrorMessage(), "Job not found.");
+    }
+
+    /**
+     * Run the action against a new request.
+     *
+     * @param services services to reload, or null if none are found
+     * @param async whether to reload in the background
+     * @param jobId job to report on
+     *
+     * @return the response
+     *
+     * @throws ComponentInitializationException if the action fails to initialize
+     * @throws UnsupportedEncodingException never
+     */
+    @Nonnull private MockHttpServletResponse execute(@Nullable final Collection<ReloadableService<?>> services,
+            final boolean async, @Nullable final String jobId)
+                    throws ComponentInitializationException, UnsupportedEncodingException {
+        final RequestContext rc = new RequestContextBuilder().buildRequestContext();
+        final MockHttpServletResponse response =
+                (MockHttpServletResponse) rc.getExternalContext().getNativeResponse();
+        assert response != null;
+        rc.getFlowScope().put(ReloadServiceConfiguration.ASYNC, async);
+        if (jobId != null) {
+            rc.getFlowScope().put(ReloadServiceConfiguration.JOB_ID, jobId);
+        }
+
+        final ReloadServiceConfiguration action = new ReloadServiceConfiguration();
+        action.setHttpServletResponseSupplier(new ConstantSupplier<>(response));
+        action.setServicesLookupStrategy(prc -> services);
+        if (useManager) {
+            action.setReloadManager(manager);
+        }
+        action.initialize();
+
+        ActionTestingSupport.assertProceedEvent(action.execute(rc));
+        return response;
+    }
+
+    /** Identified service that counts its reloads. */
+    private static class MockService implements ReloadableService<Object>, IdentifiedComponent {
+
+        /** Service ID. */
+        @Nonnull private final String id;
+
+        /** Number of reloads. */
+        @Nonnull private final AtomicInteger reloads;
+
+        /** Latch to wait on before reloading. */
+        @Nullable private final CountDownLatch latch;
+
+        /** Error to raise. */
+        @Nullable private final ServiceException error;
+
+        /**
+         * Constructor.
+         *
+         * @param serviceId service ID
+         * @param reloadLatch latch to wait on before reloading
+         * @param reloadError error to raise
+         */
+        MockService(@Nonnull final String serviceId, @Nullable final CountDownLatch reloadLatch,
+                @Nullable final ServiceException reloadError) {
+            id = serviceId;
+            reloads = new AtomicInteger();
+            latch = reloadLatch;
+            error = reloadError;
+        }
+
+        /** {@inheritDoc} */
+        @Nonnull public String getId() {
+            return id;
+        }
+
+        /** {@inheritDoc} */
+        public boolean isInitialized() {
+            return true;
+        }
+
+        /** {@inheritDoc} */
+        public void initialize() {
+        }
+
+        /** {@inheritDoc} */
+        public Instant getLastSuccessfulReloadInstant() {
+            return null;
+        }
+
+        /** {@inheritDoc} */
+        public Instant getLastReloadAttemptInstant() {
+            return null;
+        }
+
+        /** {@inheritDoc} */
+        public Throwable getReloadFailureCause() {
+            return null;
+        }
+
+        /** {@inheritDoc} */
+        public void reload() throws ServiceException {
+            try {
+                if (latch != null) {
+                    latch.await(10, TimeUnit.SECONDS);
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            reloads.incrementAndGet();
+            if (error != null) {
+                throw error;
+            }
+        }
+
+        /** {@inheritDoc} */
+        @Nonnull public ServiceableComponent<Object> getServiceableComponent() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+}
@@ -0,0 +1,223 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.shibboleth.idp.profile.impl;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.opensaml.core.config.ConfigurationService;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.codahale.metrics.MetricRegistry;
+
+import net.shibboleth.idp.profile.impl.ServiceReloadManager.ReloadJob;
+import net.shibboleth.shared.component.ComponentInitializationException;
+import net.shibboleth.shared.service.ReloadableService;
+import net.shibboleth.shared.service.ServiceException;
+import net.shibboleth.shared.service.ServiceableComponent;
+
+/** {@link ServiceReloadManager} unit test. */
+@SuppressWarnings("javadoc")
+public class ServiceReloadManagerTest {
+
+    private MetricRegistry registry;
+
+    private ServiceReloadManager manager;
+
+    @BeforeMethod public void setUp() throws ComponentInitializationException {
+        registry = new MetricRegistry();
+        ConfigurationService.register(MetricRegistry.class, registry);
+
+        manager = new ServiceReloadManager();
+        manager.setMaxThreads(2);
+    }
+
+    @AfterMethod public void tearDown() {
+        manager.destroy();
+        ConfigurationService.deregister(MetricRegistry.class);
+    }
+
+    @Test public void testReload() throws ComponentInitializationException {
+        manager.initialize();
+
+        final MockService good = new MockService(null, null);
+        final MockService bad = new MockService(null, new ServiceException("Broken"));
+        final Map<String,ServiceException> results = manager.reload(Map.of("good", good, "bad", bad));
+
+        Assert.assertNull(results.get("good"));
+        Assert.assertEquals(results.get("bad").getMessage(), "Broken");
+        Assert.assertEquals(good.reloads.get(), 1);
+        Assert.assertEquals(bad.reloads.get(), 1);
+
+        Assert.assertEquals(registry.timer(ServiceReloadManager.DEFAULT_METRIC_NAME + ".good.time").getCount(), 1);
+        Assert.assertEquals(registry.timer(ServiceReloadManager.DEFAULT_METRIC_NAME + ".bad.time").getCount(), 1);
+        Assert.assertEquals(registry.counter(ServiceReloadManager.DEFAULT_METRIC_NAME + ".good.failures").getCount(),
+                0);
+        Assert.assertEquals(registry.counter(ServiceReloadManager.DEFAULT_METRIC_NAME + ".bad.failures").getCount(),
+                1);
+    }
+
+    @Test public void testJob() throws Exception {
+        manager.initialize();
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        final MockService service = new MockService(latch, null);
+        final ReloadJob job = manager.submit(Map.of("service", service));
+
+        Assert.assertSame(manager.getJob(job.getId()), job);
+        Assert.assertEquals(job.getServiceIds(), Set.of("service"));
+        Assert.assertNull(job.getFinished());
+        Assert.assertFalse(job.isDone("service"));
+
+        latch.countDown();
+        awaitFinished(job);
+        Assert.assertTrue(job.isDone("service"));
+        Assert.assertNull(job.getError("service"));
+        Assert.assertEquals(service.reloads.get(), 1);
+    }
+
+    @Test public void testJobFailure() throws Exception {
+        manager.initialize();
+
+        final ReloadJob job = manager.submit(Map.of("service", new MockService(null, new ServiceException("Broken"))));
+        awaitFinished(job);
+
+        final Throwable error = job.getError("service");
+        assert error != null;
+        Assert.assertEquals(error.getMessage(), "Broken");
+    }
+
+    @Test public void testRetention() throws Exception {
+        manager.setJobRetention(Duration.ofMillis(500));
+        manager.initialize();
+
+        final ReloadJob first = manager.submit(Map.of("service", new MockService(null, null)));
+        awaitFinished(first);
+
+        // Still within the retention period.
+        final ReloadJob second = manager.submit(Map.of("service", new MockService(null, null)));
+        Assert.assertSame(manager.getJob(first.getId()), first);
+        awaitFinished(second);
+
+        // Finished jobs are discarded once the period has passed.
+        Thread.sleep(600);
+        final ReloadJob third = manager.submit(Map.of("service", new MockService(null, null)));
+        Assert.assertNull(manager.getJob(first.getId()));
+        Assert.assertNull(manager.getJob(second.getId()));
+        Assert.assertSame(manager.getJob(third.getId()), third);
+    }
+
+    @Test public void testUnknownJob() throws ComponentInitializationException {
+        manager.initialize();
+
+        Assert.assertNull(manager.getJob("unknown"));
+    }
+
+    /**
+     * Wait for a job to finish.
+     *
+     * @param job the job
+     *
+     * @throws InterruptedException if interrupted
+     */
+    private void awaitFinished(@Nonnull final ReloadJob job) throws InterruptedException {
+        final Instant deadline = Instant.now().plusSeconds(10);
+        while (job.getFinished() == null && Instant.now().isBefore(deadline)) {
+            Thread.sleep(10);
+        }
+        Assert.assertNotNull(job.getFinished());
+    }
+
+    /** Service that counts its reloads. */
+    private static class MockService implements ReloadableService<Object> {
+
+        /** Number of reloads. */
+        @Nonnull private final AtomicInteger reloads;
+
+        /** Latch to wait on before reloading. */
+        @Nullable private final CountDownLatch latch;
+
+        /** Error to raise. */
+        @Nullable private final ServiceException error;
+
+        /**
+         * Constructor.
+         *
+         * @param reloadLatch latch to wait on before reloading
+         * @param reloadError error to raise
+         */
+        MockService(@Nullable final CountDownLatch reloadLatch, @Nullable final ServiceException reloadError) {
+            reloads = new AtomicInteger();
+            latch = reloadLatch;
+            error = reloadError;
+        }
+
+        /** {@inheritDoc} */
+        public boolean isInitialized() {
+            return true;
+        }
+
+        /** {@inheritDoc} */
+        public void initialize() {
+        }
+
+        /** {@inheritDoc} */
+        public Instant getLastSuccessfulReloadInstant() {
+            return null;
+        }
+
+        /** {@inheritDoc} */
+        public Instant getLastReloadAttemptInstant() {
+            return null;
+        }
+
+        /** {@inheritDoc} */
+        public Throwable getReloadFailureCause() {
+            return null;
+        }
+
+        /** {@inheritDoc} */
+        public void reload() throws ServiceException {
+            try {
+                if (latch != null) {
+                    latch.await(10, TimeUnit.SECONDS);
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            reloads.incrementAndGet();
+            if (error != null) {
+                throw error;
+            }
+        }
+
+        /** {@inheritDoc} */
+        @Nonnull public ServiceableComponent<Object> getServiceableComponent() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+}
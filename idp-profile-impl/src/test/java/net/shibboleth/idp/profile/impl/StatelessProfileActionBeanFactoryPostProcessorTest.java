@@ -0,0 +1,74 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.shibboleth.idp.profile.impl;
+
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.testng.AbstractTestNGSpringContextTests;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import net.shibboleth.idp.profile.audit.impl.PopulateAuditContext;
+import net.shibboleth.idp.profile.impl.ProfileActionBeanFactoryPostProcessorTest.MockStatelessAction;
+
+/** {@link StatelessProfileActionBeanFactoryPostProcessor} unit test. */
+@SuppressWarnings("javadoc")
+@ContextConfiguration({"StatelessProfileActionBeanFactoryPostProcessorTest.xml"})
+public class StatelessProfileActionBeanFactoryPostProcessorTest extends AbstractTestNGSpringContextTests {
+
+    @Test public void testPostProcessBeanFactory() {
+        final ApplicationContext ac = applicationContext;
+        assert ac != null;
+        
+        Assert.assertTrue(ac.isSingleton("StatelessAction"));
+        Assert.assertSame(ac.getBean("StatelessAction"), ac.getBean("StatelessAction"));
+        Assert.assertTrue(ac.isSingleton("ChildStatelessAction"));
+        Assert.assertTrue(ac.isSingleton("InheritedScopeStatelessAction"));
+        Assert.assertSame(ac.getBean("InheritedScopeStatelessAction"), ac.getBean("InheritedScopeStatelessAction"));
+        
+        Assert.assertTrue(ac.isPrototype("StatelessSubclassAction"));
+        Assert.assertNotSame(ac.getBean("StatelessSubclassAction"), ac.getBean("StatelessSubclassAction"));
+        Assert.assertTrue(ac.isPrototype("StatefulAction"));
+        Assert.assertNotSame(ac.getBean("StatefulAction"), ac.getBean("StatefulAction"));
+    }
+
+    @Test public void testDefaultClasses() {
+        final DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        final RootBeanDefinition shipped = new RootBeanDefinition(PopulateAuditContext.class);
+        shipped.setScope(RootBeanDefinition.SCOPE_PROTOTYPE);
+        beanFactory.registerBeanDefinition("Shipped", shipped);
+        final RootBeanDefinition subclass = new RootBeanDefinition(MockPopulateAuditContext.class);
+        subclass.setScope(RootBeanDefinition.SCOPE_PROTOTYPE);
+        beanFactory.registerBeanDefinition("Subclass", subclass);
+        final RootBeanDefinition other = new RootBeanDefinition(MockStatelessAction.class);
+        other.setScope(RootBeanDefinition.SCOPE_PROTOTYPE);
+        beanFactory.registerBeanDefinition("Other", other);
+
+        new StatelessProfileActionBeanFactoryPostProcessor().postProcessBeanFactory(beanFactory);
+
+        Assert.assertTrue(beanFactory.isSingleton("Shipped"));
+        Assert.assertTrue(beanFactory.isPrototype("Subclass"));
+        Assert.assertTrue(beanFactory.isPrototype("Other"));
+    }
+
+    public static class MockStatelessSubclassAction extends MockStatelessAction {
+    }
+
+    public static class MockPopulateAuditContext extends PopulateAuditContext {
+    }
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.shibboleth.idp.profile.support;
+
+import javax.annotation.Nonnull;
+
+import org.opensaml.core.config.ConfigurationService;
+import org.opensaml.profile.context.ProfileRequestContext;
+import org.springframework.webflow.engine.ActionState;
+import org.springframework.webflow.engine.Flow;
+import org.springframework.webflow.test.MockRequestContext;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+import net.shibboleth.idp.profile.FlowLatencyMetrics;
+
+/** {@link FlowLatencyFlowExecutionListener} unit test. */
+@SuppressWarnings("javadoc")
+public class FlowLatencyFlowExecutionListenerTest {
+
+    @Nonnull private static final String PREFIX = FlowLatencyMetrics.STATE_METRIC_NAME + ".test.test-flow.";
+
+    private MetricRegistry registry;
+
+    private FlowLatencyFlowExecutionListener listener;
+
+    private MockRequestContext context;
+
+    private ActionState first;
+
+    private ActionState second;
+
+    @BeforeMethod public void setUp() throws Exception {
+        registry = new MetricRegistry();
+        ConfigurationService.register(MetricRegistry.class, registry);
+
+        listener = new FlowLatencyFlowExecutionListener();
+        listener.setEnabled(true);
+
+        final ProfileRequestContext prc = new ProfileRequestContext();
+        prc.setProfileId("test");
+        final Flow flow = new Flow("test-flow");
+        first = new ActionState(flow, "first");
+        second = new ActionState(flow, "second");
+        context = new MockRequestContext(flow);
+        context.getConversationScope().put(ProfileRequestContext.BINDING_KEY, prc);
+    }
+
+    @AfterMethod public void tearDown() {
+        listener.setEnabled(false);
+        ConfigurationService.deregister(MetricRegistry.class);
+    }
+
+    @Test public void testEnabled() {
+        Assert.assertTrue(FlowLatencyMetrics.isEnabled());
+        listener.setEnabled(false);
+        Assert.assertFalse(FlowLatencyMetrics.isEnabled());
+    }
+
+    @Test public void testTransitions() throws Exception {
+        listener.stateEntered(context, null, first);
+        Thread.sleep(5);
+        listener.stateEntering(context, second);
+        listener.stateEntered(context, first, second);
+        listener.requestProcessed(context);
+
+        Assert.assertEquals(registry.getTimers().size(), 2);
+        Assert.assertEquals(getTimer("first").getCount(), 1);
+        Assert.assertTrue(getTimer("first").getSnapshot().getMax() >= 5000000);
+        Assert.assertEquals(getTimer("second").getCount(), 1);
+
+        // Nothing is left to record.
+        listener.requestProcessed(context);
+        Assert.assertEquals(getTimer("second").getCount(), 1);
+    }
+
+    @Test public void testPauseAndResume() {
+        listener.stateEntered(context, null, first);
+        listener.paused(context);
+        Assert.assertEquals(getTimer("first").getCount(), 1);
+
+        // Time spent paused isn't recorded, but the resumed state is.
+        context.setCurrentState(first);
+        listener.resuming(context);
+        listener.requestProcessed(context);
+        Assert.assertEquals(getTimer("first").getCount(), 2);
+    }
+
+    @Test public void testDisabled() {
+        listener.setEnabled(false);
+
+        listener.stateEntered(context, null, first);
+        listener.stateEntering(context, second);
+        listener.stateEntered(context, first, second);
+        listener.requestProcessed(context);
+
+        Assert.assertTrue(registry.getTimers().isEmpty());
+    }
+
+    @Test public void testNoProfileRequest() {
+        context.getConversationScope().remove(ProfileRequestContext.BINDING_KEY);
+
+        listener.stateEntered(context, null, first);
+        listener.requestProcessed(context);
+
+        Assert.assertNotNull(
+                registry.getTimers().get(FlowLatencyMetrics.STATE_METRIC_NAME + ".unknown.test-flow.first"));
+    }
+
+    @Nonnull private Timer getTimer(@Nonnull final String id) {
+        final Timer timer = registry.getTimers().get(PREFIX + id);
+        assert timer != null;
+        return timer;
+    }
+
+}
@@ -0,0 +1,194 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.shibboleth.idp.profile.support;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+
+import javax.annotation.Nonnull;
+
+import org.opensaml.profile.context.ProfileRequestContext;
+import org.opensaml.storage.StorageRecord;
+import org.opensaml.storage.impl.MemoryStorageService;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import jakarta.servlet.http.HttpServletRequest;
+import net.shibboleth.idp.profile.testing.RequestContextBuilder;
+import net.shibboleth.shared.collection.Pair;
+import net.shibboleth.shared.component.ComponentInitializationException;
+import net.shibboleth.shared.primitive.NonnullSupplier;
+
+/** {@link RequestCachingStorageService} unit test. */
+@SuppressWarnings("javadoc")
+public class RequestCachingStorageServiceTest {
+
+    private static final String CONTEXT = "context";
+
+    private static final String KEY = "key";
+
+    private ProfileRequestContext prc;
+
+    private MockHttpServletRequest request;
+
+    private MemoryStorageService storage;
+
+    private RequestCachingStorageService cache;
+
+    private Long expiration;
+
+    @BeforeMethod
+    public void setUp() throws ComponentInitializationException {
+        prc = new RequestContextBuilder().buildProfileRequestContext();
+        request = newRequest();
+
+        storage = new MemoryStorageService();
+        storage.setId("test");
+        storage.setCleanupInterval(Duration.ZERO);
+        storage.initialize();
+
+        cache = new RequestCachingStorageService();
+        cache.setStorageService(storage);
+        cache.setHttpServletRequestSupplier(new NonnullSupplier<>() {
+            @Nonnull public HttpServletRequest get() {return request;}});
+        cache.initialize();
+
+        expiration = Instant.now().plusSeconds(600).toEpochMilli();
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        cache.destroy();
+        storage.destroy();
+    }
+
+    @Test public void testInitFailure() {
+        final RequestCachingStorageService service = new RequestCachingStorageService();
+        try {
+            service.initialize();
+            Assert.fail();
+        } catch (final ComponentInitializationException e) {
+
+        }
+    }
+
+    @Test public void testReadCachedForRequest() throws IOException {
+        storage.create(CONTEXT, KEY, "foo", expiration);
+        Assert.assertEquals(cache.getId(), "test");
+
+        StorageRecord<String> record = cache.read(CONTEXT, KEY);
+        assert record != null;
+        Assert.assertEquals(record.getValue(), "foo");
+
+        storage.update(CONTEXT, KEY, "bar", expiration);
+        record = cache.read(CONTEXT, KEY);
+        assert record != null;
+        Assert.assertEquals(record.getValue(), "foo");
+
+        request = newRequest();
+        record = cache.read(CONTEXT, KEY);
+        assert record != null;
+        Assert.assertEquals(record.getValue(), "bar");
+    }
+
+    @Test public void testMissingCachedForRequest() throws IOException {
+        Assert.assertNull(cache.read(CONTEXT, KEY));
+
+        storage.create(CONTEXT, KEY, "foo", expiration);
+        Assert.assertNull(cache.read(CONTEXT, KEY));
+
+        request = newRequest();
+        Assert.assertNotNull(cache.read(CONTEXT, KEY));
+    }
+
+    @Test public void testWriteInvalidates() throws IOException {
+        Assert.assertNull(cache.read(CONTEXT, KEY));
+        Assert.assertTrue(cache.create(CONTEXT, KEY, "foo", expiration));
+
+        StorageRecord<String> record = cache.read(CONTEXT, KEY);
+        assert record != null;
+        Assert.assertEquals(record.getValue(), "foo");
+
+        Assert.assertNotNull(cache.updateWithVersion(record.getVersion(), CONTEXT, KEY, "bar", expiration));
+        record = cache.read(CONTEXT, KEY);
+        assert record != null;
+        Assert.assertEquals(record.getValue(), "bar");
+        Assert.assertEquals(record.getVersion(), 2);
+
+        Assert.assertTrue(cache.delete(CONTEXT, KEY));
+        Assert.assertNull(cache.read(CONTEXT, KEY));
+
+        cache.create(CONTEXT, KEY, "baz", expiration);
+        Assert.assertNotNull(cache.read(CONTEXT, KEY));
+        cache.deleteContext(CONTEXT);
+        Assert.assertNull(cache.read(CONTEXT, KEY));
+    }
+
+    @Test public void testVersionedRead() throws IOException {
+        storage.create(CONTEXT, KEY, "foo", expiration);
+        Assert.assertNotNull(cache.read(CONTEXT, KEY));
+
+        storage.update(CONTEXT, KEY, "bar", expiration);
+
+        Pair<Long,StorageRecord<String>> result = cache.read(CONTEXT, KEY, 1);
+        Assert.assertEquals(result.getFirst(), Long.valueOf(1));
+        Assert.assertNull(result.getSecond());
+
+        request = newRequest();
+        result = cache.read(CONTEXT, KEY, 1);
+        Assert.assertEquals(result.getFirst(), Long.valueOf(2));
+        final StorageRecord<String> record = result.getSecond();
+        assert record != null;
+        Assert.assertEquals(record.getValue(), "bar");
+    }
+
+    @Test public void testNoProfileRequest() throws IOException {
+        request = new MockHttpServletRequest();
+
+        storage.create(CONTEXT, KEY, "foo", expiration);
+        Assert.assertNotNull(cache.read(CONTEXT, KEY));
+
+        storage.update(CONTEXT, KEY, "bar", expiration);
+        final StorageRecord<String> record = cache.read(CONTEXT, KEY);
+        assert record != null;
+        Assert.assertEquals(record.getValue(), "bar");
+    }
+
+    @Test public void testNoRequest() throws IOException {
+        request = null;
+
+        storage.create(CONTEXT, KEY, "foo", expiration);
+        Assert.assertNotNull(cache.read(CONTEXT, KEY));
+
+        storage.update(CONTEXT, KEY, "bar", expiration);
+        final StorageRecord<String> record = cache.read(CONTEXT, KEY);
+        assert record != null;
+        Assert.assertEquals(record.getValue(), "bar");
+
+        Assert.assertTrue(cache.delete(CONTEXT, KEY));
+        Assert.assertNull(cache.read(CONTEXT, KEY));
+    }
+
+    @Nonnull private MockHttpServletRequest newRequest() {
+        final MockHttpServletRequest newRequest = new MockHttpServletRequest();
+        newRequest.setAttribute(ProfileRequestContext.BINDING_KEY, prc);
+        return newRequest;
+    }
+
+}
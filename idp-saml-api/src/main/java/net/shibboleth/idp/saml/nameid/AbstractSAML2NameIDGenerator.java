@@ -14,6 +14,8 @@
 
 package net.shibboleth.idp.saml.nameid;
 
+import java.util.Collection;
+import java.util.Set;
 import java.util.function.Function;
 
 import javax.annotation.Nonnull;
@@ -23,19 +25,29 @@ import org.opensaml.messaging.context.navigate.ChildContextLookup;
 import org.opensaml.messaging.context.navigate.MessageLookup;
 import org.opensaml.profile.context.ProfileRequestContext;
 import org.opensaml.profile.context.navigate.InboundMessageContextLookup;
+import org.opensaml.saml.common.SAMLException;
 import org.opensaml.saml.saml2.core.AuthnRequest;
+import org.opensaml.saml.saml2.core.NameID;
 import org.opensaml.saml.saml2.core.NameIDPolicy;
 
 import com.google.common.base.Strings;
 
 import net.shibboleth.profile.context.RelyingPartyContext;
 import net.shibboleth.saml.saml2.profile.config.BrowserSSOProfileConfiguration;
+import net.shibboleth.shared.annotation.constraint.NotEmpty;
+import net.shibboleth.shared.annotation.constraint.NotLive;
+import net.shibboleth.shared.annotation.constraint.Unmodifiable;
+import net.shibboleth.shared.collection.CollectionSupport;
 import net.shibboleth.shared.logic.Constraint;
+import net.shibboleth.shared.primitive.StringSupport;
 
 /**
  * IdP-specific base class for SAML 2.0 NameID generation that extends the OpenSAML base class with support for
  * {@link BrowserSSOProfileConfiguration#getSPNameQualifier(org.opensaml.profile.context.ProfileRequestContext)}.
  * 
+ * <p>A generator may also be limited to a static set of relying parties, which is checked ahead of
+ * any activation condition and allows selection logic to index generators by relying party.</p>
+ * 
  * @since 5.0.0
  */
 public class AbstractSAML2NameIDGenerator extends org.opensaml.saml.saml2.profile.AbstractSAML2NameIDGenerator {
@@ -46,12 +58,16 @@ public class AbstractSAML2NameIDGenerator extends org.opensaml.saml.saml2.profil
     /** Strategy used to locate an {@link AuthnRequest} to check. */
     @Nonnull private Function<ProfileRequestContext,AuthnRequest> requestLookupStrategy;
 
+    /** Relying parties the generator is limited to, or empty for no limit. */
+    @Nonnull private Set<String> relyingParties;
+
     /**
      * Constructor.
      */
     public AbstractSAML2NameIDGenerator() {
         requestLookupStrategy = new MessageLookup<>(AuthnRequest.class).compose(new InboundMessageContextLookup());
         relyingPartyContextLookupStrategy = new ChildContextLookup<>(RelyingPartyContext.class); 
+        relyingParties = CollectionSupport.emptySet();
     }
 
     /**
@@ -79,6 +95,52 @@ public class AbstractSAML2NameIDGenerator extends org.opensaml.saml.saml2.profil
                 Constraint.isNotNull(strategy, "RelyingPartyContext lookup strategy cannot be null");
     }
     
+    /**
+     * Get the relying parties the generator is limited to.
+     * 
+     * @return relying party names, empty if unlimited
+     * 
+     * @since 5.2.0
+     */
+    @Nonnull @NotLive @Unmodifiable public Set<String> getRelyingParties() {
+        return relyingParties;
+    }
+
+    /**
+     * Set the relying parties the generator is limited to.
+     * 
+     * <p>This is a static alternative to an activation condition based on the relying party name
+     * that can be indexed by selection logic. Any activation condition is still applied.</p>
+     * 
+     * @param names relying party names
+     * 
+     * @since 5.2.0
+     */
+    public void setRelyingParties(@Nullable final Collection<String> names) {
+        checkSetterPreconditions();
+        if (names != null) {
+            relyingParties = CollectionSupport.copyToSet(StringSupport.normalizeStringCollection(names));
+        } else {
+            relyingParties = CollectionSupport.emptySet();
+        }
+    }
+    
+    /** {@inheritDoc} */
+    @Override
+    @Nullable public NameID generate(@Nonnull final ProfileRequestContext profileRequestContext,
+            @Nonnull @NotEmpty final String format) throws SAMLException {
+        
+        if (!relyingParties.isEmpty()) {
+            final RelyingPartyContext rpContext = relyingPartyContextLookupStrategy.apply(profileRequestContext);
+            final String rpId = rpContext != null ? rpContext.getRelyingPartyId() : null;
+            if (rpId == null || !relyingParties.contains(rpId)) {
+                return null;
+            }
+        }
+        
+        return super.generate(profileRequestContext, format);
+    }
+    
     /** {@inheritDoc} */
     @Override
     @Nullable protected String getEffectiveSPNameQualifier(@Nonnull final ProfileRequestContext profileRequestContext) {
@@ -35,6 +35,9 @@ import net.shibboleth.shared.security.DataSealerException;
 /**
  * An abstract action which contains the logic to do crypto transient decoding matching. This reverses the work done by
  * {@link CryptoTransientIdGenerationStrategy}
+ * 
+ * <p>An optional {@link CryptoTransientIdCache} may be supplied to avoid unsealing the same identifier
+ * repeatedly. Only identifiers in the compact format, which carry their own expiration, are cached.</p>
  */
 public abstract class BaseCryptoTransientDecoder extends AbstractIdentifiableInitializableComponent {
 
@@ -44,6 +47,9 @@ public abstract class BaseCryptoTransientDecoder extends AbstractIdentifiableIni
     /** Object used to protect and encrypt the data. */
     @NonnullAfterInit private DataSealer dataSealer;
 
+    /** Optional cache of decoded identifiers. */
+    @Nullable private CryptoTransientIdCache decodedIdCache;
+
     /** cache for the log prefix - to save multiple recalculations. */
     @Nullable private String logPrefix;
 
@@ -66,6 +72,18 @@ public abstract class BaseCryptoTransientDecoder extends AbstractIdentifiableIni
         dataSealer = Constraint.isNotNull(sealer, "DataSealer cannot be null");
     }
 
+    /**
+     * Set an optional cache of decoded identifiers.
+     * 
+     * @param cache the cache to use
+     * 
+     * @since 5.2.0
+     */
+    public void setDecodedIdCache(@Nullable final CryptoTransientIdCache cache) {
+        checkSetterPreconditions();
+        decodedIdCache = cache;
+    }
+
     /**
      * Convert the transient Id into the principal.
      * 
@@ -79,6 +97,40 @@ public abstract class BaseCryptoTransientDecoder extends AbstractIdentifiableIni
             @Nonnull @NotEmpty final String requesterId) throws NameDecoderException {
         checkComponentActive();
 
+        final CryptoTransientIdCache cache = decodedIdCache;
+        CryptoTransientIdCache.Entry entry = cache != null ? cache.get(transientId) : null;
+        if (entry == null) {
+            entry = unseal(transientId);
+            if (entry == null) {
+                return null;
+            } else if (cache != null) {
+                cache.put(transientId, entry);
+            }
+        } else {
+            log.trace("{} Using cached decoding of transient identifier", getLogPrefix());
+        }
+
+        final String expectedRecipient = entry.hashedRecipient()
+                ? CryptoTransientIdGenerationStrategy.digestRecipient(requesterId) : requesterId;
+        if (!expectedRecipient.equals(entry.recipient())) {
+            log.warn("{} Transient identifier issued to {} but requested by {}", getLogPrefix(), entry.recipient(),
+                    requesterId);
+            return null;
+        }
+
+        return entry.principal();
+    }
+    
+    /**
+     * Unseal and parse a transient identifier in either the legacy or compact format.
+     * 
+     * @param transientId the encrypted transientID
+     * 
+     * @return the decoded content, or null if invalid
+     * @throws NameDecoderException if the identifier can't be unsealed
+     */
+    @Nullable private CryptoTransientIdCache.Entry unseal(@Nonnull final String transientId)
+            throws NameDecoderException {
         final String decodedId;
         try {
             decodedId = dataSealer.unwrap(transientId);
@@ -94,19 +146,31 @@ public abstract class BaseCryptoTransientDecoder extends AbstractIdentifiableIni
             return null;
         }
 
+        if (decodedId.charAt(0) == CryptoTransientIdGenerationStrategy.COMPACT_MARKER) {
+            // Expiration, recipient digest, principal (which may itself contain the separator).
+            final String[] parts = decodedId.substring(1).split("!", 3);
+            if (parts.length != 3 || parts[1].isEmpty() || parts[2].isEmpty()) {
+                log.warn("{} Decoded principal information was invalid: {}", getLogPrefix(), decodedId);
+                return null;
+            }
+            try {
+                final long expiration = Long.parseLong(parts[0], Character.MAX_RADIX) * 1000;
+                return new CryptoTransientIdCache.Entry(parts[1], true, parts[2], expiration);
+            } catch (final NumberFormatException e) {
+                log.warn("{} Decoded principal information was invalid: {}", getLogPrefix(), decodedId);
+                return null;
+            }
+        }
+
         // Split the identifier.
         final String[] parts = decodedId.split("!");
-        if (parts.length != 2) {
+        if (parts.length != 2 || parts[0].isEmpty() || parts[1].isEmpty()) {
             log.warn("{} Decoded principal information was invalid: {}", getLogPrefix(), decodedId);
             return null;
         }
 
-        if (requesterId != null && !requesterId.equals(parts[0])) {
-            log.warn("{} Transient identifier issued to {} but requested by {}", getLogPrefix(), parts[0], requesterId);
-            return null;
-        }
-
-        return parts[1];
+        // The expiration is only known to the DataSealer, so this can't be cached.
+        return new CryptoTransientIdCache.Entry(parts[0], false, parts[1], 0);
     }
 
     /** {@inheritDoc} */
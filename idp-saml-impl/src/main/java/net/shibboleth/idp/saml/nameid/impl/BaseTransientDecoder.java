@@ -42,6 +42,9 @@ public abstract class BaseTransientDecoder extends AbstractIdentifiableInitializ
     /** Store used to map identifiers to principals. */
     @NonnullAfterInit private StorageService idStore;
 
+    /** Optional source of mappings not yet written to the store. */
+    @Nullable private StoredTransientIdGenerationStrategy writeBehindSource;
+
     /** cache for the log prefix - to save multiple recalculations. */
     @Nullable private String logPrefix;
 
@@ -64,6 +67,19 @@ public abstract class BaseTransientDecoder extends AbstractIdentifiableInitializ
         idStore = Constraint.isNotNull(store, "StorageService cannot be null");
     }
 
+    /**
+     * Sets a generation strategy operating in write-behind mode whose unwritten mappings should be
+     * consulted if a record is not found in the store.
+     * 
+     * @param source generation strategy
+     * 
+     * @since 5.2.0
+     */
+    public void setWriteBehindSource(@Nullable final StoredTransientIdGenerationStrategy source) {
+        checkSetterPreconditions();
+        writeBehindSource = source;
+    }
+
     /**
      * Convert the transient Id into the principal.
      * 
@@ -78,13 +94,19 @@ public abstract class BaseTransientDecoder extends AbstractIdentifiableInitializ
         checkComponentActive();
 
         try {
-            final StorageRecord<?> record = idStore.read(TransientIdParameters.CONTEXT, transientId);
-            if (null == record) {
-                log.info("{} Could not find transient identifier", getLogPrefix());
-                return null;
+            String value = writeBehindSource != null ? writeBehindSource.getPendingValue(transientId) : null;
+            if (value == null) {
+                final StorageRecord<?> record = idStore.read(TransientIdParameters.CONTEXT, transientId);
+                if (null == record) {
+                    log.info("{} Could not find transient identifier", getLogPrefix());
+                    return null;
+                }
+                value = record.getValue();
+            } else {
+                log.debug("{} Found transient identifier pending storage", getLogPrefix());
             }
 
-            final TransientIdParameters param = new TransientIdParameters(record.getValue());
+            final TransientIdParameters param = new TransientIdParameters(value);
 
             if (!requesterId.equals(param.getAttributeRecipient())) {
                 log.warn("{} Transient identifier issued to {} but requested by {}", getLogPrefix(),
@@ -0,0 +1,267 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.shibboleth.idp.saml.nameid.impl;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.opensaml.core.metrics.MetricsSupport;
+import org.slf4j.Logger;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import net.shibboleth.idp.attribute.DurablePairwiseIdStore;
+import net.shibboleth.idp.attribute.PairwiseId;
+import net.shibboleth.shared.annotation.constraint.NonnullAfterInit;
+import net.shibboleth.shared.annotation.constraint.NotEmpty;
+import net.shibboleth.shared.annotation.constraint.ThreadSafeAfterInit;
+import net.shibboleth.shared.component.AbstractInitializableComponent;
+import net.shibboleth.shared.component.ComponentInitializationException;
+import net.shibboleth.shared.logic.Constraint;
+import net.shibboleth.shared.primitive.LoggerFactory;
+
+/**
+ * A {@link DurablePairwiseIdStore} that fronts another store with a bounded, expiring in-memory cache of
+ * lookups by source value.
+ *
+ * <p>Concurrent lookups for the same (issuer, recipient, principal, source value) tuple are collapsed into a
+ * single call to the underlying store, which avoids duplicate insert attempts when creation is allowed.
+ * Deactivating or attaching an identifier through this object invalidates any cached entries for it.</p>
+ *
+ * <p>Objects returned from the cache are shared and must be treated as read-only by callers.</p>
+ *
+ * @since 5.2.0
+ */
+@ThreadSafeAfterInit
+public class CachingPairwiseIdStore extends AbstractInitializableComponent implements DurablePairwiseIdStore {
+
+    /** Default prefix for metrics. */
+    @Nonnull @NotEmpty private static final String DEFAULT_METRIC_NAME = "net.shibboleth.idp.nameid.pairwise.cache";
+
+    /** Class logger. */
+    @Nonnull private final Logger log = LoggerFactory.getLogger(CachingPairwiseIdStore.class);
+
+    /** Underlying store. */
+    @NonnullAfterInit private DurablePairwiseIdStore pidStore;
+
+    /** Maximum number of entries. */
+    private long maxCacheSize;
+
+    /** Lifetime of entries. */
+    @Nonnull private Duration entryLifetime;
+
+    /** Underlying cache. */
+    @NonnullAfterInit private Cache<Key,PairwiseId> cache;
+
+    /** Constructor. */
+    public CachingPairwiseIdStore() {
+        maxCacheSize = 10000;
+        final Duration tenMinutes = Duration.ofMinutes(10);
+        assert tenMinutes != null;
+        entryLifetime = tenMinutes;
+    }
+
+    /**
+     * Set the underlying store to cache.
+     *
+     * @param store the id store
+     */
+    public void setPersistentIdStore(@Nonnull final DurablePairwiseIdStore store) {
+        checkSetterPreconditions();
+        pidStore = Constraint.isNotNull(store, "PairwiseIdStore cannot be null");
+    }
+
+    /**
+     * Set the maximum number of entries to cache.
+     *
+     * <p>Defaults to 10000.</p>
+     *
+     * @param size maximum number of entries
+     */
+    public void setMaxCacheSize(final long size) {
+        checkSetterPreconditions();
+        maxCacheSize = Constraint.isGreaterThan(0, size, "Maximum cache size must be greater than 0");
+    }
+
+    /**
+     * Set the lifetime of cached entries.
+     *
+     * <p>Defaults to 10 minutes.</p>
+     *
+     * @param lifetime entry lifetime
+     */
+    public void setEntryLifetime(@Nonnull final Duration lifetime) {
+        checkSetterPreconditions();
+        Constraint.isNotNull(lifetime, "Lifetime cannot be null");
+        Constraint.isFalse(lifetime.isNegative() || lifetime.isZero(), "Lifetime must be positive");
+
+        entryLifetime = lifetime;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void doInitialize() throws ComponentInitializationException {
+        super.doInitialize();
+
+        if (pidStore == null) {
+            throw new ComponentInitializationException("PairwiseIdStore cannot be null");
+        }
+
+        cache = CacheBuilder.newBuilder()
+                .maximumSize(maxCacheSize)
+                .expireAfterWrite(entryLifetime)
+                .build();
+    }
+
+    /** {@inheritDoc} */
+    @Nullable public PairwiseId getBySourceValue(@Nonnull final PairwiseId pid, final boolean allowCreate)
+            throws IOException {
+        checkComponentActive();
+
+        final Key key = new Key(pid.getIssuerEntityID(), pid.getRecipientEntityID(), pid.getPrincipalName(),
+                pid.getSourceSystemId());
+
+        PairwiseId result = cache.getIfPresent(key);
+        if (result != null) {
+            log.trace("Cache hit for pairwise ID of '{}' for '{}'", key.principalName(), key.recipientEntityID());
+            count("hits");
+            return result;
+        }
+
+        count("misses");
+
+        if (!allowCreate) {
+            // Never cache a negative result, it may be created at any time.
+            result = pidStore.getBySourceValue(pid, false);
+            if (result != null) {
+                cache.put(key, result);
+            }
+            return result;
+        }
+
+        try {
+            // Single-flight: concurrent callers for the same key wait on the first load.
+            return cache.get(key, () -> {
+                final PairwiseId loaded = pidStore.getBySourceValue(pid, true);
+                if (loaded == null) {
+                    throw new NoResultException();
+                }
+                return loaded;
+            });
+        } catch (final ExecutionException | UncheckedExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof NoResultException) {
+                return null;
+            } else if (cause instanceof IOException ioe) {
+                throw ioe;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Nullable public PairwiseId getByIssuedValue(@Nonnull final PairwiseId pid) throws IOException {
+        checkComponentActive();
+
+        return pidStore.getByIssuedValue(pid);
+    }
+
+    /** {@inheritDoc} */
+    public void deactivate(@Nonnull final PairwiseId pid) throws IOException {
+        checkComponentActive();
+
+        try {
+            pidStore.deactivate(pid);
+        } finally {
+            invalidate(pid);
+        }
+    }
+
+    /** {@inheritDoc} */
+    public void attach(@Nonnull final PairwiseId pid) throws IOException {
+        checkComponentActive();
+
+        try {
+            pidStore.attach(pid);
+        } finally {
+            invalidate(pid);
+        }
+    }
+
+    /** Clear the cache. */
+    public void invalidateAll() {
+        checkComponentActive();
+
+        cache.invalidateAll();
+    }
+
+    /**
+     * Remove any cached entries that match the supplied issued identifier.
+     *
+     * @param pid identifier to invalidate
+     */
+    private void invalidate(@Nonnull final PairwiseId pid) {
+        cache.asMap().entrySet().removeIf(
+                entry -> Objects.equals(entry.getKey().issuerEntityID(), pid.getIssuerEntityID())
+                    && Objects.equals(entry.getKey().recipientEntityID(), pid.getRecipientEntityID())
+                    && Objects.equals(entry.getValue().getPairwiseId(), pid.getPairwiseId()));
+    }
+
+    /**
+     * Increment a counter if a metric registry is installed.
+     *
+     * @param suffix metric name suffix
+     */
+    private void count(@Nonnull @NotEmpty final String suffix) {
+        final MetricRegistry registry = MetricsSupport.getMetricRegistry();
+        if (registry != null) {
+            registry.counter(MetricRegistry.name(DEFAULT_METRIC_NAME, suffix)).inc();
+        }
+    }
+
+    /**
+     * Cache key.
+     *
+     * @param issuerEntityID issuer
+     * @param recipientEntityID recipient
+     * @param principalName principal name
+     * @param sourceSystemId source value
+     */
+    private record Key(@Nullable String issuerEntityID, @Nullable String recipientEntityID,
+            @Nullable String principalName, @Nullable String sourceSystemId) {
+
+    }
+
+    /** Signals an empty result from the underlying store during a cache load. */
+    private static final class NoResultException extends Exception {
+
+        /** Serial version UID. */
+        private static final long serialVersionUID = -2829217034125497536L;
+
+        /** Constructor. */
+        NoResultException() {
+            super(null, null, false, false);
+        }
+    }
+
+}
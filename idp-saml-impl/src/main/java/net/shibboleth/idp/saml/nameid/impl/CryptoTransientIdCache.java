@@ -0,0 +1,157 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.shibboleth.idp.saml.nameid.impl;
+
+import java.time.Duration;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import net.shibboleth.shared.annotation.constraint.NonnullAfterInit;
+import net.shibboleth.shared.annotation.constraint.NotEmpty;
+import net.shibboleth.shared.annotation.constraint.ThreadSafeAfterInit;
+import net.shibboleth.shared.component.AbstractInitializableComponent;
+import net.shibboleth.shared.component.ComponentInitializationException;
+import net.shibboleth.shared.logic.Constraint;
+
+/**
+ * Bounded cache of decoded crypto transient identifiers, keyed by the sealed value, for use by
+ * {@link BaseCryptoTransientDecoder} to avoid repeated decryption of the same identifier.
+ *
+ * <p>Each entry carries its own expiration, which is the expiration embedded in identifiers produced in the
+ * compact format by {@link CryptoTransientIdGenerationStrategy}, and is never returned after it. The legacy
+ * format does not expose its expiration outside the sealed data, so such identifiers are never cached.
+ * Entries are also discarded after the configured maximum lifetime.</p>
+ *
+ * @since 5.2.0
+ */
+@ThreadSafeAfterInit
+public class CryptoTransientIdCache extends AbstractInitializableComponent {
+
+    /** Maximum number of entries. */
+    private long maxCacheSize;
+
+    /** Maximum lifetime of entries. */
+    @Nonnull private Duration maxEntryLifetime;
+
+    /** Underlying cache. */
+    @NonnullAfterInit private Cache<String,Entry> cache;
+
+    /** Constructor. */
+    public CryptoTransientIdCache() {
+        maxCacheSize = 1000;
+        final Duration fiveMinutes = Duration.ofMinutes(5);
+        assert fiveMinutes != null;
+        maxEntryLifetime = fiveMinutes;
+    }
+
+    /**
+     * Set the maximum number of entries to cache.
+     *
+     * <p>Defaults to 1000.</p>
+     *
+     * @param size maximum number of entries
+     */
+    public void setMaxCacheSize(final long size) {
+        checkSetterPreconditions();
+        maxCacheSize = Constraint.isGreaterThan(0, size, "Maximum cache size must be greater than 0");
+    }
+
+    /**
+     * Get the maximum lifetime of cached entries.
+     *
+     * @return maximum entry lifetime
+     */
+    @Nonnull public Duration getMaxEntryLifetime() {
+        return maxEntryLifetime;
+    }
+
+    /**
+     * Set the maximum lifetime of cached entries.
+     *
+     * <p>Defaults to 5 minutes.</p>
+     *
+     * @param lifetime maximum entry lifetime
+     */
+    public void setMaxEntryLifetime(@Nonnull final Duration lifetime) {
+        checkSetterPreconditions();
+        Constraint.isNotNull(lifetime, "Lifetime cannot be null");
+        Constraint.isFalse(lifetime.isNegative() || lifetime.isZero(), "Lifetime must be positive");
+
+        maxEntryLifetime = lifetime;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void doInitialize() throws ComponentInitializationException {
+        super.doInitialize();
+
+        cache = CacheBuilder.newBuilder()
+                .maximumSize(maxCacheSize)
+                .expireAfterWrite(maxEntryLifetime)
+                .build();
+    }
+
+    /**
+     * Get an unexpired decoded identifier.
+     *
+     * @param sealed the sealed identifier
+     *
+     * @return the decoded identifier, or null
+     */
+    @Nullable public Entry get(@Nonnull final String sealed) {
+        checkComponentActive();
+
+        final Entry entry = cache.getIfPresent(sealed);
+        if (entry != null) {
+            if (entry.expiration() > System.currentTimeMillis()) {
+                return entry;
+            }
+            cache.invalidate(sealed);
+        }
+        return null;
+    }
+
+    /**
+     * Store a decoded identifier, unless it has expired or its expiration is unknown.
+     *
+     * @param sealed the sealed identifier
+     * @param entry the decoded identifier
+     */
+    public void put(@Nonnull final String sealed, @Nonnull final Entry entry) {
+        checkComponentActive();
+
+        if (entry.expiration() > System.currentTimeMillis()) {
+            cache.put(sealed, entry);
+        }
+    }
+
+    /**
+     * Decoded identifier.
+     *
+     * @param recipient the recipient, or a digest of it in the compact format
+     * @param hashedRecipient whether the recipient is a digest
+     * @param principal the principal name
+     * @param expiration expiration in milliseconds since the epoch, or 0 if unknown
+     */
+    public record Entry(@Nonnull @NotEmpty String recipient, boolean hashedRecipient,
+            @Nonnull @NotEmpty String principal, long expiration) {
+
+    }
+
+}
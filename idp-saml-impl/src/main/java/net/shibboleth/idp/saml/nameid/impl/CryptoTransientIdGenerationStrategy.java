@@ -14,8 +14,12 @@
 
 package net.shibboleth.idp.saml.nameid.impl;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.Base64;
 
 import javax.annotation.Nonnull;
 
@@ -32,15 +36,30 @@ import net.shibboleth.shared.security.DataSealerException;
 /**
  * Generates transients using a {@link DataSealer} to encrypt the result into a recoverable value,
  * for use with stateless clustering.
+ * 
+ * <p>The legacy format seals the recipient and principal name separated by a '!' character. The optional
+ * compact format seals a marker character, the expiration in seconds, a truncated digest of the recipient
+ * and the principal name, which yields a shorter identifier and less data to encrypt and decrypt. Because
+ * the expiration is then readable once unsealed, a decoder that caches the result can discard it when the
+ * identifier expires; decoders can only cache identifiers in this format.</p>
  */
 public class CryptoTransientIdGenerationStrategy extends AbstractIdentifiableInitializableComponent
         implements TransientIdGenerationStrategy {
 
+    /** Leading character of the compact format. */
+    static final char COMPACT_MARKER = '#';
+    
+    /** Number of digest characters retained for the recipient in the compact format. */
+    private static final int RECIPIENT_DIGEST_LENGTH = 12;
+
     /** Object used to protect and encrypt the data. */
     @NonnullAfterInit private DataSealer dataSealer;
 
     /** Length tokens are valid. */
     @Nonnull private Duration idLifetime;
+    
+    /** Whether to produce the compact format. */
+    private boolean compactFormat;
 
     /** Constructor. */
     public CryptoTransientIdGenerationStrategy() {
@@ -81,6 +100,20 @@ public class CryptoTransientIdGenerationStrategy extends AbstractIdentifiableIni
         idLifetime = lifetime;
     }
 
+    /**
+     * Set whether to produce identifiers in the compact format.
+     * 
+     * <p>Defaults to false. Decoders support both formats regardless of this setting.</p>
+     * 
+     * @param flag flag to set
+     * 
+     * @since 5.2.0
+     */
+    public void setCompactFormat(final boolean flag) {
+        checkSetterPreconditions();
+        compactFormat = flag;
+    }
+
     /** {@inheritDoc} */
     @Override protected void doInitialize() throws ComponentInitializationException {
         super.doInitialize();
@@ -95,16 +128,44 @@ public class CryptoTransientIdGenerationStrategy extends AbstractIdentifiableIni
     @Nonnull @NotEmpty public String generate(@Nonnull @NotEmpty final String relyingPartyId,
             @Nonnull @NotEmpty final String principalName) throws SAMLException {
         checkComponentActive();
+        final Instant expiration = Instant.now().plus(idLifetime);
         final StringBuilder principalTokenIdBuilder = new StringBuilder();
-        principalTokenIdBuilder.append(relyingPartyId).append("!").append(principalName);
+        if (compactFormat) {
+            principalTokenIdBuilder.append(COMPACT_MARKER)
+                .append(Long.toString(expiration.getEpochSecond(), Character.MAX_RADIX)).append("!")
+                .append(digestRecipient(relyingPartyId)).append("!").append(principalName);
+        } else {
+            principalTokenIdBuilder.append(relyingPartyId).append("!").append(principalName);
+        }
 
         try {
             final String result = principalTokenIdBuilder.toString();
             assert result!=null;
-            return dataSealer.wrap(result, Instant.now().plus(idLifetime));
+            return dataSealer.wrap(result, expiration);
         } catch (final DataSealerException e) {
             throw new SAMLException("Exception wrapping principal identifier", e);
         }
     }
+    
+    /**
+     * Compute the truncated digest of a recipient used in the compact format.
+     * 
+     * @param recipient recipient name
+     * 
+     * @return the digest
+     */
+    @Nonnull @NotEmpty static String digestRecipient(@Nonnull @NotEmpty final String recipient) {
+        try {
+            final byte[] digest =
+                    MessageDigest.getInstance("SHA-256").digest(recipient.getBytes(StandardCharsets.UTF_8));
+            final String encoded = Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+            final String result = encoded.substring(0, RECIPIENT_DIGEST_LENGTH);
+            assert result != null;
+            return result;
+        } catch (final NoSuchAlgorithmException e) {
+            // SHA-256 support is mandatory.
+            throw new IllegalStateException(e);
+        }
+    }
 
 }
\ No newline at end of file
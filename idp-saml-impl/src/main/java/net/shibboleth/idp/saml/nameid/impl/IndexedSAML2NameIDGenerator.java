@@ -0,0 +1,234 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.shibboleth.idp.saml.nameid.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.opensaml.messaging.context.navigate.ChildContextLookup;
+import org.opensaml.profile.context.ProfileRequestContext;
+import org.opensaml.saml.common.SAMLException;
+import org.opensaml.saml.common.profile.FormatSpecificNameIdentifierGenerator;
+import org.opensaml.saml.saml2.core.NameID;
+import org.opensaml.saml.saml2.profile.SAML2NameIDGenerator;
+import org.slf4j.Logger;
+
+import net.shibboleth.idp.saml.nameid.AbstractSAML2NameIDGenerator;
+import net.shibboleth.profile.context.RelyingPartyContext;
+import net.shibboleth.shared.annotation.constraint.NonnullAfterInit;
+import net.shibboleth.shared.annotation.constraint.NotEmpty;
+import net.shibboleth.shared.annotation.constraint.ThreadSafeAfterInit;
+import net.shibboleth.shared.collection.CollectionSupport;
+import net.shibboleth.shared.component.AbstractInitializableComponent;
+import net.shibboleth.shared.component.ComponentInitializationException;
+import net.shibboleth.shared.logic.Constraint;
+import net.shibboleth.shared.primitive.LoggerFactory;
+
+/**
+ * A {@link SAML2NameIDGenerator} that selects among a list of generators using an index built at
+ * initialization time, rather than trying every generator for every request.
+ *
+ * <p>The index is keyed by Format and by relying party. Format-specific generators are only considered for
+ * their own Format, and generators limited to a static set of relying parties via
+ * {@link AbstractSAML2NameIDGenerator#setRelyingParties(java.util.Collection)} are only considered for those
+ * relying parties. All other generators, including those with scripted or otherwise dynamic activation
+ * conditions, remain candidates for every request. Candidates are always tried in configured order, with
+ * generators not specific to a Format tried last, which matches the behavior of the chaining generator.</p>
+ *
+ * <p>Activation conditions are not introspected, so an existing generator limited to certain relying
+ * parties by a {@code RelyingPartyIdPredicate} condition gains nothing from the relying party index until
+ * that condition is replaced by (or supplemented with) the equivalent {@code relyingParties} setting.</p>
+ *
+ * <p>Since the generators are supplied by a reloadable service, the index is rebuilt whenever that
+ * service's configuration is reloaded.</p>
+ *
+ * @since 5.2.0
+ */
+@ThreadSafeAfterInit
+public class IndexedSAML2NameIDGenerator extends AbstractInitializableComponent implements SAML2NameIDGenerator {
+
+    /** Class logger. */
+    @Nonnull private final Logger log = LoggerFactory.getLogger(IndexedSAML2NameIDGenerator.class);
+
+    /** Generators in configured order. */
+    @Nonnull private List<SAML2NameIDGenerator> generators;
+
+    /** Strategy function to lookup RelyingPartyContext. */
+    @Nonnull private Function<ProfileRequestContext,RelyingPartyContext> relyingPartyContextLookupStrategy;
+
+    /** Index by Format. */
+    @NonnullAfterInit private Map<String,FormatIndex> formatIndex;
+
+    /** Generators not specific to a Format. */
+    @NonnullAfterInit private FormatIndex defaultIndex;
+
+    /** Constructor. */
+    public IndexedSAML2NameIDGenerator() {
+        generators = CollectionSupport.emptyList();
+        relyingPartyContextLookupStrategy = new ChildContextLookup<>(RelyingPartyContext.class);
+    }
+
+    /**
+     * Set the generators to select among, in order of precedence.
+     *
+     * @param theGenerators generators to use
+     */
+    public void setGenerators(@Nonnull final List<SAML2NameIDGenerator> theGenerators) {
+        checkSetterPreconditions();
+        generators = CollectionSupport.copyToList(Constraint.isNotNull(theGenerators, "Generator list cannot be null"));
+    }
+
+    /**
+     * Set the lookup strategy to use to locate the {@link RelyingPartyContext}.
+     *
+     * @param strategy lookup function to use
+     */
+    public void setRelyingPartyContextLookupStrategy(
+            @Nonnull final Function<ProfileRequestContext,RelyingPartyContext> strategy) {
+        checkSetterPreconditions();
+        relyingPartyContextLookupStrategy =
+                Constraint.isNotNull(strategy, "RelyingPartyContext lookup strategy cannot be null");
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void doInitialize() throws ComponentInitializationException {
+        super.doInitialize();
+
+        final Map<String,List<SAML2NameIDGenerator>> byFormat = new HashMap<>();
+        final List<SAML2NameIDGenerator> formatAgnostic = new ArrayList<>();
+
+        for (final SAML2NameIDGenerator generator : generators) {
+            if (generator instanceof FormatSpecificNameIdentifierGenerator fsg) {
+                byFormat.computeIfAbsent(fsg.getFormat(), f -> new ArrayList<>()).add(generator);
+            } else {
+                formatAgnostic.add(generator);
+            }
+        }
+
+        final Map<String,FormatIndex> index = new HashMap<>(byFormat.size());
+        for (final Map.Entry<String,List<SAML2NameIDGenerator>> entry : byFormat.entrySet()) {
+            final List<SAML2NameIDGenerator> ordered = new ArrayList<>(entry.getValue());
+            ordered.addAll(formatAgnostic);
+            index.put(entry.getKey(), new FormatIndex(ordered));
+        }
+        formatIndex = index;
+        defaultIndex = new FormatIndex(formatAgnostic);
+
+        log.debug("Indexed {} NameID generators across {} Formats", generators.size(), index.size());
+    }
+
+    /** {@inheritDoc} */
+    @Nullable public NameID generate(@Nonnull final ProfileRequestContext profileRequestContext,
+            @Nonnull @NotEmpty final String format) throws SAMLException {
+        checkComponentActive();
+
+        final FormatIndex fi = formatIndex.getOrDefault(format, defaultIndex);
+
+        final RelyingPartyContext rpContext = relyingPartyContextLookupStrategy.apply(profileRequestContext);
+        final String rpId = rpContext != null ? rpContext.getRelyingPartyId() : null;
+
+        for (final SAML2NameIDGenerator generator : fi.getCandidates(rpId)) {
+            final NameID nameId = generator.generate(profileRequestContext, format);
+            if (nameId != null) {
+                return nameId;
+            }
+        }
+
+        return null;
+    }
+
+    /** Candidate generators for a single Format. */
+    private static final class FormatIndex {
+
+        /** Candidates for relying parties with no scoped generators. */
+        @Nonnull private final List<SAML2NameIDGenerator> unscoped;
+
+        /** Candidates for relying parties with scoped generators. */
+        @Nonnull private final Map<String,List<SAML2NameIDGenerator>> byRelyingParty;
+
+        /**
+         * Constructor.
+         *
+         * @param ordered generators in order of precedence
+         */
+        FormatIndex(@Nonnull final List<SAML2NameIDGenerator> ordered) {
+            final Set<String> scopedNames = new LinkedHashSet<>();
+            final List<SAML2NameIDGenerator> open = new ArrayList<>(ordered.size());
+            for (final SAML2NameIDGenerator generator : ordered) {
+                final Set<String> scope = getScope(generator);
+                if (scope.isEmpty()) {
+                    open.add(generator);
+                } else {
+                    scopedNames.addAll(scope);
+                }
+            }
+            unscoped = CollectionSupport.copyToList(open);
+
+            final Map<String,List<SAML2NameIDGenerator>> map = new HashMap<>(scopedNames.size());
+            for (final String rpId : scopedNames) {
+                final List<SAML2NameIDGenerator> candidates = new ArrayList<>();
+                for (final SAML2NameIDGenerator generator : ordered) {
+                    final Set<String> scope = getScope(generator);
+                    if (scope.isEmpty() || scope.contains(rpId)) {
+                        candidates.add(generator);
+                    }
+                }
+                map.put(rpId, CollectionSupport.copyToList(candidates));
+            }
+            byRelyingParty = map;
+        }
+
+        /**
+         * Get the candidates for a relying party.
+         *
+         * @param rpId relying party name
+         *
+         * @return candidates in order
+         */
+        @Nonnull List<SAML2NameIDGenerator> getCandidates(@Nullable final String rpId) {
+            if (rpId != null) {
+                final List<SAML2NameIDGenerator> candidates = byRelyingParty.get(rpId);
+                if (candidates != null) {
+                    return candidates;
+                }
+            }
+            return unscoped;
+        }
+
+        /**
+         * Get the static relying party scope of a generator.
+         *
+         * @param generator generator
+         *
+         * @return relying party names, empty if unlimited
+         */
+        @Nonnull private static Set<String> getScope(@Nonnull final SAML2NameIDGenerator generator) {
+            if (generator instanceof AbstractSAML2NameIDGenerator idpGenerator) {
+                return idpGenerator.getRelyingParties();
+            }
+            return CollectionSupport.emptySet();
+        }
+    }
+
+}
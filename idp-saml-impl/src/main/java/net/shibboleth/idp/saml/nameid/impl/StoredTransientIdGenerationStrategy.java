@@ -19,8 +19,16 @@ import java.security.InvalidAlgorithmParameterException;
 import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import org.opensaml.saml.common.SAMLException;
 import org.opensaml.storage.StorageService;
@@ -42,6 +50,13 @@ import net.shibboleth.shared.security.RandomIdentifierParameterSpec;
  * 
  * <p>The identifier itself is the record key, and the value combines the principal name with the
  * identifier of the recipient.</p>
+ * 
+ * <p>In "write-behind" mode, new mappings are queued in memory and written to the store in batches by
+ * a background task rather than on the request thread. Mappings that have not yet been written remain
+ * available via {@link #getPendingValue(String)} for use by decoders. Because the store is not consulted
+ * when an identifier is issued in this mode, collision detection is limited to the in-memory queue, which
+ * is adequate for randomly generated identifiers of the default size. If the queue grows beyond its bound,
+ * for example because the store is unavailable, new mappings are written synchronously.</p>
  */
 public class StoredTransientIdGenerationStrategy extends AbstractIdentifiableInitializableComponent
         implements TransientIdGenerationStrategy {
@@ -60,6 +75,27 @@ public class StoredTransientIdGenerationStrategy extends AbstractIdentifiableIni
 
     /** Length identifiers are valid. */
     @Nonnull private Duration idLifetime;
+    
+    /** Whether to defer writes to a background task. */
+    private boolean writeBehind;
+    
+    /** Interval between background flushes. */
+    @Nonnull private Duration flushInterval;
+    
+    /** Maximum number of records to write per batch. */
+    private int maxBatchSize;
+    
+    /** Maximum number of unwritten records before falling back to synchronous writes. */
+    private int maxPending;
+    
+    /** Unwritten mappings, keyed by identifier. */
+    @Nonnull private final Map<String,PendingRecord> pendingRecords;
+    
+    /** Order in which to write unwritten mappings. */
+    @Nonnull private final Queue<String> pendingQueue;
+    
+    /** Background flush task executor. */
+    @Nullable private ScheduledExecutorService flushExecutor;
 
     /** Constructor. */
     public StoredTransientIdGenerationStrategy() {
@@ -67,6 +103,13 @@ public class StoredTransientIdGenerationStrategy extends AbstractIdentifiableIni
         final Duration fourHours = Duration.ofHours(4);
         assert fourHours!=null;
         idLifetime = fourHours;
+        final Duration oneSecond = Duration.ofSeconds(1);
+        assert oneSecond!=null;
+        flushInterval = oneSecond;
+        maxBatchSize = 500;
+        maxPending = 50000;
+        pendingRecords = new ConcurrentHashMap<>();
+        pendingQueue = new ConcurrentLinkedQueue<>();
     }
 
     /**
@@ -130,6 +173,66 @@ public class StoredTransientIdGenerationStrategy extends AbstractIdentifiableIni
         idLifetime = lifetime;
     }
 
+    /**
+     * Set whether to queue new mappings and write them to the store in the background.
+     * 
+     * <p>Defaults to false.</p>
+     * 
+     * @param flag flag to set
+     * 
+     * @since 5.2.0
+     */
+    public void setWriteBehind(final boolean flag) {
+        checkSetterPreconditions();
+        writeBehind = flag;
+    }
+    
+    /**
+     * Set the interval between background writes in write-behind mode.
+     * 
+     * <p>Defaults to 1 second.</p>
+     * 
+     * @param interval flush interval
+     * 
+     * @since 5.2.0
+     */
+    public void setFlushInterval(@Nonnull final Duration interval) {
+        checkSetterPreconditions();
+        Constraint.isNotNull(interval, "Flush interval cannot be null");
+        Constraint.isFalse(interval.isNegative() || interval.isZero(), "Flush interval must be greater than 0");
+        
+        flushInterval = interval;
+    }
+    
+    /**
+     * Set the maximum number of records written per batch.
+     * 
+     * <p>Each background flush writes batches until no records remain or the store fails.
+     * Defaults to 500.</p>
+     * 
+     * @param size batch size
+     * 
+     * @since 5.2.0
+     */
+    public void setMaxBatchSize(@Positive final int size) {
+        checkSetterPreconditions();
+        maxBatchSize = (int) Constraint.isGreaterThan(0, size, "Batch size must be positive");
+    }
+    
+    /**
+     * Set the maximum number of unwritten records to hold before reverting to synchronous writes.
+     * 
+     * <p>Defaults to 50000.</p>
+     * 
+     * @param size maximum number of unwritten records
+     * 
+     * @since 5.2.0
+     */
+    public void setMaxPending(@Positive final int size) {
+        checkSetterPreconditions();
+        maxPending = (int) Constraint.isGreaterThan(0, size, "Maximum pending size must be positive");
+    }
+
     /** {@inheritDoc} */
     @Override protected void doInitialize() throws ComponentInitializationException {
         super.doInitialize();
@@ -146,6 +249,57 @@ public class StoredTransientIdGenerationStrategy extends AbstractIdentifiableIni
                 throw new ComponentInitializationException(e);
             }
         }
+        
+        if (writeBehind) {
+            final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+                final Thread t = new Thread(r, "TransientIdWriteBehind-" + getId());
+                t.setDaemon(true);
+                return t;
+            });
+            final long millis = flushInterval.toMillis();
+            executor.scheduleWithFixedDelay(this::flush, millis, millis, TimeUnit.MILLISECONDS);
+            flushExecutor = executor;
+        }
+    }
+    
+    /** {@inheritDoc} */
+    @Override protected void doDestroy() {
+        final ScheduledExecutorService executor = flushExecutor;
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            flushExecutor = null;
+            
+            // Drain anything left over, giving up if the store fails.
+            flush();
+            final int left = pendingRecords.size();
+            if (left > 0) {
+                log.warn("{} transient ID records could not be written to storage at shutdown", left);
+            }
+        }
+        
+        super.doDestroy();
+    }
+    
+    /**
+     * Get the encoded value of a mapping that has been issued but not yet written to the store.
+     * 
+     * @param id transient identifier
+     * 
+     * @return the encoded {@link TransientIdParameters}, or null
+     * 
+     * @since 5.2.0
+     */
+    @Nullable public String getPendingValue(@Nonnull final String id) {
+        final PendingRecord rec = pendingRecords.get(id);
+        if (rec != null && rec.expiration() > System.currentTimeMillis()) {
+            return rec.value();
+        }
+        return null;
     }
     
     /** {@inheritDoc} */
@@ -168,6 +322,15 @@ public class StoredTransientIdGenerationStrategy extends AbstractIdentifiableIni
             log.debug("Creating new transient ID '{}'", id);
     
             final Instant expiration = Instant.now().plus(idLifetime);
+            
+            if (flushExecutor != null && pendingRecords.size() < maxPending) {
+                if (pendingRecords.putIfAbsent(id,
+                        new PendingRecord(principalTokenId, expiration.toEpochMilli())) == null) {
+                    pendingQueue.add(id);
+                    return id;
+                }
+                throw new SAMLException("Transient ID collision with unwritten record");
+            }
     
             int collisions = 0;
             while (collisions < 5) {
@@ -183,4 +346,72 @@ public class StoredTransientIdGenerationStrategy extends AbstractIdentifiableIni
         }
     }
 
-}
\ No newline at end of file
+    /**
+     * Write queued mappings to the store in batches until none remain or the store fails.
+     */
+    private void flush() {
+        while (flushBatch()) {
+            // Keep going, more records may be waiting.
+        }
+    }
+    
+    /**
+     * Write a batch of queued mappings to the store.
+     * 
+     * @return true iff a full batch was written without a storage failure
+     */
+    private boolean flushBatch() {
+        int processed = 0;
+        boolean failed = false;
+        final long now = System.currentTimeMillis();
+        
+        while (processed < maxBatchSize) {
+            final String id = pendingQueue.poll();
+            if (id == null) {
+                break;
+            }
+            ++processed;
+            
+            final PendingRecord rec = pendingRecords.get(id);
+            if (rec == null) {
+                continue;
+            } else if (rec.expiration() <= now) {
+                pendingRecords.remove(id);
+                continue;
+            }
+            
+            try {
+                if (!idStore.create(TransientIdParameters.CONTEXT, id, rec.value(), rec.expiration())) {
+                    log.error("Transient ID '{}' collided with an existing record and was not stored", id);
+                }
+                pendingRecords.remove(id);
+            } catch (final IOException e) {
+                log.warn("Error writing transient ID '{}' to storage, will retry", id, e);
+                // Requeue and stop flushing, the store is probably unavailable.
+                pendingQueue.add(id);
+                failed = true;
+                break;
+            } catch (final RuntimeException e) {
+                log.error("Unexpected error writing transient ID '{}' to storage", id, e);
+                pendingRecords.remove(id);
+            }
+        }
+        
+        if (processed > 0) {
+            log.debug("Flushed {} transient ID records, {} still pending", processed, pendingRecords.size());
+        }
+        
+        return !failed && processed == maxBatchSize;
+    }
+    
+    /**
+     * Unwritten mapping.
+     * 
+     * @param value encoded {@link TransientIdParameters}
+     * @param expiration expiration in milliseconds since the epoch
+     */
+    private record PendingRecord(@Nonnull String value, long expiration) {
+        
+    }
+
+}
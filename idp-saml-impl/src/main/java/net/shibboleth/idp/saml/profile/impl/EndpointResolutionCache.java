@@ -0,0 +1,179 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.shibboleth.idp.saml.profile.impl;
+
+import java.lang.ref.WeakReference;
+import java.time.Duration;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.xml.namespace.QName;
+
+import org.opensaml.saml.saml2.metadata.Endpoint;
+import org.opensaml.saml.saml2.metadata.RoleDescriptor;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import net.shibboleth.shared.annotation.constraint.NonnullAfterInit;
+import net.shibboleth.shared.annotation.constraint.NotEmpty;
+import net.shibboleth.shared.annotation.constraint.ThreadSafeAfterInit;
+import net.shibboleth.shared.component.AbstractInitializableComponent;
+import net.shibboleth.shared.component.ComponentInitializationException;
+import net.shibboleth.shared.logic.Constraint;
+
+/**
+ * Bounded, expiring cache of endpoint resolution results for use by {@link PopulateBindingAndEndpointContexts}.
+ *
+ * <p>Entries are keyed on the relying party, endpoint type, requested location, binding and index, and the
+ * set of eligible bindings, and are bound to the specific {@link RoleDescriptor} instance they were resolved
+ * against. A metadata refresh produces new {@link RoleDescriptor} objects and so implicitly invalidates any
+ * entries resolved against an earlier generation.</p>
+ *
+ * <p>Only validated resolutions against metadata are suitable for caching. Trusted (unvalidated) endpoints
+ * are derived from the request itself and must always take the full resolution path.</p>
+ *
+ * @since 5.2.0
+ */
+@ThreadSafeAfterInit
+public class EndpointResolutionCache extends AbstractInitializableComponent {
+
+    /** Maximum number of entries. */
+    private long maxCacheSize;
+
+    /** Lifetime of entries. */
+    @Nonnull private Duration entryLifetime;
+
+    /** Underlying cache. */
+    @NonnullAfterInit private Cache<Key,Entry> cache;
+
+    /** Constructor. */
+    public EndpointResolutionCache() {
+        maxCacheSize = 5000;
+        final Duration tenMinutes = Duration.ofMinutes(10);
+        assert tenMinutes != null;
+        entryLifetime = tenMinutes;
+    }
+
+    /**
+     * Set the maximum number of entries to cache.
+     *
+     * <p>Defaults to 5000.</p>
+     *
+     * @param size maximum number of entries
+     */
+    public void setMaxCacheSize(final long size) {
+        checkSetterPreconditions();
+        maxCacheSize = Constraint.isGreaterThan(0, size, "Maximum cache size must be greater than 0");
+    }
+
+    /**
+     * Set the lifetime of cached entries.
+     *
+     * <p>Defaults to 10 minutes.</p>
+     *
+     * @param lifetime entry lifetime
+     */
+    public void setEntryLifetime(@Nonnull final Duration lifetime) {
+        checkSetterPreconditions();
+        Constraint.isNotNull(lifetime, "Lifetime cannot be null");
+        Constraint.isFalse(lifetime.isNegative() || lifetime.isZero(), "Lifetime must be positive");
+
+        entryLifetime = lifetime;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void doInitialize() throws ComponentInitializationException {
+        super.doInitialize();
+
+        cache = CacheBuilder.newBuilder()
+                .maximumSize(maxCacheSize)
+                .expireAfterWrite(entryLifetime)
+                .build();
+    }
+
+    /**
+     * Get a previously resolved endpoint, provided it was resolved against the same metadata.
+     *
+     * @param key cache key
+     * @param roleDescriptor the current metadata for the relying party
+     *
+     * @return the cached endpoint, or null
+     */
+    @Nullable public Endpoint get(@Nonnull final Key key, @Nonnull final RoleDescriptor roleDescriptor) {
+        checkComponentActive();
+
+        final Entry entry = cache.getIfPresent(key);
+        if (entry != null) {
+            if (entry.roleDescriptor().get() == roleDescriptor) {
+                return entry.endpoint();
+            }
+            // Stale metadata generation.
+            cache.invalidate(key);
+        }
+
+        return null;
+    }
+
+    /**
+     * Store a resolved endpoint.
+     *
+     * @param key cache key
+     * @param roleDescriptor the metadata the endpoint was resolved against
+     * @param endpoint the resolved endpoint
+     */
+    public void put(@Nonnull final Key key, @Nonnull final RoleDescriptor roleDescriptor,
+            @Nonnull final Endpoint endpoint) {
+        checkComponentActive();
+
+        cache.put(key, new Entry(new WeakReference<>(roleDescriptor), endpoint));
+    }
+
+    /** Clear the cache. */
+    public void invalidateAll() {
+        checkComponentActive();
+
+        cache.invalidateAll();
+    }
+
+    /**
+     * Cache key for a resolution request.
+     *
+     * @param relyingPartyId relying party name
+     * @param endpointType type of endpoint resolved
+     * @param location requested location, if any
+     * @param binding requested binding, if any
+     * @param index requested index, if any
+     * @param bindings eligible bindings in preference order
+     */
+    public record Key(@Nonnull @NotEmpty String relyingPartyId, @Nonnull QName endpointType,
+            @Nullable String location, @Nullable String binding, @Nullable Integer index,
+            @Nonnull List<String> bindings) {
+
+    }
+
+    /**
+     * Cache entry.
+     *
+     * @param roleDescriptor reference to the metadata the endpoint was resolved against
+     * @param endpoint the resolved endpoint
+     */
+    private record Entry(@Nonnull WeakReference<RoleDescriptor> roleDescriptor, @Nonnull Endpoint endpoint) {
+
+    }
+
+}
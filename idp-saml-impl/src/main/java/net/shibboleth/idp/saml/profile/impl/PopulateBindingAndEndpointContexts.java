@@ -85,6 +85,10 @@ import net.shibboleth.shared.resolver.ResolverException;
  * <p>If the outbound binding is an artifact-based binding, then the action also creates
  * a {@link SAMLArtifactContext} populated by settings from the {@link SAMLArtifactConfiguration}.</p> 
  * 
+ * <p>An optional {@link EndpointResolutionCache} may be supplied to short-circuit resolution of
+ * endpoints that are validated against metadata. Trusted endpoints (unverified requesters, or
+ * requests for which validation is skipped) always bypass the cache.</p>
+ * 
  * @event {@link EventIds#PROCEED_EVENT_ID}
  * @event {@link EventIds#INVALID_MSG_CTX}
  * @event {@link SAMLEventIds#ENDPOINT_RESOLUTION_FAILED}
@@ -100,6 +104,9 @@ public class PopulateBindingAndEndpointContexts extends AbstractProfileAction {
     /** Endpoint resolver. */
     @NonnullAfterInit private EndpointResolver<?> endpointResolver;
     
+    /** Optional cache of resolved endpoints. */
+    @Nullable private EndpointResolutionCache endpointResolutionCache;
+    
     /** Lookup strategy for bindings. */
     @Nonnull private Function<ProfileRequestContext,List<BindingDescriptor>> bindingDescriptorsLookupStrategy;
     
@@ -204,6 +211,18 @@ public class PopulateBindingAndEndpointContexts extends AbstractProfileAction {
         endpointResolver = Constraint.isNotNull(resolver, "EndpointResolver cannot be null");
     }
     
+    /**
+     * Set an optional cache of endpoint resolution results.
+     * 
+     * @param cache endpoint resolution cache
+     * 
+     * @since 5.2.0
+     */
+    public void setEndpointResolutionCache(@Nullable final EndpointResolutionCache cache) {
+        checkSetterPreconditions();
+        endpointResolutionCache = cache;
+    }
+    
     /**
      * Set lookup strategy to return the bindings to evaluate for use, in preference order.
      * 
@@ -404,11 +423,12 @@ public class PopulateBindingAndEndpointContexts extends AbstractProfileAction {
         // Build criteria for the resolver.
         final String firstBinding = bindings.get(0);
         assert firstBinding!=null;
-        final CriteriaSet criteria = new CriteriaSet(new BindingCriterion(bindings),
-                buildEndpointCriterion(firstBinding));
+        final EndpointCriterion<?> endpointCriterion = buildEndpointCriterion(firstBinding);
+        final CriteriaSet criteria = new CriteriaSet(new BindingCriterion(bindings), endpointCriterion);
         
+        BestMatchLocationCriterion bestMatch = null;
         if (bestMatchCriterionLookupStrategy != null) {
-            final BestMatchLocationCriterion bestMatch = bestMatchCriterionLookupStrategy.apply(profileRequestContext);
+            bestMatch = bestMatchCriterionLookupStrategy.apply(profileRequestContext);
             if (bestMatch != null) {
                 criteria.add(bestMatch);
             }
@@ -426,12 +446,35 @@ public class PopulateBindingAndEndpointContexts extends AbstractProfileAction {
             log.debug("{} No metadata available for endpoint resolution", getLogPrefix());
         }
         
+        // Only validated resolutions against metadata, without a per-request best match, are cacheable.
+        final EndpointResolutionCache.Key cacheKey;
+        if (endpointResolutionCache != null && rdc != null && bestMatch == null && !endpointCriterion.isTrusted()) {
+            cacheKey = buildCacheKey(endpointCriterion.getEndpoint(), bindings);
+        } else {
+            cacheKey = null;
+        }
+        
         // Attempt resolution.
         Endpoint resolvedEndpoint = null;
-        try {
-            resolvedEndpoint = endpointResolver.resolveSingle(criteria);
-        } catch (final ResolverException e) {
-            log.error("{} Error resolving outbound message endpoint", getLogPrefix(), e);
+        if (cacheKey != null) {
+            assert endpointResolutionCache != null && rdc != null;
+            resolvedEndpoint = endpointResolutionCache.get(cacheKey, rdc);
+            if (resolvedEndpoint != null) {
+                log.debug("{} Using cached endpoint resolution for relying party '{}'", getLogPrefix(),
+                        relyingPartyId);
+            }
+        }
+        
+        if (resolvedEndpoint == null) {
+            try {
+                resolvedEndpoint = endpointResolver.resolveSingle(criteria);
+            } catch (final ResolverException e) {
+                log.error("{} Error resolving outbound message endpoint", getLogPrefix(), e);
+            }
+            if (resolvedEndpoint != null && cacheKey != null) {
+                assert endpointResolutionCache != null && rdc != null;
+                endpointResolutionCache.put(cacheKey, rdc, resolvedEndpoint);
+            }
         }
         
         if (resolvedEndpoint == null) {
@@ -522,6 +565,27 @@ public class PopulateBindingAndEndpointContexts extends AbstractProfileAction {
         return false;
     }
 
+    /**
+     * Build a key for the {@link EndpointResolutionCache} from the template endpoint and candidate bindings.
+     * 
+     * @param template template endpoint
+     * @param bindings eligible bindings in preference order
+     * 
+     * @return cache key, or null if the request cannot be cached
+     */
+    @Nullable private EndpointResolutionCache.Key buildCacheKey(@Nonnull final Endpoint template,
+            @Nonnull final List<String> bindings) {
+        final String rpId = relyingPartyId;
+        final QName et = endpointType;
+        if (rpId == null || et == null) {
+            return null;
+        }
+        
+        final Integer index = template instanceof IndexedEndpoint ie ? ie.getIndex() : null;
+        return new EndpointResolutionCache.Key(rpId, et, template.getLocation(), template.getBinding(), index,
+                CollectionSupport.copyToList(bindings));
+    }
+
     /**
      * Build a template Endpoint object to use as input criteria to the resolution process and wrap it in
      * a criterion object.
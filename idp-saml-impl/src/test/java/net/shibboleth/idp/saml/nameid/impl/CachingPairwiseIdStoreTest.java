@@ -0,0 +1,125 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.shibboleth.idp.saml.nameid.impl;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import net.shibboleth.idp.attribute.DurablePairwiseIdStore;
+import net.shibboleth.idp.attribute.PairwiseId;
+import net.shibboleth.shared.component.ComponentInitializationException;
+
+/** Test for {@link CachingPairwiseIdStore}. */
+@SuppressWarnings("javadoc")
+public class CachingPairwiseIdStoreTest {
+
+    private CountingStore delegate;
+
+    private CachingPairwiseIdStore store;
+
+    @BeforeMethod public void setUp() throws ComponentInitializationException {
+        delegate = new CountingStore();
+        store = new CachingPairwiseIdStore();
+        store.setPersistentIdStore(delegate);
+        store.initialize();
+    }
+
+    @Test(expectedExceptions = ComponentInitializationException.class)
+    public void testNoStore() throws ComponentInitializationException {
+        new CachingPairwiseIdStore().initialize();
+    }
+
+    @Test public void testReadThrough() throws IOException {
+        PairwiseId result = store.getBySourceValue(buildInput("jdoe"), true);
+        assert result != null;
+        Assert.assertEquals(result.getPairwiseId(), "pid-jdoe");
+
+        result = store.getBySourceValue(buildInput("jdoe"), true);
+        assert result != null;
+        Assert.assertEquals(result.getPairwiseId(), "pid-jdoe");
+        Assert.assertEquals(delegate.lookups.get(), 1);
+
+        result = store.getBySourceValue(buildInput("jsmith"), false);
+        assert result != null;
+        Assert.assertEquals(result.getPairwiseId(), "pid-jsmith");
+        Assert.assertEquals(delegate.lookups.get(), 2);
+    }
+
+    @Test public void testDeactivate() throws IOException {
+        store.getBySourceValue(buildInput("jdoe"), true);
+
+        final PairwiseId issued = new PairwiseId();
+        issued.setIssuerEntityID("https://idp.example.org");
+        issued.setRecipientEntityID("https://sp.example.org");
+        issued.setPairwiseId("pid-jdoe");
+        store.deactivate(issued);
+        Assert.assertEquals(delegate.deactivations.get(), 1);
+
+        store.getBySourceValue(buildInput("jdoe"), true);
+        Assert.assertEquals(delegate.lookups.get(), 2);
+    }
+
+    @Nonnull private PairwiseId buildInput(@Nonnull final String source) {
+        final PairwiseId pid = new PairwiseId();
+        pid.setIssuerEntityID("https://idp.example.org");
+        pid.setRecipientEntityID("https://sp.example.org");
+        pid.setPrincipalName(source);
+        pid.setSourceSystemId(source);
+        return pid;
+    }
+
+    /** Stub store that counts calls. */
+    private static class CountingStore implements DurablePairwiseIdStore {
+
+        @Nonnull private final AtomicInteger lookups = new AtomicInteger();
+
+        @Nonnull private final AtomicInteger deactivations = new AtomicInteger();
+
+        /** {@inheritDoc} */
+        @Nullable public PairwiseId getBySourceValue(@Nonnull final PairwiseId pid, final boolean allowCreate)
+                throws IOException {
+            lookups.incrementAndGet();
+            final PairwiseId result = new PairwiseId();
+            result.setIssuerEntityID(pid.getIssuerEntityID());
+            result.setRecipientEntityID(pid.getRecipientEntityID());
+            result.setPrincipalName(pid.getPrincipalName());
+            result.setSourceSystemId(pid.getSourceSystemId());
+            result.setPairwiseId("pid-" + pid.getSourceSystemId());
+            return result;
+        }
+
+        /** {@inheritDoc} */
+        @Nullable public PairwiseId getByIssuedValue(@Nonnull final PairwiseId pid) throws IOException {
+            return null;
+        }
+
+        /** {@inheritDoc} */
+        public void deactivate(@Nonnull final PairwiseId pid) throws IOException {
+            deactivations.incrementAndGet();
+        }
+
+        /** {@inheritDoc} */
+        public void attach(@Nonnull final PairwiseId pid) throws IOException {
+        }
+    }
+
+}
@@ -194,4 +194,81 @@ public class CryptoTransientNameIDDecoderTest extends OpenSAMLInitBaseTestCase {
 
     }
 
-}
\ No newline at end of file
+    @Test public void testCompactFormat() throws Exception {
+        final String ct = compactStrategy(TIMEOUT).generate(RECIPIENT, PRINCIPAL);
+        Assert.assertTrue(ct.length() < code(PRINCIPAL, ISSUER, RECIPIENT).length());
+        Assert.assertEquals(decoder.decode(ct, RECIPIENT), PRINCIPAL);
+        Assert.assertNull(decoder.decode(ct, "my" + RECIPIENT));
+    }
+
+    @Test public void testCache() throws Exception {
+        final CryptoTransientIdCache cache = new CryptoTransientIdCache();
+        cache.initialize();
+        final CryptoTransientNameIDDecoder cachingDecoder = cachingDecoder(cache);
+
+        final String ct = compactStrategy(TIMEOUT).generate(RECIPIENT, PRINCIPAL);
+        Assert.assertNull(cache.get(ct));
+        Assert.assertEquals(cachingDecoder.decode(ct, RECIPIENT), PRINCIPAL);
+
+        final CryptoTransientIdCache.Entry entry = cache.get(ct);
+        assert entry != null;
+        Assert.assertTrue(entry.hashedRecipient());
+        Assert.assertEquals(entry.principal(), PRINCIPAL);
+
+        // Cached entries still enforce the recipient.
+        Assert.assertEquals(cachingDecoder.decode(ct, RECIPIENT), PRINCIPAL);
+        Assert.assertNull(cachingDecoder.decode(ct, "my" + RECIPIENT));
+    }
+
+    @Test public void testCacheSkipsLegacyFormat() throws Exception {
+        final CryptoTransientIdCache cache = new CryptoTransientIdCache();
+        cache.initialize();
+        final CryptoTransientNameIDDecoder cachingDecoder = cachingDecoder(cache);
+
+        final String ct = code(PRINCIPAL, ISSUER, RECIPIENT);
+        Assert.assertEquals(cachingDecoder.decode(ct, RECIPIENT), PRINCIPAL);
+        Assert.assertNull(cache.get(ct));
+    }
+
+    @Test public void testCachedExpired() throws Exception {
+        final CryptoTransientIdCache cache = new CryptoTransientIdCache();
+        cache.initialize();
+        final CryptoTransientNameIDDecoder cachingDecoder = cachingDecoder(cache);
+
+        final String ct = compactStrategy(Duration.ofSeconds(1)).generate(RECIPIENT, PRINCIPAL);
+        Assert.assertEquals(cachingDecoder.decode(ct, RECIPIENT), PRINCIPAL);
+        Assert.assertNotNull(cache.get(ct));
+
+        Thread.sleep(2000);
+
+        Assert.assertNull(cache.get(ct));
+        try {
+            cachingDecoder.decode(ct, RECIPIENT);
+            Assert.fail("Expired identifier was accepted");
+        } catch (final NameDecoderException e) {
+            
+        }
+    }
+
+    private CryptoTransientIdGenerationStrategy compactStrategy(final Duration lifetime)
+            throws ComponentInitializationException {
+        final CryptoTransientIdGenerationStrategy strategy = new CryptoTransientIdGenerationStrategy();
+        strategy.setDataSealer(dataSealer);
+        strategy.setId("strategy");
+        strategy.setIdLifetime(lifetime);
+        strategy.setCompactFormat(true);
+        strategy.initialize();
+        return strategy;
+    }
+
+    private CryptoTransientNameIDDecoder cachingDecoder(final CryptoTransientIdCache cache)
+            throws ComponentInitializationException {
+        final CryptoTransientNameIDDecoder cachingDecoder = new CryptoTransientNameIDDecoder();
+        cachingDecoder.setDataSealer(dataSealer);
+        cachingDecoder.setDecodedIdCache(cache);
+        cachingDecoder.setId("CachingDecoder");
+        cachingDecoder.initialize();
+        return cachingDecoder;
+    }
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.shibboleth.idp.saml.nameid.impl;
+
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+import org.opensaml.core.testing.OpenSAMLInitBaseTestCase;
+import org.opensaml.profile.context.ProfileRequestContext;
+import org.opensaml.saml.saml2.core.NameID;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import net.shibboleth.idp.attribute.IdPAttribute;
+import net.shibboleth.idp.attribute.StringAttributeValue;
+import net.shibboleth.idp.attribute.context.AttributeContext;
+import net.shibboleth.idp.profile.testing.ActionTestingSupport;
+import net.shibboleth.idp.profile.testing.RequestContextBuilder;
+import net.shibboleth.profile.context.RelyingPartyContext;
+import net.shibboleth.shared.collection.CollectionSupport;
+import net.shibboleth.shared.component.ComponentInitializationException;
+
+/** Unit test for {@link IndexedSAML2NameIDGenerator}. */
+@SuppressWarnings("javadoc")
+public class IndexedSAML2NameIDGeneratorTest extends OpenSAMLInitBaseTestCase {
+
+    private ProfileRequestContext prc;
+
+    @BeforeMethod public void setUp() {
+        prc = new RequestContextBuilder().buildProfileRequestContext();
+
+        final IdPAttribute scoped = new IdPAttribute("scoped");
+        scoped.setValues(List.of(new StringAttributeValue("ScopedValue")));
+        final IdPAttribute open = new IdPAttribute("open");
+        open.setValues(List.of(new StringAttributeValue("OpenValue")));
+
+        final RelyingPartyContext rpCtx = prc.getSubcontext(RelyingPartyContext.class);
+        assert rpCtx != null;
+        rpCtx.ensureSubcontext(AttributeContext.class).setIdPAttributes(List.of(scoped, open));
+    }
+
+    @Test public void testScopedMatch() throws Exception {
+        final IndexedSAML2NameIDGenerator generator =
+                buildGenerator(CollectionSupport.singletonList(ActionTestingSupport.INBOUND_MSG_ISSUER));
+
+        final NameID nameId = generator.generate(prc, NameID.EMAIL);
+        assert nameId != null;
+        Assert.assertEquals(nameId.getValue(), "ScopedValue");
+    }
+
+    @Test public void testScopedNoMatch() throws Exception {
+        final IndexedSAML2NameIDGenerator generator =
+                buildGenerator(CollectionSupport.singletonList("https://other.example.org"));
+
+        final NameID nameId = generator.generate(prc, NameID.EMAIL);
+        assert nameId != null;
+        Assert.assertEquals(nameId.getValue(), "OpenValue");
+    }
+
+    @Test public void testUnknownFormat() throws Exception {
+        final IndexedSAML2NameIDGenerator generator =
+                buildGenerator(CollectionSupport.singletonList(ActionTestingSupport.INBOUND_MSG_ISSUER));
+
+        Assert.assertNull(generator.generate(prc, NameID.KERBEROS));
+    }
+
+    @Nonnull private IndexedSAML2NameIDGenerator buildGenerator(@Nonnull final List<String> scope)
+            throws ComponentInitializationException {
+        final AttributeSourcedSAML2NameIDGenerator scoped = new AttributeSourcedSAML2NameIDGenerator();
+        scoped.setId("scoped");
+        scoped.setFormat(NameID.EMAIL);
+        scoped.setAttributeSourceIds(CollectionSupport.singletonList("scoped"));
+        scoped.setRelyingParties(scope);
+        scoped.initialize();
+
+        final AttributeSourcedSAML2NameIDGenerator open = new AttributeSourcedSAML2NameIDGenerator();
+        open.setId("open");
+        open.setFormat(NameID.EMAIL);
+        open.setAttributeSourceIds(CollectionSupport.singletonList("open"));
+        open.initialize();
+
+        final IndexedSAML2NameIDGenerator generator = new IndexedSAML2NameIDGenerator();
+        generator.setGenerators(List.of(scoped, open));
+        generator.initialize();
+        return generator;
+    }
+
+}
@@ -14,6 +14,11 @@
 
 package net.shibboleth.idp.saml.nameid.impl;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
 import javax.security.auth.Subject;
 
 import net.shibboleth.idp.authn.context.SubjectCanonicalizationContext;
@@ -171,4 +176,63 @@ public class TransientDecoderTest extends OpenSAMLInitBaseTestCase {
         Assert.assertEquals(scc.getPrincipalName(), TestSources.PRINCIPAL_ID);
     }
 
-}
\ No newline at end of file
+    @Test public void testWriteBehind() throws Exception {
+
+        final StoredTransientIdGenerationStrategy strategy = new StoredTransientIdGenerationStrategy();
+        strategy.setId("strategy");
+        strategy.setIdStore(store);
+        strategy.setWriteBehind(true);
+        strategy.setFlushInterval(Duration.ofHours(1));
+        strategy.initialize();
+
+        final String id = strategy.generate(RECIPIENT, PRINCIPAL);
+        Assert.assertNull(store.read(TransientIdParameters.CONTEXT, id));
+        Assert.assertNotNull(strategy.getPendingValue(id));
+
+        final BaseTransientDecoder decoder = new BaseTransientDecoder(){};
+        decoder.setId("decoder");
+        decoder.setIdStore(store);
+        decoder.setWriteBehindSource(strategy);
+        decoder.initialize();
+
+        Assert.assertEquals(decoder.decode(id, RECIPIENT), PRINCIPAL);
+
+        // Destroying the strategy drains the queue to storage.
+        strategy.destroy();
+        Assert.assertNull(strategy.getPendingValue(id));
+        Assert.assertNotNull(store.read(TransientIdParameters.CONTEXT, id));
+        Assert.assertEquals(decoder.decode(id, RECIPIENT), PRINCIPAL);
+    }
+
+    @Test public void testWriteBehindBatches() throws Exception {
+
+        final StoredTransientIdGenerationStrategy strategy = new StoredTransientIdGenerationStrategy();
+        strategy.setId("strategy");
+        strategy.setIdStore(store);
+        strategy.setWriteBehind(true);
+        strategy.setFlushInterval(Duration.ofSeconds(1));
+        strategy.setMaxBatchSize(1);
+        strategy.initialize();
+
+        try {
+            final List<String> ids = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                ids.add(strategy.generate(RECIPIENT, PRINCIPAL));
+            }
+
+            // A single flush writes every batch, rather than one batch per interval.
+            final Instant deadline = Instant.now().plusSeconds(5);
+            while (ids.stream().anyMatch(id -> strategy.getPendingValue(id) != null)
+                    && Instant.now().isBefore(deadline)) {
+                Thread.sleep(50);
+            }
+            for (final String id : ids) {
+                Assert.assertNull(strategy.getPendingValue(id));
+                Assert.assertNotNull(store.read(TransientIdParameters.CONTEXT, id));
+            }
+        } finally {
+            strategy.destroy();
+        }
+    }
+
+}
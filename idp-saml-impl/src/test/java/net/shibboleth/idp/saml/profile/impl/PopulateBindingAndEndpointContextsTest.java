@@ -21,6 +21,7 @@ import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.annotation.Nonnull;
 
@@ -60,6 +61,8 @@ import net.shibboleth.shared.collection.CollectionSupport;
 import net.shibboleth.shared.component.ComponentInitializationException;
 import net.shibboleth.shared.logic.FunctionSupport;
 import net.shibboleth.shared.logic.PredicateSupport;
+import net.shibboleth.shared.resolver.CriteriaSet;
+import net.shibboleth.shared.resolver.ResolverException;
 import net.shibboleth.shared.xml.XMLParserException;
 
 /** Unit test for {@link PopulateBindingAndEndpointContexts}. */
@@ -568,6 +571,69 @@ public class PopulateBindingAndEndpointContextsTest extends XMLObjectBaseTestCas
         Assert.assertEquals(ep.getLocation(), LOCATION_POST);
     }
     
+    /**
+     * Repeated resolution against the same metadata is served from the cache.
+     * 
+     * @throws UnmarshallingException ...
+     * @throws ComponentInitializationException ...
+     */
+    @Test
+    public void testCachedResolution() throws UnmarshallingException, ComponentInitializationException {
+        final EntityDescriptor entity = loadMetadata("/net/shibboleth/idp/saml/impl/profile/SPWithEndpoints.xml");
+        final SAMLMetadataContext mdCtx = new SAMLMetadataContext();
+        mdCtx.setEntityDescriptor(entity);
+        mdCtx.setRoleDescriptor(entity.getSPSSODescriptor("required"));
+        final MessageContext omc = prc.getOutboundMessageContext();
+        assert omc!=null;
+        omc.ensureSubcontext(SAMLPeerEntityContext.class).addSubcontext(mdCtx);
+
+        final AtomicInteger resolutions = new AtomicInteger();
+        final DefaultEndpointResolver<Endpoint> resolver = new DefaultEndpointResolver<>() {
+            @Override
+            public Endpoint resolveSingle(final CriteriaSet criteria) throws ResolverException {
+                resolutions.incrementAndGet();
+                return super.resolveSingle(criteria);
+            }
+        };
+        
+        final EndpointResolutionCache cache = new EndpointResolutionCache();
+        cache.initialize();
+        
+        final PopulateBindingAndEndpointContexts cachingAction = new PopulateBindingAndEndpointContexts();
+        cachingAction.setEndpointResolver(resolver);
+        cachingAction.setEndpointResolutionCache(cache);
+        cachingAction.setEndpointType(AssertionConsumerService.DEFAULT_ELEMENT_NAME);
+        final BindingDescriptor binding = new BindingDescriptor();
+        binding.setId(SAMLConstants.SAML2_POST_BINDING_URI);
+        binding.initialize();
+        cachingAction.setBindingDescriptorsLookupStrategy(
+                FunctionSupport.constant(CollectionSupport.singletonList(binding)));
+        cachingAction.initialize();
+        
+        Event event = cachingAction.execute(rc);
+        ActionTestingSupport.assertProceedEvent(event);
+        event = cachingAction.execute(rc);
+        ActionTestingSupport.assertProceedEvent(event);
+        Assert.assertEquals(resolutions.get(), 1);
+        
+        final SAMLPeerEntityContext pec = omc.getSubcontext(SAMLPeerEntityContext.class);
+        assert pec!=null;
+        final SAMLEndpointContext epCtx = pec.getSubcontext(SAMLEndpointContext.class);
+        assert epCtx!=null;
+        final Endpoint ep =epCtx.getEndpoint();
+        assert ep!=null;
+        Assert.assertEquals(ep.getBinding(), SAMLConstants.SAML2_POST_BINDING_URI);
+        Assert.assertEquals(ep.getLocation(), LOCATION_POST);
+        
+        // A new metadata generation must bypass the earlier entry.
+        final EntityDescriptor reloaded = loadMetadata("/net/shibboleth/idp/saml/impl/profile/SPWithEndpoints.xml");
+        mdCtx.setEntityDescriptor(reloaded);
+        mdCtx.setRoleDescriptor(reloaded.getSPSSODescriptor("required"));
+        event = cachingAction.execute(rc);
+        ActionTestingSupport.assertProceedEvent(event);
+        Assert.assertEquals(resolutions.get(), 2);
+    }
+    
     @SuppressWarnings("null")
     @Nonnull private EntityDescriptor loadMetadata(@Nonnull @NotEmpty final String path) throws UnmarshallingException {
         
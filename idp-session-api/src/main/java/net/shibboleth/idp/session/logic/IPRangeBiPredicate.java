@@ -14,6 +14,7 @@
 
 package net.shibboleth.idp.session.logic;
 
+import java.net.InetAddress;
 import java.util.Collection;
 import java.util.function.BiPredicate;
 
@@ -22,7 +23,6 @@ import javax.annotation.Nullable;
 
 import com.google.common.net.InetAddresses;
 
-import net.shibboleth.shared.collection.CollectionSupport;
 import net.shibboleth.shared.logic.Constraint;
 import net.shibboleth.shared.net.IPRange;
 
@@ -30,11 +30,11 @@ import net.shibboleth.shared.net.IPRange;
 public class IPRangeBiPredicate implements BiPredicate<String,String> {
     
     /** IP ranges to match against. */
-    @Nonnull private Collection<IPRange> addressRanges;
+    @Nonnull private IPRangeIndex<IPRange> addressRanges;
 
     /** Constructor. */
     IPRangeBiPredicate() {
-        addressRanges = CollectionSupport.emptyList();
+        addressRanges = new IPRangeIndex<>();
     }
     
     /**
@@ -45,7 +45,13 @@ public class IPRangeBiPredicate implements BiPredicate<String,String> {
     public void setRanges(@Nonnull final Collection<IPRange> ranges) {
         Constraint.isNotNull(ranges, "Address range collection cannot be null");
         
-        addressRanges = CollectionSupport.copyToList(ranges);
+        final IPRangeIndex<IPRange> index = new IPRangeIndex<>();
+        for (final IPRange range : ranges) {
+            if (range != null) {
+                index.add(range, range);
+            }
+        }
+        addressRanges = index;
     }
     
     /** {@inheritDoc} */
@@ -57,13 +63,13 @@ public class IPRangeBiPredicate implements BiPredicate<String,String> {
             return true;
         }
         
-        for (final IPRange range : addressRanges) {
-            if (range.contains(InetAddresses.forString(input1)) && range.contains(InetAddresses.forString(input2))) {
-                return true;
-            }
+        if (addressRanges.isEmpty()) {
+            return false;
         }
         
-        return false;
+        final InetAddress address1 = InetAddresses.forString(input1);
+        final InetAddress address2 = InetAddresses.forString(input2);
+        return addressRanges.containsBoth(address1.getAddress(), address2.getAddress());
     }
     
 }
\ No newline at end of file
@@ -0,0 +1,328 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.shibboleth.idp.session.logic;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.shibboleth.shared.logic.Constraint;
+import net.shibboleth.shared.net.IPRange;
+
+/**
+ * A binary prefix trie over {@link IPRange}s, with separate roots for IPv4 and IPv6, that answers containment
+ * queries in time proportional to the address length rather than the number of ranges.
+ *
+ * <p>Instances are populated via {@link #add(IPRange, Object)} or built with {@link #fromMappings(Map)}, and are
+ * safe for concurrent reads once fully populated and safely published.</p>
+ *
+ * @param <T> type of value associated with each range
+ *
+ * @since 5.2.0
+ */
+public final class IPRangeIndex<T> {
+
+    /** Root for 4-byte addresses. */
+    @Nonnull private final Node<T> v4Root;
+
+    /** Root for 16-byte addresses. */
+    @Nonnull private final Node<T> v6Root;
+
+    /** Ranges whose network address could not be determined, checked linearly. */
+    @Nonnull private final List<Unindexed<T>> unindexed;
+
+    /** Number of ranges added. */
+    private int size;
+
+    /** Constructor. */
+    public IPRangeIndex() {
+        v4Root = new Node<>();
+        v6Root = new Node<>();
+        unindexed = new ArrayList<>();
+    }
+
+    /**
+     * Build an index from a map of values to the ranges associated with them.
+     *
+     * <p>Null or empty string keys and null ranges are ignored.</p>
+     *
+     * @param <T> value type
+     * @param mappings map of values to ranges
+     *
+     * @return the populated index
+     */
+    @Nonnull public static <T> IPRangeIndex<T> fromMappings(
+            @Nullable final Map<T,? extends Collection<IPRange>> mappings) {
+        final IPRangeIndex<T> index = new IPRangeIndex<>();
+        if (mappings != null) {
+            for (final Map.Entry<T,? extends Collection<IPRange>> e : mappings.entrySet()) {
+                final T value = e.getKey();
+                if (value instanceof CharSequence cs && cs.isEmpty()) {
+                    continue;
+                }
+                if (value != null && e.getValue() != null) {
+                    for (final IPRange range : e.getValue()) {
+                        if (range != null) {
+                            index.add(range, value);
+                        }
+                    }
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Get the number of ranges added.
+     *
+     * @return number of ranges
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get whether any ranges have been added.
+     *
+     * @return true iff no ranges have been added
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Add a range and its associated value.
+     *
+     * @param range the range
+     * @param value value to associate with it
+     */
+    public void add(@Nonnull final IPRange range, @Nonnull final T value) {
+        Constraint.isNotNull(range, "Range cannot be null");
+        Constraint.isNotNull(value, "Value cannot be null");
+
+        size++;
+
+        final InetAddress network = range.getNetworkAddress();
+        final byte[] bits = network != null ? network.getAddress() : null;
+        if (bits == null || (bits.length != 4 && bits.length != 16)) {
+            unindexed.add(new Unindexed<>(range, value));
+            return;
+        }
+
+        final int prefixLength = getPrefixLength(range, bits);
+        Node<T> node = bits.length == 4 ? v4Root : v6Root;
+        for (int i = 0; i < prefixLength; i++) {
+            final int bit = getBit(bits, i);
+            Node<T> child = node.children[bit];
+            if (child == null) {
+                child = new Node<>();
+                node.children[bit] = child;
+            }
+            node = child;
+        }
+        if (node.values == null) {
+            node.values = new ArrayList<>(1);
+        }
+        node.values.add(value);
+    }
+
+    /**
+     * Get the value associated with the most specific range containing an address.
+     *
+     * <p>Where several values are associated with equally specific ranges, the first one added is returned.</p>
+     *
+     * @param address the address to check, in network byte order
+     *
+     * @return the value, or null
+     */
+    @Nullable public T getMostSpecific(@Nonnull final byte[] address) {
+        T result = null;
+        Node<T> node = getRoot(address);
+        if (node != null) {
+            final int length = address.length * 8;
+            for (int i = 0; node != null; i++) {
+                if (node.values != null) {
+                    result = node.values.get(0);
+                }
+                node = i < length ? node.children[getBit(address, i)] : null;
+            }
+        }
+
+        if (result == null) {
+            for (final Unindexed<T> entry : unindexed) {
+                if (entry.range().contains(address)) {
+                    return entry.value();
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Get whether any range contains an address.
+     *
+     * @param address the address to check, in network byte order
+     *
+     * @return true iff some range contains the address
+     */
+    public boolean contains(@Nonnull final byte[] address) {
+        return getMostSpecific(address) != null;
+    }
+
+    /**
+     * Get whether a single range contains both of two addresses.
+     *
+     * <p>The ranges containing both addresses are exactly those whose prefix lies within the bits the two
+     * addresses have in common, so only that common path needs to be walked.</p>
+     *
+     * @param address1 first address, in network byte order
+     * @param address2 second address, in network byte order
+     *
+     * @return true iff some range contains both addresses
+     */
+    public boolean containsBoth(@Nonnull final byte[] address1, @Nonnull final byte[] address2) {
+        if (address1.length == address2.length) {
+            final int common = getCommonPrefixLength(address1, address2);
+            Node<T> node = getRoot(address1);
+            for (int i = 0; node != null; i++) {
+                if (node.values != null) {
+                    return true;
+                }
+                node = i < common ? node.children[getBit(address1, i)] : null;
+            }
+        }
+
+        for (final Unindexed<T> entry : unindexed) {
+            if (entry.range().contains(address1) && entry.range().contains(address2)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Get the root for an address of a given length.
+     *
+     * @param address address
+     *
+     * @return the root, or null if the length is not supported
+     */
+    @Nullable private Node<T> getRoot(@Nonnull final byte[] address) {
+        if (address.length == 4) {
+            return v4Root;
+        } else if (address.length == 16) {
+            return v6Root;
+        }
+        return null;
+    }
+
+    /**
+     * Determine the prefix length of a range from its network address.
+     *
+     * <p>{@link IPRange} masks are contiguous, so the prefix length is the number of leading bits of the
+     * network address that cannot be flipped without leaving the range.</p>
+     *
+     * @param range the range
+     * @param network its network address
+     *
+     * @return prefix length in bits
+     */
+    private static int getPrefixLength(@Nonnull final IPRange range, @Nonnull final byte[] network) {
+        final byte[] probe = network.clone();
+        final int length = network.length * 8;
+        for (int i = 0; i < length; i++) {
+            flipBit(probe, i);
+            final boolean inside = range.contains(probe);
+            flipBit(probe, i);
+            if (inside) {
+                return i;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Get the number of leading bits two equal-length addresses share.
+     *
+     * @param address1 first address
+     * @param address2 second address
+     *
+     * @return number of common leading bits
+     */
+    private static int getCommonPrefixLength(@Nonnull final byte[] address1, @Nonnull final byte[] address2) {
+        for (int i = 0; i < address1.length; i++) {
+            final int diff = (address1[i] ^ address2[i]) & 0xff;
+            if (diff != 0) {
+                return i * 8 + Integer.numberOfLeadingZeros(diff) - 24;
+            }
+        }
+        return address1.length * 8;
+    }
+
+    /**
+     * Get a bit of an address, counting from the most significant bit.
+     *
+     * @param address address
+     * @param index bit index
+     *
+     * @return 0 or 1
+     */
+    private static int getBit(@Nonnull final byte[] address, final int index) {
+        return (address[index >> 3] >> (7 - (index & 7))) & 1;
+    }
+
+    /**
+     * Flip a bit of an address in place, counting from the most significant bit.
+     *
+     * @param address address
+     * @param index bit index
+     */
+    private static void flipBit(@Nonnull final byte[] address, final int index) {
+        address[index >> 3] ^= (byte) (1 << (7 - (index & 7)));
+    }
+
+    /**
+     * Trie node.
+     *
+     * @param <T> value type
+     */
+    private static final class Node<T> {
+
+        /** Children for a 0 and 1 bit. */
+        @SuppressWarnings("unchecked")
+        @Nonnull private final Node<T>[] children = new Node[2];
+
+        /** Values for ranges ending at this node, created on first use. */
+        @Nullable private List<T> values;
+    }
+
+    /**
+     * A range that could not be placed in the trie.
+     *
+     * @param <T> value type
+     * @param range the range
+     * @param value its value
+     */
+    private record Unindexed<T>(@Nonnull IPRange range, @Nonnull T value) {
+    }
+
+}
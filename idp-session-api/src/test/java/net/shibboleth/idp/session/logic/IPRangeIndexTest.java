@@ -0,0 +1,80 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.shibboleth.idp.session.logic;
+
+import java.util.List;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.net.InetAddresses;
+
+import net.shibboleth.shared.net.IPRange;
+
+/** {@link IPRangeIndex} unit test. */
+@SuppressWarnings("javadoc")
+public class IPRangeIndexTest {
+
+    private static byte[] addr(final String s) {
+        return InetAddresses.forString(s).getAddress();
+    }
+
+    @Test public void testMostSpecific() {
+        final IPRangeIndex<String> index = IPRangeIndex.fromMappings(Map.of(
+                "campus", List.of(IPRange.parseCIDRBlock("10.0.0.0/8"), IPRange.parseCIDRBlock("2001:db8::/32")),
+                "lab", List.of(IPRange.parseCIDRBlock("10.1.2.0/24")),
+                "host", List.of(IPRange.parseCIDRBlock("10.1.2.3/32"))));
+
+        Assert.assertEquals(index.size(), 4);
+        Assert.assertEquals(index.getMostSpecific(addr("10.9.9.9")), "campus");
+        Assert.assertEquals(index.getMostSpecific(addr("10.1.2.4")), "lab");
+        Assert.assertEquals(index.getMostSpecific(addr("10.1.2.3")), "host");
+        Assert.assertEquals(index.getMostSpecific(addr("2001:db8:1::1")), "campus");
+        Assert.assertNull(index.getMostSpecific(addr("192.168.1.1")));
+        Assert.assertNull(index.getMostSpecific(addr("2001:db9::1")));
+    }
+
+    @Test public void testEmptyKeys() {
+        final IPRangeIndex<String> index = IPRangeIndex.fromMappings(Map.of(
+                "", List.of(IPRange.parseCIDRBlock("10.1.2.0/24")),
+                "campus", List.of(IPRange.parseCIDRBlock("10.0.0.0/8"))));
+
+        Assert.assertEquals(index.size(), 1);
+        Assert.assertEquals(index.getMostSpecific(addr("10.1.2.3")), "campus");
+    }
+
+    @Test public void testContainsBoth() {
+        final IPRangeIndex<Boolean> index = new IPRangeIndex<>();
+        index.add(IPRange.parseCIDRBlock("192.168.1.0/24"), Boolean.TRUE);
+        index.add(IPRange.parseCIDRBlock("172.16.0.0/12"), Boolean.TRUE);
+
+        Assert.assertTrue(index.containsBoth(addr("192.168.1.1"), addr("192.168.1.254")));
+        Assert.assertTrue(index.containsBoth(addr("172.16.0.1"), addr("172.31.255.1")));
+        Assert.assertFalse(index.containsBoth(addr("192.168.1.1"), addr("192.168.2.1")));
+        Assert.assertFalse(index.containsBoth(addr("192.168.1.1"), addr("172.16.0.1")));
+        Assert.assertFalse(index.containsBoth(addr("192.168.1.1"), addr("::1")));
+    }
+
+    @Test public void testDefaultRoute() {
+        final IPRangeIndex<String> index = new IPRangeIndex<>();
+        index.add(IPRange.parseCIDRBlock("0.0.0.0/0"), "any");
+
+        Assert.assertEquals(index.getMostSpecific(addr("8.8.8.8")), "any");
+        Assert.assertTrue(index.containsBoth(addr("1.1.1.1"), addr("200.1.1.1")));
+        Assert.assertNull(index.getMostSpecific(addr("::1")));
+    }
+
+}
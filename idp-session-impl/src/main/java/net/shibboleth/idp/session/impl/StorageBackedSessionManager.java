@@ -36,6 +36,7 @@ import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
 
 import net.shibboleth.idp.authn.AuthenticationFlowDescriptor;
+import net.shibboleth.idp.profile.jfr.StorageOperationEvent;
 import net.shibboleth.idp.session.IdPSession;
 import net.shibboleth.idp.session.SPSession;
 import net.shibboleth.idp.session.SPSessionSerializerRegistry;
@@ -112,6 +113,24 @@ public class StorageBackedSessionManager extends AbstractIdentifiableInitializab
     /** Storage key of primary session records. */
     @Nonnull @NotEmpty public static final String SESSION_PRIMARY_KEY = "_session";
 
+    /** Operation name reported to the Flight Recorder for session creation. */
+    @Nonnull @NotEmpty private static final String OP_CREATE_SESSION = "createSession";
+
+    /** Operation name reported to the Flight Recorder for session destruction. */
+    @Nonnull @NotEmpty private static final String OP_DESTROY_SESSION = "destroySession";
+
+    /** Operation name reported to the Flight Recorder for primary session lookup. */
+    @Nonnull @NotEmpty private static final String OP_LOOKUP_SESSION = "lookupSession";
+
+    /** Operation name reported to the Flight Recorder for secondary session lookup. */
+    @Nonnull @NotEmpty private static final String OP_LOOKUP_BY_SPSESSION = "lookupBySPSession";
+
+    /** Operation name reported to the Flight Recorder for secondary index maintenance. */
+    @Nonnull @NotEmpty private static final String OP_INDEX_SPSESSION = "indexSPSession";
+
+    /** Operation name reported to the Flight Recorder for secondary index removal. */
+    @Nonnull @NotEmpty private static final String OP_UNINDEX_SPSESSION = "unindexSPSession";
+
     /** Default cookie name for session tracking. */
     @Nonnull @NotEmpty protected static final String DEFAULT_COOKIE_NAME = "shib_idp_session";
 
@@ -523,16 +542,22 @@ public class StorageBackedSessionManager extends AbstractIdentifiableInitializab
                 new StorageBackedIdPSession(this, sessionId, principalName, now);
         newSession.doBindToAddress(remoteAddr);
 
+        final StorageOperationEvent event = new StorageOperationEvent();
+        event.begin();
+        String outcome = StorageOperationEvent.OUTCOME_FAILURE;
         try {
             if (!storageService.create(sessionId, SESSION_PRIMARY_KEY, newSession, serializer,
                     newSession.getCreationInstant().plus(sessionTimeout).plus(sessionSlop).toEpochMilli())) {
                 throw new SessionException("A duplicate session ID was generated, unable to create session");
             }
+            outcome = StorageOperationEvent.OUTCOME_SUCCESS;
         } catch (final IOException e) {
             log.error("Exception while storing new session for principal {}", principalName, e);
             if (!maskStorageFailure) {
                 throw new SessionException("Exception while storing new session", e);
             }
+        } finally {
+            event.complete(OP_CREATE_SESSION, storageService.getId(), outcome);
         }
 
         log.debug("Created new session {} for principal {}", sessionId, principalName);
@@ -553,12 +578,18 @@ public class StorageBackedSessionManager extends AbstractIdentifiableInitializab
             cookieManager.unsetCookie(cookieName);
         }
 
+        final StorageOperationEvent event = new StorageOperationEvent();
+        event.begin();
+        String outcome = StorageOperationEvent.OUTCOME_FAILURE;
         try {
             storageService.deleteContext(sessionId);
+            outcome = StorageOperationEvent.OUTCOME_SUCCESS;
             log.debug("Destroyed session {}", sessionId);
         } catch (final IOException e) {
             log.error("Exception while destroying session {}: {}", sessionId, e.getMessage());
             throw new SessionException("Exception while destroying session", e);
+        } finally {
+            event.complete(OP_DESTROY_SESSION, storageService.getId(), outcome);
         }
     }
 
@@ -666,11 +697,17 @@ public class StorageBackedSessionManager extends AbstractIdentifiableInitializab
             assert serviceId != null && serviceKey != null;
             StorageRecord<?> sessionList = null;
 
+            final StorageOperationEvent event = new StorageOperationEvent();
+            event.begin();
+            String outcome = StorageOperationEvent.OUTCOME_SUCCESS;
+
             try {
                 sessionList = storageService.read(serviceId, serviceKey);
             } catch (final IOException e) {
                 log.error("Exception while querying based service ID {} and key {}", serviceId, serviceKey, e);
+                outcome = StorageOperationEvent.OUTCOME_FAILURE;
                 if (!maskStorageFailure) {
+                    event.complete(OP_INDEX_SPSESSION, storageService.getId(), outcome);
                     throw new SessionException("Exception while querying based on SPSession", e);
                 }
             }
@@ -685,7 +722,7 @@ public class StorageBackedSessionManager extends AbstractIdentifiableInitializab
                                         "Session List Expiration not set"),
                                         spSession.getExpirationInstant().plus(sessionSlop).toEpochMilli())) == null) {
                             log.debug("Secondary index record disappeared, retrying as insert");
-                            indexBySPSession(idpSession, spSession, attempts - 1);
+                            outcome = StorageOperationEvent.OUTCOME_RETRY;
                         }
                     } else {
                         log.debug("IdP session {} already indexed against service ID {} and key {}", idpSession.getId(),
@@ -694,16 +731,24 @@ public class StorageBackedSessionManager extends AbstractIdentifiableInitializab
                 } else if (!storageService.create(serviceId, serviceKey, idpSession.getId() + ',',
                         spSession.getExpirationInstant().plus(sessionSlop).toEpochMilli())) {
                     log.debug("Secondary index record appeared, retrying as update");
-                    indexBySPSession(idpSession, spSession, attempts - 1);
+                    outcome = StorageOperationEvent.OUTCOME_RETRY;
                 }
             } catch (final IOException e) {
                 log.error("Exception maintaining secondary index for service ID {} and key {}",
                         serviceId, serviceKey, e);
+                outcome = StorageOperationEvent.OUTCOME_FAILURE;
                 if (!maskStorageFailure) {
+                    event.complete(OP_INDEX_SPSESSION, storageService.getId(), outcome);
                     throw new SessionException("Exception maintaining secondary index", e);
                 }
             } catch (final VersionMismatchException e) {
                 log.debug("Secondary index record was updated between read/update, retrying");
+                outcome = StorageOperationEvent.OUTCOME_RETRY;
+            }
+
+            // Each attempt is recorded separately, so complete this one before any retry.
+            event.complete(OP_INDEX_SPSESSION, storageService.getId(), outcome);
+            if (StorageOperationEvent.OUTCOME_RETRY.equals(outcome)) {
                 indexBySPSession(idpSession, spSession, attempts - 1);
             }
         }
@@ -749,11 +794,17 @@ public class StorageBackedSessionManager extends AbstractIdentifiableInitializab
 
             StorageRecord<?> sessionList = null;
 
+            final StorageOperationEvent event = new StorageOperationEvent();
+            event.begin();
+            String outcome = StorageOperationEvent.OUTCOME_SUCCESS;
+
             try {
                 sessionList = storageService.read(serviceId, serviceKey);
             } catch (final IOException e) {
                 log.error("Exception while querying based service ID {} and key {}", serviceId, serviceKey, e);
+                outcome = StorageOperationEvent.OUTCOME_FAILURE;
                 if (!maskStorageFailure) {
+                    event.complete(OP_UNINDEX_SPSESSION, storageService.getId(), outcome);
                     throw new SessionException("Exception while querying based on SPSession", e);
                 }
             }
@@ -775,18 +826,28 @@ public class StorageBackedSessionManager extends AbstractIdentifiableInitializab
                     } else {
                         log.debug("IdP session {} not indexed against service ID {} and key {}", idpSession.getId(),
                                 serviceId, serviceKey);
+                        outcome = StorageOperationEvent.OUTCOME_NOT_FOUND;
                     }
                 } else {
                     log.debug("Secondary index record not found, nothing to do");
+                    outcome = StorageOperationEvent.OUTCOME_NOT_FOUND;
                 }
             } catch (final IOException e) {
                 log.error("Exception removing secondary index for service ID {} and key {}",
                         serviceId, serviceKey, e);
+                outcome = StorageOperationEvent.OUTCOME_FAILURE;
                 if (!maskStorageFailure) {
+                    event.complete(OP_UNINDEX_SPSESSION, storageService.getId(), outcome);
                     throw new SessionException("Exception maintaining secondary index", e);
                 }
             } catch (final VersionMismatchException e) {
                 log.debug("Secondary index record was updated between read/update/delete, retrying");
+                outcome = StorageOperationEvent.OUTCOME_RETRY;
+            }
+
+            // Each attempt is recorded separately, so complete this one before any retry.
+            event.complete(OP_UNINDEX_SPSESSION, storageService.getId(), outcome);
+            if (StorageOperationEvent.OUTCOME_RETRY.equals(outcome)) {
                 unindexSPSession(idpSession, spSession, attempts - 1);
             }
         }
@@ -810,18 +871,26 @@ public class StorageBackedSessionManager extends AbstractIdentifiableInitializab
         
         log.debug("Performing primary lookup on session ID {}", sessionId);
 
+        final StorageOperationEvent event = new StorageOperationEvent();
+        event.begin();
+        String outcome = StorageOperationEvent.OUTCOME_FAILURE;
         try {
             final StorageRecord<StorageBackedIdPSession> sessionRecord =
                     storageService.read(sessionId, SESSION_PRIMARY_KEY);
             if (sessionRecord != null) {
-                return sessionRecord.getValue(serializer, sessionId, SESSION_PRIMARY_KEY);
+                final IdPSession session = sessionRecord.getValue(serializer, sessionId, SESSION_PRIMARY_KEY);
+                outcome = StorageOperationEvent.OUTCOME_SUCCESS;
+                return session;
             }
+            outcome = StorageOperationEvent.OUTCOME_NOT_FOUND;
             log.debug("Primary lookup failed for session ID {}", sessionId);
         } catch (final IOException e) {
             log.error("Exception while querying for session ID {}", sessionId, e);
             if (!maskStorageFailure) {
                 throw new ResolverException("Exception while querying for session", e);
             }
+        } finally {
+            event.complete(OP_LOOKUP_SESSION, storageService.getId(), outcome);
         }
 
         return null;
@@ -857,13 +926,20 @@ public class StorageBackedSessionManager extends AbstractIdentifiableInitializab
 
         StorageRecord<?> sessionList = null;
 
+        final StorageOperationEvent event = new StorageOperationEvent();
+        event.begin();
+        String outcome = StorageOperationEvent.OUTCOME_FAILURE;
         try {
             sessionList = storageService.read(serviceId, serviceKey);
+            outcome = sessionList != null ? StorageOperationEvent.OUTCOME_SUCCESS
+                    : StorageOperationEvent.OUTCOME_NOT_FOUND;
         } catch (final IOException e) {
             log.error("Exception while querying based service ID {} and key {}", serviceId, serviceKey, e);
             if (!maskStorageFailure) {
                 throw new ResolverException("Exception while querying based on SPSession", e);
             }
+        } finally {
+            event.complete(OP_LOOKUP_BY_SPSESSION, storageService.getId(), outcome);
         }
 
         if (sessionList == null) {
@@ -17,6 +17,7 @@ package net.shibboleth.idp.profile.spring.factory;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -29,10 +30,13 @@ import org.slf4j.Logger;
 import org.springframework.beans.factory.BeanCreationException;
 import org.springframework.beans.factory.config.AbstractFactoryBean;
 import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.webflow.config.FlowDefinitionResource;
 import org.springframework.webflow.core.collection.LocalAttributeMap;
 import org.springframework.webflow.definition.registry.FlowDefinitionRegistry;
 import org.springframework.webflow.definition.registry.FlowDefinitionRegistryImpl;
+import org.springframework.webflow.definition.registry.NoSuchFlowDefinitionException;
 import org.springframework.webflow.engine.builder.DefaultFlowHolder;
 import org.springframework.webflow.engine.builder.FlowAssembler;
 import org.springframework.webflow.engine.builder.FlowBuilder;
@@ -57,8 +61,14 @@ import net.shibboleth.shared.primitive.StringSupport;
  * 
  * <p>Overrides the resource factory implementation, which they neglected to support, and that's
  * where all the fancy derivation of flow IDs lives.</p>
+ * 
+ * <p>Only the flow IDs and resource locations are registered at startup. Each flow's model is parsed,
+ * and its bean definitions loaded into a child context, on first use. Selected flows can optionally be
+ * built in the background once the owning context has been refreshed so that the first request to them
+ * does not bear that cost.</p>
  */
-public class FlowDefinitionRegistryFactoryBean extends AbstractFactoryBean<FlowDefinitionRegistry> {
+public class FlowDefinitionRegistryFactoryBean extends AbstractFactoryBean<FlowDefinitionRegistry>
+        implements ApplicationListener<ContextRefreshedEvent> {
 
     /** Class logger. */
     @Nonnull private final Logger log = LoggerFactory.getLogger(FlowDefinitionRegistryFactoryBean.class);
@@ -77,11 +87,21 @@ public class FlowDefinitionRegistryFactoryBean extends AbstractFactoryBean<FlowD
 
     /** Optional parent reference. */
     @Nullable private FlowDefinitionRegistry parent;
+
+    /** Flows to build in the background after startup. */
+    @Nonnull private List<String> prewarmFlows;
+
+    /** Whether background building has been started. */
+    private boolean prewarmStarted;
+
+    /** Signals background building to stop. */
+    private volatile boolean prewarmCancelled;
     
     /** Constructor. */
     public FlowDefinitionRegistryFactoryBean() {
         flowLocations = CollectionSupport.emptyMap();
         flowLocationPatterns = CollectionSupport.emptyMap();
+        prewarmFlows = CollectionSupport.emptyList();
     }
 
     /** {@inheritDoc} */
@@ -152,6 +172,18 @@ public class FlowDefinitionRegistryFactoryBean extends AbstractFactoryBean<FlowD
         parent = parentRegistry;
     }
 
+    /**
+     * Set the IDs of flows to build in the background once the owning context has been refreshed.
+     * 
+     * @param flowIds flow IDs, in the order to build them
+     * 
+     * @since 5.2.0
+     */
+    public void setPrewarmFlows(@Nullable final Collection<String> flowIds) {
+        prewarmFlows = flowIds != null ? StringSupport.normalizeStringCollection(flowIds).stream().distinct().toList()
+                : CollectionSupport.emptyList();
+    }
+
     /** {@inheritDoc} */
     @Override
     @Nonnull protected FlowDefinitionRegistry createInstance() throws Exception {
@@ -177,8 +209,31 @@ public class FlowDefinitionRegistryFactoryBean extends AbstractFactoryBean<FlowD
         return flowRegistry;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public void onApplicationEvent(final ContextRefreshedEvent event) {
+        if (prewarmFlows.isEmpty() || prewarmStarted || flowBuilderServices == null
+                || event.getApplicationContext() != flowBuilderServices.getApplicationContext()) {
+            return;
+        }
+
+        prewarmStarted = true;
+        final FlowDefinitionRegistry registry;
+        try {
+            registry = getObject();
+        } catch (final Exception e) {
+            log.warn("Flow registry unavailable, skipping background build of flows", e);
+            return;
+        }
+
+        final Thread thread = new Thread(() -> prewarm(registry), "idp-flow-prewarm");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
     /** {@inheritDoc} */
     @Override protected void destroyInstance(@Nullable final FlowDefinitionRegistry instance) throws Exception {
+        prewarmCancelled = true;
         if (instance != null) {
             ((DefaultFlowRegistry) instance).destroy();
         }
@@ -279,6 +334,35 @@ public class FlowDefinitionRegistryFactoryBean extends AbstractFactoryBean<FlowD
         log.debug("Registered flow ID '{}' using '{}'", resource.getId(), resource.getPath());
     }
 
+    /**
+     * Build the configured flows so that first use of them is not delayed.
+     * 
+     * @param registry the registry to obtain the flows from
+     */
+    private void prewarm(@Nonnull final FlowDefinitionRegistry registry) {
+        final long start = System.currentTimeMillis();
+        int built = 0;
+
+        for (final String flowId : prewarmFlows) {
+            if (prewarmCancelled) {
+                log.debug("Background build of flows cancelled");
+                return;
+            }
+            try {
+                registry.getFlowDefinition(flowId);
+                built++;
+                log.debug("Built flow '{}' in the background", flowId);
+            } catch (final NoSuchFlowDefinitionException e) {
+                log.warn("Unable to build unregistered flow '{}' in the background", flowId);
+            } catch (final RuntimeException e) {
+                log.warn("Error building flow '{}' in the background, will retry on first use", flowId, e);
+            }
+        }
+
+        log.info("Built {} of {} flow(s) in the background in {}ms", built, prewarmFlows.size(),
+                System.currentTimeMillis() - start);
+    }
+
     /**
      * Update flow attributes with development bit.
      * 
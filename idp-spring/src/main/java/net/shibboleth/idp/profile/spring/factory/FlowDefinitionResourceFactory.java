@@ -15,12 +15,17 @@
 package net.shibboleth.idp.profile.spring.factory;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import org.slf4j.Logger;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.ContextResource;
 import org.springframework.core.io.FileSystemResource;
@@ -29,6 +34,7 @@ import org.springframework.core.io.ResourceLoader;
 import org.springframework.core.io.UrlResource;
 import org.springframework.core.io.VfsResource;
 import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.util.AntPathMatcher;
 import org.springframework.util.StringUtils;
 import org.springframework.webflow.config.FlowDefinitionResource;
 import org.springframework.webflow.core.collection.AttributeMap;
@@ -36,15 +42,25 @@ import org.springframework.webflow.core.collection.AttributeMap;
 import net.shibboleth.shared.annotation.constraint.NotEmpty;
 import net.shibboleth.shared.collection.CollectionSupport;
 import net.shibboleth.shared.logic.Constraint;
+import net.shibboleth.shared.primitive.LoggerFactory;
+import net.shibboleth.shared.primitive.StringSupport;
 
 /**
  * Derivation of SWF-supplied resource factory for flow definitions.
  * 
  * <p>This implementation overrides the behavior of the built-in factory with regard to handling
  * absolute paths while still supporting relative paths.</p>
+ * 
+ * <p>Wildcard classpath patterns are resolved against each location containing the pattern's root
+ * directory. A location that contains a {@link #FLOW_INDEX_FILENAME} file in that directory, as generated
+ * at build time, is read from the index instead of being scanned. The index is a properties file mapping
+ * flow IDs to flow definition paths relative to the directory.</p>
  */
 public class FlowDefinitionResourceFactory {
 
+    /** Name of the flow index file in the root directory of a pattern. */
+    @Nonnull @NotEmpty public static final String FLOW_INDEX_FILENAME = "flow-index.properties";
+
     /** Classpath scheme prefix. */
     @Nonnull @NotEmpty private static final String CLASSPATH_SCHEME = "classpath:";
 
@@ -57,9 +73,15 @@ public class FlowDefinitionResourceFactory {
     /** Path separator. */
     @Nonnull @NotEmpty private static final String SLASH = "/";
 
+    /** Class logger. */
+    @Nonnull private final Logger log = LoggerFactory.getLogger(FlowDefinitionResourceFactory.class);
+
     /** Spring resource loader. */
     @Nonnull private final ResourceLoader resourceLoader;
 
+    /** Matcher for index entries. */
+    @Nonnull private final AntPathMatcher pathMatcher;
+
     /**
      * Creates a new flow definition resource factory using the specified resource loader.
      * 
@@ -67,6 +89,7 @@ public class FlowDefinitionResourceFactory {
      */
     public FlowDefinitionResourceFactory(@Nonnull final ResourceLoader loader) {
         resourceLoader = Constraint.isNotNull(loader, "The resource loader cannot be null");
+        pathMatcher = new AntPathMatcher();
     }
 
     /**
@@ -131,19 +154,121 @@ public class FlowDefinitionResourceFactory {
                     "Cannot create flow definition resources from patterns without a ResourcePatternResolver");
         }
 
-        final Resource[] resources;
         final ResourcePatternResolver resolver = (ResourcePatternResolver) resourceLoader;
         
+        final String location;
         if (isAbsolute(pattern)) {
-            resources = resolver.getResources(pattern);
+            location = pattern;
+        } else if (basePath.endsWith(SLASH) || pattern.startsWith(SLASH)) {
+            location = basePath + pattern;
         } else {
-            if (basePath.endsWith(SLASH) || pattern.startsWith(SLASH)) {
-                resources = resolver.getResources(basePath + pattern);
+            location = basePath + SLASH + pattern;
+        }
+        
+        if (location.startsWith(CLASSPATH_STAR_SCHEME) && pathMatcher.isPattern(location)) {
+            return createClasspathResources(resolver, basePath, location, attributes);
+        }
+        
+        final long start = System.currentTimeMillis();
+        final Collection<FlowDefinitionResource> flowResources =
+                createScannedResources(resolver, basePath, location, attributes);
+        log.info("Resolved {} flow(s) from '{}' by scanning in {}ms", flowResources.size(), location,
+                System.currentTimeMillis() - start);
+        return flowResources;
+    }
+
+    /**
+     * Create flow definition resources from a wildcard classpath pattern, using the flow index in each
+     * location that has one and scanning the others.
+     * 
+     * @param resolver resource resolver
+     * @param basePath base location used in truncating to obtain the flow IDs
+     * @param location the resource path pattern
+     * @param attributes the flow definition meta attributes to configure
+     * 
+     * @return the flow definition resources
+     * @throws IOException if resolving the resources fails
+     */
+    @Nonnull private Collection<FlowDefinitionResource> createClasspathResources(
+            @Nonnull final ResourcePatternResolver resolver, @Nonnull @NotEmpty final String basePath,
+            @Nonnull @NotEmpty final String location, @Nonnull final AttributeMap<Object> attributes)
+                    throws IOException {
+        
+        final long start = System.currentTimeMillis();
+        final String rootDir = getRootDir(location);
+        final String subPattern = location.substring(rootDir.length());
+        
+        final Collection<FlowDefinitionResource> flowResources = new ArrayList<>();
+        int indexed = 0;
+        int scanned = 0;
+        for (final Resource root : resolver.getResources(rootDir)) {
+            final Resource index = root.createRelative(FLOW_INDEX_FILENAME);
+            if (index.exists()) {
+                flowResources.addAll(createIndexedResources(root, index, subPattern, attributes));
+                indexed++;
             } else {
-                resources = resolver.getResources(basePath + SLASH + pattern);
+                final String rootLocation = root.getURL().toString();
+                flowResources.addAll(createScannedResources(resolver, basePath, rootLocation + subPattern,
+                        attributes));
+                scanned++;
             }
         }
         
+        log.info("Resolved {} flow(s) from '{}' using {} indexed and {} scanned location(s) in {}ms",
+                flowResources.size(), location, indexed, scanned, System.currentTimeMillis() - start);
+        return flowResources;
+    }
+
+    /**
+     * Create flow definition resources listed in a flow index.
+     * 
+     * @param root directory containing the index
+     * @param index the index resource
+     * @param subPattern pattern relative to the directory that entries must match
+     * @param attributes the flow definition meta attributes to configure
+     * 
+     * @return the flow definition resources
+     * @throws IOException if reading the index fails
+     */
+    @Nonnull private Collection<FlowDefinitionResource> createIndexedResources(@Nonnull final Resource root,
+            @Nonnull final Resource index, @Nonnull final String subPattern,
+            @Nonnull final AttributeMap<Object> attributes) throws IOException {
+        
+        final Properties entries = new Properties();
+        try (final InputStream is = index.getInputStream()) {
+            entries.load(is);
+        }
+        
+        final Collection<FlowDefinitionResource> flowResources = new ArrayList<>(entries.size());
+        for (final Map.Entry<Object,Object> entry : new TreeMap<>(entries).entrySet()) {
+            final String flowId = StringSupport.trimOrNull(entry.getKey().toString());
+            final String path = StringSupport.trimOrNull(entry.getValue().toString());
+            if (flowId == null || path == null || !pathMatcher.match(subPattern, path)) {
+                log.trace("Ignoring index entry '{}' in {}", flowId, index);
+                continue;
+            }
+            flowResources.add(new FlowDefinitionResource(flowId, root.createRelative(path), attributes));
+        }
+        return flowResources;
+    }
+
+    /**
+     * Create flow definition resources by scanning for resources matching a pattern.
+     * 
+     * @param resolver resource resolver
+     * @param basePath base location used in truncating to obtain the flow IDs
+     * @param location the resource path pattern
+     * @param attributes the flow definition meta attributes to configure
+     * 
+     * @return the flow definition resources
+     * @throws IOException if resolving the resources fails
+     */
+    @Nonnull private Collection<FlowDefinitionResource> createScannedResources(
+            @Nonnull final ResourcePatternResolver resolver, @Nonnull @NotEmpty final String basePath,
+            @Nonnull @NotEmpty final String location, @Nonnull final AttributeMap<Object> attributes)
+                    throws IOException {
+        
+        final Resource[] resources = resolver.getResources(location);
         if (resources.length == 0) {
             return CollectionSupport.emptyList();
         }
@@ -156,6 +281,27 @@ public class FlowDefinitionResourceFactory {
         return flowResources;
     }
 
+    /**
+     * Get the portion of a pattern up to the last directory separator before the first wildcard.
+     * 
+     * @param location the pattern
+     * 
+     * @return the root directory, ending in a separator
+     */
+    @Nonnull @NotEmpty private String getRootDir(@Nonnull @NotEmpty final String location) {
+        final int prefixEnd = location.indexOf(':') + 1;
+        int rootDirEnd = location.length();
+        while (rootDirEnd > prefixEnd && pathMatcher.isPattern(location.substring(prefixEnd, rootDirEnd))) {
+            rootDirEnd = location.lastIndexOf('/', rootDirEnd - 2) + 1;
+        }
+        if (rootDirEnd == 0) {
+            rootDirEnd = prefixEnd;
+        }
+        final String result = location.substring(0, rootDirEnd);
+        assert result != null;
+        return result;
+    }
+
 // Checkstyle: CyclomaticComplexity OFF
     /**
      * Obtains the flow id from the flow resource. By default, the flow id becomes the portion of the path between the
@@ -36,6 +36,7 @@ import org.springframework.webflow.scope.FlowScope;
 import org.springframework.webflow.scope.ViewScope;
 
 import net.shibboleth.idp.profile.impl.ProfileActionBeanPostProcessor;
+import net.shibboleth.idp.profile.impl.StatelessProfileActionBeanFactoryPostProcessor;
 import net.shibboleth.shared.collection.CollectionSupport;
 import net.shibboleth.shared.spring.config.IdentifiableBeanPostProcessor;
 import net.shibboleth.shared.spring.context.FilesystemGenericApplicationContext;
@@ -47,6 +48,13 @@ import net.shibboleth.shared.spring.custom.SchemaTypeAwareXMLBeanDefinitionReade
  */
 public class FlowModelFlowBuilder extends org.springframework.webflow.engine.builder.model.FlowModelFlowBuilder {
 
+    /**
+     * Property controlling whether stateless profile actions are shared across requests.
+     * 
+     * @since 5.2.0
+     */
+    @Nonnull public static final String STATELESS_ACTIONS_PROPERTY = "idp.webflow.statelessActions";
+
     /**
      * Constructor.
      *
@@ -131,6 +139,11 @@ public class FlowModelFlowBuilder extends org.springframework.webflow.engine.bui
         propertyConfigurer.setEnvironment(flowContext.getEnvironment());
         flowContext.addBeanFactoryPostProcessor(propertyConfigurer);
         
+        // Shibboleth change - share the stateless actions we ship, but not subclasses, across requests.
+        if (flowContext.getEnvironment().getProperty(STATELESS_ACTIONS_PROPERTY, Boolean.class, Boolean.TRUE)) {
+            flowContext.addBeanFactoryPostProcessor(new StatelessProfileActionBeanFactoryPostProcessor());
+        }
+        
         // Shibboleth change - auto-inject our profile flow bean processors.
         flowContext.getBeanFactory().addBeanPostProcessor(new IdentifiableBeanPostProcessor());
         flowContext.getBeanFactory().addBeanPostProcessor(new ProfileActionBeanPostProcessor());
@@ -0,0 +1,73 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.shibboleth.idp.profile.spring.factory;
+
+import java.io.IOException;
+import java.util.Collection;
+
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.webflow.config.FlowDefinitionResource;
+import org.springframework.webflow.core.collection.LocalAttributeMap;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for the {@link FlowDefinitionResourceFactory}.
+ */
+public class FlowDefinitionResourceFactoryTest {
+
+    /** Base location of the test flows. */
+    private static final String BASE = "/net/shibboleth/idp/profile/spring/factory/";
+
+    /** The factory to test. */
+    private FlowDefinitionResourceFactory factory;
+
+    @BeforeMethod
+    public void setUp() {
+        factory = new FlowDefinitionResourceFactory(new PathMatchingResourcePatternResolver());
+    }
+
+    /**
+     * Test that flows in a location with an index are taken from the index.
+     * 
+     * @throws IOException on error
+     */
+    @Test
+    public void testIndexed() throws IOException {
+        final Collection<FlowDefinitionResource> resources = factory.createResources(BASE + "indexed",
+                "classpath*:" + BASE + "indexed/**/*-flow.xml", new LocalAttributeMap<>());
+        Assert.assertEquals(resources.size(), 1);
+        final FlowDefinitionResource resource = resources.iterator().next();
+        Assert.assertEquals(resource.getId(), "test/indexed");
+        Assert.assertTrue(resource.getPath().exists());
+    }
+
+    /**
+     * Test that flows in a location without an index are found by scanning.
+     * 
+     * @throws IOException on error
+     */
+    @Test
+    public void testScanned() throws IOException {
+        final Collection<FlowDefinitionResource> resources = factory.createResources(BASE + "scanned",
+                "classpath*:" + BASE + "scanned/**/*-flow.xml", new LocalAttributeMap<>());
+        Assert.assertEquals(resources.size(), 1);
+        final FlowDefinitionResource resource = resources.iterator().next();
+        Assert.assertEquals(resource.getId(), "test/flow");
+        Assert.assertTrue(resource.getPath().exists());
+    }
+
+}